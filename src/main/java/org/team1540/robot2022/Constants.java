@@ -11,6 +11,13 @@ public final class Constants {
 
     public static final double MOTOR_VOLTAGE = 12;
 
+    public static final class FieldConstants {
+        // Center of the hub, in the same field coordinates as the autonomous paths
+        public static final double HUB_X = 8.23;
+        public static final double HUB_Y = 4.115;
+        public static final double LOWER_HUB_RADIUS = 0.76; // meters
+    }
+
     public static final class DriveConstants {
         public static final double ENCODER_TICKS_PER_METER = 49866;
 
@@ -79,6 +86,11 @@ public final class Constants {
             public static final int SOLENOID_B = 1;
         }
 
+        public static final class Sensors {
+            public static final int LEFT = 3;
+            public static final int RIGHT = 2;
+        }
+
         // Zero sequence
         public static final double ZERO_DOWN_SPEED = 0.8;
         public static final double ZERO_SPIKE_CURRENT = 20;
@@ -1,6 +1,8 @@
 package org.team1540.robot2022;
 
+import org.team1540.robot2022.utils.CalibrationFile;
 import org.team1540.robot2022.utils.ClampedExponentialInterpolator;
+import org.team1540.robot2022.utils.GridInterpolator;
 import org.team1540.robot2022.utils.Interpolator;
 import org.team1540.robot2022.utils.LinearInterpolator;
 
@@ -18,9 +20,14 @@ public class InterpolationTable {
     public static final double shooterSpinupFront = 2000;
     public static final double shooterSpinupRear = 2000;
 
-    // Interpolation values for the hood up
+    // Kept up without any balls, so spinning up for a shot takes less time than from a stop
+    public static final double shooterIdleFront = 1000;
+    public static final double shooterIdleRear = 1000;
+
+    // Interpolation values for the hood up, used if deploy/hoodUp.csv can't be loaded
+    public static final String hoodUpFile = "hoodUp.csv";
     public static final double[][] hoodUp = {
-            // {distance (inches), frontSpeed, backSpeed}
+            // {distance (inches), frontSpeed, backSpeed}. backSpeed isn't used, the rear follows rearFlywheel below
             {60, 2000, 1900},
             {78, 2000, 2000},
             {92, 2100, 2100},
@@ -31,24 +38,88 @@ public class InterpolationTable {
             {162, 2000, 4000},
     };
 
+    // The hood up rear flywheel speed is a * b^distance, clamped to [lower, upper]. Used if deploy/rearFlywheel.csv
+    // can't be loaded. Exponential values from https://www.desmos.com/calculator/u2hiylp0ry
+    public static final String rearFlywheelFile = "rearFlywheel.csv";
+    public static final double[] rearFlywheel = {1041.79, 1.00796, 2000, 4000};
+
+    // Grid of {distance (inches), radial velocity (m/s, positive away from the hub), hood (1 up, 0 down)} -> {frontSpeed, backSpeed}
+    public static final String shooterGridFile = "shooterGrid.csv";
+
+    // Seconds to lead the hub by when shooting while moving, with the hood up. It's less than the time of flight since
+    // drag takes away some of the robot's velocity from the ball. From sim/BallSim until it's tuned on the robot.
+    public static final String leadTimeFile = "leadTime.csv";
+    public static final double[][] leadTime = {
+            // {distance (inches), seconds}
+            {60, 0.61},
+            {80, 0.71},
+            {100, 0.80},
+            {120, 0.87},
+            {140, 0.93},
+            {160, 0.98},
+            {180, 1.02},
+            {200, 1.06},
+    };
+
     private static InterpolationTable instance = null;
     public Interpolator frontFlywheelInterpolator, rearFlywheelInterpolator;
+    private final CalibrationFile<LinearInterpolator> frontFlywheelTable;
+    private final CalibrationFile<ClampedExponentialInterpolator> rearFlywheelCurve;
+    private final CalibrationFile<GridInterpolator> shooterGrid;
+    private final CalibrationFile<LinearInterpolator> leadTimeTable;
+    private final double[] gridQuery = new double[3];
 
     private InterpolationTable() {
         double[][] data = hoodUp;
         double[][] frontData = new double[data.length][2];
-        double[][] rearData = new double[data.length][2];
 
         for (int i = 0; i < data.length; i++) {
             double[] row = data[i];
             frontData[i] = new double[]{row[0], row[1]};
-            rearData[i] = new double[]{row[0], row[2]};
         }
 
-//        frontFlywheelInterpolator = new LinearInterpolator(frontData);
-        // Exponential values from https://www.desmos.com/calculator/u2hiylp0ry
-        frontFlywheelInterpolator = new LinearInterpolator(frontData);
-        rearFlywheelInterpolator = new ClampedExponentialInterpolator(1041.79, 1.00796, 2000, 4000);
+        // Tables are reloaded when their file in the deploy directory changes
+        frontFlywheelTable = new CalibrationFile<>(hoodUpFile, path -> LinearInterpolator.fromCsv(path, 1), new LinearInterpolator(frontData));
+        rearFlywheelCurve = new CalibrationFile<>(rearFlywheelFile, ClampedExponentialInterpolator::fromCsv,
+                new ClampedExponentialInterpolator(rearFlywheel[0], rearFlywheel[1], rearFlywheel[2], rearFlywheel[3]));
+        shooterGrid = new CalibrationFile<>(shooterGridFile, path -> GridInterpolator.fromCsv(path, 3), null);
+        leadTimeTable = new CalibrationFile<>(leadTimeFile, path -> LinearInterpolator.fromCsv(path, 1), new LinearInterpolator(leadTime));
+
+        frontFlywheelInterpolator = x -> frontFlywheelTable.get().getInterpolatedValue(x);
+        rearFlywheelInterpolator = x -> rearFlywheelCurve.get().getInterpolatedValue(x);
+    }
+
+    /**
+     * Gets both flywheel setpoints for a shot. Uses the shooter grid if one was loaded, otherwise the hood up table
+     * (which ignores velocity and hood state). A NaN distance or velocity is clamped to the edge of the table, so the
+     * speeds are never NaN. Must only be called from the robot loop thread, since the lookup reuses scratch arrays.
+     *
+     * @param distance       distance to the hub in inches
+     * @param radialVelocity robot velocity away from the hub in meters per second
+     * @param hoodUp         is the hood up?
+     * @param output         filled with {frontRPM, rearRPM}
+     */
+    public void getFlywheelSpeeds(double distance, double radialVelocity, boolean hoodUp, double[] output) {
+        GridInterpolator grid = shooterGrid.get();
+        if (grid != null) {
+            gridQuery[0] = distance;
+            gridQuery[1] = radialVelocity;
+            gridQuery[2] = hoodUp ? 1 : 0;
+            grid.getInterpolatedValues(gridQuery, output);
+        } else {
+            output[0] = frontFlywheelInterpolator.getInterpolatedValue(distance);
+            output[1] = rearFlywheelInterpolator.getInterpolatedValue(distance);
+        }
+    }
+
+    /**
+     * Gets how far ahead to lead the hub when shooting while moving with the hood up
+     *
+     * @param distance distance to the hub in inches, as if the robot were stopped
+     * @return the robot's velocity times this is how far the ball drifts, in seconds
+     */
+    public double getLeadTime(double distance) {
+        return leadTimeTable.get().getInterpolatedValue(distance);
     }
 
     public static InterpolationTable getInstance() {
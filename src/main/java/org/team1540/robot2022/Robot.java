@@ -4,15 +4,35 @@
 
 package org.team1540.robot2022;
 
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.livewindow.LiveWindow;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import org.team1540.robot2022.commands.climber.ClimberUpDownCommand;
 import org.team1540.robot2022.commands.climber.ClimberZeroCommand;
+import org.team1540.robot2022.commands.shooter.Shooter;
 import org.team1540.robot2022.commands.util.ResetCommand;
-import org.team1540.robot2022.utils.ChickenSmartDashboard;
+import org.team1540.robot2022.io.Hardware;
+import org.team1540.robot2022.io.RealHardware;
+import org.team1540.robot2022.sim.SimHardware;
+import org.team1540.robot2022.utils.CanBusBudget;
+import org.team1540.robot2022.utils.ChickenTalonFX;
+import org.team1540.robot2022.utils.FeatherClient;
+import org.team1540.robot2022.utils.FlightRecorder;
+import org.team1540.robot2022.utils.LoopProfiler;
+import org.team1540.robot2022.utils.MatchLog;
 import org.team1540.robot2022.utils.RevBlinkin;
+import org.team1540.robot2022.utils.Telemetry;
+
+import java.io.IOException;
+import java.nio.file.Paths;
 
 /**
  * The VM is configured to automatically run this class, and to call the
@@ -25,10 +45,72 @@ import org.team1540.robot2022.utils.RevBlinkin;
  */
 public class Robot extends TimedRobot {
 
+    private final Hardware hardware;
     private RobotContainer robotContainer;
 
     private Command autonomousCommand;
 
+    private final Telemetry.BooleanEntry pressureSwitchTelemetry = Telemetry.registerBoolean("pneumatics/pressureSwitch", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry navxPitchTelemetry = Telemetry.registerNumber("navx/pitch", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry navxRollTelemetry = Telemetry.registerNumber("navx/roll", Telemetry.Rate.DEBUG);
+    private final Telemetry.BooleanEntry climberSensorLeftTelemetry = Telemetry.registerBoolean("climber/sensor/left", Telemetry.Rate.DEBUG);
+    private final Telemetry.BooleanEntry climberSensorRightTelemetry = Telemetry.registerBoolean("climber/sensor/right", Telemetry.Rate.DEBUG);
+    // Telemetry only batches numbers and booleans, so the profile is written straight to its entry when it changes
+    private final NetworkTableEntry shooterProfileEntry = SmartDashboard.getEntry("shooter/profile");
+    private Shooter.ShooterProfile publishedShooterProfile;
+
+    private static final int CAN_STATUS_LOOPS = 50; // the roboRIO only updates bus utilization about once a second
+    private final Telemetry.NumberEntry canEstimatedTelemetry = Telemetry.registerNumber("can/estimatedUtilization", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry canMeasuredTelemetry = Telemetry.registerNumber("can/utilization", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry sensorReadsTelemetry = Telemetry.registerNumber("can/sensorReads", Telemetry.Rate.DEBUG);
+    private double canEstimatedUtilization;
+    private int canStatusLoops;
+
+    private final MatchLog matchLog = FeatherClient.getMatchLog();
+    private final int logShooterFrontRPM = matchLog.addColumn("shooter/frontRPM", 1);
+    private final int logShooterRearRPM = matchLog.addColumn("shooter/rearRPM", 1);
+    private final int logShooterFrontError = matchLog.addColumn("shooter/error/front", 1);
+    private final int logShooterRearError = matchLog.addColumn("shooter/error/rear", 1);
+    private final int logLimelightX = matchLog.addColumn("limelight/tx", 0.01);
+    private final int logLimelightY = matchLog.addColumn("limelight/ty", 0.01);
+    private final int logLidarDistance = matchLog.addColumn("lidar/distance", 0.1);
+    private final int logPoseX = matchLog.addColumn("drivetrain/pose/x", 0.001);
+    private final int logPoseY = matchLog.addColumn("drivetrain/pose/y", 0.001);
+    private final int logPoseHeading = matchLog.addColumn("drivetrain/pose/headingDegrees", 0.01);
+    private final int logLeftVelocity = matchLog.addColumn("drivetrain/velocity/left", 0.001);
+    private final int logRightVelocity = matchLog.addColumn("drivetrain/velocity/right", 0.001);
+    private final int logIndexerTop = matchLog.addColumn("indexer/top", 1);
+    private final int logIndexerBottom = matchLog.addColumn("indexer/bottom", 1);
+
+    private static final int FLIGHT_RECORDER_SECONDS = 30;
+    private final FlightRecorder flightRecorder = FeatherClient.getFlightRecorder();
+    private final int flightPoseX = flightRecorder.addChannel("drivetrain/pose/x");
+    private final int flightPoseY = flightRecorder.addChannel("drivetrain/pose/y");
+    private final int flightPoseHeading = flightRecorder.addChannel("drivetrain/pose/headingDegrees");
+    private final int flightShooterFrontRPM = flightRecorder.addChannel("shooter/frontRPM");
+    private final int flightShooterRearRPM = flightRecorder.addChannel("shooter/rearRPM");
+    private final int flightIndexerTop = flightRecorder.addChannel("indexer/top");
+    private final int flightIndexerBottom = flightRecorder.addChannel("indexer/bottom");
+    private final int flightClimberLeftCurrent = flightRecorder.addChannel("climber/current/left");
+    private final int flightClimberRightCurrent = flightRecorder.addChannel("climber/current/right");
+
+    /**
+     * Creates the robot with real hardware on the robot, and {@link SimHardware} in simulation. The sim classes are only
+     * loaded when SimHardware is created, so they never load on the robot.
+     */
+    public Robot() {
+        this(RobotBase.isReal() ? new RealHardware() : new SimHardware());
+    }
+
+    /**
+     * Creates the robot with specific hardware, e.g. for {@link org.team1540.robot2022.sim.SimRunner}
+     *
+     * @param hardware real or simulated hardware
+     */
+    public Robot(Hardware hardware) {
+        this.hardware = hardware;
+    }
+
     /**
      * This function is run when the robot is first started up and should be used
      * for any
@@ -36,12 +118,29 @@ public class Robot extends TimedRobot {
      */
     @Override
     public void robotInit() {
+        long start = System.nanoTime();
+
         // Instantiate our RobotContainer. This will perform all our button bindings,
         // and put our autonomous chooser on the dashboard.
-        this.robotContainer = new RobotContainer();
+        this.robotContainer = new RobotContainer(hardware);
 
         robotContainer.limelight.setLeds(false);
         robotContainer.bottomLEDs.setPattern(RevBlinkin.ColorPattern.YELLOW, false);
+
+        canEstimatedUtilization = CanBusBudget.estimateUtilization(hardware.getMotors());
+        System.out.printf("[can] Estimated bus utilization from status frames: %.1f%%%n", canEstimatedUtilization * 100);
+        if (canEstimatedUtilization > CanBusBudget.MAX_UTILIZATION) {
+            DriverStation.reportWarning(String.format("[can] Estimated bus utilization %.1f%% is over the %.0f%% budget",
+                    canEstimatedUtilization * 100, CanBusBudget.MAX_UTILIZATION * 100), false);
+        }
+
+        try {
+            flightRecorder.open(Paths.get(FeatherClient.getFeatherDirectory(), "flightrecorder.bin"), FLIGHT_RECORDER_SECONDS * 50);
+        } catch (IOException e) {
+            DriverStation.reportError("[feather] Unable to open flight recorder: " + e, true);
+        }
+
+        System.out.printf("robotInit took %.0fms%n", (System.nanoTime() - start) / 1e6);
     }
 
     /**
@@ -57,6 +156,14 @@ public class Robot extends TimedRobot {
      */
     @Override
     public void robotPeriodic() {
+        long loopStart = LoopProfiler.start();
+        ChickenTalonFX.startLoop();
+
+        // Take the limelight's newest frame before anything in the scheduler reads it
+        long frameStart = LoopProfiler.start();
+        robotContainer.limelight.update();
+        LoopProfiler.stop(LoopProfiler.Section.LIMELIGHT_FRAME, frameStart);
+
         // Runs the Scheduler. This is responsible for polling buttons, adding
         // newly-scheduled
         // commands, running already-scheduled commands, removing finished or
@@ -64,20 +171,85 @@ public class Robot extends TimedRobot {
         // and running subsystem periodic() methods. This must be called from the
         // robot's periodic
         // block in order for anything in the Command-based framework to work.
+        long schedulerStart = LoopProfiler.start();
         CommandScheduler.getInstance().run();
+        LoopProfiler.stop(LoopProfiler.Section.SCHEDULER, schedulerStart);
 
         // Update the limelight's custom SmartDashboard values
+        long limelightStart = LoopProfiler.start();
         robotContainer.limelight.updateSmartDashboardValues();
+        LoopProfiler.stop(LoopProfiler.Section.LIMELIGHT, limelightStart);
+
+        long lidarStart = LoopProfiler.start();
         robotContainer.lidar.updateSmartDashboardValues();
+        LoopProfiler.stop(LoopProfiler.Section.LIDAR, lidarStart);
+
+        pressureSwitchTelemetry.set(robotContainer.ph.getPressureSwitch());
+        Shooter.ShooterProfile shooterProfile = robotContainer.shootSequence.profile;
+        if (shooterProfile != publishedShooterProfile && !DriverStation.isFMSAttached()) {
+            shooterProfileEntry.setString(String.valueOf(shooterProfile));
+            publishedShooterProfile = shooterProfile;
+        }
+
+        navxPitchTelemetry.set(robotContainer.navx.getPitch());
+        navxRollTelemetry.set(robotContainer.navx.getRoll());
+
+        climberSensorLeftTelemetry.set(robotContainer.climber.sensorLeft.get());
+        climberSensorRightTelemetry.set(robotContainer.climber.sensorRight.get());
+
+        canEstimatedTelemetry.set(canEstimatedUtilization);
+        if (++canStatusLoops >= CAN_STATUS_LOOPS) {
+            canStatusLoops = 0;
+            canMeasuredTelemetry.set(RobotController.getCANStatus().percentBusUtilization);
+        }
+        sensorReadsTelemetry.set(ChickenTalonFX.getSensorReads());
+
+        recordMatchLog();
+
+        // Publish all telemetry written this loop
+        Telemetry.flush();
 
-        ChickenSmartDashboard.putDebugBoolean("pneumatics/pressureSwitch", robotContainer.ph.getPressureSwitch());
-        ChickenSmartDashboard.putDebugString("shooter/profile", robotContainer.shootSequence.profile + "");
+        LoopProfiler.stop(LoopProfiler.Section.ROBOT_PERIODIC, loopStart);
+        LoopProfiler.publishPeriodically();
+    }
 
-        ChickenSmartDashboard.putDebugNumber("navx/pitch", robotContainer.navx.getPitch());
-        ChickenSmartDashboard.putDebugNumber("navx/roll", robotContainer.navx.getRoll());
+    /**
+     * Records this loop's row in the feather match log and flight recorder
+     */
+    private void recordMatchLog() {
+        Pose2d pose = robotContainer.drivetrain.getPose();
+        // The shooter and climber read from the motors' per-loop cache, but the beam breaks aren't cached
+        double indexerTop = robotContainer.indexer.getTopSensor() ? 1 : 0;
+        double indexerBottom = robotContainer.indexer.getBottomSensor() ? 1 : 0;
 
-        ChickenSmartDashboard.putDebugBoolean("climber/sensor/left", robotContainer.climber.sensorLeft.get());
-        ChickenSmartDashboard.putDebugBoolean("climber/sensor/right", robotContainer.climber.sensorRight.get());
+        matchLog.beginRow(Timer.getFPGATimestamp());
+        matchLog.set(logShooterFrontRPM, robotContainer.shooter.getFrontVelocityRPM());
+        matchLog.set(logShooterRearRPM, robotContainer.shooter.getRearVelocityRPM());
+        matchLog.set(logShooterFrontError, robotContainer.shooter.getFrontClosedLoopError());
+        matchLog.set(logShooterRearError, robotContainer.shooter.getRearClosedLoopError());
+        matchLog.set(logLimelightX, robotContainer.limelight.getTx());
+        matchLog.set(logLimelightY, robotContainer.limelight.getTy());
+        matchLog.set(logLidarDistance, robotContainer.lidar.getLastDistance());
+        matchLog.set(logPoseX, pose.getX());
+        matchLog.set(logPoseY, pose.getY());
+        matchLog.set(logPoseHeading, pose.getRotation().getDegrees());
+        matchLog.set(logLeftVelocity, robotContainer.drivetrain.driveLFront.getRateMetersPerSecond());
+        matchLog.set(logRightVelocity, robotContainer.drivetrain.driveRFront.getRateMetersPerSecond());
+        matchLog.set(logIndexerTop, indexerTop);
+        matchLog.set(logIndexerBottom, indexerBottom);
+        matchLog.endRow();
+
+        flightRecorder.beginRecord(Timer.getFPGATimestamp());
+        flightRecorder.set(flightPoseX, pose.getX());
+        flightRecorder.set(flightPoseY, pose.getY());
+        flightRecorder.set(flightPoseHeading, pose.getRotation().getDegrees());
+        flightRecorder.set(flightShooterFrontRPM, robotContainer.shooter.getFrontVelocityRPM());
+        flightRecorder.set(flightShooterRearRPM, robotContainer.shooter.getRearVelocityRPM());
+        flightRecorder.set(flightIndexerTop, indexerTop);
+        flightRecorder.set(flightIndexerBottom, indexerBottom);
+        flightRecorder.set(flightClimberLeftCurrent, robotContainer.climber.getLeftCurrent());
+        flightRecorder.set(flightClimberRightCurrent, robotContainer.climber.getRightCurrent());
+        flightRecorder.endRecord();
     }
 
     /**
@@ -91,11 +263,16 @@ public class Robot extends TimedRobot {
         robotContainer.driverController.setRumble(0);
         robotContainer.copilotController.setRumble(0);
 
+        // Make sure everything logged during the match is on disk
+        FeatherClient.flush();
+
         System.out.println("Disabled");
     }
 
     @Override
     public void disabledPeriodic() {
+        // Load and build the selected auto so autonomousInit only has to schedule it
+        robotContainer.autoWarmer.periodic();
     }
 
     @Override
@@ -155,5 +332,14 @@ public class Robot extends TimedRobot {
     public void testPeriodic() {
     }
 
+    public RobotContainer getRobotContainer() {
+        return robotContainer;
+    }
+
+    @Override
+    public void simulationPeriodic() {
+        hardware.simulationPeriodic();
+    }
+
 
 }
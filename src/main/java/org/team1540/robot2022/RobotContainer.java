@@ -24,65 +24,110 @@ import org.team1540.robot2022.commands.indexer.IndexerEjectCommand;
 import org.team1540.robot2022.commands.intake.Intake;
 import org.team1540.robot2022.commands.intake.IntakeSequence;
 import org.team1540.robot2022.commands.shooter.ShootSequence;
+import org.team1540.robot2022.commands.shooter.ShootWhileMovingCommand;
 import org.team1540.robot2022.commands.shooter.Shooter;
+import org.team1540.robot2022.commands.shooter.ShooterPrespinCommand;
 import org.team1540.robot2022.commands.vision.Vision;
+import org.team1540.robot2022.io.DigitalSensorIO;
+import org.team1540.robot2022.io.GyroIO;
+import org.team1540.robot2022.io.Hardware;
+import org.team1540.robot2022.io.LidarIO;
 import org.team1540.robot2022.utils.*;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public class RobotContainer {
     // Hardware
+    public final Hardware hardware;
     public final RevBlinkin topLEDs = new RevBlinkin(9, true);
     public final RevBlinkin bottomLEDs = new RevBlinkin(8, false);
-    public final Limelight limelight = new Limelight("limelight");
-    public final NavX navx = new NavX(SPI.Port.kMXP);
+    public final Limelight limelight;
+    public final GyroIO navx;
     public final PneumaticHub ph = new PneumaticHub(Constants.PNEUMATIC_HUB);
-    public final LIDAR lidar = new LIDAR(I2C.Port.kMXP);
+    public final LidarIO lidar;
 
     // Subsystems
-    public final Drivetrain drivetrain = new Drivetrain(NeutralMode.Brake, navx, topLEDs);
-    public final Hood hood = new Hood();
-    public final Intake intake = new Intake();
-    public final Indexer indexer = new Indexer(NeutralMode.Brake);
-    public final Shooter shooter = new Shooter();
-    public final Climber climber = new Climber();
-    public final Vision vision = new Vision(drivetrain, navx, limelight);
+    public final Drivetrain drivetrain;
+    public final Hood hood;
+    public final Intake intake;
+    public final Indexer indexer;
+    public final Shooter shooter;
+    public final Climber climber;
+    public final Vision vision;
 
     // Controllers
     public final ChickenXboxController driverController = new ChickenXboxController(0);
     public final ChickenXboxController copilotController = new ChickenXboxController(1);
 
     // Buttons
-    public final DigitalInput zeroOdometry = new DigitalInput(0);
+    public final DigitalSensorIO zeroOdometry;
 
     // Commands
-    public final IndexerEjectCommand indexerEjectCommand = new IndexerEjectCommand(indexer, intake);
-    public final IntakeSequence intakeSequence = new IntakeSequence(intake, indexer, shooter);
+    public final IndexerEjectCommand indexerEjectCommand;
+    public final IntakeSequence intakeSequence;
 
     // coop:button(LJoystick,Left climber up/down,copilot)
     // coop:button(RJoystick,Right climber up/down,copilot)
     // coop:button(LTrigger,Climber up,copilot)
     // coop:button(RTrigger,Climber down,copilot)
-    public final ClimberUpDownCommand climberUpDownCommand = new ClimberUpDownCommand(climber, copilotController);
+    public final ClimberUpDownCommand climberUpDownCommand;
 
     // coop:button(LJoystick,Left tank,pilot)
     // coop:button(RJoystick,Right tank,pilot)
     // coop:button(LTrigger,Drive Forward,pilot)
     // coop:button(RTrigger,Drive Backward,pilot)
-    public final FFTankDriveCommand ffTankDriveCommand = new FFTankDriveCommand(drivetrain, driverController);
+    public final FFTankDriveCommand ffTankDriveCommand;
 
-    public final ShootSequence shootSequence = new ShootSequence(shooter, indexer, drivetrain, hood, intake, vision, limelight, lidar, navx, Shooter.ShooterProfile.HUB, true, false, driverController);
-    public final TestAllMotorsCommand testAllMotorsCommand = new TestAllMotorsCommand(drivetrain, intake, indexer, shooter, driverController);
+    public final ShootSequence shootSequence;
+    public final ShootWhileMovingCommand shootWhileMovingCommand;
+    public final ShooterPrespinCommand shooterPrespinCommand;
+    public final TestAllMotorsCommand testAllMotorsCommand;
 
     private final boolean ENABLE_COMPRESSOR = true;
     // Misc
     private final SendableChooser<AutoSequence> autoChooser = new SendableChooser<>();
+    private final Map<String, AutoSequence> autos = new LinkedHashMap<>();
+    private AutoSequence selectedAuto;
+    public final AutoWarmer autoWarmer = new AutoWarmer(autoChooser);
+
+    /**
+     * Builds the robot's subsystems and commands
+     *
+     * @param hardware real or simulated hardware for the subsystems
+     */
+    public RobotContainer(Hardware hardware) {
+        this.hardware = hardware;
+        limelight = new Limelight(hardware.limelight("limelight"));
+        navx = hardware.gyro();
+        lidar = hardware.lidar();
+
+        drivetrain = new Drivetrain(hardware, NeutralMode.Brake, navx, topLEDs);
+        hood = new Hood(hardware);
+        intake = new Intake(hardware);
+        indexer = new Indexer(hardware, NeutralMode.Brake);
+        shooter = new Shooter(hardware);
+        climber = new Climber(hardware);
+        vision = new Vision(drivetrain, limelight, lidar);
+
+        zeroOdometry = hardware.digitalInput(0);
+
+        indexerEjectCommand = new IndexerEjectCommand(indexer, intake);
+        intakeSequence = new IntakeSequence(intake, indexer);
+        climberUpDownCommand = new ClimberUpDownCommand(climber, copilotController);
+        ffTankDriveCommand = new FFTankDriveCommand(drivetrain, driverController);
+        shootSequence = new ShootSequence(shooter, indexer, drivetrain, hood, intake, vision, limelight, lidar, navx, Shooter.ShooterProfile.HUB, true, false, driverController);
+        shootWhileMovingCommand = new ShootWhileMovingCommand(shooter, indexer, drivetrain, hood, vision, limelight, lidar, driverController);
+        shooterPrespinCommand = new ShooterPrespinCommand(shooter, indexer, vision, limelight);
+        shooter.setDefaultCommand(shooterPrespinCommand);
+        testAllMotorsCommand = new TestAllMotorsCommand(drivetrain, intake, indexer, shooter, driverController);
 
-    public RobotContainer() {
         initSmartDashboard();
         configureButtonBindings();
         initModeTransitionBindings();
         DriverStation.silenceJoystickConnectionWarning(true);
 
-//        FeatherClient.initialize();
+        FeatherClient.initialize();
         if (ENABLE_COMPRESSOR) {
             ph.enableCompressorDigital();
         } else {
@@ -111,6 +156,9 @@ public class RobotContainer {
                         shootSequence
                 ));
 
+        // coop:button(A,Shoot while moving [hold],pilot)
+        new JoystickButton(driverController, Button.kA.value)
+                .whenHeld(shootWhileMovingCommand);
 
         // coop:button(DPadUp,Shoot from touching hub [press],pilot)
         new POVButton(driverController, DPadAxis.UP)
@@ -186,12 +234,12 @@ public class RobotContainer {
 
         // Robot hardware button
         new Trigger(zeroOdometry::get)
-                .whenActive(new OdometryResetSequence(drivetrain, navx, vision, limelight, bottomLEDs));
+                .whenActive(new OdometryResetSequence(drivetrain, navx, limelight, bottomLEDs));
 
         // SmartDashboard
         SmartDashboard.putData("ph/disableCompressor", new InstantCommand(ph::disableCompressor));
         SmartDashboard.putData("shooter/enableTestProfile", new InstantCommand(() -> shootSequence.setProfile(Shooter.ShooterProfile.TESTING)));
-        SmartDashboard.putData("driveTrain/resetOdometry", OdometryResetSequence.getOdometryResetter(navx, drivetrain, vision));
+        SmartDashboard.putData("driveTrain/resetOdometry", OdometryResetSequence.getOdometryResetter(navx, drivetrain));
     }
 
     private void initModeTransitionBindings() {
@@ -244,16 +292,17 @@ public class RobotContainer {
     }
 
     private void initSmartDashboard() {
-        autoChooser.addOption("1 Ball", new Auto1BallSequence(drivetrain, intake, indexer, vision, shooter, hood, limelight, lidar, navx, false));
-        autoChooser.addOption("1 Ball (Taxi)", new Auto1BallSequence(drivetrain, intake, indexer, vision, shooter, hood, limelight, lidar, navx, true));
-        autoChooser.addOption("2 Ball A", new Auto2BallSequence(drivetrain, intake, indexer, vision, shooter, hood, limelight, lidar, navx, true));
-        autoChooser.addOption("2 Ball B", new Auto2BallSequence(drivetrain, intake, indexer, vision, shooter, hood, limelight, lidar, navx, false));
-        autoChooser.setDefaultOption("3 Ball", new Auto3BallSequence(drivetrain, intake, indexer, vision, shooter, hood, limelight, lidar, navx));
-        autoChooser.addOption("5 Ball", new Auto5BallSequence(drivetrain, intake, indexer, vision, shooter, hood, limelight, lidar, navx));
+        addAuto("1 Ball", new Auto1BallSequence(drivetrain, intake, indexer, vision, shooter, hood, limelight, lidar, navx, false));
+        addAuto("1 Ball (Taxi)", new Auto1BallSequence(drivetrain, intake, indexer, vision, shooter, hood, limelight, lidar, navx, true));
+        addAuto("2 Ball A", new Auto2BallSequence(drivetrain, intake, indexer, vision, shooter, hood, limelight, lidar, navx, true));
+        addAuto("2 Ball B", new Auto2BallSequence(drivetrain, intake, indexer, vision, shooter, hood, limelight, lidar, navx, false));
+        addAuto("3 Ball", new Auto3BallSequence(drivetrain, intake, indexer, vision, shooter, hood, limelight, lidar, navx));
+        addAuto("5 Ball", new Auto5BallSequence(drivetrain, intake, indexer, vision, shooter, hood, limelight, lidar, navx));
+        autoChooser.setDefaultOption("3 Ball", autos.get("3 Ball"));
 
         SmartDashboard.putData("autoSelector", autoChooser);
         SmartDashboard.putData(CommandScheduler.getInstance());
-        SmartDashboard.putData("zeroToStart", new ChickenInstantCommand(() -> drivetrain.resetOdometry(getAutonomousCommand().paths[0].trajectory.getInitialPose()), true));
+        SmartDashboard.putData("zeroToStart", new ChickenInstantCommand(() -> drivetrain.resetOdometry(getAutonomousCommand().paths[0].getTrajectory().getInitialPose()), true));
         // Indexer values
         ChickenSmartDashboard.putDefaultNumber("intake/speed", 0.5);
         ChickenSmartDashboard.putDefaultNumber("indexer/waitDuration/top", 0.2);
@@ -296,8 +345,26 @@ public class RobotContainer {
         NetworkTableInstance.getDefault().getTable("SmartDashboard/autoSelector").addEntryListener((table, key, entry, value, flags) -> getAutonomousCommand().highlightPaths(drivetrain), EntryListenerFlags.kUpdate);
     }
 
+    private void addAuto(String name, AutoSequence auto) {
+        autos.put(name, auto);
+        autoChooser.addOption(name, auto);
+    }
+
+    /**
+     * Selects an auto by name instead of using the dashboard chooser, e.g. in {@link org.team1540.robot2022.sim.SimRunner}
+     *
+     * @param name the auto's name on the dashboard
+     */
+    public void selectAuto(String name) {
+        AutoSequence auto = autos.get(name);
+        if (auto == null) {
+            throw new IllegalArgumentException("No auto named \"" + name + "\", options are " + autos.keySet());
+        }
+        selectedAuto = auto;
+    }
+
     public AutoSequence getAutonomousCommand() {
-        return autoChooser.getSelected();
+        return selectedAuto != null ? selectedAuto : autoChooser.getSelected();
     }
 
     public Command commandSetLights(RevBlinkin.GameStage stage) {
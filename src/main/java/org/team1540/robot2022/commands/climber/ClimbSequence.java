@@ -1,20 +1,20 @@
 package org.team1540.robot2022.commands.climber;
 
 import edu.wpi.first.wpilibj2.command.*;
+import org.team1540.robot2022.io.GyroIO;
 import org.team1540.robot2022.utils.ChickenXboxController;
-import org.team1540.robot2022.utils.NavX;
 import org.team1540.robot2022.utils.RevBlinkin;
 
 public class ClimbSequence extends ParallelCommandGroup {
     private static final double SWING_THRESHOLD_LOWER = 27;
     private static final double SWING_THRESHOLD_UPPER = 23;
     private Climber climber;
-    private NavX navx;
+    private GyroIO navx;
 
     private ChickenXboxController controller;
     private double lastRoll;
 
-    public ClimbSequence(Climber climber, NavX navx, RevBlinkin lights, ChickenXboxController controller, boolean toTraversal) {
+    public ClimbSequence(Climber climber, GyroIO navx, RevBlinkin lights, ChickenXboxController controller, boolean toTraversal) {
         this.climber = climber;
         this.navx = navx;
         this.controller = controller;
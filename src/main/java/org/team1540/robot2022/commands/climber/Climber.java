@@ -1,59 +1,60 @@
 package org.team1540.robot2022.commands.climber;
 
 import com.ctre.phoenix.motorcontrol.NeutralMode;
-import edu.wpi.first.wpilibj.AsynchronousInterrupt;
-import edu.wpi.first.wpilibj.DigitalInput;
-import edu.wpi.first.wpilibj.DoubleSolenoid;
-import edu.wpi.first.wpilibj.PneumaticsModuleType;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import org.team1540.robot2022.Constants;
 import org.team1540.robot2022.Constants.ClimberConstants;
-import org.team1540.robot2022.utils.ChickenSmartDashboard;
-import org.team1540.robot2022.utils.ChickenTalonFX;
+import org.team1540.robot2022.io.DigitalSensorIO;
+import org.team1540.robot2022.io.Hardware;
+import org.team1540.robot2022.io.MotorIO;
+import org.team1540.robot2022.io.SolenoidIO;
+import org.team1540.robot2022.utils.LoopProfiler;
+import org.team1540.robot2022.utils.Telemetry;
 
 public class Climber extends SubsystemBase {
-    public final ChickenTalonFX motorLeft = new ChickenTalonFX(ClimberConstants.Motors.LEFT);
-    public final ChickenTalonFX motorRight = new ChickenTalonFX(ClimberConstants.Motors.RIGHT);
-    private final ChickenTalonFX[] motors = new ChickenTalonFX[]{motorLeft, motorRight};
-
-    private final DoubleSolenoid solenoid = new DoubleSolenoid(
-            Constants.PNEUMATIC_HUB,
-            PneumaticsModuleType.REVPH,
-            ClimberConstants.Solenoids.SOLENOID_A,
-            ClimberConstants.Solenoids.SOLENOID_B
-    );
-
-    public final DigitalInput sensorLeft = new DigitalInput(3);
-    public final DigitalInput sensorRight = new DigitalInput(2);
-    private boolean limitsEnabled = true;
-
-    private final AsynchronousInterrupt leftInterrupt = new AsynchronousInterrupt(sensorLeft, (rising, falling) -> {
-        // These rising/falling booleans are both reporting false, and I don't know why
-        if (!sensorLeft.get()) {
-            motorLeft.configReverseSoftLimitThreshold(motorLeft.getSelectedSensorPosition());
-            motorLeft.configReverseSoftLimitEnable(true);
-        } else {
-            motorLeft.configReverseSoftLimitEnable(false);
-        }
-    });
-
-    private final AsynchronousInterrupt rightInterrupt = new AsynchronousInterrupt(sensorRight, (rising, falling) -> {
-        boolean sensorVal = sensorRight.get();
-        if (!sensorVal) {
-            motorRight.configReverseSoftLimitThreshold(motorRight.getSelectedSensorPosition());
-            motorRight.configReverseSoftLimitEnable(true);
-        } else {
-            motorRight.configReverseSoftLimitEnable(false);
-        }
-    });
+    public final MotorIO motorLeft;
+    public final MotorIO motorRight;
+    private final MotorIO[] motors;
 
+    private final SolenoidIO solenoid;
 
-    public Climber() {
+    public final DigitalSensorIO sensorLeft;
+    public final DigitalSensorIO sensorRight;
+    private boolean limitsEnabled = true;
 
-        leftInterrupt.setInterruptEdges(true, true);
-        rightInterrupt.setInterruptEdges(true, true);
+    private final Telemetry.NumberEntry encoderLeftTelemetry = Telemetry.registerNumber("climber/encoders/left", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry encoderRightTelemetry = Telemetry.registerNumber("climber/encoders/right", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry currentLeftTelemetry = Telemetry.registerNumber("climber/current/left", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry currentRightTelemetry = Telemetry.registerNumber("climber/current/right", Telemetry.Rate.DEBUG);
+
+    public Climber(Hardware hardware) {
+        motorLeft = hardware.motor(ClimberConstants.Motors.LEFT);
+        motorRight = hardware.motor(ClimberConstants.Motors.RIGHT);
+        motors = new MotorIO[]{motorLeft, motorRight};
+        solenoid = hardware.doubleSolenoid(ClimberConstants.Solenoids.SOLENOID_A, ClimberConstants.Solenoids.SOLENOID_B);
+        sensorLeft = hardware.digitalInput(ClimberConstants.Sensors.LEFT);
+        sensorRight = hardware.digitalInput(ClimberConstants.Sensors.RIGHT);
+
+        sensorLeft.setInterruptHandler(() -> {
+            if (!sensorLeft.get()) {
+                // On the interrupt thread, so this can't use the robot loop's cached position
+                motorLeft.configReverseSoftLimitThreshold(motorLeft.readSelectedSensorPositionNow());
+                motorLeft.configReverseSoftLimitEnable(true);
+            } else {
+                motorLeft.configReverseSoftLimitEnable(false);
+            }
+        });
+        sensorRight.setInterruptHandler(() -> {
+            boolean sensorVal = sensorRight.get();
+            if (!sensorVal) {
+                motorRight.configReverseSoftLimitThreshold(motorRight.readSelectedSensorPositionNow());
+                motorRight.configReverseSoftLimitEnable(true);
+            } else {
+                motorRight.configReverseSoftLimitEnable(false);
+            }
+        });
         enableLimits();
 
 
@@ -67,28 +68,29 @@ public class Climber extends SubsystemBase {
     }
 
     public void periodic() {
-        ChickenSmartDashboard.putDebugNumber("climber/encoders/left", motorLeft.getSelectedSensorPosition());
-        ChickenSmartDashboard.putDebugNumber("climber/encoders/right", motorRight.getSelectedSensorPosition());
-
-        ChickenSmartDashboard.putDebugNumber("climber/current/left", motorLeft.getStatorCurrent());
-        ChickenSmartDashboard.putDebugNumber("climber/current/right", motorRight.getStatorCurrent());
+        long start = LoopProfiler.start();
+        encoderLeftTelemetry.set(motorLeft.getSelectedSensorPosition());
+        encoderRightTelemetry.set(motorRight.getSelectedSensorPosition());
 
+        currentLeftTelemetry.set(motorLeft.getStatorCurrent());
+        currentRightTelemetry.set(motorRight.getStatorCurrent());
 
+        LoopProfiler.stop(LoopProfiler.Section.CLIMBER, start);
     }
 
     public Command commandDisableLimits() {
         return new InstantCommand(() -> {
             System.out.println("disabling climber limits");
-            leftInterrupt.disable();
-            rightInterrupt.disable();
+            sensorLeft.disableInterrupts();
+            sensorRight.disableInterrupts();
             motorLeft.configReverseSoftLimitEnable(false);
             motorRight.configReverseSoftLimitEnable(false);
         });
     }
 
     public void enableLimits() {
-        leftInterrupt.enable();
-        rightInterrupt.enable();
+        sensorLeft.enableInterrupts();
+        sensorRight.enableInterrupts();
     }
 
 
@@ -98,7 +100,7 @@ public class Climber extends SubsystemBase {
      * @param forward If the solenoids should be extended forward
      */
     public void setSolenoids(boolean forward) {
-        solenoid.set(forward ? DoubleSolenoid.Value.kForward : DoubleSolenoid.Value.kReverse);
+        solenoid.set(forward);
     }
 
     /**
@@ -119,7 +121,7 @@ public class Climber extends SubsystemBase {
      * @param mode The mode to set the wheels to
      */
     public void setNeutralMode(NeutralMode mode) {
-        for (ChickenTalonFX motor : motors) {
+        for (MotorIO motor : motors) {
             motor.setNeutralMode(mode);
         }
     }
@@ -139,7 +141,7 @@ public class Climber extends SubsystemBase {
      * @param percent The percent the arms will be moved (to check if it is going down_
      * @return If the sensor is not tripped, the arms will be moved down, or the limits are disabled
      */
-    private boolean inThreshold(DigitalInput sensor, double percent) {
+    private boolean inThreshold(DigitalSensorIO sensor, double percent) {
         return sensor.get() || percent > 0 || !limitsEnabled;
     }
 
@@ -8,6 +8,8 @@ import org.team1540.robot2022.commands.intake.Intake;
 import org.team1540.robot2022.commands.shooter.ShootSequence;
 import org.team1540.robot2022.commands.shooter.Shooter;
 import org.team1540.robot2022.commands.vision.Vision;
+import org.team1540.robot2022.io.GyroIO;
+import org.team1540.robot2022.io.LidarIO;
 import org.team1540.robot2022.utils.*;
 import org.team1540.robot2022.utils.AutoHelper.AutoPath;
 
@@ -17,10 +19,10 @@ import org.team1540.robot2022.utils.AutoHelper.AutoPath;
  * Graciously and professionally, of course
  */
 public class Auto2BallMeanSequence extends AutoSequence {
-    public Auto2BallMeanSequence(Drivetrain drivetrain, Intake intake, Indexer indexer, Vision vision, Shooter shooter, Hood hood, Limelight limelight, LIDAR lidar, NavX navx) {
+    public Auto2BallMeanSequence(Drivetrain drivetrain, Intake intake, Indexer indexer, Vision vision, Shooter shooter, Hood hood, Limelight limelight, LidarIO lidar, GyroIO navx) {
         addPaths(AutoPath.auto2Ball1B, AutoPath.auto2Ball2BM);
         addCommands(
-                AutoHelper.runPathWithSpinup(drivetrain, intake, indexer, shooter, hood, AutoPath.auto2Ball1B),  // Follow the path to collect the first ball
+                AutoHelper.runPathWithSpinup(drivetrain, intake, indexer, shooter, hood, vision, limelight, AutoPath.auto2Ball1B),  // Follow the path to collect the first ball
                 new ShootSequence(shooter,
                         indexer,
                         drivetrain,
@@ -32,7 +34,7 @@ public class Auto2BallMeanSequence extends AutoSequence {
                         navx,
                         Shooter.ShooterProfile.FAR,
                         true, true, null),
-                AutoHelper.runPath(drivetrain, intake, indexer, shooter, AutoPath.auto2Ball1B),
+                AutoHelper.runPath(drivetrain, intake, indexer, AutoPath.auto2Ball1B),
                 new WaitUntilCommand(indexer::getTopSensor),
                 new EjectTopBallCommand(indexer, shooter)
         );
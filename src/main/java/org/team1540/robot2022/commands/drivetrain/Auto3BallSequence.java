@@ -6,17 +6,19 @@ import org.team1540.robot2022.commands.intake.Intake;
 import org.team1540.robot2022.commands.shooter.ShootSequence;
 import org.team1540.robot2022.commands.shooter.Shooter;
 import org.team1540.robot2022.commands.vision.Vision;
+import org.team1540.robot2022.io.GyroIO;
+import org.team1540.robot2022.io.LidarIO;
 import org.team1540.robot2022.utils.*;
 import org.team1540.robot2022.utils.AutoHelper.AutoPath;
 
 public class Auto3BallSequence extends AutoSequence {
-    public Auto3BallSequence(Drivetrain drivetrain, Intake intake, Indexer indexer, Vision vision, Shooter shooter, Hood hood, Limelight limelight, LIDAR lidar, NavX navx) {
+    public Auto3BallSequence(Drivetrain drivetrain, Intake intake, Indexer indexer, Vision vision, Shooter shooter, Hood hood, Limelight limelight, LidarIO lidar, GyroIO navx) {
         addPaths(AutoPath.auto2Ball1A, AutoPath.auto3Ball2);
         addCommands(
-                AutoHelper.runPathWithSpinup(drivetrain, intake, indexer, shooter, hood, AutoPath.auto2Ball1A), // Follow path to collect first ball
+                AutoHelper.runPathWithSpinup(drivetrain, intake, indexer, shooter, hood, vision, limelight, AutoPath.auto2Ball1A), // Follow path to collect first ball
                 new ShootSequence(shooter, indexer, drivetrain, hood, intake, vision, limelight, lidar, navx, Shooter.ShooterProfile.FAR, true, true, null),
 
-                AutoHelper.runPathWithSpinup(drivetrain, intake, indexer, shooter, hood, AutoPath.auto3Ball2), // Follow path to collect second ball
+                AutoHelper.runPathWithSpinup(drivetrain, intake, indexer, shooter, hood, vision, limelight, AutoPath.auto3Ball2), // Follow path to collect second ball
                 new ShootSequence(shooter, indexer, drivetrain, hood, intake, vision, limelight, lidar, navx, Shooter.ShooterProfile.FAR, true, false, null)
         );
     }
@@ -2,12 +2,13 @@ package org.team1540.robot2022.commands.drivetrain;
 
 import com.ctre.phoenix.motorcontrol.ControlMode;
 import com.ctre.phoenix.motorcontrol.NeutralMode;
-import com.ctre.phoenix.motorcontrol.can.TalonFX;
 import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.DifferentialDriveOdometry;
 import edu.wpi.first.math.kinematics.DifferentialDriveWheelSpeeds;
 import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
 import edu.wpi.first.wpilibj.shuffleboard.ComplexWidget;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
@@ -18,25 +19,54 @@ import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import org.team1540.robot2022.Constants;
 import org.team1540.robot2022.Constants.DriveConstants.Motors;
+import org.team1540.robot2022.io.GyroIO;
+import org.team1540.robot2022.io.Hardware;
+import org.team1540.robot2022.io.MotorIO;
+import org.team1540.robot2022.io.StatusFrameProfile;
 import org.team1540.robot2022.utils.AutoHelper.AutoPath;
-import org.team1540.robot2022.utils.ChickenSmartDashboard;
-import org.team1540.robot2022.utils.ChickenTalonFX;
-import org.team1540.robot2022.utils.NavX;
+import org.team1540.robot2022.utils.LoopProfiler;
+import org.team1540.robot2022.utils.PoseHistory;
+import org.team1540.robot2022.utils.PoseKalmanFilter;
 import org.team1540.robot2022.utils.RevBlinkin;
+import org.team1540.robot2022.utils.Telemetry;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 
 public class Drivetrain extends SubsystemBase {
-    public final ChickenTalonFX driveLFront = new ChickenTalonFX(Motors.LEFT_FRONT);
-    public final ChickenTalonFX driveLRear = new ChickenTalonFX(Motors.LEFT_REAR);
-    public final ChickenTalonFX driveRFront = new ChickenTalonFX(Motors.RIGHT_FRONT);
-    public final ChickenTalonFX driveRRear = new ChickenTalonFX(Motors.RIGHT_REAR);
-    private final ChickenTalonFX[] driveL = {driveLFront, driveLRear};
-    private final ChickenTalonFX[] driveR = {driveRFront, driveRRear};
-    private final ChickenTalonFX[] driveMotors = {driveLFront, driveLRear, driveRFront, driveRRear};
-    private final NavX navx;
+    // Pose estimate noise, as standard deviations
+    private static final double WHEEL_SLIP = 0.04; // Fraction of the distance driven
+    private static final double LATERAL_SLIP = 0.01; // Fraction of the distance driven
+    private static final double STILL_SLIP = 0.0005; // Meters per loop, from bumps even when the wheels don't turn
+    private static final double GYRO_SCALE_ERROR = 0.02; // Fraction of the turn
+    private static final double GYRO_DRIFT = 0.0005; // Radians per loop
+    private static final double RESET_POSITION_ERROR = 0.05; // Meters, of a pose the robot was placed at
+    private static final double RESET_HEADING_ERROR = Math.toRadians(2);
+    private static final double UNKNOWN_POSITION_ERROR = 10; // Meters, before vision has seen the target
+    private static final double UNKNOWN_HEADING_ERROR = Math.toRadians(30);
+    private static final double MAX_WHEEL_STEP = 0.3; // Meters per loop, more is an encoder reset not driving
+    private static final double MAX_TURN_STEP = 0.5; // Radians per loop, more is a gyro reset not turning
+    private static final int MAX_REJECTED_MEASUREMENTS = 25; // In a row before the estimate is assumed to be lost
+
+    public final MotorIO driveLFront;
+    public final MotorIO driveLRear;
+    public final MotorIO driveRFront;
+    public final MotorIO driveRRear;
+    private final MotorIO[] driveL;
+    private final MotorIO[] driveR;
+    private final MotorIO[] driveMotors;
+    private final GyroIO navx;
     private final DifferentialDriveOdometry driveOdometry;
+    private final PoseHistory poseHistory = new PoseHistory(50); // One second of loops
+    private final PoseKalmanFilter poseEstimator = new PoseKalmanFilter();
+    private boolean poseEstimateKnown = false;
+    private int rejectedMeasurements = 0;
+    private double lastLeftDistance;
+    private double lastRightDistance;
+    private double lastGyroAngle;
 
     private final SimpleMotorFeedforward feedForward = new SimpleMotorFeedforward(Constants.DriveConstants.KS_VOLTS, Constants.DriveConstants.KV_VOLT_SECONDS_PER_METER, Constants.DriveConstants.KA_VOLT_SECONDS_SQUARED_PER_METER);
 
@@ -45,40 +75,173 @@ public class Drivetrain extends SubsystemBase {
     public static final double motorToMPS = 26.0349916751;
     public RevBlinkin lights;
 
-    public Drivetrain(NeutralMode brakeType, NavX navx, RevBlinkin lights) {
+    private final Telemetry.NumberEntry leftEncoderTelemetry = Telemetry.registerNumber("drivetrain/leftEncoderMeters", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry rightEncoderTelemetry = Telemetry.registerNumber("drivetrain/rightEncoderMeters", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry errorLTelemetry = Telemetry.registerNumber("drivetrain/PID/errorL", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry errorRTelemetry = Telemetry.registerNumber("drivetrain/PID/errorR", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry ffLeftVelocityTelemetry = Telemetry.registerNumber("drivetrain/feedforward/leftVelocity", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry ffRightVelocityTelemetry = Telemetry.registerNumber("drivetrain/feedforward/rightVelocity", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry ffLeftVoltsTelemetry = Telemetry.registerNumber("drivetrain/feedforward/leftVolts", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry ffRightVoltsTelemetry = Telemetry.registerNumber("drivetrain/feedforward/rightVolts", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry estimateXTelemetry = Telemetry.registerNumber("drivetrain/estimate/x", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry estimateYTelemetry = Telemetry.registerNumber("drivetrain/estimate/y", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry estimateHeadingTelemetry = Telemetry.registerNumber("drivetrain/estimate/headingDegrees", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry estimatePositionErrorTelemetry = Telemetry.registerNumber("drivetrain/estimate/positionStdDev", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry estimateHeadingErrorTelemetry = Telemetry.registerNumber("drivetrain/estimate/headingStdDevDegrees", Telemetry.Rate.DEBUG);
+    private final Telemetry.BooleanEntry estimateKnownTelemetry = Telemetry.registerBoolean("drivetrain/estimate/known", Telemetry.Rate.DEBUG);
+
+    public Drivetrain(Hardware hardware, NeutralMode brakeType, GyroIO navx, RevBlinkin lights) {
+        driveLFront = hardware.motor(Motors.LEFT_FRONT);
+        driveLRear = hardware.motor(Motors.LEFT_REAR);
+        driveRFront = hardware.motor(Motors.RIGHT_FRONT);
+        driveRRear = hardware.motor(Motors.RIGHT_REAR);
+        driveL = new MotorIO[]{driveLFront, driveLRear};
+        driveR = new MotorIO[]{driveRFront, driveRRear};
+        driveMotors = new MotorIO[]{driveLFront, driveLRear, driveRFront, driveRRear};
+
         this.lights = lights;
         driveOdometry = new DifferentialDriveOdometry(navx.getRotation2d());
         this.navx = navx;
 
-        for (ChickenTalonFX motor : driveMotors) {
+        for (MotorIO motor : driveMotors) {
             motor.configFactoryDefault();
             motor.setNeutralMode(brakeType);
         }
-        for (ChickenTalonFX motor : driveL) {
+        for (MotorIO motor : driveL) {
             motor.setInverted(false);
         }
-        for (ChickenTalonFX motor : driveR) {
+        for (MotorIO motor : driveR) {
             motor.setInverted(true);
         }
         driveLRear.follow(driveLFront);
         driveRRear.follow(driveRFront);
+        driveLFront.configStatusFrames(StatusFrameProfile.DRIVETRAIN);
+        driveRFront.configStatusFrames(StatusFrameProfile.DRIVETRAIN);
+        driveLRear.configStatusFrames(StatusFrameProfile.SLOW);
+        driveRRear.configStatusFrames(StatusFrameProfile.SLOW);
 
         updatePIDs();
-        
+
+        // Until the robot is placed somewhere known or vision sees the target, it could be anywhere
+        lastLeftDistance = driveLFront.getDistanceMeters();
+        lastRightDistance = driveRFront.getDistanceMeters();
+        lastGyroAngle = navx.getAngleRadians();
+        poseEstimator.reset(0, 0, navx.getRotation2d().getRadians(), UNKNOWN_POSITION_ERROR, UNKNOWN_HEADING_ERROR);
     }
 
     @Override
     public void periodic() {
+        long start = LoopProfiler.start();
         driveOdometry.update(
                 navx.getRotation2d(),
                 driveLFront.getDistanceMeters(),
                 driveRFront.getDistanceMeters());
+        poseHistory.add(Timer.getFPGATimestamp(), driveOdometry.getPoseMeters());
+        predictPoseEstimate();
 
-        ChickenSmartDashboard.putDebugNumber("drivetrain/leftEncoderMeters", driveLFront.getDistanceMeters());
-        ChickenSmartDashboard.putDebugNumber("drivetrain/rightEncoderMeters", driveRFront.getDistanceMeters());
-        ChickenSmartDashboard.putDebugNumber("drivetrain/PID/errorL", driveLFront.getClosedLoopError());
-        ChickenSmartDashboard.putDebugNumber("drivetrain/PID/errorR", driveRFront.getClosedLoopError());
+        leftEncoderTelemetry.set(driveLFront.getDistanceMeters());
+        rightEncoderTelemetry.set(driveRFront.getDistanceMeters());
+        errorLTelemetry.set(driveLFront.getClosedLoopError());
+        errorRTelemetry.set(driveRFront.getClosedLoopError());
         fieldWidget.field.setRobotPose(driveOdometry.getPoseMeters());
+        fieldWidget.update();
+        estimateXTelemetry.set(poseEstimator.getX());
+        estimateYTelemetry.set(poseEstimator.getY());
+        estimateHeadingTelemetry.set(Math.toDegrees(poseEstimator.getHeading()));
+        estimatePositionErrorTelemetry.set(poseEstimator.getPositionStdDev());
+        estimateHeadingErrorTelemetry.set(Math.toDegrees(poseEstimator.getHeadingStdDev()));
+        estimateKnownTelemetry.set(poseEstimateKnown);
+
+        LoopProfiler.stop(LoopProfiler.Section.DRIVETRAIN, start);
+    }
+
+    /**
+     * Moves the pose estimate by how far the wheels and gyro have gone since the last loop. The gyro gives the turn,
+     * since it's much better at it than the difference between the wheels.
+     */
+    private void predictPoseEstimate() {
+        double left = driveLFront.getDistanceMeters();
+        double right = driveRFront.getDistanceMeters();
+        double gyroAngle = navx.getAngleRadians();
+        double leftStep = left - lastLeftDistance;
+        double rightStep = right - lastRightDistance;
+        double turn = gyroAngle - lastGyroAngle;
+        lastLeftDistance = left;
+        lastRightDistance = right;
+        lastGyroAngle = gyroAngle;
+        if (Math.abs(leftStep) > MAX_WHEEL_STEP || Math.abs(rightStep) > MAX_WHEEL_STEP || Math.abs(turn) > MAX_TURN_STEP) {
+            // A reset that hadn't reached the encoders or gyro yet
+            return;
+        }
+
+        double distance = (leftStep + rightStep) / 2;
+        poseEstimator.predict(
+                distance,
+                turn,
+                WHEEL_SLIP * Math.abs(distance) + STILL_SLIP,
+                LATERAL_SLIP * Math.abs(distance) + STILL_SLIP,
+                GYRO_SCALE_ERROR * Math.abs(turn) + GYRO_DRIFT);
+    }
+
+    /**
+     * Corrects the pose estimate with a range and bearing to a known point on the field, measured in the past. The
+     * measurement is moved to the robot's current pose with how far the odometry says it's gone since then.
+     * <p>
+     * The first measurement before the pose is known places the robot, and so does one after too many in a row were
+     * rejected, since then it's the estimate that's wrong.
+     *
+     * @param timestamp     the FPGA time the measurement was taken in seconds
+     * @param targetX       x of the point on the field in meters
+     * @param targetY       y of the point on the field in meters
+     * @param range         distance from the robot to the point in meters
+     * @param bearing       angle from the robot's heading to the point, counter-clockwise in radians
+     * @param rangeStdDev   standard deviation of the range in meters
+     * @param bearingStdDev standard deviation of the bearing in radians
+     * @return whether the measurement was used
+     */
+    public boolean addTargetMeasurement(double timestamp, double targetX, double targetY, double range, double bearing, double rangeStdDev, double bearingStdDev) {
+        if (!poseHistory.isEmpty()) {
+            // Where the point was in the odometry's frame, then where it is from the robot now
+            double thenHeading = poseHistory.getHeading(timestamp) + bearing;
+            double pointX = poseHistory.getX(timestamp) + range * Math.cos(thenHeading);
+            double pointY = poseHistory.getY(timestamp) + range * Math.sin(thenHeading);
+            Pose2d now = driveOdometry.getPoseMeters();
+            double dx = pointX - now.getX();
+            double dy = pointY - now.getY();
+            range = Math.sqrt(dx * dx + dy * dy);
+            bearing = Math.atan2(dy, dx) - poseHistory.getLatestHeading();
+        }
+
+        if (!poseEstimateKnown || rejectedMeasurements >= MAX_REJECTED_MEASUREMENTS) {
+            if (poseEstimateKnown) {
+                System.out.println("[drivetrain] Pose estimate disagreed with " + rejectedMeasurements + " measurements, placing it from vision");
+            }
+            poseEstimator.resetPosition(targetX, targetY, range, bearing, rangeStdDev, bearingStdDev);
+            poseEstimateKnown = true;
+            rejectedMeasurements = 0;
+            return true;
+        }
+        boolean accepted = poseEstimator.correctRangeBearing(targetX, targetY, range, bearing, rangeStdDev, bearingStdDev);
+        rejectedMeasurements = accepted ? 0 : rejectedMeasurements + 1;
+        return accepted;
+    }
+
+    /**
+     * Corrects the pose estimate with a range to the edge of a known circle on the field, measured now. Rejected
+     * ranges don't count towards replacing the estimate, a rangefinder can be blocked by another robot.
+     *
+     * @param targetX     x of the circle's center on the field in meters
+     * @param targetY     y of the circle's center on the field in meters
+     * @param radius      radius of the circle in meters
+     * @param range       distance from the robot to the edge of the circle in meters
+     * @param rangeStdDev standard deviation of the range in meters
+     * @return whether the measurement was used
+     */
+    public boolean addTargetRangeMeasurement(double targetX, double targetY, double radius, double range, double rangeStdDev) {
+        if (!poseEstimateKnown) {
+            return false;
+        }
+        return poseEstimator.correctRange(targetX, targetY, radius, range, rangeStdDev);
     }
 
     /**
@@ -93,7 +256,7 @@ public class Drivetrain extends SubsystemBase {
     }
 
     public void resetEncoders() {
-        for (ChickenTalonFX motor : driveMotors) {
+        for (MotorIO motor : driveMotors) {
             motor.setSelectedSensorPosition(0);
         }
     }
@@ -117,6 +280,14 @@ public class Drivetrain extends SubsystemBase {
     public void resetOdometry(Pose2d pose) {
         resetEncoders();
         driveOdometry.resetPosition(pose, navx.getRotation2d());
+        poseHistory.clear();
+
+        lastLeftDistance = 0;
+        lastRightDistance = 0;
+        lastGyroAngle = navx.getAngleRadians();
+        poseEstimator.reset(pose.getX(), pose.getY(), pose.getRotation().getRadians(), RESET_POSITION_ERROR, RESET_HEADING_ERROR);
+        poseEstimateKnown = true;
+        rejectedMeasurements = 0;
     }
 
     /**
@@ -128,6 +299,65 @@ public class Drivetrain extends SubsystemBase {
         return driveOdometry.getPoseMeters();
     }
 
+    /**
+     * Returns the pose estimate, which fuses the odometry with vision and the LIDAR. Unlike {@link #getPose()}, it
+     * doesn't drift over a match, but it can jump when a measurement comes in.
+     *
+     * @return The pose.
+     */
+    public Pose2d getEstimatedPose() {
+        return new Pose2d(poseEstimator.getX(), poseEstimator.getY(), new Rotation2d(poseEstimator.getHeading()));
+    }
+
+    /**
+     * Gets the filter behind {@link #getEstimatedPose()}, for reading its state and covariance without allocating.
+     * Corrections should go through {@link #addTargetMeasurement} and {@link #addTargetRangeMeasurement}.
+     *
+     * @return the pose estimator
+     */
+    public PoseKalmanFilter getPoseEstimator() {
+        return poseEstimator;
+    }
+
+    /**
+     * @return whether the pose estimate has been placed, by an odometry reset or by vision
+     */
+    public boolean isPoseEstimateKnown() {
+        return poseEstimateKnown;
+    }
+
+    /**
+     * Returns the pose the robot was at in the last second, interpolated from the odometry history. Use this to line
+     * up measurements that were taken in the past, like Limelight frames.
+     *
+     * @param timestamp the FPGA time in seconds
+     * @return The pose.
+     */
+    public Pose2d getPose(double timestamp) {
+        Pose2d pose = poseHistory.getPose(timestamp);
+        return pose != null ? pose : getPose();
+    }
+
+    /**
+     * Returns the odometry heading, unwrapped so it keeps counting past pi and -pi. It's only continuous between
+     * odometry resets.
+     *
+     * @return the heading counter-clockwise in radians
+     */
+    public double getHeadingRadians() {
+        return poseHistory.isEmpty() ? getPose().getRotation().getRadians() : poseHistory.getLatestHeading();
+    }
+
+    /**
+     * Returns the odometry heading the robot had in the last second, see {@link #getHeadingRadians()}.
+     *
+     * @param timestamp the FPGA time in seconds
+     * @return the heading counter-clockwise in radians
+     */
+    public double getHeadingRadians(double timestamp) {
+        return poseHistory.isEmpty() ? getPose().getRotation().getRadians() : poseHistory.getHeading(timestamp);
+    }
+
     /**
      * Zeroes the heading of the robot.
      */
@@ -168,7 +398,7 @@ public class Drivetrain extends SubsystemBase {
      * @param mode The mode to set the wheels to
      */
     public void setNeutralMode(NeutralMode mode) {
-        for (ChickenTalonFX motor : driveMotors) {
+        for (MotorIO motor : driveMotors) {
             motor.setNeutralMode(mode);
         }
     }
@@ -191,13 +421,13 @@ public class Drivetrain extends SubsystemBase {
      * @param rightVelocity right motor velocity RPM setpoint
      */
     public void setFFVelocity(double leftVelocity, double rightVelocity) {
-        ChickenSmartDashboard.putDebugNumber("drivetrain/feedforward/leftVelocity", leftVelocity);
-        ChickenSmartDashboard.putDebugNumber("drivetrain/feedforward/rightVelocity", rightVelocity);
+        ffLeftVelocityTelemetry.set(leftVelocity);
+        ffRightVelocityTelemetry.set(rightVelocity);
 
         double leftVolts = feedForward.calculate(leftVelocity);
         double rightVolts = feedForward.calculate(rightVelocity);
-        ChickenSmartDashboard.putDebugNumber("drivetrain/feedforward/leftVolts", leftVelocity);
-        ChickenSmartDashboard.putDebugNumber("drivetrain/feedforward/rightVolts", rightVolts);
+        ffLeftVoltsTelemetry.set(leftVelocity);
+        ffRightVoltsTelemetry.set(rightVolts);
         setVolts(leftVolts, rightVolts);
     }
 
@@ -213,17 +443,23 @@ public class Drivetrain extends SubsystemBase {
      * Updates the PIDs on the drivetrain motors from SmartDashboard
      */
     private void updatePIDs() {
-        for (TalonFX motor : driveMotors) {
+        for (MotorIO motor : driveMotors) {
             motor.config_kP(0, SmartDashboard.getNumber("drivetrain/PID/kP", 0.3));
         }
     }
 
 
-    public static class DashboardField {
+    /**
+     * The field on the Autonomous tab. It isn't thread safe, so work from other threads, like drawing paths once the
+     * trajectory loader has them, is passed to {@link #execute(Runnable)} and runs in {@link #update()} on the robot
+     * thread.
+     */
+    public static class DashboardField implements Executor {
         private final String defaultColor = "#FFFFFFFF";
 
         protected final Field2d field = new Field2d();
         private final Map<String, Object> widgetProperties = new HashMap<>();
+        private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
         private final ComplexWidget widget = Shuffleboard.getTab("Autonomous")
                 .add(field)
                 .withPosition(0, 0)
@@ -231,6 +467,25 @@ public class Drivetrain extends SubsystemBase {
                 .withSize(5, 3)
                 .withProperties(widgetProperties);
 
+        /**
+         * Queues work on the field to run in the next {@link #update()}. Safe to call from any thread.
+         *
+         * @param command the work to run on the robot thread
+         */
+        @Override
+        public void execute(Runnable command) {
+            pending.add(command);
+        }
+
+        /**
+         * Runs the work queued by {@link #execute(Runnable)}. Must be called from the robot thread.
+         */
+        public void update() {
+            Runnable command;
+            while ((command = pending.poll()) != null) {
+                command.run();
+            }
+        }
 
         /**
          * Sets the color for a path
@@ -280,7 +535,7 @@ public class Drivetrain extends SubsystemBase {
          * @param path an AutoPath
          */
         public void addPath(AutoPath path) {
-            this.addPath(path.name, path.trajectory);
+            this.addPath(path.name, path.getTrajectory());
         }
     }
 }
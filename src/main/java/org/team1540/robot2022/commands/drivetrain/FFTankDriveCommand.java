@@ -4,8 +4,8 @@ import edu.wpi.first.math.filter.SlewRateLimiter;
 import edu.wpi.first.wpilibj.XboxController;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.CommandBase;
-import org.team1540.robot2022.utils.ChickenSmartDashboard;
 import org.team1540.robot2022.utils.MathUtils;
+import org.team1540.robot2022.utils.Telemetry;
 
 public class FFTankDriveCommand extends CommandBase {
     private double deadzone = 0.15;
@@ -15,6 +15,16 @@ public class FFTankDriveCommand extends CommandBase {
 
     private SlewRateLimiter slewRateLimiter;
 
+    private final Telemetry.NumberEntry triggersTelemetry = Telemetry.registerNumber("drivetrain/tankDrive/debug/triggers", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry leftStickTelemetry = Telemetry.registerNumber("drivetrain/tankDrive/debug/leftStick", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry rightStickTelemetry = Telemetry.registerNumber("drivetrain/tankDrive/debug/rightStick", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry leftThrottleTelemetry = Telemetry.registerNumber("drivetrain/tankDrive/debug/leftThrottle", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry rightThrottleTelemetry = Telemetry.registerNumber("drivetrain/tankDrive/debug/rightThrottle", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry combinedTelemetry = Telemetry.registerNumber("drivetrain/tankDrive/debug/combined", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry totalTelemetry = Telemetry.registerNumber("drivetrain/tankDrive/debug/total", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry leftCalculatedTelemetry = Telemetry.registerNumber("drivetrain/tankDrive/debug/calc/left", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry rightCalculatedTelemetry = Telemetry.registerNumber("drivetrain/tankDrive/debug/calc/right", Telemetry.Rate.DEBUG);
+
     public FFTankDriveCommand(Drivetrain drivetrain, XboxController controller) {
         this.drivetrain = drivetrain;
         this.controller = controller;
@@ -34,31 +44,31 @@ public class FFTankDriveCommand extends CommandBase {
     public void execute() {
         double triggers = MathUtils.deadzone(controller.getLeftTriggerAxis(), 0.05) - MathUtils.deadzone(controller.getRightTriggerAxis(), 0.05);
 //        double triggers = 0;
-        ChickenSmartDashboard.putDebugNumber("drivetrain/tankDrive/debug/triggers", triggers);
+        triggersTelemetry.set(triggers);
 
         deadzone = SmartDashboard.getNumber("drivetrain/tankDrive/deadzone", 0.15);
         double leftThrottle = scaleStickToVelocity(MathUtils.deadzone(controller.getLeftY(), deadzone) + triggers);
         double rightThrottle = scaleStickToVelocity(MathUtils.deadzone(controller.getRightY(), deadzone) + triggers);
 
-        ChickenSmartDashboard.putDebugNumber("drivetrain/tankDrive/debug/leftStick", controller.getLeftY());
-        ChickenSmartDashboard.putDebugNumber("drivetrain/tankDrive/debug/rightStick", controller.getRightY());
-        ChickenSmartDashboard.putDebugNumber("drivetrain/tankDrive/debug/leftThrottle", leftThrottle);
-        ChickenSmartDashboard.putDebugNumber("drivetrain/tankDrive/debug/rightThrottle", rightThrottle);
+        leftStickTelemetry.set(controller.getLeftY());
+        rightStickTelemetry.set(controller.getRightY());
+        leftThrottleTelemetry.set(leftThrottle);
+        rightThrottleTelemetry.set(rightThrottle);
         double combined = Math.abs(leftThrottle) + Math.abs(rightThrottle);
 
 
         double ratioL = leftThrottle / combined;
         double ratioR = rightThrottle / combined;
 
-        ChickenSmartDashboard.putDebugNumber("drivetrain/tankDrive/debug/combined", combined);
+        combinedTelemetry.set(combined);
         double total = slewRateLimiter.calculate(combined / 2) * 2.0;
-        ChickenSmartDashboard.putDebugNumber("drivetrain/tankDrive/debug/total", total);
+        totalTelemetry.set(total);
 
         double leftCalculated = ratioL * total;
         double rightCalculated = ratioR * total;
 
-        ChickenSmartDashboard.putDebugNumber("drivetrain/tankDrive/debug/calc/left", leftCalculated);
-        ChickenSmartDashboard.putDebugNumber("drivetrain/tankDrive/debug/calc/right", rightCalculated);
+        leftCalculatedTelemetry.set(leftCalculated);
+        rightCalculatedTelemetry.set(rightCalculated);
 
         drivetrain.setFFVelocity(rightCalculated, leftCalculated);
 
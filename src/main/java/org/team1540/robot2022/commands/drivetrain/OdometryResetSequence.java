@@ -6,16 +6,15 @@ import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.ParallelCommandGroup;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
 import edu.wpi.first.wpilibj2.command.WaitCommand;
-import org.team1540.robot2022.commands.vision.Vision;
+import org.team1540.robot2022.io.GyroIO;
 import org.team1540.robot2022.utils.AutoHelper;
 import org.team1540.robot2022.utils.Limelight;
-import org.team1540.robot2022.utils.NavX;
 import org.team1540.robot2022.utils.RevBlinkin;
 
 public class OdometryResetSequence extends ParallelCommandGroup {
     public static Pose2d zeroPose = AutoHelper.getTrajectory("reference.wpilib.json").getInitialPose();
 
-    public OdometryResetSequence(Drivetrain drivetrain, NavX navx, Vision vision, Limelight limelight, RevBlinkin lights) {
+    public OdometryResetSequence(Drivetrain drivetrain, GyroIO navx, Limelight limelight, RevBlinkin lights) {
         RevBlinkin.ColorPattern initialPattern = lights.getPattern();
         addCommands(
                 sequence(
@@ -23,17 +22,16 @@ public class OdometryResetSequence extends ParallelCommandGroup {
                         new WaitCommand(0.5),
                         new InstantCommand(() -> limelight.setLeds(Limelight.LEDMode.OFF))
                 ),
-                getOdometryResetter(navx, drivetrain, vision),
+                getOdometryResetter(navx, drivetrain),
                 new InstantCommand(() -> drivetrain.setNeutralMode(NeutralMode.Coast))
         );
     }
 
-    public static SequentialCommandGroup getOdometryResetter(NavX navx, Drivetrain drivetrain, Vision vision) {
+    public static SequentialCommandGroup getOdometryResetter(GyroIO navx, Drivetrain drivetrain) {
         return new SequentialCommandGroup(
                 new InstantCommand(navx::zeroYaw),
                 new InstantCommand(() -> drivetrain.resetOdometry(zeroPose)),
-                new InstantCommand(() -> drivetrain.setNeutralMode(NeutralMode.Coast)),
-                new InstantCommand(vision::zeroPosition)
+                new InstantCommand(() -> drivetrain.setNeutralMode(NeutralMode.Coast))
         );
     }
 
@@ -1,26 +1,22 @@
 package org.team1540.robot2022.commands.drivetrain;
 
-import edu.wpi.first.math.filter.MedianFilter;
 import edu.wpi.first.networktables.NetworkTableInstance;
-import edu.wpi.first.wpilibj.drive.Vector2d;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import org.team1540.robot2022.commands.vision.Vision;
+import org.team1540.robot2022.io.GyroIO;
 import org.team1540.robot2022.utils.*;
 
-import java.util.LinkedList;
 import java.util.function.DoubleConsumer;
 
 public class PointToTarget extends CommandBase {
     private final Drivetrain drivetrain;
     private final Vision vision;
     private final Limelight limelight;
-    private final NavX navX;
+    private final GyroIO navX;
     private final ChickenXboxController controller;
-    private final LinkedList<Vector2d> pastPoses = new LinkedList<>();
-    private final MedianFilter medianFilter = new MedianFilter(10);
+    private final MovingMedianFilter medianFilter = new MovingMedianFilter(10);
     private final AverageFilter averageFilter = new AverageFilter(10);
-    private int medianFilterCount = 0;
     private boolean turning = false;
 
     // A little testing says kP=0.7 and kD=0.4 are fairly strong.
@@ -28,7 +24,7 @@ public class PointToTarget extends CommandBase {
     private final MiniPID pidNavX = new MiniPID(0, 0, 0);
     private boolean isFinished = false;
 
-    public PointToTarget(Drivetrain drivetrain, Vision vision, Limelight limelight, NavX navX, ChickenXboxController controller) {
+    public PointToTarget(Drivetrain drivetrain, Vision vision, Limelight limelight, GyroIO navX, ChickenXboxController controller) {
         this.drivetrain = drivetrain;
         this.vision = vision;
         this.limelight = limelight;
@@ -59,7 +55,7 @@ public class PointToTarget extends CommandBase {
     }
 
     private double getHorizontalDistanceToTarget() {
-        return limelight.getTargetAngles().x;
+        return limelight.getTx();
     }
 
     private double getError(double distanceToTarget) {
@@ -73,36 +69,26 @@ public class PointToTarget extends CommandBase {
      * @param turnFunction a function that takes the output of our finalized angle
      */
     private void calculateWithAverage(DoubleConsumer turnFunction) {
-        Vector2d lmAngles = limelight.getTargetAngles();
-        pastPoses.add(lmAngles);
-        if (pastPoses.size() < 10) {
+        averageFilter.add(limelight.getTx());
+        if (!averageFilter.isFull()) {
             return;
-        } else if (pastPoses.size() > 10) {
-            pastPoses.remove(0);
         }
-        double avgX = 0;
-        for (Vector2d pose : pastPoses) {
-            avgX += pose.x;
-        }
-        avgX /= pastPoses.size();
-        turnFunction.accept(avgX);
+        turnFunction.accept(averageFilter.getAverage());
     }
 
     /**
-     * Uses a {@link MedianFilter} to calculate the degree offset of the target.
+     * Uses a {@link MovingMedianFilter} to calculate the degree offset of the target.
      * Waits to fill the filter's buffer before turning.
      *
      * @param turnFunction a function that takes the output of our finalized angle
      */
     private void calculateWithMedian(DoubleConsumer turnFunction) {
-        Vector2d llAngles = limelight.getTargetAngles();
-        if (medianFilterCount < 10) {
-            medianFilter.calculate(llAngles.x);
-            medianFilterCount++;
+        medianFilter.add(limelight.getTx());
+        if (!medianFilter.isFull()) {
             return;
         }
 
-        turnFunction.accept(medianFilter.calculate(llAngles.x));
+        turnFunction.accept(medianFilter.getMedian());
     }
 
     /**
@@ -160,7 +146,7 @@ public class PointToTarget extends CommandBase {
 
     /**
      * Executes turning to the target using {@link #turnWithLimelight} if the target is found,
-     * otherwise using {@link #turnWithNavX} if we need to use the Vision-estimated angle.
+     * otherwise using {@link #turnWithNavX} with the angle from the pose estimate, if it knows where the target is.
      */
     private void calculateAndTurnWithVision() {
         if (limelight.isTargetFound()) {
@@ -175,7 +161,11 @@ public class PointToTarget extends CommandBase {
             }
             ChickenSmartDashboard.putDebugBoolean("pointToTarget/turningWithLimelight", false);
             NetworkTableInstance.getDefault().flush();
-            turnWithNavX(vision.getNormalizedAngleToTargetDegrees());
+            if (vision.hasTargetEstimate()) {
+                turnWithNavX(vision.getNormalizedAngleToTargetDegrees());
+            } else {
+                drivetrain.stopMotors();
+            }
         }
     }
 
@@ -219,7 +209,7 @@ public class PointToTarget extends CommandBase {
         turning = false;
         drivetrain.stopMotors();
 //        limelight.setLeds(false);
-        medianFilterCount = 0;
+        medianFilter.clear();
         isFinished = false;
         if (controller != null) {
             controller.setRumble(0);
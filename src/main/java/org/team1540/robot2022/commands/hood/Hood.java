@@ -1,16 +1,17 @@
 package org.team1540.robot2022.commands.hood;
 
-import edu.wpi.first.wpilibj.PneumaticsModuleType;
-import edu.wpi.first.wpilibj.Solenoid;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import org.team1540.robot2022.Constants;
+import org.team1540.robot2022.io.Hardware;
+import org.team1540.robot2022.io.SolenoidIO;
 
 public class Hood extends SubsystemBase {
-    private final Solenoid solenoid = new Solenoid(Constants.PNEUMATIC_HUB, PneumaticsModuleType.REVPH, Constants.HoodConstants.SOLENOID_CHANNEL);
+    private final SolenoidIO solenoid;
 
-    public Hood() {
+    public Hood(Hardware hardware) {
+        solenoid = hardware.solenoid(Constants.HoodConstants.SOLENOID_CHANNEL);
     }
 
     public void set(boolean state) {
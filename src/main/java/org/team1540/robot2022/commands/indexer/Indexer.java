@@ -1,9 +1,6 @@
 package org.team1540.robot2022.commands.indexer;
 
-import com.ctre.phoenix.motorcontrol.ControlMode;
 import com.ctre.phoenix.motorcontrol.NeutralMode;
-import edu.wpi.first.wpilibj.AsynchronousInterrupt;
-import edu.wpi.first.wpilibj.DigitalInput;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
@@ -11,46 +8,56 @@ import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import org.team1540.robot2022.Constants.IndexerConstants;
 import org.team1540.robot2022.Constants.IndexerConstants.BeamBreaks;
 import org.team1540.robot2022.Constants.IndexerConstants.IndexerMotors;
+import org.team1540.robot2022.io.DigitalSensorIO;
+import org.team1540.robot2022.io.Hardware;
+import org.team1540.robot2022.io.MotorIO;
+import org.team1540.robot2022.io.StatusFrameProfile;
 import org.team1540.robot2022.utils.ChickenSmartDashboard;
-import org.team1540.robot2022.utils.ChickenTalonFX;
+import org.team1540.robot2022.utils.LoopProfiler;
+import org.team1540.robot2022.utils.Telemetry;
 
 public class Indexer extends SubsystemBase {
-    public final ChickenTalonFX bottomMotor = new ChickenTalonFX(IndexerMotors.BOTTOM_MOTOR);
-    public final ChickenTalonFX topMotor = new ChickenTalonFX(IndexerMotors.TOP_MOTOR);
-    private final ChickenTalonFX[] motors = {topMotor, bottomMotor};
+    public final MotorIO bottomMotor;
+    public final MotorIO topMotor;
+    private final MotorIO[] motors;
 
-    private final DigitalInput topSensor = new DigitalInput(BeamBreaks.TOP_INDEXER_SENSOR);
-    private final DigitalInput bottomSensor = new DigitalInput(BeamBreaks.BOTTOM_INDEXER_SENSOR);
+    private final DigitalSensorIO topSensor;
+    private final DigitalSensorIO bottomSensor;
 
     // If standby is false, the indexer will stop when it has both balls
     private boolean standby = false;
 
-    private final AsynchronousInterrupt topInterrupt = new AsynchronousInterrupt(topSensor, (rising, falling) -> {
-        // These rising/falling booleans are both reporting false, and I don't know why
-        if (getTopSensor() && !standby) { // Stop top indexer if ball is there and not in standby
-            set(IndexerState.OFF, IndexerState.UNCHANGED);
-        }
-    });
+    private final Telemetry.BooleanEntry topTelemetry = Telemetry.registerBoolean("indexer/top", Telemetry.Rate.DEBUG);
+    private final Telemetry.BooleanEntry bottomTelemetry = Telemetry.registerBoolean("indexer/bottom", Telemetry.Rate.DEBUG);
+    private final Telemetry.BooleanEntry fullTelemetry = Telemetry.registerBoolean("indexer/full", Telemetry.Rate.DEBUG);
 
-    private final AsynchronousInterrupt bottomInterrupt = new AsynchronousInterrupt(bottomSensor, (rising, falling) -> {
-        // These rising/falling booleans are both reporting false, and I don't know why
-        if (isFull() && !standby) { // Stop bottom indexer if indexer is full and not in standby
-            set(IndexerState.UNCHANGED, IndexerState.OFF);
-        }
-    });
+    public Indexer(Hardware hardware, NeutralMode brakeType) {
+        bottomMotor = hardware.motor(IndexerMotors.BOTTOM_MOTOR);
+        topMotor = hardware.motor(IndexerMotors.TOP_MOTOR);
+        motors = new MotorIO[]{topMotor, bottomMotor};
+        topSensor = hardware.digitalInput(BeamBreaks.TOP_INDEXER_SENSOR);
+        bottomSensor = hardware.digitalInput(BeamBreaks.BOTTOM_INDEXER_SENSOR);
 
-    public Indexer(NeutralMode brakeType) {
         IndexerMotors.CURRENT_LIMIT_CONFIG.applyTo(topMotor, bottomMotor);
-        topInterrupt.setInterruptEdges(true, true);
-        bottomInterrupt.setInterruptEdges(true, true);
-        topInterrupt.enable();
-        bottomInterrupt.enable();
+        topSensor.setInterruptHandler(() -> {
+            if (getTopSensor() && !standby) { // Stop top indexer if ball is there and not in standby
+                set(IndexerState.OFF, IndexerState.UNCHANGED);
+            }
+        });
+        bottomSensor.setInterruptHandler(() -> {
+            if (isFull() && !standby) { // Stop bottom indexer if indexer is full and not in standby
+                set(IndexerState.UNCHANGED, IndexerState.OFF);
+            }
+        });
+        topSensor.enableInterrupts();
+        bottomSensor.enableInterrupts();
 
 //        IndexerMotors.CURRENT_LIMIT_CONFIG.applyTo(motors);
-        for (ChickenTalonFX motor : motors) {
+        for (MotorIO motor : motors) {
             motor.configFactoryDefault();
             motor.setNeutralMode(brakeType);
             motor.setInverted(true);
+            motor.configStatusFrames(StatusFrameProfile.SLOW);
         }
         ChickenSmartDashboard.putDefaultNumber("indexer/pid/kP", 0);
         ChickenSmartDashboard.putDefaultNumber("indexer/pid/kI", 0);
@@ -62,9 +69,12 @@ public class Indexer extends SubsystemBase {
 
     @Override
     public void periodic() {
-        ChickenSmartDashboard.putDebugBoolean("indexer/top", this.getTopSensor());
-        ChickenSmartDashboard.putDebugBoolean("indexer/bottom", this.getBottomSensor());
-        ChickenSmartDashboard.putDebugBoolean("indexer/full", this.isFull());
+        long start = LoopProfiler.start();
+        topTelemetry.set(this.getTopSensor());
+        bottomTelemetry.set(this.getBottomSensor());
+        fullTelemetry.set(this.isFull());
+
+        LoopProfiler.stop(LoopProfiler.Section.INDEXER, start);
     }
 
     /**
@@ -138,19 +148,19 @@ public class Indexer extends SubsystemBase {
      * @param mode      The mode to set it to
      * @param onPercent the speed to use for running forward and reverse
      */
-    private void setMotor(ChickenTalonFX motor, IndexerState mode, double onPercent) {
+    private void setMotor(MotorIO motor, IndexerState mode, double onPercent) {
         switch (mode) {
             case FORWARD_FULL:
-                motor.set(ControlMode.PercentOutput, 1);
+                motor.setPercent(1);
                 break;
             case FORWARD:
-                motor.set(ControlMode.PercentOutput, onPercent);
+                motor.setPercent(onPercent);
                 break;
             case REVERSE:
-                motor.set(ControlMode.PercentOutput, -onPercent);
+                motor.setPercent(-onPercent);
                 break;
             case OFF:
-                motor.set(ControlMode.PercentOutput, 0);
+                motor.setPercent(0);
                 break;
             case UNCHANGED:
                 break;
@@ -212,7 +222,7 @@ public class Indexer extends SubsystemBase {
      * @param mode The mode to set the wheels to
      */
     public void setNeutralMode(NeutralMode mode) {
-        for (ChickenTalonFX motor : motors) {
+        for (MotorIO motor : motors) {
             motor.setNeutralMode(mode);
         }
     }
@@ -1,21 +1,24 @@
 package org.team1540.robot2022.commands.intake;
 
-import com.ctre.phoenix.motorcontrol.ControlMode;
 import com.ctre.phoenix.motorcontrol.NeutralMode;
-import edu.wpi.first.wpilibj.PneumaticsModuleType;
-import edu.wpi.first.wpilibj.Solenoid;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import org.team1540.robot2022.Constants;
-import org.team1540.robot2022.utils.ChickenTalonFX;
+import org.team1540.robot2022.io.Hardware;
+import org.team1540.robot2022.io.MotorIO;
+import org.team1540.robot2022.io.SolenoidIO;
+import org.team1540.robot2022.io.StatusFrameProfile;
 
 public class Intake extends SubsystemBase {
-    private final Solenoid solenoid = new Solenoid(Constants.PNEUMATIC_HUB, PneumaticsModuleType.REVPH, Constants.IntakeConstants.SOLENOID);
-    public final ChickenTalonFX motor = new ChickenTalonFX(Constants.IntakeConstants.FALCON);
+    private final SolenoidIO solenoid;
+    public final MotorIO motor;
 
-    public Intake() {
+    public Intake(Hardware hardware) {
+        solenoid = hardware.solenoid(Constants.IntakeConstants.SOLENOID);
+        motor = hardware.motor(Constants.IntakeConstants.FALCON);
         Constants.IntakeConstants.CURRENT_LIMIT_CONFIG.applyTo(motor);
+        motor.configStatusFrames(StatusFrameProfile.SLOW);
     }
 
     @Override
@@ -49,7 +52,7 @@ public class Intake extends SubsystemBase {
      * @param percent roller percent output
      */
     public void setPercent(double percent) {
-        motor.set(ControlMode.PercentOutput, percent);
+        motor.setPercent(percent);
     }
 
     /**
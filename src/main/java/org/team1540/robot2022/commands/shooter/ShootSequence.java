@@ -10,6 +10,8 @@ import org.team1540.robot2022.commands.indexer.Indexer;
 import org.team1540.robot2022.commands.intake.Intake;
 import org.team1540.robot2022.commands.shooter.Shooter.ShooterProfile;
 import org.team1540.robot2022.commands.vision.Vision;
+import org.team1540.robot2022.io.GyroIO;
+import org.team1540.robot2022.io.LidarIO;
 import org.team1540.robot2022.utils.*;
 
 public class ShootSequence extends SequentialCommandGroup {
@@ -17,6 +19,7 @@ public class ShootSequence extends SequentialCommandGroup {
     private final Indexer indexer;
     private final Limelight limelight;
     private final InterpolationTable interpolationTable = InterpolationTable.getInstance();
+    private final double[] flywheelSpeeds = new double[2];
 
     public Shooter.ShooterProfile profile;
 
@@ -26,7 +29,7 @@ public class ShootSequence extends SequentialCommandGroup {
     private double rearVelocity;
     private boolean hoodState; // New state to set the hood to
 
-    public ShootSequence(Shooter shooter, Indexer indexer, Drivetrain drivetrain, Hood hood, Intake intake, Vision vision, Limelight limelight, LIDAR lidar, NavX navX, Shooter.ShooterProfile m_profile, boolean pointToTarget, boolean has2Balls, ChickenXboxController controller) {
+    public ShootSequence(Shooter shooter, Indexer indexer, Drivetrain drivetrain, Hood hood, Intake intake, Vision vision, Limelight limelight, LidarIO lidar, GyroIO navX, Shooter.ShooterProfile m_profile, boolean pointToTarget, boolean has2Balls, ChickenXboxController controller) {
         this.shooter = shooter;
         this.indexer = indexer;
         this.limelight = limelight;
@@ -48,7 +51,7 @@ public class ShootSequence extends SequentialCommandGroup {
                                 ),
                                 new InstantCommand(() -> {
                                     // TODO: TEST THIS!
-                                    limelightDistance = vision.getCornerCalculatedDistance();
+                                    limelightDistance = vision.getTargetDistance();
                                     lidarDistance = lidar.getDistance();
                                 })
                         ),
@@ -62,8 +65,9 @@ public class ShootSequence extends SequentialCommandGroup {
                         rearVelocity = SmartDashboard.getNumber("shooter/tuning/rearRPM", 0);
                     } else if (this.profile == Shooter.ShooterProfile.FAR) {
                         hoodState = true;
-                        frontVelocity = interpolationTable.frontFlywheelInterpolator.getInterpolatedValue(limelightDistance);
-                        rearVelocity = interpolationTable.rearFlywheelInterpolator.getInterpolatedValue(limelightDistance);
+                        interpolationTable.getFlywheelSpeeds(limelightDistance, 0, hoodState, flywheelSpeeds);
+                        frontVelocity = flywheelSpeeds[0];
+                        rearVelocity = flywheelSpeeds[1];
                     } else if (this.profile == Shooter.ShooterProfile.HUB) {
                         hoodState = false;
                         frontVelocity = SmartDashboard.getNumber("shooter/presets/hub/front", InterpolationTable.hubFront);
@@ -84,7 +88,7 @@ public class ShootSequence extends SequentialCommandGroup {
                 drivetrain.lights.commandSetPattern(RevBlinkin.ColorPattern.YELLOW, true),
 
                 drivetrain.lights.commandSetPattern(RevBlinkin.ColorPattern.VIOLET, true),
-//                new InstantCommand(() -> FeatherClient.recordShot(this.limelightDistance, this.lidarDistance, this.frontVelocity, this.rearVelocity, this.hoodState, this.profile + "")),
+                new InstantCommand(() -> FeatherClient.recordShot(this.limelightDistance, this.lidarDistance, this.frontVelocity, this.rearVelocity, this.hoodState, this.profile.name())),
                 new ShooterFeedSequence(indexer, shooter, drivetrain.lights, has2Balls)
         );
     }
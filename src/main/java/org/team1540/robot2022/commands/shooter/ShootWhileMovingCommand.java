@@ -0,0 +1,188 @@
+package org.team1540.robot2022.commands.shooter;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.kinematics.DifferentialDriveWheelSpeeds;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.XboxController;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import org.team1540.robot2022.Constants.DriveConstants;
+import org.team1540.robot2022.Constants.FieldConstants;
+import org.team1540.robot2022.InterpolationTable;
+import org.team1540.robot2022.commands.drivetrain.Drivetrain;
+import org.team1540.robot2022.commands.hood.Hood;
+import org.team1540.robot2022.commands.indexer.Indexer;
+import org.team1540.robot2022.commands.indexer.Indexer.IndexerState;
+import org.team1540.robot2022.commands.vision.Vision;
+import org.team1540.robot2022.io.LidarIO;
+import org.team1540.robot2022.utils.FeatherClient;
+import org.team1540.robot2022.utils.Limelight;
+import org.team1540.robot2022.utils.MathUtils;
+import org.team1540.robot2022.utils.PoseKalmanFilter;
+import org.team1540.robot2022.utils.Telemetry;
+
+/**
+ * ShootWhileMovingCommand shoots without stopping to line up. The driver keeps control of how fast the robot drives,
+ * and the command steers it at the hub and feeds balls whenever the shot lines up.
+ * <p>
+ * Every loop, the robot's velocity from the wheel speeds and its pose estimate go into a {@link ShotSolver}, which
+ * leads the hub by how far the ball will drift with the robot's velocity. The flywheels are set for the distance to that virtual target, and the
+ * drivetrain turns to face it. The shooter is fixed and the robot can't drive sideways, so the ball always leaves
+ * along the robot's velocity. The lead ends up being how much the robot adds to or takes from the shot's distance,
+ * and steering at the virtual target turns the robot onto a line through the hub as it drives.
+ * <p>
+ * Without a pose estimate that knows where the hub is, the sticks drive the robot like tank drive and no balls are
+ * fed.
+ */
+public class ShootWhileMovingCommand extends CommandBase {
+    public static final double RELEASE_DELAY = 0.1; // seconds from feeding a ball to it leaving the flywheels
+    private static final double MAX_SPEED = 2; // meters per second, the lead time table isn't good enough faster
+    public static final double MIN_DISTANCE = 60; // inches, the flywheel tables can't reach closer
+    public static final double MAX_DISTANCE = 162;
+    private static final double AIM_P = 4; // radians per second per radian of aim error
+    private static final double MAX_TURN_RATE = 3; // radians per second
+    private static final double AIM_TOLERANCE = 0.2; // meters the ball can land from the center of the hub
+    private static final double DEADZONE = 0.15;
+
+    private final Shooter shooter;
+    private final Indexer indexer;
+    private final Drivetrain drivetrain;
+    private final Hood hood;
+    private final Vision vision;
+    private final Limelight limelight;
+    private final LidarIO lidar;
+    private final XboxController controller;
+    private final InterpolationTable interpolationTable = InterpolationTable.getInstance();
+    private final ShotSolver solver = new ShotSolver(range -> interpolationTable.getLeadTime(toShotDistance(range)));
+    private final double[] flywheelSpeeds = new double[2];
+
+    private double lastAimAngle;
+    private double lastTimestamp = Double.NaN;
+    private boolean ballStaged;
+
+    private final Telemetry.NumberEntry virtualDistanceTelemetry = Telemetry.registerNumber("shooter/moving/virtualDistance", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry leadTimeTelemetry = Telemetry.registerNumber("shooter/moving/leadTime", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry aimErrorTelemetry = Telemetry.registerNumber("shooter/moving/aimErrorDegrees", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry velocityTelemetry = Telemetry.registerNumber("shooter/moving/velocity", Telemetry.Rate.DEBUG);
+    private final Telemetry.BooleanEntry readyTelemetry = Telemetry.registerBoolean("shooter/moving/ready", Telemetry.Rate.DEBUG);
+
+    public ShootWhileMovingCommand(Shooter shooter, Indexer indexer, Drivetrain drivetrain, Hood hood, Vision vision, Limelight limelight, LidarIO lidar, XboxController controller) {
+        this.shooter = shooter;
+        this.indexer = indexer;
+        this.drivetrain = drivetrain;
+        this.hood = hood;
+        this.vision = vision;
+        this.limelight = limelight;
+        this.lidar = lidar;
+        this.controller = controller;
+
+        addRequirements(shooter, indexer, drivetrain, hood);
+    }
+
+    @Override
+    public void initialize() {
+        limelight.setLeds(true);
+        indexer.setStandby(false);
+        hood.set(true);
+        lastTimestamp = Double.NaN;
+        ballStaged = indexer.getTopSensor();
+    }
+
+    @Override
+    public void execute() {
+        double triggers = MathUtils.deadzone(controller.getLeftTriggerAxis(), 0.05) - MathUtils.deadzone(controller.getRightTriggerAxis(), 0.05);
+        double deadzone = SmartDashboard.getNumber("drivetrain/tankDrive/deadzone", DEADZONE);
+        // Same as FFTankDriveCommand, which drives intake first so the sticks are swapped
+        double leftVelocity = scaleStickToVelocity(MathUtils.deadzone(controller.getRightY(), deadzone) + triggers);
+        double rightVelocity = scaleStickToVelocity(MathUtils.deadzone(controller.getLeftY(), deadzone) + triggers);
+
+        if (!vision.hasTargetEstimate()) {
+            drivetrain.setFFVelocity(leftVelocity, rightVelocity);
+            shooter.setVelocityRPM(InterpolationTable.shooterSpinupFront, InterpolationTable.shooterSpinupRear);
+            stageBall();
+            ballStaged = indexer.getTopSensor();
+            lastTimestamp = Double.NaN;
+            readyTelemetry.set(false);
+            return;
+        }
+
+        PoseKalmanFilter estimate = drivetrain.getPoseEstimator();
+        DifferentialDriveWheelSpeeds wheelSpeeds = drivetrain.getWheelSpeeds();
+        double velocity = (wheelSpeeds.leftMetersPerSecond + wheelSpeeds.rightMetersPerSecond) / 2;
+        double heading = estimate.getHeading();
+        boolean solved = solver.solve(estimate.getX(), estimate.getY(),
+                velocity * Math.cos(heading), velocity * Math.sin(heading), RELEASE_DELAY,
+                FieldConstants.HUB_X, FieldConstants.HUB_Y);
+
+        // Turn at the rate the virtual target is moving, plus enough to close the error
+        double aimAngle = solver.getAimAngle();
+        double timestamp = Timer.getFPGATimestamp();
+        double aimRate = 0;
+        if (!Double.isNaN(lastTimestamp) && timestamp > lastTimestamp) {
+            aimRate = MathUtil.angleModulus(aimAngle - lastAimAngle) / (timestamp - lastTimestamp);
+        }
+        lastAimAngle = aimAngle;
+        lastTimestamp = timestamp;
+        double aimError = MathUtil.angleModulus(aimAngle - heading);
+        double turnRate = MathUtil.clamp(aimRate + AIM_P * aimError, -MAX_TURN_RATE, MAX_TURN_RATE);
+        double forward = MathUtil.clamp((leftVelocity + rightVelocity) / 2, -MAX_SPEED, MAX_SPEED);
+        double turn = turnRate * DriveConstants.K_TRACKWIDTH_METERS / 2;
+        drivetrain.setFFVelocity(forward - turn, forward + turn);
+
+        // The virtual target already has the robot's motion in it, so the tables are read as if it were stopped
+        double distance = toShotDistance(solver.getRange());
+        interpolationTable.getFlywheelSpeeds(distance, 0, true, flywheelSpeeds);
+        shooter.setVelocityRPM(flywheelSpeeds[0], flywheelSpeeds[1]);
+
+        boolean aimed = Math.abs(aimError) < Math.atan2(AIM_TOLERANCE, solver.getRange());
+        boolean inRange = distance >= MIN_DISTANCE && distance <= MAX_DISTANCE;
+        boolean ready = solved && inRange && aimed && shooter.isSpunUp();
+        if (ready) {
+            indexer.set(IndexerState.FORWARD_FULL, IndexerState.FORWARD);
+        } else {
+            stageBall();
+        }
+        // A ball has been shot once it clears the top sensor
+        boolean topSensor = indexer.getTopSensor();
+        if (ballStaged && !topSensor) {
+            FeatherClient.recordShot(vision.getTargetDistance(), lidar.getDistance(), flywheelSpeeds[0], flywheelSpeeds[1], true, "MOVING");
+        }
+        ballStaged = topSensor;
+
+        virtualDistanceTelemetry.set(distance);
+        leadTimeTelemetry.set(solver.getLeadTime());
+        aimErrorTelemetry.set(Math.toDegrees(aimError));
+        velocityTelemetry.set(velocity);
+        readyTelemetry.set(ready);
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        drivetrain.stopMotors();
+        shooter.stop();
+        indexer.stop();
+        limelight.setLeds(false);
+        readyTelemetry.set(false);
+    }
+
+    /**
+     * Moves the next ball up to the top sensor without shooting it
+     */
+    private void stageBall() {
+        indexer.set(IndexerState.OFF, indexer.getTopSensor() ? IndexerState.OFF : IndexerState.FORWARD);
+    }
+
+    private double scaleStickToVelocity(double stickValue) {
+        return MathUtils.normalize(stickValue, -1, 1, drivetrain.getMinVelocity(), drivetrain.getMaxVelocity());
+    }
+
+    /**
+     * Converts a distance to the center of the hub into the distance the flywheel tables use
+     *
+     * @param range horizontal distance from the robot to the center of the hub in meters
+     * @return the distance in inches, measured like {@link Vision#getTargetDistance()}
+     */
+    private static double toShotDistance(double range) {
+        return 39.37007874 * (range - Limelight.targetRadius);
+    }
+}
@@ -1,32 +1,64 @@
 package org.team1540.robot2022.commands.shooter;
 
 import com.ctre.phoenix.motorcontrol.NeutralMode;
-import com.ctre.phoenix.motorcontrol.TalonFXControlMode;
 import edu.wpi.first.networktables.EntryListenerFlags;
 import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import org.team1540.robot2022.Constants;
+import org.team1540.robot2022.io.Hardware;
+import org.team1540.robot2022.io.MotorIO;
+import org.team1540.robot2022.io.StatusFrameProfile;
 import org.team1540.robot2022.utils.ChickenSmartDashboard;
-import org.team1540.robot2022.utils.ChickenTalonFX;
+import org.team1540.robot2022.utils.FeatherClient;
+import org.team1540.robot2022.utils.LoopProfiler;
+import org.team1540.robot2022.utils.Telemetry;
 
 public class Shooter extends SubsystemBase {
-    private final double rearP = 0.5;
-    private final double rearI = 0;
-    private final double rearD = 10;
-    private final double rearF = 0.048;
+    public static final double rearP = 0.5;
+    public static final double rearI = 0;
+    public static final double rearD = 10;
+    public static final double rearF = 0.048;
 
-    private final double frontP = 0.5;
-    private final double frontI = 0;
-    private final double frontD = 10;
-    private final double frontF = 0.048;
+    public static final double frontP = 0.5;
+    public static final double frontI = 0;
+    public static final double frontD = 10;
+    public static final double frontF = 0.048;
 
-    public ChickenTalonFX shooterMotorFront = new ChickenTalonFX(Constants.ShooterConstants.FRONT);
-    public ChickenTalonFX shooterMotorRear = new ChickenTalonFX(Constants.ShooterConstants.REAR);
+    private static final int SPUN_UP_LOOPS = 3; // in a row within the target error, so one lucky reading doesn't shoot
+    private static final double DIP_RPM = 75; // below the setpoint on either flywheel, a ball going through
 
-    public Shooter() {
+    public final MotorIO shooterMotorFront;
+    public final MotorIO shooterMotorRear;
+
+    private double frontSetpoint;
+    private double rearSetpoint;
+    private int spunUpLoops;
+    private double targetErrorRPM = readTargetErrorRPM(); // Read once a loop in periodic()
+    private boolean dipArmed; // Spun up since the last dip or setpoint change, so the next drop is a ball
+    private double dipStart = Double.NaN;
+    private double dipDepth;
+    private int shotCount;
+    private double lastRecoveryTime = Double.NaN;
+
+    private final Telemetry.NumberEntry currentTelemetry = Telemetry.registerNumber("shooter/current", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry velocityFrontTelemetry = Telemetry.registerNumber("shooter/velocityFront", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry velocityRearTelemetry = Telemetry.registerNumber("shooter/velocityRear", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry errorTelemetry = Telemetry.registerNumber("shooter/error", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry errorFrontTelemetry = Telemetry.registerNumber("shooter/error/front", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry errorRearTelemetry = Telemetry.registerNumber("shooter/error/rear", Telemetry.Rate.DEBUG);
+    private final Telemetry.BooleanEntry isSpunUpTelemetry = Telemetry.registerBoolean("shooter/isSpunUp", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry frontPercentTelemetry = Telemetry.registerNumber("shooter/frontPercent", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry rearPercentTelemetry = Telemetry.registerNumber("shooter/rearPercent", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry shotCountTelemetry = Telemetry.registerNumber("shooter/shots", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry recoveryTimeTelemetry = Telemetry.registerNumber("shooter/recoveryTime", Telemetry.Rate.DEBUG);
+
+    public Shooter(Hardware hardware) {
+        shooterMotorFront = hardware.motor(Constants.ShooterConstants.FRONT);
+        shooterMotorRear = hardware.motor(Constants.ShooterConstants.REAR);
 //        Constants.ShooterConstants.CURRENT_LIMIT_CONFIG.applyTo(new ChickenTalonFX[]{shooterMotorFront, shooterMotorRear});
         shooterMotorFront.configFactoryDefault();
         shooterMotorRear.configFactoryDefault();
@@ -34,6 +66,8 @@ public class Shooter extends SubsystemBase {
         shooterMotorRear.setNeutralMode(NeutralMode.Coast);
         shooterMotorFront.setInverted(true);
         shooterMotorRear.setInverted(true);
+        shooterMotorFront.configStatusFrames(StatusFrameProfile.FLYWHEEL);
+        shooterMotorRear.configStatusFrames(StatusFrameProfile.FLYWHEEL);
 
         ChickenSmartDashboard.putDefaultNumber("shooter/tuning/frontP", frontP);
         ChickenSmartDashboard.putDefaultNumber("shooter/tuning/frontI", frontI);
@@ -57,23 +91,36 @@ public class Shooter extends SubsystemBase {
 
     @Override
     public void periodic() {
-        ChickenSmartDashboard.putDebugNumber("shooter/current", shooterMotorFront.getStatorCurrent() + shooterMotorRear.getStatorCurrent());
-        ChickenSmartDashboard.putDebugNumber("shooter/velocityFront", shooterMotorFront.getVelocityRPM());
-        ChickenSmartDashboard.putDebugNumber("shooter/velocityRear", shooterMotorRear.getVelocityRPM());
-        ChickenSmartDashboard.putDebugNumber("shooter/error", getClosedLoopError());
-        ChickenSmartDashboard.putDebugNumber("shooter/error/front", getFrontClosedLoopError());
-        ChickenSmartDashboard.putDebugNumber("shooter/error/rear", getRearClosedLoopError());
-        ChickenSmartDashboard.putDebugBoolean("shooter/isSpunUp", isSpunUp());
-        ChickenSmartDashboard.putDebugNumber("shooter/frontPercent", shooterMotorFront.getMotorOutputPercent());
-        ChickenSmartDashboard.putDebugNumber("shooter/rearPercent", shooterMotorRear.getMotorOutputPercent());
+        long start = LoopProfiler.start();
+        targetErrorRPM = readTargetErrorRPM();
+        currentTelemetry.set(shooterMotorFront.getStatorCurrent() + shooterMotorRear.getStatorCurrent());
+        velocityFrontTelemetry.set(getFrontVelocityRPM());
+        velocityRearTelemetry.set(getRearVelocityRPM());
+        errorTelemetry.set(getClosedLoopError());
+        errorFrontTelemetry.set(getFrontClosedLoopError());
+        errorRearTelemetry.set(getRearClosedLoopError());
+        isSpunUpTelemetry.set(isSpunUp());
+        frontPercentTelemetry.set(shooterMotorFront.getMotorOutputPercent());
+        rearPercentTelemetry.set(shooterMotorRear.getMotorOutputPercent());
+        spunUpLoops = isWithinTargetError() ? spunUpLoops + 1 : 0;
+        updateShotDetection();
+        shotCountTelemetry.set(shotCount);
+        recoveryTimeTelemetry.set(lastRecoveryTime);
+
+        LoopProfiler.stop(LoopProfiler.Section.SHOOTER, start);
     }
 
     /**
      * Stop spinning shooter
      */
     public void stop() {
-        shooterMotorFront.set(TalonFXControlMode.PercentOutput, 0);
-        shooterMotorRear.set(TalonFXControlMode.PercentOutput, 0);
+        shooterMotorFront.setPercent(0);
+        shooterMotorRear.setPercent(0);
+        frontSetpoint = 0;
+        rearSetpoint = 0;
+        spunUpLoops = 0;
+        dipArmed = false;
+        dipStart = Double.NaN;
     }
 
     /**
@@ -83,6 +130,14 @@ public class Shooter extends SubsystemBase {
      * @param rearVelocity  front wheel RPM setpoint
      */
     public void setVelocityRPM(double frontVelocity, double rearVelocity) {
+        // Small changes, like from a distance that's a little noisy, don't have to settle again
+        if (Math.abs(frontVelocity - frontSetpoint) > targetErrorRPM || Math.abs(rearVelocity - rearSetpoint) > targetErrorRPM) {
+            spunUpLoops = 0;
+            dipArmed = false;
+            dipStart = Double.NaN;
+        }
+        frontSetpoint = frontVelocity;
+        rearSetpoint = rearVelocity;
         shooterMotorFront.setVelocityRPM(frontVelocity);
         shooterMotorRear.setVelocityRPM(rearVelocity);
     }
@@ -102,6 +157,24 @@ public class Shooter extends SubsystemBase {
         shooterMotorRear.config_kF(0, SmartDashboard.getNumber("shooter/tuning/rearF", rearF));
     }
 
+    /**
+     * Get front flywheel velocity
+     *
+     * @return front flywheel velocity in RPM
+     */
+    public double getFrontVelocityRPM() {
+        return shooterMotorFront.getVelocityRPM();
+    }
+
+    /**
+     * Get rear flywheel velocity
+     *
+     * @return rear flywheel velocity in RPM
+     */
+    public double getRearVelocityRPM() {
+        return shooterMotorRear.getVelocityRPM();
+    }
+
     /**
      * Get front flywheel PID error
      *
@@ -150,15 +223,85 @@ public class Shooter extends SubsystemBase {
     }
 
     /**
-     * Check if the shooter is spun up close enough to target velocity
+     * Check if the shooter has been spun up close enough to target velocity for a few loops. Feeding as soon as this is
+     * true is safe, even right after changing the setpoint.
      *
      * @return if the shooter is spun up
      */
     public boolean isSpunUp() {
-        return getClosedLoopError() < SmartDashboard.getNumber("shooter/tuning/targetError", 30)
+        return spunUpLoops >= SPUN_UP_LOOPS && isWithinTargetError();
+    }
+
+    /**
+     * Gets how many balls have gone through the flywheels, counted from the velocity dip each one causes. Only dips
+     * after the shooter is spun up count, so spinning up or changing speed isn't a shot.
+     *
+     * @return the number of shots since the robot started
+     */
+    public int getShotCount() {
+        return shotCount;
+    }
+
+    /**
+     * @return whether the flywheels are still coming back up after a shot
+     */
+    public boolean isRecovering() {
+        return !Double.isNaN(dipStart);
+    }
+
+    /**
+     * @return seconds from the last shot's dip until both flywheels were back within the target error, or NaN if
+     * there hasn't been one
+     */
+    public double getLastRecoveryTime() {
+        return lastRecoveryTime;
+    }
+
+    /**
+     * Watches the measured velocities for the dip from a ball going through the flywheels, and times how long they
+     * take to come back. Each recovery is recorded to feather.
+     */
+    private void updateShotDetection() {
+        double dip = Math.max(Math.abs(frontSetpoint) - Math.abs(shooterMotorFront.getVelocityRPM()),
+                Math.abs(rearSetpoint) - Math.abs(shooterMotorRear.getVelocityRPM()));
+        double now = Timer.getFPGATimestamp();
+        if (dipArmed && dip > DIP_RPM) {
+            dipArmed = false;
+            dipStart = now;
+            dipDepth = dip;
+            shotCount++;
+        } else if (!Double.isNaN(dipStart)) {
+            dipDepth = Math.max(dipDepth, dip);
+            if (spunUpLoops > 0) {
+                lastRecoveryTime = now - dipStart;
+                dipStart = Double.NaN;
+                dipArmed = true; // The next ball can come right away
+                FeatherClient.recordRecovery(frontSetpoint, rearSetpoint, dipDepth, lastRecoveryTime);
+            }
+        }
+        if (isSpunUp()) {
+            dipArmed = true;
+        }
+    }
+
+    /**
+     * Compares the measured velocities against the setpoints this last sent, instead of the Talons' closed loop error,
+     * which comes in a slower status frame and can still be for the old setpoint. Both flywheels have to be within the
+     * target error.
+     */
+    private boolean isWithinTargetError() {
+        double error = Math.max(Math.abs(shooterMotorFront.getVelocityRPM() - frontSetpoint), Math.abs(shooterMotorRear.getVelocityRPM() - rearSetpoint));
+        return error < targetErrorRPM
                 && Math.abs(shooterMotorFront.getVelocityRPM() + shooterMotorRear.getVelocityRPM()) > 200; // Make sure the shooter is moving
     }
 
+    /**
+     * @return the target error from SmartDashboard, which is in native units like the closed loop error, in RPM
+     */
+    private static double readTargetErrorRPM() {
+        return SmartDashboard.getNumber("shooter/tuning/targetError", 30) * 600 / 2048.0;
+    }
+
     public enum ShooterProfile {
         /**
          * Touching the hub, low goal
@@ -4,15 +4,23 @@ import edu.wpi.first.wpilibj2.command.*;
 import org.team1540.robot2022.commands.indexer.Indexer;
 import org.team1540.robot2022.utils.RevBlinkin;
 
+/**
+ * Feeds the staged balls into the shooter. The second ball goes as soon as the flywheels have come back up from the
+ * first one, which {@link Shooter} detects from the dip in their velocity.
+ */
 public class ShooterFeedSequence extends SequentialCommandGroup {
+    private static final double SHOT_TIMEOUT = 0.5; // seconds to wait for a shot's dip before going on without it
+
+    private int shotsBeforeFeed;
+
     public ShooterFeedSequence(Indexer indexer, Shooter shooter, RevBlinkin lights, boolean has2Balls) {
         addRequirements(indexer);
 
         addCommands(
                 new WaitUntilCommand(shooter::isSpunUp).withTimeout(1),                                             // Wait for shooter to spin up
                 lights.commandSetPattern(RevBlinkin.ColorPattern.ORANGE, true),
-                new WaitCommand(1),
                 new InstantCommand(() -> indexer.setStandby(true)),
+                new InstantCommand(() -> shotsBeforeFeed = shooter.getShotCount()),
                 indexer.commandSet(Indexer.IndexerState.FORWARD_FULL, Indexer.IndexerState.OFF),     // Run top indexer
                 new WaitUntilCommand(() -> !indexer.getTopSensor()),                                 // Wait until top ball exits the indexer
                 lights.commandSetPattern(RevBlinkin.ColorPattern.GREEN, true),
@@ -25,10 +33,11 @@ public class ShooterFeedSequence extends SequentialCommandGroup {
                                                 lights.commandSetPattern(RevBlinkin.ColorPattern.BLUE_GREEN, true),
                                                 new WaitUntilCommand(indexer::getTopSensor),                                    // Wait until ball is in top staging location
                                                 indexer.commandSet(Indexer.IndexerState.OFF, Indexer.IndexerState.OFF),         // Stop when ball is up high TODO: Standby here?
-                                                new WaitUntilCommand(shooter::isSpunUp).withTimeout(0.5),
+                                                new WaitUntilCommand(() -> shooter.getShotCount() > shotsBeforeFeed && !shooter.isRecovering()).withTimeout(SHOT_TIMEOUT), // Wait for the flywheels to recover from the first ball
+                                                new InstantCommand(() -> shotsBeforeFeed = shooter.getShotCount()),
                                                 indexer.commandSet(Indexer.IndexerState.FORWARD_FULL, Indexer.IndexerState.FORWARD_FULL), // Run both indexer wheels to shoot bottom ball
-                                                new WaitCommand(1),
-                                                new WaitUntilCommand(() -> !indexer.getTopSensor() && !indexer.getBottomSensor())      // Wait until ball leaves top of indexer
+                                                new WaitUntilCommand(() -> !indexer.getTopSensor() && !indexer.getBottomSensor()),     // Wait until ball leaves top of indexer
+                                                new WaitUntilCommand(() -> shooter.getShotCount() > shotsBeforeFeed).withTimeout(SHOT_TIMEOUT) // Wait until it's through the flywheels
                                         ),
                                         new PrintCommand("hub shot, not waiting"),
                                         () -> true
@@ -0,0 +1,90 @@
+package org.team1540.robot2022.commands.shooter;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import org.team1540.robot2022.InterpolationTable;
+import org.team1540.robot2022.commands.indexer.Indexer;
+import org.team1540.robot2022.commands.vision.Vision;
+import org.team1540.robot2022.utils.Limelight;
+import org.team1540.robot2022.utils.Telemetry;
+
+/**
+ * ShooterPrespinCommand is the shooter's default command. While the indexer holds a ball it keeps the flywheels at the
+ * speeds for where the robot is now, so by the time a shot starts they're usually already there and
+ * {@link ShooterFeedSequence} can feed right away. With no balls the flywheels idle slowly to save battery. Nothing
+ * stops the flywheels when a shot takes over the shooter, so they keep spinning while it lines up.
+ * <p>
+ * The distance comes from the pose estimate, or the vision tape if the pose estimate isn't sure where the hub is.
+ * Without either it falls back to the spinup preset. Closer than the hood up table goes, the robot will be shooting
+ * against the hub, so it spins up for the hub preset.
+ */
+public class ShooterPrespinCommand extends CommandBase {
+    public static final double MIN_DISTANCE = 60; // inches, where the hood up table starts
+    private static final int PRESET_READ_LOOPS = 50; // about once a second, so tuning the hub preset still shows up
+
+    private final Shooter shooter;
+    private final Indexer indexer;
+    private final Vision vision;
+    private final Limelight limelight;
+    private final InterpolationTable interpolationTable = InterpolationTable.getInstance();
+    private final double[] flywheelSpeeds = new double[2];
+    private double hubFront;
+    private double hubRear;
+    private int presetLoops;
+
+    private final Telemetry.NumberEntry distanceTelemetry = Telemetry.registerNumber("shooter/prespin/distance", Telemetry.Rate.DEBUG);
+    private final Telemetry.BooleanEntry idleTelemetry = Telemetry.registerBoolean("shooter/prespin/idle", Telemetry.Rate.DEBUG);
+
+    public ShooterPrespinCommand(Shooter shooter, Indexer indexer, Vision vision, Limelight limelight) {
+        this.shooter = shooter;
+        this.indexer = indexer;
+        this.vision = vision;
+        this.limelight = limelight;
+
+        addRequirements(shooter);
+    }
+
+    @Override
+    public void initialize() {
+        readHubPresets();
+    }
+
+    @Override
+    public void execute() {
+        if (++presetLoops >= PRESET_READ_LOOPS) {
+            readHubPresets();
+        }
+        boolean idle = !indexer.getTopSensor() && !indexer.getBottomSensor();
+        double distance = Double.NaN;
+        if (idle) {
+            flywheelSpeeds[0] = InterpolationTable.shooterIdleFront;
+            flywheelSpeeds[1] = InterpolationTable.shooterIdleRear;
+        } else {
+            if (vision.hasTargetEstimate()) {
+                distance = vision.getEstimatedDistance();
+            } else if (limelight.isTargetFound()) {
+                distance = vision.getCornerCalculatedDistance();
+            }
+
+            if (Double.isNaN(distance)) {
+                flywheelSpeeds[0] = InterpolationTable.shooterSpinupFront;
+                flywheelSpeeds[1] = InterpolationTable.shooterSpinupRear;
+            } else if (distance < MIN_DISTANCE) {
+                flywheelSpeeds[0] = hubFront;
+                flywheelSpeeds[1] = hubRear;
+            } else {
+                interpolationTable.getFlywheelSpeeds(distance, 0, true, flywheelSpeeds);
+            }
+        }
+        shooter.setVelocityRPM(flywheelSpeeds[0], flywheelSpeeds[1]);
+
+        distanceTelemetry.set(distance);
+        idleTelemetry.set(idle);
+    }
+
+    private void readHubPresets() {
+        presetLoops = 0;
+        hubFront = SmartDashboard.getNumber("shooter/presets/hub/front", InterpolationTable.hubFront);
+        hubRear = SmartDashboard.getNumber("shooter/presets/hub/rear", InterpolationTable.hubRear);
+    }
+}
@@ -0,0 +1,107 @@
+package org.team1540.robot2022.commands.shooter;
+
+import org.team1540.robot2022.utils.Interpolator;
+
+/**
+ * ShotSolver finds where to aim and how far to shoot so a ball shot from a moving robot lands in the hub.
+ * <p>
+ * The ball keeps the robot's velocity after it leaves, so over its flight it drifts by that velocity times a lead time.
+ * Drag takes some of the velocity away again, so the lead time is less than the time of flight. Shooting at a virtual
+ * target that far the other way from the hub cancels the drift. The lead time depends on the distance to the virtual
+ * target, which depends on the lead time, so the solver iterates from the hub. Each step moves the target by the
+ * robot's speed times the change in lead time, which is a fraction of a step for any speed the robot can shoot at, so
+ * it converges.
+ * <p>
+ * Everything is in field coordinates, in meters and seconds. Nothing is allocated, so it can run every loop.
+ */
+public class ShotSolver {
+    private static final int MAX_ITERATIONS = 20;
+    private static final double TOLERANCE = 0.001; // meters the virtual target can still be moving
+
+    private final Interpolator leadTime;
+
+    private double shotX, shotY;
+    private double virtualX, virtualY;
+    private double range;
+    private double lead;
+    private int iterations;
+
+    /**
+     * @param leadTime seconds to lead the hub by, from the horizontal distance to the center of the hub in meters
+     */
+    public ShotSolver(Interpolator leadTime) {
+        this.leadTime = leadTime;
+    }
+
+    /**
+     * Solves for the virtual target
+     *
+     * @param robotX    robot position, meters
+     * @param robotY    robot position, meters
+     * @param velocityX robot velocity, meters per second
+     * @param velocityY robot velocity, meters per second
+     * @param delay     seconds until the ball leaves the shooter, which the robot keeps moving for
+     * @param targetX   center of the hub, meters
+     * @param targetY   center of the hub, meters
+     * @return whether the solution converged
+     */
+    public boolean solve(double robotX, double robotY, double velocityX, double velocityY, double delay, double targetX, double targetY) {
+        shotX = robotX + velocityX * delay;
+        shotY = robotY + velocityY * delay;
+        virtualX = targetX;
+        virtualY = targetY;
+        boolean converged = false;
+        for (iterations = 1; iterations <= MAX_ITERATIONS; iterations++) {
+            range = Math.hypot(virtualX - shotX, virtualY - shotY);
+            lead = leadTime.getInterpolatedValue(range);
+            double nextX = targetX - velocityX * lead;
+            double nextY = targetY - velocityY * lead;
+            double change = Math.hypot(nextX - virtualX, nextY - virtualY);
+            virtualX = nextX;
+            virtualY = nextY;
+            if (change < TOLERANCE) {
+                converged = true;
+                break;
+            }
+        }
+        range = Math.hypot(virtualX - shotX, virtualY - shotY);
+        return converged;
+    }
+
+    /**
+     * @return the field angle from where the ball leaves to the virtual target, counter-clockwise in radians
+     */
+    public double getAimAngle() {
+        return Math.atan2(virtualY - shotY, virtualX - shotX);
+    }
+
+    /**
+     * @return the horizontal distance from where the ball leaves to the virtual target in meters, which the flywheels
+     * should be set for as if the robot were stopped
+     */
+    public double getRange() {
+        return range;
+    }
+
+    /**
+     * @return seconds the hub was led by
+     */
+    public double getLeadTime() {
+        return lead;
+    }
+
+    public double getVirtualX() {
+        return virtualX;
+    }
+
+    public double getVirtualY() {
+        return virtualY;
+    }
+
+    /**
+     * @return how many iterations the last solve took
+     */
+    public int getIterations() {
+        return Math.min(iterations, MAX_ITERATIONS);
+    }
+}
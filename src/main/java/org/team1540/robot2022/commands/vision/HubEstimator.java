@@ -0,0 +1,308 @@
+package org.team1540.robot2022.commands.vision;
+
+import org.team1540.robot2022.io.LimelightFrame;
+import org.team1540.robot2022.utils.AverageFilter;
+import org.team1540.robot2022.utils.Limelight;
+import org.team1540.robot2022.utils.MovingMedianFilter;
+
+/**
+ * HubEstimator finds the hub from the whole ring of vision tape instead of the average of the corners, so a few bad
+ * corners or a bad frame don't move the distance the shooter uses.
+ * <p>
+ * Each frame, every corner is projected from the camera onto the horizontal plane through the middle of the tape. The
+ * tape is a circle of known radius on that plane, so any two corners give a candidate center. Every pair that's far
+ * enough apart is tried (RANSAC without the randomness, there are only a few dozen corners), and the center that the
+ * most corners agree with wins. Corners only agree if they'd be on the side of the ring facing the camera. Corners
+ * are really on the top or bottom edge of the tape, which moves them along their ray by a few centimeters per meter,
+ * so the tolerance grows with distance. The center is then refined with Gauss-Newton over the corners that agreed,
+ * putting each corner on whichever edge fits better. A frame is only used if enough corners agreed and they fit the
+ * circle well, and the distance and yaw are the medians of the last few used frames.
+ * <p>
+ * This needs the Limelight to send the corners of every contour. With only the corners of the combined target,
+ * there aren't enough of them and {@link #hasEstimate()} stays false.
+ */
+public class HubEstimator {
+    private static final int WINDOW = 10; // frames
+    private static final int MIN_INLIERS = 8; // corners, two strips of tape since one is too short an arc
+    private static final double TAPE_HALF_HEIGHT = 0.0254; // 2in tall, meters
+    private static final double INLIER_TOLERANCE = 0.05; // meters from the circle, on top of the tape's height
+    private static final double MIN_PAIR_SPACING = 0.2; // meters, closer pairs give unstable centers
+    private static final double MIN_CONFIDENCE = 0.5;
+    private static final double MIN_RAY_HEIGHT = 0.05; // rays flatter than this don't reach the tape
+    private static final int REFINE_ITERATIONS = 10;
+
+    private final double[] forward = new double[LimelightFrame.MAX_CORNERS];
+    private final double[] right = new double[LimelightFrame.MAX_CORNERS];
+    private final double[] tolerance = new double[LimelightFrame.MAX_CORNERS];
+    private final boolean[] inlier = new boolean[LimelightFrame.MAX_CORNERS];
+    private int pointCount;
+    private double centerForward;
+    private double centerRight;
+
+    private final MovingMedianFilter distances = new MovingMedianFilter(WINDOW);
+    private final MovingMedianFilter yaws = new MovingMedianFilter(WINDOW);
+    private final AverageFilter confidences = new AverageFilter(WINDOW);
+    private int framesSinceAccepted = WINDOW;
+    private double frameConfidence;
+    private double frameDistance = Double.NaN;
+    private double frameYaw = Double.NaN;
+
+    /**
+     * Fits the hub to the limelight's current frame, and adds it to the estimate if it fits well enough
+     *
+     * @param limelight the limelight, which should have a target
+     * @return whether the frame was used
+     */
+    public boolean update(Limelight limelight) {
+        framesSinceAccepted = Math.min(framesSinceAccepted + 1, WINDOW);
+        frameConfidence = fit(limelight);
+        confidences.add(frameConfidence);
+        if (frameConfidence < MIN_CONFIDENCE) {
+            return false;
+        }
+        frameDistance = Math.sqrt(centerForward * centerForward + centerRight * centerRight);
+        frameYaw = Math.toDegrees(Math.atan2(centerRight, centerForward));
+        distances.add(frameDistance);
+        yaws.add(frameYaw);
+        framesSinceAccepted = 0;
+        return true;
+    }
+
+    /**
+     * Forgets every frame, for when the target is lost
+     */
+    public void clear() {
+        distances.clear();
+        yaws.clear();
+        confidences.clear();
+        framesSinceAccepted = WINDOW;
+        frameConfidence = 0;
+        frameDistance = Double.NaN;
+        frameYaw = Double.NaN;
+    }
+
+    /**
+     * @return whether a frame has been used recently enough to trust the estimate
+     */
+    public boolean hasEstimate() {
+        return framesSinceAccepted < WINDOW;
+    }
+
+    /**
+     * @return the horizontal distance from the camera to the center of the hub in meters
+     */
+    public double getDistance() {
+        return distances.getMedian();
+    }
+
+    /**
+     * @return the angle from the camera to the center of the hub in degrees, positive to the right like tx
+     */
+    public double getYawDegrees() {
+        return yaws.getMedian();
+    }
+
+    /**
+     * @return the distance from the last frame that was used, without the median, or NaN if none have been
+     */
+    public double getFrameDistance() {
+        return frameDistance;
+    }
+
+    /**
+     * @return the angle from the last frame that was used, without the median, or NaN if none have been
+     */
+    public double getFrameYawDegrees() {
+        return frameYaw;
+    }
+
+    /**
+     * @return how well the recent frames fit the hub, from 0 to 1
+     */
+    public double getConfidence() {
+        return confidences.getCount() == 0 ? 0 : confidences.getAverage();
+    }
+
+    /**
+     * @return how well the last frame fit the hub, from 0 to 1
+     */
+    public double getFrameConfidence() {
+        return frameConfidence;
+    }
+
+    /**
+     * Fits the circle to the current frame's corners
+     *
+     * @return the fraction of corners on the circle, scaled down by how far they are from it, or 0 if it didn't fit
+     */
+    private double fit(Limelight limelight) {
+        project(limelight);
+        if (pointCount < MIN_INLIERS) {
+            return 0;
+        }
+
+        int bestInliers = 0;
+        double bestError = Double.POSITIVE_INFINITY;
+        double bestForward = 0;
+        double bestRight = 0;
+        for (int i = 0; i < pointCount; i++) {
+            for (int j = i + 1; j < pointCount; j++) {
+                if (!centerFromPair(i, j)) {
+                    continue;
+                }
+                int inliers = 0;
+                double error = 0;
+                for (int k = 0; k < pointCount; k++) {
+                    double residual = Math.abs(distanceToCenter(forward[k], right[k]) - Limelight.targetRadius);
+                    if (residual < tolerance[k] && facesCamera(k)) {
+                        inliers++;
+                        error += residual;
+                    }
+                }
+                if (inliers > bestInliers || (inliers == bestInliers && error < bestError)) {
+                    bestInliers = inliers;
+                    bestError = error;
+                    bestForward = centerForward;
+                    bestRight = centerRight;
+                }
+            }
+        }
+        if (bestInliers < MIN_INLIERS) {
+            return 0;
+        }
+
+        centerForward = bestForward;
+        centerRight = bestRight;
+        for (int k = 0; k < pointCount; k++) {
+            inlier[k] = Math.abs(distanceToCenter(forward[k], right[k]) - Limelight.targetRadius) < tolerance[k] && facesCamera(k);
+        }
+        double rms = refine();
+        return (double) bestInliers / pointCount * Math.max(0, 1 - rms);
+    }
+
+    /**
+     * Projects each corner onto the plane through the middle of the tape, relative to the camera
+     */
+    private void project(Limelight limelight) {
+        double height = Limelight.targetHeight - Limelight.limelightHeight;
+        double cos = Math.cos(Limelight.limelightAngle);
+        double sin = Math.sin(Limelight.limelightAngle);
+        pointCount = 0;
+        for (int i = 0; i < limelight.getCornerCount(); i++) {
+            // Ray through the pixel in camera coordinates, 1 forward, x right and y up
+            double x = Limelight.VIEWPORT_SCALE_X * (limelight.getCornerX(i) - Limelight.CENTER_X);
+            double y = -Limelight.VIEWPORT_SCALE_Y * (limelight.getCornerY(i) - Limelight.CENTER_Y);
+            // Pitch it up by the camera's angle
+            double rayForward = cos - y * sin;
+            double rayUp = sin + y * cos;
+            if (rayUp < MIN_RAY_HEIGHT) {
+                continue;
+            }
+            double scale = height / rayUp;
+            forward[pointCount] = rayForward * scale;
+            right[pointCount] = x * scale;
+            tolerance[pointCount] = INLIER_TOLERANCE + Math.sqrt(forward[pointCount] * forward[pointCount] + right[pointCount] * right[pointCount]) * TAPE_HALF_HEIGHT / height;
+            pointCount++;
+        }
+    }
+
+    /**
+     * Finds the center of the circle through two points. Of the two circles, it's the one on the far side, since the
+     * camera only sees the near side of the ring.
+     *
+     * @return whether the pair gives a center
+     */
+    private boolean centerFromPair(int i, int j) {
+        double dForward = forward[j] - forward[i];
+        double dRight = right[j] - right[i];
+        double spacing = Math.sqrt(dForward * dForward + dRight * dRight);
+        if (spacing < MIN_PAIR_SPACING || spacing >= 2 * Limelight.targetRadius) {
+            return false;
+        }
+        double offset = Math.sqrt(Limelight.targetRadius * Limelight.targetRadius - spacing * spacing / 4) / spacing;
+        double middleForward = (forward[i] + forward[j]) / 2;
+        double middleRight = (right[i] + right[j]) / 2;
+        // Perpendicular to the pair, pointing away from the camera
+        double perpendicularForward = dRight * offset;
+        double perpendicularRight = -dForward * offset;
+        if (perpendicularForward * middleForward + perpendicularRight * middleRight < 0) {
+            perpendicularForward = -perpendicularForward;
+            perpendicularRight = -perpendicularRight;
+        }
+        centerForward = middleForward + perpendicularForward;
+        centerRight = middleRight + perpendicularRight;
+        return true;
+    }
+
+    /**
+     * Moves the center to minimize the squared distances of the inliers from the circle, with each inlier on the edge
+     * of the tape that's closer to the circle
+     *
+     * @return the RMS distance of the inliers from the circle, as a fraction of their tolerance
+     */
+    private double refine() {
+        double height = Limelight.targetHeight - Limelight.limelightHeight;
+        double topScale = (height + TAPE_HALF_HEIGHT) / height;
+        double bottomScale = (height - TAPE_HALF_HEIGHT) / height;
+        double squaredSum = 0;
+        int count = 0;
+        for (int iteration = 0; iteration <= REFINE_ITERATIONS; iteration++) {
+            // Normal equations for the residual |p - c| - r, whose gradient is the unit vector from p to c
+            double aa = 0, ab = 0, bb = 0, ga = 0, gb = 0;
+            squaredSum = 0;
+            count = 0;
+            for (int k = 0; k < pointCount; k++) {
+                if (!inlier[k]) {
+                    continue;
+                }
+                double topResidual = distanceToCenter(forward[k] * topScale, right[k] * topScale) - Limelight.targetRadius;
+                double bottomResidual = distanceToCenter(forward[k] * bottomScale, right[k] * bottomScale) - Limelight.targetRadius;
+                double scale = Math.abs(topResidual) < Math.abs(bottomResidual) ? topScale : bottomScale;
+                double dForward = centerForward - forward[k] * scale;
+                double dRight = centerRight - right[k] * scale;
+                double length = Math.sqrt(dForward * dForward + dRight * dRight);
+                if (length < 1e-9) {
+                    continue;
+                }
+                double unitForward = dForward / length;
+                double unitRight = dRight / length;
+                double residual = length - Limelight.targetRadius;
+                aa += unitForward * unitForward;
+                ab += unitForward * unitRight;
+                bb += unitRight * unitRight;
+                ga += unitForward * residual;
+                gb += unitRight * residual;
+                squaredSum += residual * residual / (tolerance[k] * tolerance[k]);
+                count++;
+            }
+            double determinant = aa * bb - ab * ab;
+            if (iteration == REFINE_ITERATIONS || Math.abs(determinant) < 1e-12) {
+                break;
+            }
+            double stepForward = (bb * ga - ab * gb) / determinant;
+            double stepRight = (aa * gb - ab * ga) / determinant;
+            centerForward -= stepForward;
+            centerRight -= stepRight;
+            if (Math.abs(stepForward) + Math.abs(stepRight) < 1e-5) {
+                // Converged, but go around once more so the residuals are for the final center
+                iteration = REFINE_ITERATIONS - 1;
+            }
+        }
+        return count == 0 ? Double.POSITIVE_INFINITY : Math.sqrt(squaredSum / count);
+    }
+
+    /**
+     * Checks that a point would be on the side of the ring facing the camera, since the tape on the far side can't be
+     * seen. Without this, a short arc at the edge of the image fits its mirror image just as well.
+     */
+    private boolean facesCamera(int k) {
+        // The outward normal at the point, from the center, has to point back towards the camera at the origin
+        return (forward[k] - centerForward) * forward[k] + (right[k] - centerRight) * right[k] < 0;
+    }
+
+    private double distanceToCenter(double pointForward, double pointRight) {
+        double dForward = pointForward - centerForward;
+        double dRight = pointRight - centerRight;
+        return Math.sqrt(dForward * dForward + dRight * dRight);
+    }
+}
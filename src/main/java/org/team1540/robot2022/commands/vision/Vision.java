@@ -1,145 +1,211 @@
 package org.team1540.robot2022.commands.vision;
 
-import edu.wpi.first.math.geometry.Pose2d;
-import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.drive.Vector2d;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import org.team1540.robot2022.Constants.FieldConstants;
 import org.team1540.robot2022.commands.drivetrain.Drivetrain;
+import org.team1540.robot2022.io.LidarIO;
 import org.team1540.robot2022.utils.AverageFilter;
 import org.team1540.robot2022.utils.ChickenSmartDashboard;
 import org.team1540.robot2022.utils.Limelight;
-import org.team1540.robot2022.utils.NavX;
-
-import java.util.ArrayList;
-
+import org.team1540.robot2022.utils.LoopProfiler;
+import org.team1540.robot2022.utils.PoseKalmanFilter;
+import org.team1540.robot2022.utils.Telemetry;
+
+/**
+ * Vision finds the hub with the Limelight, and corrects the drivetrain's pose estimate with it and the LIDAR so the
+ * hub can still be found when it's out of view.
+ */
 public class Vision extends SubsystemBase {
+    // Measurement noise, as standard deviations
+    private static final double HUB_FIT_RANGE_ERROR = 0.05; // Meters, plus HUB_FIT_RANGE_SCALE per meter
+    private static final double HUB_FIT_RANGE_SCALE = 0.02;
+    private static final double HUB_FIT_BEARING_ERROR = Math.toRadians(1);
+    private static final double TARGET_RANGE_ERROR = 0.1; // From ty, when there aren't enough corners to fit the hub
+    private static final double TARGET_RANGE_SCALE = 0.05;
+    private static final double TARGET_BEARING_ERROR = Math.toRadians(2);
+    private static final double LIDAR_RANGE_ERROR = 0.1; // Meters, high since the same median repeats across loops
+    private static final double LIDAR_BEAM_HALF_WIDTH = Math.toRadians(3);
+    private static final double LIDAR_MAX_RANGE = 10; // Meters, farther is a miss
+
+    // How certain the estimate has to be to aim and shoot with
+    private static final double MAX_ESTIMATE_BEARING_ERROR = Math.toRadians(5);
+    private static final double MAX_ESTIMATE_RANGE_ERROR = 0.3; // Meters
+
     Drivetrain drivetrain;
-    NavX navX;
     Limelight limelight;
-    Pose2d lastPose = new Pose2d();
-    double lastDistance;
-    double lastRotation;
-    boolean isSimulation = false;
+    LidarIO lidar;
+    double frameTimestamp;
 
+    // Field-relative bearings to the target in degrees, so frames from before the robot turned still line up
     AverageFilter cornerAverageX = new AverageFilter(10);
     AverageFilter cornerAverageY = new AverageFilter(10);
-
-    public Vision(Drivetrain drivetrain, NavX navX, Limelight limelight) {
+    private final HubEstimator hubEstimator = new HubEstimator();
+
+    private final Telemetry.BooleanEntry limelightAlignedTelemetry = Telemetry.registerBoolean("vision/limelightAligned", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry estimatedAngleTelemetry = Telemetry.registerNumber("vision/estimatedAngle", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry estimatedDistanceTelemetry = Telemetry.registerNumber("vision/estimatedDistance", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry cornerOffsetXTelemetry = Telemetry.registerNumber("pointToTarget/corner/offsetXAvg", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry cornerOffsetYTelemetry = Telemetry.registerNumber("pointToTarget/corner/offsetYAvg", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry latencyTelemetry = Telemetry.registerNumber("vision/latencyMs", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry hubDistanceTelemetry = Telemetry.registerNumber("vision/hub/distance", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry hubYawTelemetry = Telemetry.registerNumber("vision/hub/yaw", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry hubConfidenceTelemetry = Telemetry.registerNumber("vision/hub/confidence", Telemetry.Rate.DEBUG);
+    private final Telemetry.BooleanEntry targetMeasurementTelemetry = Telemetry.registerBoolean("vision/estimate/targetAccepted", Telemetry.Rate.DEBUG);
+    private final Telemetry.BooleanEntry lidarMeasurementTelemetry = Telemetry.registerBoolean("vision/estimate/lidarAccepted", Telemetry.Rate.DEBUG);
+    private final Telemetry.BooleanEntry hasEstimateTelemetry = Telemetry.registerBoolean("vision/estimate/valid", Telemetry.Rate.DEBUG);
+
+    public Vision(Drivetrain drivetrain, Limelight limelight, LidarIO lidar) {
         this.drivetrain = drivetrain;
-        this.navX = navX;
         this.limelight = limelight;
+        this.lidar = lidar;
 
         // Force LEDs always on.
         limelight.setLeds(true);
 
-        // Start by assuming the field units are meters (unconfirmed)`
-        ChickenSmartDashboard.putDebugNumber("vision/inchesToFieldRatio", 0.0185);
         ChickenSmartDashboard.putDebugBoolean("vision/allowTargetUpdate", true);
-
-        if (isSimulation) {
-            ChickenSmartDashboard.putDebugNumber("vision/testingX", -4);
-            ChickenSmartDashboard.putDebugNumber("vision/testingY", -4);
-        }
     }
 
     @Override
     public void periodic() {
-        boolean isLimelightAligned = limelight.isTargetAligned();
-        ChickenSmartDashboard.putDebugBoolean("vision/limelightAligned", isLimelightAligned);
-        if (SmartDashboard.getBoolean("vision/allowTargetUpdate", false) && isLimelightAligned && !isSimulation) {
-            // lastDistance is the limelight's found distance + distance to center of the hub then made into "field units"
-            updateLastTargetPose();
-        }
-        if (lastPose != null) {
-            ChickenSmartDashboard.putDebugNumber("vision/estimatedAngle", getNormalizedAngleToTargetDegrees());
+        long start = LoopProfiler.start();
+        // Everything from the limelight only changes when it sends a new frame
+        if (limelight.isNewFrame()) {
+            // The Limelight's values are from when its image was captured, match them with the odometry from then
+            double latency = limelight.getLatencySeconds();
+            frameTimestamp = Timer.getFPGATimestamp() - latency;
+            latencyTelemetry.set(latency * 1000);
+
+            limelightAlignedTelemetry.set(limelight.isTargetAligned());
+            if (limelight.isTargetFound()) {
+                calculateCornerAverages();
+                boolean hubFit = hubEstimator.update(limelight);
+                if (SmartDashboard.getBoolean("vision/allowTargetUpdate", false)) {
+                    addTargetMeasurement(hubFit);
+                }
+            } else {
+                cornerAverageX.clear();
+                cornerAverageY.clear();
+                hubEstimator.clear();
+            }
+            hubDistanceTelemetry.set(hubEstimator.getDistance());
+            hubYawTelemetry.set(hubEstimator.getYawDegrees());
+            hubConfidenceTelemetry.set(hubEstimator.getConfidence());
         }
-        if (limelight.isTargetFound()) {
-            calculateCornerAverages();
+        addLidarMeasurement();
+
+        hasEstimateTelemetry.set(hasTargetEstimate());
+        estimatedAngleTelemetry.set(getNormalizedAngleToTargetDegrees());
+        estimatedDistanceTelemetry.set(getTargetDistance());
+
+        LoopProfiler.stop(LoopProfiler.Section.VISION, start);
+    }
+
+    /**
+     * Corrects the drivetrain's pose estimate with the hub's range and bearing in the current frame, from the
+     * {@link HubEstimator}'s fit if it had one, otherwise from tx and ty. Neither is filtered over frames here, the pose
+     * estimate does that, and filtering first would add lag the latency compensation doesn't know about.
+     *
+     * @param hubFit whether the hub estimator used this frame
+     */
+    private void addTargetMeasurement(boolean hubFit) {
+        double range;
+        double bearing;
+        double rangeStdDev;
+        double bearingStdDev;
+        if (hubFit) {
+            range = hubEstimator.getFrameDistance();
+            bearing = -Math.toRadians(hubEstimator.getFrameYawDegrees());
+            rangeStdDev = HUB_FIT_RANGE_ERROR + HUB_FIT_RANGE_SCALE * range;
+            bearingStdDev = HUB_FIT_BEARING_ERROR;
         } else {
-            cornerAverageX.clear();
-            cornerAverageY.clear();
+            range = getCalculatedDistance() / 39.37007874 + Limelight.targetRadius;
+            bearing = -Math.toRadians(limelight.getTx());
+            rangeStdDev = TARGET_RANGE_ERROR + TARGET_RANGE_SCALE * range;
+            bearingStdDev = TARGET_BEARING_ERROR;
         }
-        ChickenSmartDashboard.putDebugNumber("vision/estimatedDistance", getCornerCalculatedDistance());
+        targetMeasurementTelemetry.set(drivetrain.addTargetMeasurement(
+                frameTimestamp, FieldConstants.HUB_X, FieldConstants.HUB_Y, range, bearing, rangeStdDev, bearingStdDev));
     }
 
-
-    @Override
-    public void simulationPeriodic() {
-        if (lastPose == null) {
-            lastDistance = SmartDashboard.getNumber("vision/distanceInFieldUnits", 0.76264080);
-            lastPose = new Pose2d(new Translation2d(8.695, 5.314), new Rotation2d());
-            lastRotation = navX.getAngleRadians();
-
-            ChickenSmartDashboard.putDebugNumber("vision/testingX", 7.9);
-            ChickenSmartDashboard.putDebugNumber("vision/testingY", 4.6);
+    /**
+     * Corrects the drivetrain's pose estimate with the LIDAR, if the estimate is sure enough that it's pointed at the
+     * hub. The LIDAR is read after the scheduler, so this is last loop's distance.
+     */
+    private void addLidarMeasurement() {
+        double distance = lidar.getLastDistance() / 39.37007874;
+        PoseKalmanFilter estimate = drivetrain.getPoseEstimator();
+        boolean pointedAtHub = drivetrain.isPoseEstimateKnown()
+                && Math.abs(estimate.getBearing(FieldConstants.HUB_X, FieldConstants.HUB_Y)) < LIDAR_BEAM_HALF_WIDTH
+                && estimate.getBearingStdDev(FieldConstants.HUB_X, FieldConstants.HUB_Y) < LIDAR_BEAM_HALF_WIDTH;
+        if (!pointedAtHub || distance <= 0 || distance > LIDAR_MAX_RANGE) {
+            lidarMeasurementTelemetry.set(false);
+            return;
         }
-        ChickenSmartDashboard.putDebugNumber("vision/lastRotation", lastRotation);
-        ChickenSmartDashboard.putDebugNumber("vision/poseX", lastPose.getX());
-        ChickenSmartDashboard.putDebugNumber("vision/poseY", lastPose.getY());
+        lidarMeasurementTelemetry.set(drivetrain.addTargetRangeMeasurement(
+                FieldConstants.HUB_X, FieldConstants.HUB_Y, FieldConstants.LOWER_HUB_RADIUS, distance, LIDAR_RANGE_ERROR));
     }
 
     /**
      * Determines averages of all limelight corners by discarding statistical outliers beneath the average vertical value
      * of all corners, then adding the average x and y values of those corners (normalized to degrees from the center)
-     * into averaging filters set to 10 periods.
+     * into averaging filters set to 10 periods. The x values are turned into field-relative bearings using the heading
+     * the robot had when the frame was captured.
      */
     private void calculateCornerAverages() {
-        double[] cornerCoordinates = limelight.getNetworkTable().getEntry("tcornxy").getDoubleArray(new double[]{});
-        ArrayList<Vector2d> cornerPoints = new ArrayList<>(cornerCoordinates.length / 2);
-        for (int i = 0; i < cornerCoordinates.length; i += 2) {
-            cornerPoints.add(new Vector2d(cornerCoordinates[i], cornerCoordinates[i + 1]));
+        int cornerCount = limelight.getCornerCount();
+        if (cornerCount == 0) {
+            return;
         }
 
         double cornerYSum = 0;
-        for (Vector2d point : cornerPoints) {
-            cornerYSum += point.y;
-        }
-        double cornerYAvg = cornerYSum / cornerPoints.size();
-
-        for (int i = 0; i < cornerPoints.size(); i++) {
-            if (cornerPoints.get(i).y > cornerYAvg) {
-                cornerPoints.remove(i);
-                i--;
-            }
+        for (int i = 0; i < cornerCount; i++) {
+            cornerYSum += limelight.getCornerY(i);
         }
+        double cornerYAvg = cornerYSum / cornerCount;
 
+        // Only the corners at or above the average (smaller y) count
         double correctedCornerXSum = 0;
         double correctedCornerYSum = 0;
-        for (Vector2d point : cornerPoints) {
-            correctedCornerXSum += point.x;
-            correctedCornerYSum += point.y;
+        int correctedCornerCount = 0;
+        for (int i = 0; i < cornerCount; i++) {
+            double y = limelight.getCornerY(i);
+            if (y <= cornerYAvg) {
+                correctedCornerXSum += limelight.getCornerX(i);
+                correctedCornerYSum += y;
+                correctedCornerCount++;
+            }
         }
-        double correctedCornerXAvg = correctedCornerXSum / cornerPoints.size();
-        double correctedCornerYAvg = correctedCornerYSum / cornerPoints.size();
+        double correctedCornerXAvg = correctedCornerXSum / correctedCornerCount;
+        double correctedCornerYAvg = correctedCornerYSum / correctedCornerCount;
 
         // Steps to calculate on-screen coordinate offsets as angles, as given in the Limelight docs.
-        double normalizedCornerXAvg = (2.0 / limelight.getResolution().x) * (correctedCornerXAvg - (limelight.getResolution().x / 2 - 0.5));
-        double normalizedCornerYAvg = (2.0 / limelight.getResolution().y) * (correctedCornerYAvg - (limelight.getResolution().y / 2 - 0.5));
-
-        double viewportCornerXAvg = Math.tan(limelight.getHorizontalFov() / 2) * normalizedCornerXAvg;
-        double viewportCornerYAvg = Math.tan(limelight.getVerticalFov() / 2) * normalizedCornerYAvg;
+        double viewportCornerXAvg = Limelight.VIEWPORT_SCALE_X * (correctedCornerXAvg - Limelight.CENTER_X);
+        double viewportCornerYAvg = Limelight.VIEWPORT_SCALE_Y * (correctedCornerYAvg - Limelight.CENTER_Y);
 
-        double degreeOffsetCornerXAvg = Math.toDegrees(Math.atan2(viewportCornerXAvg, 1));
-        double degreeOffsetCornerYAvg = Math.toDegrees(Math.atan2(viewportCornerYAvg, 1));
+        double degreeOffsetCornerXAvg = Math.toDegrees(Math.atan(viewportCornerXAvg));
+        double degreeOffsetCornerYAvg = Math.toDegrees(Math.atan(viewportCornerYAvg));
 
         // SmartDashboard.putNumber("pointToTarget/corner/correctedCornerX", correctedCornerXAvg);
-        // SmartDashboard.putNumber("pointToTarget/corner/offsetNormalizedX", normalizedCornerXAvg);
-        ChickenSmartDashboard.putDebugNumber("pointToTarget/corner/offsetXAvg", degreeOffsetCornerXAvg);
-        ChickenSmartDashboard.putDebugNumber("pointToTarget/corner/offsetYAvg", degreeOffsetCornerYAvg);
+        cornerOffsetXTelemetry.set(degreeOffsetCornerXAvg);
+        cornerOffsetYTelemetry.set(degreeOffsetCornerYAvg);
 
-        cornerAverageX.add(degreeOffsetCornerXAvg);
+        // x is positive to the right, and the heading is counter-clockwise
+        cornerAverageX.add(Math.toDegrees(drivetrain.getHeadingRadians(frameTimestamp)) - degreeOffsetCornerXAvg);
         cornerAverageY.add(-degreeOffsetCornerYAvg);
     }
 
     /**
-     * Gets the averages for the limelight's found corners, as calculated in {@link #calculateCornerAverages()}.
+     * Gets the averages for the limelight's found corners, as calculated in {@link #calculateCornerAverages()}. The x
+     * offset is from the robot's current heading, so it accounts for the robot turning since the frames were captured.
      *
      * @return {@link Vector2d} the average degree offset for x and y coordinates
      */
     public Vector2d getCornerAverages() {
-        return new Vector2d(cornerAverageX.getAverage(), cornerAverageY.getAverage());
+        double offsetX = Math.toDegrees(drivetrain.getHeadingRadians()) - cornerAverageX.getAverage();
+        return new Vector2d(offsetX, cornerAverageY.getAverage());
     }
 
     /**
@@ -148,169 +214,63 @@ public class Vision extends SubsystemBase {
      * @return the distance in inches
      */
     public double getCalculatedDistance() {
-        double theta = Math.toRadians(limelight.getTargetAngles().y) + limelight.limelightAngle;
+        double theta = Math.toRadians(limelight.getTy()) + limelight.limelightAngle;
         double actualHeight = limelight.targetHeight - limelight.limelightHeight;
         return 39.37007874 * actualHeight / Math.tan(theta);
     }
 
+    /**
+     * Gets the distance of the limelight to the base of the hub, from the {@link HubEstimator} when it has a good fit
+     * of the tape, otherwise from the average of the upper corners.
+     *
+     * @return the distance in inches
+     */
     public double getCornerCalculatedDistance() {
+        if (hubEstimator.hasEstimate()) {
+            return 39.37007874 * (hubEstimator.getDistance() - Limelight.targetRadius);
+        }
         double theta = Math.toRadians(getCornerAverages().y) + limelight.limelightAngle;
         double actualHeight = limelight.targetHeight - limelight.limelightHeight;
         return 39.37007874 * actualHeight / Math.tan(theta);
     }
 
     /**
-     * Zeros the last known position to the three/two-ball auto position near the edge of the field.
+     * @return whether the pose estimate is sure enough of where the hub is to aim and shoot with
      */
-    public void zeroPosition() {
-        lastDistance = 1.21973;
-        lastPose = drivetrain.getPose();
-        lastRotation = navX.getAngleRadians();
-        ChickenSmartDashboard.putDebugNumber("vision/lastPoseX", lastPose.getX());
-        ChickenSmartDashboard.putDebugNumber("vision/lastPoseY", lastPose.getY());
-        ChickenSmartDashboard.putDebugNumber("vision/lastRotation", lastRotation);
-        ChickenSmartDashboard.putDebugNumber("vision/lastDistance", lastDistance);
+    public boolean hasTargetEstimate() {
+        PoseKalmanFilter estimate = drivetrain.getPoseEstimator();
+        return drivetrain.isPoseEstimateKnown()
+                && estimate.getBearingStdDev(FieldConstants.HUB_X, FieldConstants.HUB_Y) < MAX_ESTIMATE_BEARING_ERROR
+                && estimate.getRangeStdDev(FieldConstants.HUB_X, FieldConstants.HUB_Y) < MAX_ESTIMATE_RANGE_ERROR;
     }
 
     /**
-     * Updates the last pose to the current sensor readings.
-     */
-    private void updateLastTargetPose() {
-        lastDistance = (getCalculatedDistance() + 31.375) * SmartDashboard.getNumber("vision/inchesToFieldRatio", 0.0185);
-        lastPose = drivetrain.getPose();
-        lastRotation = navX.getAngleRadians();
-
-        // Push to SmartDashboard
-        ChickenSmartDashboard.putDebugNumber("vision/lastPoseX", lastPose.getX());
-        ChickenSmartDashboard.putDebugNumber("vision/lastPoseY", lastPose.getY());
-        ChickenSmartDashboard.putDebugNumber("vision/lastRotation", lastRotation);
-        ChickenSmartDashboard.putDebugNumber("vision/lastDistance", lastDistance);
-    }
-
-    /**
-     * Wraps an angle in radians to be between [0, TWO_PI]
+     * Calculates the angle to turn to face the hub from the pose estimate, which works without the hub in view. Check
+     * {@link #hasTargetEstimate()} first.
      *
-     * @param rotation Radian angle to convert
-     * @return Converted angle in radians, [0, TWO_PI]
+     * @return the angle in degrees [-180, 180], positive to the right like {@link #getCornerAverages()}
      */
-    private double wrapRotation(double rotation) {
-        double scaled = rotation % (2 * Math.PI);
-        if (scaled < 0) {
-            scaled = 2 * Math.PI + scaled;
-        }
-        return scaled;
-    }
-
-    /**
-     * Wraps an angle in radians to be between [-PI, PI]
-     *
-     * @param radians Radian angle to convert
-     * @return Converted angle in radians, [-PI, PI]
-     */
-    private double wrapRotationToYaw(double radians) {
-        if (radians > Math.PI) {
-            return radians - 2 * Math.PI;
-        }
-        return radians;
+    public double getNormalizedAngleToTargetDegrees() {
+        return -Math.toDegrees(drivetrain.getPoseEstimator().getBearing(FieldConstants.HUB_X, FieldConstants.HUB_Y));
     }
 
     /**
-     * Calculates target angle in degrees, normalized to yaw.
+     * Calculates the distance to the hub from the pose estimate, measured like {@link #getCornerCalculatedDistance()}.
+     * Check {@link #hasTargetEstimate()} first.
      *
-     * @return Estimated turn angle to target, in degrees [-180, 180]
+     * @return the distance in inches
      */
-    public double getNormalizedAngleToTargetDegrees() {
-//        return Math.toDegrees(wrapRotationToYaw(getAngleToTargetRadians()));
-        return -90.0;
+    public double getEstimatedDistance() {
+        double range = drivetrain.getPoseEstimator().getRange(FieldConstants.HUB_X, FieldConstants.HUB_Y);
+        return 39.37007874 * (range - Limelight.targetRadius);
     }
 
     /**
-     * Calculates target angle in radians, un-normalized to yaw.
+     * Gets the distance to use for shooting, from the pose estimate if it's sure enough, otherwise from the corners.
      *
-     * @return Estimated turn angle to target, in radians [0, TWO_PI]
+     * @return the distance in inches
      */
-    public double getAngleToTargetRadians() {
-        // double zeroAngleFromFieldY = 1.9386451520732095 - Math.toRadians(90); // y-axis to initialization position, cw
-        double zeroAngleFromFieldY = Math.toRadians(18.89); // angle to Y from pointing to hub, when hub is at (8.3,4.16)
-
-        // double zeroAngleFromFieldY = Math.toRadians(45);
-
-        // Get the current pose.
-        Translation2d currentPose = drivetrain.getPose().getTranslation();
-
-        ChickenSmartDashboard.putDebugNumber("vision/currentPoseX", currentPose.getX());
-        ChickenSmartDashboard.putDebugNumber("vision/currentPoseY", currentPose.getY());
-
-        // This should be removed
-        if (isSimulation) {
-            currentPose = new Translation2d(SmartDashboard.getNumber("vision/testingX", -5), SmartDashboard.getNumber("vision/testingY", 0));
-        }
-
-        // The current angle gets the navX yaw angle, and adds our original offset from positive x-axis.
-        double currentAngle = wrapRotation(zeroAngleFromFieldY);
-        // The last angle gets the last recorded navX yaw angle, and adds our original offset from positive x-axis.
-        double lastAngle = wrapRotation(lastRotation + zeroAngleFromFieldY + 2 * Math.PI);
-
-//        SmartDashboard.putNumber("sim/1.1_currentAngle", Math.toDegrees(currentAngle));
-//        SmartDashboard.putNumber("sim/1.2_lastAngle", Math.toDegrees(lastAngle));
-
-        // Gets the vector between our last pose and our new pose.
-        Translation2d translation = currentPose.minus(lastPose.getTranslation());
-
-        ChickenSmartDashboard.putDebugNumber("vision/translationX", translation.getX());
-        ChickenSmartDashboard.putDebugNumber("vision/translationY", translation.getY());
-        ChickenSmartDashboard.putDebugNumber("vision/translationR", translation.getNorm());
-
-        Vector2d BD = new Vector2d(translation.getX(), translation.getY());
-
-//        SmartDashboard.putNumber("sim/1_magBD", BD.magnitude());
-
-        // The magnitude of the vector from our last pose to the hub.
-        double magAB = lastDistance;
-
-//        SmartDashboard.putNumber("sim/2_magAB", magAB);
-
-        // Unit vector perpendicular to the line through last position and hub (AB)
-        Vector2d unitBF = new Vector2d(0, -1);
-
-        unitBF.rotate(-(Math.toDegrees(wrapRotation(lastAngle + Math.toRadians(90)))));
-
-//        SmartDashboard.putNumber("sim/3.1_lastAngle", Math.toDegrees(lastAngle));
-//        SmartDashboard.putNumber("sim/3_dirBF", Math.toDegrees(wrapRotation(lastAngle + Math.toRadians(90))));
-        double magAC = BD.dot(unitBF);
-//        SmartDashboard.putNumber("sim/4_magAC", magAC);
-
-        if (magAC > 0) {
-            unitBF.rotate(180);
-        }
-
-        Vector2d AC = new Vector2d(unitBF.x * magAC, unitBF.y * magAC);
-//        SmartDashboard.putNumber("sim/5_xAC", AC.x);
-        Vector2d unitBA = new Vector2d(0, -1);
-        unitBA.rotate(-Math.toDegrees(lastAngle));
-//        SmartDashboard.putNumber("sim/6_dirAB",  Math.toDegrees(lastAngle));
-        double magFD = BD.dot(unitBA);
-//        SmartDashboard.putNumber("sim/7_magFD", magFD);
-        double magCD = magAB - magFD;
-        Vector2d CD = new Vector2d(unitBF.x * magCD, unitBF.y * magCD);
-//        SmartDashboard.putNumber("sim/8.1_magCD", magCD);
-        double theta = Math.atan2(AC.magnitude(), CD.magnitude());
-//        SmartDashboard.putNumber("sim/8_thetaDegrees", Math.toDegrees(theta));
-        double angleToTurnTo = currentAngle + theta - zeroAngleFromFieldY;
-
-        // testAngle helps to test what quadrant our robot moved to, to properly assign neg/pos turning values.
-        double testAngle = Math.atan2(BD.y, BD.x) + Math.PI / 2;
-//        SmartDashboard.putNumber("sim/9_testAngle", Math.toDegrees(testAngle));
-
-        if (testAngle + currentAngle < 0 || testAngle + currentAngle > Math.PI) {
-            angleToTurnTo = Math.PI * 2 - angleToTurnTo;
-        }
-
-        if (magCD < 0) {
-            angleToTurnTo = Math.PI - angleToTurnTo;
-        }
-
-        // Returns in radians, wrapped to be within [0, TWO_PI]
-        return wrapRotation(angleToTurnTo + navX.getAngleRadians());
+    public double getTargetDistance() {
+        return hasTargetEstimate() ? getEstimatedDistance() : getCornerCalculatedDistance();
     }
 }
@@ -0,0 +1,45 @@
+package org.team1540.robot2022.io;
+
+import edu.wpi.first.wpilibj.AsynchronousInterrupt;
+import edu.wpi.first.wpilibj.DigitalInput;
+
+/**
+ * A {@link DigitalSensorIO} on a roboRIO DIO port
+ */
+public class DigitalInputSensor implements DigitalSensorIO {
+    private final DigitalInput input;
+    private AsynchronousInterrupt interrupt;
+
+    public DigitalInputSensor(int channel) {
+        input = new DigitalInput(channel);
+    }
+
+    @Override
+    public boolean get() {
+        return input.get();
+    }
+
+    @Override
+    public void setInterruptHandler(Runnable handler) {
+        if (interrupt != null) {
+            interrupt.close();
+        }
+        // The rising/falling booleans aren't reliable, so the handler reads the input itself
+        interrupt = new AsynchronousInterrupt(input, (rising, falling) -> handler.run());
+        interrupt.setInterruptEdges(true, true);
+    }
+
+    @Override
+    public void enableInterrupts() {
+        if (interrupt != null) {
+            interrupt.enable();
+        }
+    }
+
+    @Override
+    public void disableInterrupts() {
+        if (interrupt != null) {
+            interrupt.disable();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.team1540.robot2022.io;
+
+/**
+ * A digital sensor like a beam break or a magnetic limit switch, with an optional handler that runs whenever its
+ * value changes.
+ */
+public interface DigitalSensorIO {
+    /**
+     * @return the raw value of the input (beam breaks and magnet sensors read false when blocked or tripped)
+     */
+    boolean get();
+
+    /**
+     * Sets the handler that runs on both rising and falling edges. On the robot it runs on a separate interrupt
+     * thread. Interrupts are disabled until {@link #enableInterrupts()} is called.
+     *
+     * @param handler the handler
+     */
+    void setInterruptHandler(Runnable handler);
+
+    void enableInterrupts();
+
+    void disableInterrupts();
+}
@@ -0,0 +1,36 @@
+package org.team1540.robot2022.io;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * The robot's gyro. Angles are counter-clockwise, like {@link org.team1540.robot2022.utils.NavX}.
+ */
+public interface GyroIO {
+    /**
+     * @return yaw counter-clockwise in radians, from -pi to pi
+     */
+    double getYawRadians();
+
+    /**
+     * @return angle counter-clockwise in radians, continuing past pi and -pi
+     */
+    double getAngleRadians();
+
+    double getRateRadians();
+
+    Rotation2d getRotation2d();
+
+    /**
+     * @return pitch in degrees
+     */
+    float getPitch();
+
+    /**
+     * @return roll in degrees
+     */
+    float getRoll();
+
+    void reset();
+
+    void zeroYaw();
+}
@@ -0,0 +1,55 @@
+package org.team1540.robot2022.io;
+
+import java.util.Collection;
+
+/**
+ * Hardware creates the devices the subsystems use, so {@link org.team1540.robot2022.RobotContainer} can be built
+ * against either the real robot or a simulation.
+ */
+public interface Hardware {
+    /**
+     * @param deviceNumber CAN ID [0,62]
+     * @return a Falcon 500
+     */
+    MotorIO motor(int deviceNumber);
+
+    /**
+     * @param channel roboRIO DIO channel
+     * @return a beam break or limit switch
+     */
+    DigitalSensorIO digitalInput(int channel);
+
+    /**
+     * @param channel pneumatic hub channel
+     * @return a single solenoid
+     */
+    SolenoidIO solenoid(int channel);
+
+    /**
+     * @param forwardChannel pneumatic hub forward channel
+     * @param reverseChannel pneumatic hub reverse channel
+     * @return a double solenoid, true is forward
+     */
+    SolenoidIO doubleSolenoid(int forwardChannel, int reverseChannel);
+
+    GyroIO gyro();
+
+    LidarIO lidar();
+
+    /**
+     * @param name hostname of the limelight
+     * @return the limelight
+     */
+    LimelightIO limelight(String name);
+
+    /**
+     * @return every motor created so far, e.g. to estimate the CAN bus load
+     */
+    Collection<? extends MotorIO> getMotors();
+
+    /**
+     * Advances the simulation by one robot loop. Does nothing on the real robot.
+     */
+    default void simulationPeriodic() {
+    }
+}
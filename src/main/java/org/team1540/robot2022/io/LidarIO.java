@@ -0,0 +1,26 @@
+package org.team1540.robot2022.io;
+
+/**
+ * The LIDAR rangefinder pointed at the hub. Distances are in inches.
+ */
+public interface LidarIO {
+    void startMeasuring();
+
+    void stopMeasuring();
+
+    /**
+     * Reads and filters a new distance
+     *
+     * @return the distance in inches
+     */
+    double getDistance();
+
+    /**
+     * Gets the filtered distance read by the last {@link #updateSmartDashboardValues()}, without another read
+     *
+     * @return the last distance in inches
+     */
+    double getLastDistance();
+
+    void updateSmartDashboardValues();
+}
@@ -0,0 +1,121 @@
+package org.team1540.robot2022.io;
+
+/**
+ * One frame of a Limelight's values. Frames are allocated once and copied into, so passing them around never
+ * allocates.
+ */
+public class LimelightFrame {
+    public static final int MAX_CORNERS = 32;
+
+    long sequence;
+    private double tx;
+    private double ty;
+    private double ta;
+    private double latency;
+    private final double[] corners = new double[MAX_CORNERS * 2];
+    private int cornerCount;
+
+    /**
+     * @return the number of frames published before and including this one, 0 if there hasn't been one yet
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return horizontal offset to the target in degrees, or 0 if there is no target
+     */
+    public double getTx() {
+        return tx;
+    }
+
+    /**
+     * @return vertical offset to the target in degrees, or 0 if there is no target
+     */
+    public double getTy() {
+        return ty;
+    }
+
+    /**
+     * @return target area as a percent of the image
+     */
+    public double getTa() {
+        return ta;
+    }
+
+    /**
+     * @return milliseconds from the image being captured to its values being published
+     */
+    public double getLatency() {
+        return latency;
+    }
+
+    public int getCornerCount() {
+        return cornerCount;
+    }
+
+    /**
+     * @param index the corner, from 0 to {@link #getCornerCount()}
+     * @return the corner's x in pixels
+     */
+    public double getCornerX(int index) {
+        return corners[index * 2];
+    }
+
+    /**
+     * @param index the corner, from 0 to {@link #getCornerCount()}
+     * @return the corner's y in pixels
+     */
+    public double getCornerY(int index) {
+        return corners[index * 2 + 1];
+    }
+
+    public void setTx(double tx) {
+        this.tx = tx;
+    }
+
+    public void setTy(double ty) {
+        this.ty = ty;
+    }
+
+    public void setTa(double ta) {
+        this.ta = ta;
+    }
+
+    public void setLatency(double latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * Copies in the target's corners. Corners past {@link #MAX_CORNERS} are dropped.
+     *
+     * @param coordinates the corners in pixels, as x and y pairs
+     */
+    public void setCorners(double[] coordinates) {
+        setCorners(coordinates, coordinates.length / 2);
+    }
+
+    /**
+     * Copies in the first corners of an array. Corners past {@link #MAX_CORNERS} are dropped.
+     *
+     * @param coordinates the corners in pixels, as x and y pairs
+     * @param count       the number of corners to copy
+     */
+    public void setCorners(double[] coordinates, int count) {
+        cornerCount = Math.min(count, MAX_CORNERS);
+        System.arraycopy(coordinates, 0, corners, 0, cornerCount * 2);
+    }
+
+    /**
+     * @param other the frame to copy all values from, including its sequence number
+     */
+    public void copyFrom(LimelightFrame other) {
+        sequence = other.sequence;
+        tx = other.tx;
+        ty = other.ty;
+        ta = other.ta;
+        latency = other.latency;
+        cornerCount = other.cornerCount;
+        System.arraycopy(other.corners, 0, corners, 0, cornerCount * 2);
+    }
+}
@@ -0,0 +1,57 @@
+package org.team1540.robot2022.io;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * LimelightFrameBuffer hands frames from the thread that receives them to the robot loop without locking or allocating.
+ * <p>
+ * The writer copies each frame into whichever of the two slots isn't the newest, then bumps the sequence number to
+ * publish it. A reader copies out the newest slot and checks that the sequence number didn't move while it was copying,
+ * since the writer only starts overwriting that slot after publishing another frame. If it moved, the reader copies
+ * again. Only one thread may publish.
+ */
+public class LimelightFrameBuffer {
+    private final LimelightFrame[] slots = {new LimelightFrame(), new LimelightFrame()};
+    private volatile long sequence = 0;
+
+    /**
+     * Publishes a frame, from the one writer thread
+     *
+     * @param frame the frame to copy, its sequence number is ignored
+     */
+    public void publish(LimelightFrame frame) {
+        long next = sequence + 1;
+        LimelightFrame slot = slots[(int) (next & 1)];
+        slot.copyFrom(frame);
+        slot.sequence = next;
+        sequence = next;
+    }
+
+    /**
+     * @return the sequence number of the newest frame, 0 if nothing has been published
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Copies the newest frame into frame, if it's newer than the one frame already holds
+     *
+     * @param frame the frame to copy into
+     * @return whether frame was updated
+     */
+    public boolean read(LimelightFrame frame) {
+        while (true) {
+            long published = sequence;
+            if (published == frame.sequence) {
+                return false;
+            }
+            frame.copyFrom(slots[(int) (published & 1)]);
+            // Keep the copy's reads from being moved after the check
+            VarHandle.acquireFence();
+            if (sequence == published) {
+                return true;
+            }
+        }
+    }
+}
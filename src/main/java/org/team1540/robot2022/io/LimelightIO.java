@@ -0,0 +1,23 @@
+package org.team1540.robot2022.io;
+
+/**
+ * The raw values published by a Limelight. {@link org.team1540.robot2022.utils.Limelight} does the math on top.
+ */
+public interface LimelightIO {
+    /**
+     * Copies the newest frame into frame, if it's newer than the one frame already holds. This doesn't allocate or
+     * block, so it's fine to call every loop.
+     *
+     * @param frame the frame to copy into
+     * @return whether frame was updated
+     */
+    boolean read(LimelightFrame frame);
+
+    double getLedMode();
+
+    void setLedMode(int mode);
+
+    long getPipeline();
+
+    void setPipeline(double id);
+}
@@ -0,0 +1,105 @@
+package org.team1540.robot2022.io;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.NeutralMode;
+import org.team1540.robot2022.utils.CurrentLimitConfig;
+
+/**
+ * A Falcon 500 motor controller. Subsystems use this instead of {@link org.team1540.robot2022.utils.ChickenTalonFX}
+ * so they can run against a simulated motor. Sensor units are the Talon's native units (2048 ticks per rotation,
+ * velocities per 100ms).
+ */
+public interface MotorIO {
+    ErrorCode configFactoryDefault();
+
+    /**
+     * Resets the motor to our defaults and applies a current limit
+     *
+     * @param config the current limit
+     */
+    void configCurrentLimit(CurrentLimitConfig config);
+
+    void setNeutralMode(NeutralMode mode);
+
+    void setInverted(boolean inverted);
+
+    /**
+     * Makes this motor copy another motor's output
+     *
+     * @param leader the motor to follow
+     */
+    void follow(MotorIO leader);
+
+    ErrorCode config_kP(int slotIdx, double value);
+
+    ErrorCode config_kI(int slotIdx, double value);
+
+    ErrorCode config_kD(int slotIdx, double value);
+
+    ErrorCode config_kF(int slotIdx, double value);
+
+    ErrorCode configReverseSoftLimitThreshold(double reverseSensorLimit);
+
+    ErrorCode configReverseSoftLimitEnable(boolean enable);
+
+    void set(ControlMode mode, double value);
+
+    void setPercent(double percent);
+
+    void setVoltage(double voltage);
+
+    /**
+     * Set motor velocity RPM
+     *
+     * @param rpm motor velocity setpoint
+     */
+    void setVelocityRPM(double rpm);
+
+    void setVelocityMetersPerSecond(double velocityMetersPerSecond);
+
+    void setPositionMeters(double positionMeters);
+
+    double getSelectedSensorPosition();
+
+    double getSelectedSensorVelocity();
+
+    /**
+     * Reads the position without {@link org.team1540.robot2022.utils.ChickenTalonFX}'s per-loop cache. Use this
+     * instead of {@link #getSelectedSensorPosition()} off the robot loop thread, e.g. in an interrupt handler.
+     *
+     * @return the position in native units
+     */
+    double readSelectedSensorPositionNow();
+
+    ErrorCode setSelectedSensorPosition(double sensorPos);
+
+    double getClosedLoopError();
+
+    double getStatorCurrent();
+
+    double getMotorOutputPercent();
+
+    double getDistanceMeters();
+
+    double getRateMetersPerSecond();
+
+    /**
+     * Get motor velocity RPM
+     *
+     * @return velocity in RPM
+     */
+    double getVelocityRPM();
+
+    /**
+     * Sets how often the motor sends each of its status frames, which is how stale its sensor reads can be
+     *
+     * @param profile the status frame periods
+     */
+    void configStatusFrames(StatusFrameProfile profile);
+
+    /**
+     * @return the status frame periods last set, {@link StatusFrameProfile#DEFAULT} if they haven't been
+     */
+    StatusFrameProfile getStatusFrameProfile();
+}
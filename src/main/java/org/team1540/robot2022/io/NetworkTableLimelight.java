@@ -0,0 +1,93 @@
+package org.team1540.robot2022.io;
+
+import edu.wpi.first.networktables.EntryListenerFlags;
+import edu.wpi.first.networktables.EntryNotification;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+import java.util.function.DoubleConsumer;
+
+/**
+ * A {@link LimelightIO} that listens for a Limelight's NetworkTables values.
+ * <p>
+ * Instead of looking up each value whenever it's needed, this subscribes to the target values once. NetworkTables
+ * calls the listeners on its own listener thread as values arrive, which copies them into a frame and publishes it to
+ * the robot loop through a {@link LimelightFrameBuffer}. The Limelight's values each arrive on their own, so they're
+ * collected as they come and the frame is only published when tl arrives. tl changes with every camera frame, so each
+ * camera frame is published once and the frame's sequence number counts camera frames.
+ */
+public class NetworkTableLimelight implements LimelightIO {
+    private static final double CAPTURE_LATENCY = 11; // ms, tl doesn't include image capture, per the Limelight docs
+    private static final int LISTENER_FLAGS = EntryListenerFlags.kImmediate | EntryListenerFlags.kNew | EntryListenerFlags.kUpdate;
+
+    private final NetworkTableEntry ledMode;
+    private final NetworkTableEntry getpipe;
+    private final NetworkTableEntry pipeline;
+
+    private final LimelightFrameBuffer frames = new LimelightFrameBuffer();
+    private final LimelightFrame incoming = new LimelightFrame(); // Only touched by the listener thread
+
+    /**
+     * @param name hostname of the limelight
+     */
+    public NetworkTableLimelight(String name) {
+        NetworkTable table = NetworkTableInstance.getDefault().getTable(name);
+        ledMode = table.getEntry("ledMode");
+        getpipe = table.getEntry("getpipe");
+        pipeline = table.getEntry("pipeline");
+
+        listen(table, "tx", incoming::setTx);
+        listen(table, "ty", incoming::setTy);
+        listen(table, "ta", incoming::setTa);
+        listen(table, "tl", latency -> {
+            incoming.setLatency(latency + CAPTURE_LATENCY);
+            frames.publish(incoming);
+        });
+        table.getEntry("tcornxy").addListener(this::cornersChanged, LISTENER_FLAGS);
+    }
+
+    /**
+     * Copies a number value into the incoming frame whenever it changes
+     */
+    private void listen(NetworkTable table, String key, DoubleConsumer setter) {
+        table.getEntry(key).addListener(notification -> {
+            if (notification.value.isDouble()) {
+                setter.accept(notification.value.getDouble());
+            }
+        }, LISTENER_FLAGS);
+    }
+
+    private void cornersChanged(EntryNotification notification) {
+        if (notification.value.isDoubleArray()) {
+            incoming.setCorners(notification.value.getDoubleArray());
+        }
+    }
+
+    @Override
+    public boolean read(LimelightFrame frame) {
+        return frames.read(frame);
+    }
+
+    @Override
+    public double getLedMode() {
+        return ledMode.getDouble(1);
+    }
+
+    @Override
+    public void setLedMode(int mode) {
+        ledMode.setNumber(mode);
+        NetworkTableInstance.getDefault().flush();
+    }
+
+    @Override
+    public long getPipeline() {
+        return Math.round((double) getpipe.getNumber(-1));
+    }
+
+    @Override
+    public void setPipeline(double id) {
+        pipeline.setNumber(id);
+        NetworkTableInstance.getDefault().flush();
+    }
+}
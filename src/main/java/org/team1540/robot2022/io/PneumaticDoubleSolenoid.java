@@ -0,0 +1,26 @@
+package org.team1540.robot2022.io;
+
+import edu.wpi.first.wpilibj.DoubleSolenoid;
+import edu.wpi.first.wpilibj.PneumaticsModuleType;
+import org.team1540.robot2022.Constants;
+
+/**
+ * A double solenoid on the pneumatic hub, where true is forward
+ */
+public class PneumaticDoubleSolenoid implements SolenoidIO {
+    private final DoubleSolenoid solenoid;
+
+    public PneumaticDoubleSolenoid(int forwardChannel, int reverseChannel) {
+        solenoid = new DoubleSolenoid(Constants.PNEUMATIC_HUB, PneumaticsModuleType.REVPH, forwardChannel, reverseChannel);
+    }
+
+    @Override
+    public void set(boolean forward) {
+        solenoid.set(forward ? DoubleSolenoid.Value.kForward : DoubleSolenoid.Value.kReverse);
+    }
+
+    @Override
+    public boolean get() {
+        return solenoid.get() == DoubleSolenoid.Value.kForward;
+    }
+}
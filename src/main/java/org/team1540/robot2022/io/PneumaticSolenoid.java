@@ -0,0 +1,26 @@
+package org.team1540.robot2022.io;
+
+import edu.wpi.first.wpilibj.PneumaticsModuleType;
+import edu.wpi.first.wpilibj.Solenoid;
+import org.team1540.robot2022.Constants;
+
+/**
+ * A single solenoid on the pneumatic hub
+ */
+public class PneumaticSolenoid implements SolenoidIO {
+    private final Solenoid solenoid;
+
+    public PneumaticSolenoid(int channel) {
+        solenoid = new Solenoid(Constants.PNEUMATIC_HUB, PneumaticsModuleType.REVPH, channel);
+    }
+
+    @Override
+    public void set(boolean on) {
+        solenoid.set(on);
+    }
+
+    @Override
+    public boolean get() {
+        return solenoid.get();
+    }
+}
@@ -0,0 +1,60 @@
+package org.team1540.robot2022.io;
+
+import edu.wpi.first.wpilibj.I2C;
+import edu.wpi.first.wpilibj.SPI;
+import org.team1540.robot2022.utils.ChickenTalonFX;
+import org.team1540.robot2022.utils.LIDAR;
+import org.team1540.robot2022.utils.NavX;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The devices on the robot
+ */
+public class RealHardware implements Hardware {
+    private final List<MotorIO> motors = new ArrayList<>();
+
+    @Override
+    public MotorIO motor(int deviceNumber) {
+        MotorIO motor = new ChickenTalonFX(deviceNumber);
+        motors.add(motor);
+        return motor;
+    }
+
+    @Override
+    public DigitalSensorIO digitalInput(int channel) {
+        return new DigitalInputSensor(channel);
+    }
+
+    @Override
+    public SolenoidIO solenoid(int channel) {
+        return new PneumaticSolenoid(channel);
+    }
+
+    @Override
+    public SolenoidIO doubleSolenoid(int forwardChannel, int reverseChannel) {
+        return new PneumaticDoubleSolenoid(forwardChannel, reverseChannel);
+    }
+
+    @Override
+    public GyroIO gyro() {
+        return new NavX(SPI.Port.kMXP);
+    }
+
+    @Override
+    public LidarIO lidar() {
+        return new LIDAR(I2C.Port.kMXP);
+    }
+
+    @Override
+    public LimelightIO limelight(String name) {
+        return new NetworkTableLimelight(name);
+    }
+
+    @Override
+    public Collection<MotorIO> getMotors() {
+        return motors;
+    }
+}
@@ -0,0 +1,10 @@
+package org.team1540.robot2022.io;
+
+/**
+ * A single or double acting solenoid. For a double solenoid, true is forward and false is reverse.
+ */
+public interface SolenoidIO {
+    void set(boolean on);
+
+    boolean get();
+}
@@ -0,0 +1,67 @@
+package org.team1540.robot2022.io;
+
+/**
+ * How often a Falcon sends each of its status frames, in milliseconds. A sensor read returns whatever the last frame
+ * carrying it said, so the period is how stale the read can be, and every frame takes up CAN bandwidth whether
+ * anything reads it or not.
+ * <p>
+ * Only the frames Phoenix lets us set are here. Frames we never read are grouped together and sent as slowly as
+ * Phoenix allows in every profile but {@link #DEFAULT}.
+ */
+public enum StatusFrameProfile {
+    /**
+     * What the Talon uses until it's told otherwise. The Phoenix docs only say the slow frames are over 100ms.
+     */
+    DEFAULT(10, 20, 50, 160, 160),
+    /**
+     * Velocity and closed loop error as fast as the shooter's closed loop is checked, for spin up and shot detection
+     */
+    FLYWHEEL(10, 10, 50, 20, 255),
+    /**
+     * Fast position and velocity for odometry and the pose estimate
+     */
+    DRIVETRAIN(10, 10, 50, 160, 255),
+    /**
+     * For motors nothing reads, like followers and open loop mechanisms
+     */
+    SLOW(100, 100, 100, 255, 255);
+
+    public static final int MAX_PERIOD = 255; // ms, the longest period Phoenix accepts
+    public static final int UNUSED_FRAMES = 6; // quadrature, analog/temperature/battery, pulse width, targets, feedback 1 and PIDF 1
+
+    /**
+     * Applied output and faults
+     */
+    public final int generalMs;
+    /**
+     * Selected sensor position and velocity
+     */
+    public final int feedbackMs;
+    /**
+     * Stator and supply current
+     */
+    public final int currentMs;
+    /**
+     * Closed loop error for the primary PID
+     */
+    public final int pidfMs;
+    /**
+     * Each of the frames nothing reads
+     */
+    public final int unusedMs;
+
+    StatusFrameProfile(int generalMs, int feedbackMs, int currentMs, int pidfMs, int unusedMs) {
+        this.generalMs = generalMs;
+        this.feedbackMs = feedbackMs;
+        this.currentMs = currentMs;
+        this.pidfMs = pidfMs;
+        this.unusedMs = unusedMs;
+    }
+
+    /**
+     * @return how many status frames one motor with this profile sends each second
+     */
+    public double getFramesPerSecond() {
+        return 1000.0 / generalMs + 1000.0 / feedbackMs + 1000.0 / currentMs + 1000.0 / pidfMs + UNUSED_FRAMES * 1000.0 / unusedMs;
+    }
+}
@@ -0,0 +1,150 @@
+package org.team1540.robot2022.sim;
+
+import org.team1540.robot2022.utils.Limelight;
+
+/**
+ * BallSim flies a ball from the shooter to the upper hub, so shots can be checked without a field.
+ * <p>
+ * The ball leaves the shooter along the robot's heading at the hood's angle, plus whatever velocity the robot has.
+ * In the air it has drag, and lift from the backspin the rear flywheel gives it, whose axis stays where the shooter
+ * put it. A shot ends when the ball comes down through the height of the rim, or hits the ground. The coefficients
+ * are textbook values for a foam ball, compare against video of real shots to refine them.
+ */
+public class BallSim {
+    public static final double RIM_HEIGHT = Limelight.targetHeight; // meters, the vision tape is on the rim
+    public static final double OPENING_RADIUS = 0.61; // meters, 4ft across
+    public static final double BALL_RADIUS = 0.1207; // meters, 9.5in across
+    public static final double EXIT_HEIGHT = 0.9; // meters, where the ball leaves the flywheels
+    public static final double HOOD_UP_ANGLE = Math.toRadians(60); // above horizontal
+    public static final double HOOD_DOWN_ANGLE = Math.toRadians(75);
+
+    private static final double DRAG_COEFFICIENT = 0.47;
+    private static final double LIFT_COEFFICIENT = 0.15;
+    private static final double AIR_DENSITY = 1.2; // kg/m^3
+    private static final double GRAVITY = 9.81;
+    private static final double DRAG_SCALE = 0.5 * AIR_DENSITY * Math.PI * BALL_RADIUS * BALL_RADIUS / FlywheelSim.BALL_MASS;
+    private static final double STEP = 0.001; // seconds
+    private static final double TIMEOUT = 5;
+
+    private double x, y;
+    private double time;
+    private boolean reachedRim;
+
+    /**
+     * Flies a ball until it comes down through the rim's height
+     *
+     * @param robotX        robot position when the ball leaves, meters
+     * @param robotY        robot position when the ball leaves, meters
+     * @param heading       robot heading counter-clockwise in radians, which the shooter points along
+     * @param robotVelocity robot velocity along its heading in meters per second
+     * @param speed         ball speed relative to the robot in meters per second
+     * @param angle         launch angle above horizontal in radians
+     */
+    public void shoot(double robotX, double robotY, double heading, double robotVelocity, double speed, double angle) {
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        double horizontal = speed * Math.cos(angle) + robotVelocity;
+        double vx = horizontal * cos;
+        double vy = horizontal * sin;
+        double vz = speed * Math.sin(angle);
+        // Backspin, so the axis is horizontal and to the right of the shooter
+        double spinX = sin;
+        double spinY = -cos;
+        double z = EXIT_HEIGHT;
+
+        x = robotX;
+        y = robotY;
+        time = 0;
+        reachedRim = false;
+        while (time < TIMEOUT) {
+            double v = Math.sqrt(vx * vx + vy * vy + vz * vz);
+            // Lift is spin axis cross velocity, drag is against the velocity
+            double liftX = spinY * vz;
+            double liftY = -spinX * vz;
+            double liftZ = spinX * vy - spinY * vx;
+            double ax = DRAG_SCALE * v * (LIFT_COEFFICIENT * liftX - DRAG_COEFFICIENT * vx);
+            double ay = DRAG_SCALE * v * (LIFT_COEFFICIENT * liftY - DRAG_COEFFICIENT * vy);
+            double az = DRAG_SCALE * v * (LIFT_COEFFICIENT * liftZ - DRAG_COEFFICIENT * vz) - GRAVITY;
+
+            double nextZ = z + (vz + az * STEP / 2) * STEP;
+            if (vz < 0 && z >= RIM_HEIGHT && nextZ < RIM_HEIGHT) {
+                // Back up to where it crossed the rim
+                double fraction = (z - RIM_HEIGHT) / (z - nextZ);
+                x += vx * STEP * fraction;
+                y += vy * STEP * fraction;
+                time += STEP * fraction;
+                reachedRim = true;
+                return;
+            }
+            if (nextZ < 0) {
+                return;
+            }
+            x += (vx + ax * STEP / 2) * STEP;
+            y += (vy + ay * STEP / 2) * STEP;
+            z = nextZ;
+            vx += ax * STEP;
+            vy += ay * STEP;
+            vz += az * STEP;
+            time += STEP;
+        }
+    }
+
+    /**
+     * @return whether the last shot came down through the rim's height, instead of falling short under it
+     */
+    public boolean reachedRim() {
+        return reachedRim;
+    }
+
+    /**
+     * @return how long the last shot flew in seconds
+     */
+    public double getTimeOfFlight() {
+        return time;
+    }
+
+    /**
+     * @param hubX center of the hub, meters
+     * @param hubY center of the hub, meters
+     * @return how far the last shot came down from the center of the hub in meters, or infinity if it didn't reach it
+     */
+    public double getMissDistance(double hubX, double hubY) {
+        return reachedRim ? Math.hypot(x - hubX, y - hubY) : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @param hubX center of the hub, meters
+     * @param hubY center of the hub, meters
+     * @return whether the last shot went in, with the whole ball inside the opening
+     */
+    public boolean isScored(double hubX, double hubY) {
+        return getMissDistance(hubX, hubY) < OPENING_RADIUS - BALL_RADIUS;
+    }
+
+    /**
+     * Finds the ball speed that lands a shot from a stopped robot in the center of the hub, which is what the
+     * flywheel tables are calibrated for
+     *
+     * @param range horizontal distance from the shooter to the center of the hub in meters
+     * @param angle launch angle above horizontal in radians
+     * @return the ball speed in meters per second, or NaN if none reaches
+     */
+    public double getStationarySpeed(double range, double angle) {
+        double low = 0;
+        double high = 30;
+        shoot(0, 0, 0, 0, high, angle);
+        if (!reachedRim || x < range) {
+            return Double.NaN;
+        }
+        for (int i = 0; i < 50; i++) {
+            double speed = (low + high) / 2;
+            shoot(0, 0, 0, 0, speed, angle);
+            if (reachedRim && x > range) {
+                high = speed;
+            } else {
+                low = speed;
+            }
+        }
+        return (low + high) / 2;
+    }
+}
@@ -0,0 +1,40 @@
+package org.team1540.robot2022.sim;
+
+/**
+ * A Talon style current limit. Once the current has been over the threshold for the threshold time, it's held at the
+ * limit until it drops back under the limit.
+ */
+class CurrentLimiter {
+    private final double limit;
+    private final double threshold;
+    private final double thresholdTime;
+    private double timeOverThreshold;
+
+    /**
+     * @param limit         current limit in amps
+     * @param threshold     current that triggers the limit in amps
+     * @param thresholdTime how long the current has to be over the threshold in seconds
+     */
+    CurrentLimiter(double limit, double threshold, double thresholdTime) {
+        this.limit = limit;
+        this.threshold = threshold;
+        this.thresholdTime = thresholdTime;
+    }
+
+    /**
+     * @param amps the current the motor would draw
+     * @param dt   time step in seconds
+     * @return the current after limiting
+     */
+    double apply(double amps, double dt) {
+        if (Math.abs(amps) > threshold) {
+            timeOverThreshold += dt;
+        } else if (Math.abs(amps) <= limit) {
+            timeOverThreshold = 0;
+        }
+        if (timeOverThreshold >= thresholdTime && Math.abs(amps) > limit) {
+            return Math.copySign(limit, amps);
+        }
+        return amps;
+    }
+}
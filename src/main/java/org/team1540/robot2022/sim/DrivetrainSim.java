@@ -0,0 +1,138 @@
+package org.team1540.robot2022.sim;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Twist2d;
+import org.team1540.robot2022.Constants.DriveConstants;
+
+/**
+ * DrivetrainSim models the drivetrain from its characterization constants in {@link DriveConstants}, so the simulated
+ * robot speeds up, slows down and turns like the real one when it follows a path.
+ * <p>
+ * Each side obeys V = KS sign(v) + KV v + KA a. The voltage is constant between steps, so velocity is advanced with
+ * the exact solution of that equation rather than an Euler step, and the result barely depends on the step size. The
+ * pose comes from the travel of both sides and the trackwidth.
+ */
+public class DrivetrainSim {
+    private static final double KS = DriveConstants.KS_VOLTS;
+    private static final double KV = DriveConstants.KV_VOLT_SECONDS_PER_METER;
+    private static final double KA = DriveConstants.KA_VOLT_SECONDS_SQUARED_PER_METER;
+    private static final double TIME_CONSTANT = KA / KV;
+
+    private final Side left = new Side();
+    private final Side right = new Side();
+    private Pose2d pose = new Pose2d();
+    private double heading;
+
+    /**
+     * Advances the drivetrain
+     *
+     * @param leftVolts  voltage applied to the left motors
+     * @param rightVolts voltage applied to the right motors
+     * @param brakeMode  true if the motors brake at zero output, false if they coast
+     * @param dt         time step in seconds
+     */
+    public void update(double leftVolts, double rightVolts, boolean brakeMode, double dt) {
+        double leftDelta = left.update(leftVolts, brakeMode, dt);
+        double rightDelta = right.update(rightVolts, brakeMode, dt);
+        double headingDelta = (rightDelta - leftDelta) / DriveConstants.K_TRACKWIDTH_METERS;
+        pose = pose.exp(new Twist2d((leftDelta + rightDelta) / 2, 0, headingDelta));
+        heading += headingDelta;
+    }
+
+    public Pose2d getPose() {
+        return pose;
+    }
+
+    /**
+     * Moves the robot without changing how far the wheels have turned
+     *
+     * @param pose the robot's new pose
+     */
+    public void setPose(Pose2d pose) {
+        this.pose = pose;
+        this.heading = pose.getRotation().getRadians();
+    }
+
+    /**
+     * @return counter-clockwise heading in radians, without wrapping
+     */
+    public double getHeading() {
+        return heading;
+    }
+
+    public double getLeftDistance() {
+        return left.distance;
+    }
+
+    public double getRightDistance() {
+        return right.distance;
+    }
+
+    public double getLeftVelocity() {
+        return left.velocity;
+    }
+
+    public double getRightVelocity() {
+        return right.velocity;
+    }
+
+    private static class Side {
+        private double distance; // meters
+        private double velocity; // meters per second
+
+        /**
+         * @return distance traveled in meters
+         */
+        private double update(double volts, boolean brakeMode, double dt) {
+            double start = distance;
+            if (volts == 0 && !brakeMode) {
+                coast(dt);
+            } else {
+                drive(volts, dt);
+            }
+            return distance - start;
+        }
+
+        /**
+         * With no voltage applied and the motors coasting, only friction slows the robot
+         */
+        private void coast(double dt) {
+            double deceleration = KS / KA;
+            double stopTime = Math.abs(velocity) / deceleration;
+            if (stopTime <= dt) {
+                distance += velocity * stopTime / 2;
+                velocity = 0;
+            } else {
+                double newVelocity = velocity - Math.copySign(deceleration * dt, velocity);
+                distance += (velocity + newVelocity) / 2 * dt;
+                velocity = newVelocity;
+            }
+        }
+
+        private void drive(double volts, double dt) {
+            // Static friction holds the robot still until the voltage overcomes it
+            if (velocity == 0 && Math.abs(volts) <= KS) {
+                return;
+            }
+            double direction = velocity != 0 ? Math.signum(velocity) : Math.signum(volts);
+            double steadyVelocity = (volts - KS * direction) / KV;
+
+            // Friction flips direction when the robot stops, so stop there and continue from rest
+            double remaining = velocity - steadyVelocity;
+            double stopTime = Double.POSITIVE_INFINITY;
+            if (Math.signum(steadyVelocity) != direction && steadyVelocity != 0) {
+                stopTime = TIME_CONSTANT * Math.log(remaining / -steadyVelocity);
+            }
+            double step = Math.min(dt, stopTime);
+
+            double decay = Math.exp(-step / TIME_CONSTANT);
+            distance += steadyVelocity * step + remaining * TIME_CONSTANT * (1 - decay);
+            velocity = steadyVelocity + remaining * decay;
+
+            if (stopTime < dt) {
+                velocity = 0;
+                drive(volts, dt - stopTime);
+            }
+        }
+    }
+}
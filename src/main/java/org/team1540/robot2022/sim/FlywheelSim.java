@@ -0,0 +1,79 @@
+package org.team1540.robot2022.sim;
+
+/**
+ * FlywheelSim models one of the shooter's flywheels, so spin up and recovery after a shot can be tuned off the robot.
+ * <p>
+ * Each flywheel is a Falcon driving its wheels directly, limited by whatever current limits its Talon is configured
+ * with. A shot squeezes the ball between the front and rear wheels, which brings it up to their surface speed, so each
+ * wheel gives up half of the angular momentum the ball takes. The inertia is an estimate, compare against the shooter
+ * RPM in feather match logs to refine it.
+ */
+public class FlywheelSim {
+    public static final double INERTIA = 0.0025; // kg m^2 for the wheels and shaft
+    public static final double WHEEL_RADIUS = 0.0508; // meters, 4 inch wheels
+    public static final double BALL_MASS = 0.27; // kg
+    private static final double BALL_INERTIA = BALL_MASS * WHEEL_RADIUS * WHEEL_RADIUS / 2;
+
+    private final SimMotor motor;
+    private double position; // radians
+    private double velocity; // radians per second
+    private int ballsShot;
+
+    /**
+     * @param motor the simulated Talon driving the flywheel, which this sets the sensor state of
+     */
+    public FlywheelSim(SimMotor motor) {
+        this.motor = motor;
+    }
+
+    /**
+     * Advances the flywheel with the motor's current output
+     *
+     * @param dt time step in seconds
+     */
+    public void update(double dt) {
+        double volts = motor.getAppliedVoltage();
+        double amps = 0;
+        if (volts != 0 || motor.isBrakeMode()) {
+            amps = (volts - velocity / SimMotor.KV_RADIANS_PER_VOLT) / SimMotor.RESISTANCE;
+            amps = motor.limitCurrent(amps, dt);
+        }
+
+        // Friction slows the flywheel down, but never reverses it
+        double newVelocity = velocity + SimMotor.KT_NM_PER_AMP * amps / INERTIA * dt;
+        double frictionStep = SimMotor.KT_NM_PER_AMP * SimMotor.FREE_CURRENT / INERTIA * dt;
+        if (Math.abs(newVelocity) <= frictionStep) {
+            newVelocity = 0;
+        } else {
+            newVelocity -= Math.copySign(frictionStep, newVelocity);
+        }
+
+        position += (velocity + newVelocity) / 2 * dt;
+        velocity = newVelocity;
+        motor.setSensorState(position * SimMotor.TICKS_PER_RADIAN, velocity * SimMotor.TICKS_PER_RADIAN / 10, amps);
+    }
+
+    /**
+     * Shoots a ball, slowing the flywheel down
+     */
+    public void shootBall() {
+        velocity *= INERTIA / (INERTIA + BALL_INERTIA);
+        ballsShot++;
+    }
+
+    /**
+     * @param rpm flywheel speed when the ball is shot
+     * @return how much the shot slows the flywheel down in RPM
+     */
+    public static double getDropPerBall(double rpm) {
+        return rpm * BALL_INERTIA / (INERTIA + BALL_INERTIA);
+    }
+
+    public double getVelocityRPM() {
+        return velocity * 60 / (2 * Math.PI);
+    }
+
+    public int getBallsShot() {
+        return ballsShot;
+    }
+}
@@ -0,0 +1,147 @@
+package org.team1540.robot2022.sim;
+
+import org.team1540.robot2022.Constants.ShooterConstants;
+import org.team1540.robot2022.commands.shooter.Shooter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FlywheelTuner sweeps the front flywheel's PIDF gains on a {@link FlywheelSim} to find the ones that recover fastest
+ * between two shots, and writes the results as CSV, e.g.
+ * ./gradlew flywheelTuner --args="frontP=0.1:1:0.1 frontD=0:20:2 frontF=0.046:0.050:0.001 rpm=2600"
+ * <p>
+ * Each run spins the flywheel up from rest with the shooter's current limit, shoots a ball once it's spun up, and
+ * times how long the flywheel takes to settle back within the shooter's target error for the second ball. Gains that
+ * aren't given default to the ones in {@link Shooter}, see {@link SweepGrid} for the format.
+ */
+public class FlywheelTuner {
+    private static final double STEP = 0.001; // the Talon's closed loop period
+    private static final double TARGET_ERROR = 30; // native units, the default shooter/tuning/targetError
+    private static final double SETTLE_TIME = 0.1; // seconds the error has to stay within the target
+    private static final double TIMEOUT = 3;
+
+    public static void main(String[] args) throws IOException {
+        SweepGrid grid = new SweepGrid("flywheelTuner.csv");
+        grid.addParameter("frontP", Shooter.frontP);
+        grid.addParameter("frontI", Shooter.frontI);
+        grid.addParameter("frontD", Shooter.frontD);
+        grid.addParameter("frontF", Shooter.frontF);
+        grid.addOption("rpm", "2600");
+        grid.parse(args);
+        double rpm = Double.parseDouble(grid.getOption("rpm"));
+
+        List<Run> runs = new ArrayList<>();
+        for (double[] gains : grid.getCombinations()) {
+            runs.add(new Run(gains[0], gains[1], gains[2], gains[3], rpm));
+        }
+
+        long start = System.nanoTime();
+        grid.runAll(runs);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        String out = grid.getOption("out");
+        Run best = null;
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get(out)))) {
+            writer.println(grid.getHeader() + ",spinUpSeconds,overshootRPM,dropRPM,recoverySeconds");
+            for (Run run : runs) {
+                writer.printf("%s,%s,%s,%s,%.3f,%.1f,%.1f,%.3f%n", run.p, run.i, run.d, run.f,
+                        run.spinUpSeconds, run.overshootRPM, run.dropRPM, run.recoverySeconds);
+                if (!Double.isNaN(run.recoverySeconds) && (best == null || run.recoverySeconds < best.recoverySeconds)) {
+                    best = run;
+                }
+            }
+        }
+        System.out.printf("[flywheel] %d runs on %s threads in %.2fs, wrote %s%n", runs.size(), grid.getOption("threads"), seconds, out);
+        if (best != null) {
+            System.out.printf("[flywheel] Fastest recovery at %.0f RPM: P=%s I=%s D=%s F=%s recovers in %.3fs after dropping %.0f RPM%n",
+                    rpm, best.p, best.i, best.d, best.f, best.recoverySeconds, best.dropRPM);
+        } else {
+            System.out.println("[flywheel] No gains recovered within " + TIMEOUT + "s");
+        }
+    }
+
+    /**
+     * Two shots with one set of gains
+     */
+    private static class Run implements Runnable {
+        private final double p, i, d, f;
+        private final double rpm;
+
+        private double spinUpSeconds = Double.NaN;
+        private double overshootRPM;
+        private double dropRPM;
+        private double recoverySeconds = Double.NaN;
+
+        private SimMotor motor;
+        private FlywheelSim flywheel;
+        private double highest;
+        private double lowest;
+
+        private Run(double p, double i, double d, double f, double rpm) {
+            this.p = p;
+            this.i = i;
+            this.d = d;
+            this.f = f;
+            this.rpm = rpm;
+        }
+
+        @Override
+        public void run() {
+            motor = new SimMotor(ShooterConstants.FRONT);
+            ShooterConstants.CURRENT_LIMIT_CONFIG.applyTo(motor);
+            motor.config_kP(0, p);
+            motor.config_kI(0, i);
+            motor.config_kD(0, d);
+            motor.config_kF(0, f);
+            flywheel = new FlywheelSim(motor);
+
+            motor.setVelocityRPM(rpm);
+            spinUpSeconds = settle();
+            overshootRPM = Math.max(0, highest - rpm);
+            if (Double.isNaN(spinUpSeconds)) {
+                return;
+            }
+
+            double before = flywheel.getVelocityRPM();
+            flywheel.shootBall();
+            recoverySeconds = settle();
+            dropRPM = before - lowest;
+        }
+
+        /**
+         * Runs the flywheel until its error has been within the target for the settle time, keeping track of the
+         * highest and lowest speeds on the way
+         *
+         * @return the time until the error entered the target for good, or NaN if it didn't settle
+         */
+        private double settle() {
+            double time = 0;
+            double settledSince = -1;
+            highest = lowest = flywheel.getVelocityRPM();
+            while (time < TIMEOUT) {
+                motor.updateOutput();
+                flywheel.update(STEP);
+                time += STEP;
+
+                double velocity = flywheel.getVelocityRPM();
+                highest = Math.max(highest, velocity);
+                lowest = Math.min(lowest, velocity);
+                if (Math.abs(motor.getClosedLoopError()) < TARGET_ERROR) {
+                    if (settledSince < 0) {
+                        settledSince = time;
+                    } else if (time - settledSince >= SETTLE_TIME) {
+                        return settledSince;
+                    }
+                } else {
+                    settledSince = -1;
+                }
+            }
+            return Double.NaN;
+        }
+    }
+}
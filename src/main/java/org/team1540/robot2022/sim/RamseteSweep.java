@@ -0,0 +1,160 @@
+package org.team1540.robot2022.sim;
+
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.controller.RamseteController;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.DifferentialDriveWheelSpeeds;
+import edu.wpi.first.math.trajectory.Trajectory;
+import org.team1540.robot2022.Constants;
+import org.team1540.robot2022.RamseteConfig;
+import org.team1540.robot2022.utils.AutoHelper.AutoPath;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RamseteSweep follows every auto path on a {@link DrivetrainSim} with each combination of Ramsete and wheel PID
+ * gains, and writes the results as CSV, e.g.
+ * ./gradlew ramseteSweep --args="b=1:3:0.25 zeta=0.5:0.9:0.1 kP=1,2,3.2925 kD=0 threads=8 out=sweep.csv"
+ * <p>
+ * Gains that aren't given default to the ones the robot uses, see {@link SweepGrid} for the format. Each run uses its
+ * own controllers and drivetrain and only writes its own result, so runs scale across cores.
+ */
+public class RamseteSweep {
+    private static final double LOOP_PERIOD = SimHardware.LOOP_PERIOD;
+    private static final double SETTLE_TIMEOUT = 2; // seconds to wait for the robot to stop after the path ends
+
+    public static void main(String[] args) throws IOException {
+        SweepGrid grid = new SweepGrid("ramseteSweep.csv");
+        grid.addParameter("b", RamseteConfig.kRamseteB);
+        grid.addParameter("zeta", RamseteConfig.kRamseteZeta);
+        grid.addParameter("kP", Constants.DriveConstants.KP_DRIVE_VEL);
+        grid.addParameter("kD", 0);
+        grid.parse(args);
+
+        // Load each path once up front, the runs only read them
+        Map<String, Trajectory> trajectories = new LinkedHashMap<>();
+        for (AutoPath path : AutoPath.all) {
+            trajectories.computeIfAbsent(path.name, name -> path.getTrajectory());
+        }
+
+        List<Run> runs = new ArrayList<>();
+        for (Map.Entry<String, Trajectory> trajectory : trajectories.entrySet()) {
+            for (double[] gains : grid.getCombinations()) {
+                runs.add(new Run(trajectory.getKey(), trajectory.getValue(), gains[0], gains[1], gains[2], gains[3]));
+            }
+        }
+
+        long start = System.nanoTime();
+        grid.runAll(runs);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        String out = grid.getOption("out");
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get(out)))) {
+            writer.println("path," + grid.getHeader() + ",maxCrossTrackError,rmsCrossTrackError,finalPositionError,finalHeadingErrorDegrees,pathSeconds,completeSeconds");
+            for (Run run : runs) {
+                writer.printf("%s,%s,%s,%s,%s,%.4f,%.4f,%.4f,%.3f,%.2f,%.2f%n", run.path, run.b, run.zeta, run.kP, run.kD,
+                        run.maxCrossTrackError, run.rmsCrossTrackError, run.finalPositionError, run.finalHeadingErrorDegrees,
+                        run.pathSeconds, run.completeSeconds);
+            }
+        }
+        System.out.printf("[sweep] %d runs on %s threads in %.2fs (%.0f runs/s), wrote %s%n", runs.size(), grid.getOption("threads"), seconds, runs.size() / seconds, out);
+    }
+
+    /**
+     * One path followed with one set of gains
+     */
+    private static class Run implements Runnable {
+        private final String path;
+        private final Trajectory trajectory;
+        private final double b, zeta, kP, kD;
+
+        private double maxCrossTrackError;
+        private double rmsCrossTrackError;
+        private double finalPositionError;
+        private double finalHeadingErrorDegrees;
+        private double pathSeconds;
+        private double completeSeconds;
+
+        private Run(String path, Trajectory trajectory, double b, double zeta, double kP, double kD) {
+            this.path = path;
+            this.trajectory = trajectory;
+            this.b = b;
+            this.zeta = zeta;
+            this.kP = kP;
+            this.kD = kD;
+        }
+
+        /**
+         * Follows the path the same way RamseteCommand does, with the robot's true pose as odometry, then lets the
+         * robot brake to a stop
+         */
+        @Override
+        public void run() {
+            RamseteController controller = new RamseteController(b, zeta);
+            PIDController leftPID = new PIDController(kP, 0, kD, LOOP_PERIOD);
+            PIDController rightPID = new PIDController(kP, 0, kD, LOOP_PERIOD);
+            DrivetrainSim drivetrain = new DrivetrainSim();
+
+            Trajectory.State initialState = trajectory.sample(0);
+            drivetrain.setPose(initialState.poseMeters);
+            DifferentialDriveWheelSpeeds previousSpeeds = RamseteConfig.kDriveKinematics.toWheelSpeeds(new ChassisSpeeds(
+                    initialState.velocityMetersPerSecond, 0, initialState.curvatureRadPerMeter * initialState.velocityMetersPerSecond));
+
+            pathSeconds = trajectory.getTotalTimeSeconds();
+            double squaredErrorSum = 0;
+            int samples = 0;
+            double leftVolts = 0;
+            double rightVolts = 0;
+            // The first loop only records the time, like RamseteCommand
+            for (double time = LOOP_PERIOD; time < pathSeconds + LOOP_PERIOD / 2; time += LOOP_PERIOD) {
+                drivetrain.update(leftVolts, rightVolts, true, LOOP_PERIOD);
+                Pose2d pose = drivetrain.getPose();
+                Trajectory.State reference = trajectory.sample(time);
+
+                double crossTrackError = Math.abs(pose.relativeTo(reference.poseMeters).getY());
+                maxCrossTrackError = Math.max(maxCrossTrackError, crossTrackError);
+                squaredErrorSum += crossTrackError * crossTrackError;
+                samples++;
+
+                DifferentialDriveWheelSpeeds targetSpeeds = RamseteConfig.kDriveKinematics.toWheelSpeeds(controller.calculate(pose, reference));
+                double leftTarget = targetSpeeds.leftMetersPerSecond;
+                double rightTarget = targetSpeeds.rightMetersPerSecond;
+                double leftFeedforward = RamseteConfig.feedForward.calculate(leftTarget, (leftTarget - previousSpeeds.leftMetersPerSecond) / LOOP_PERIOD);
+                double rightFeedforward = RamseteConfig.feedForward.calculate(rightTarget, (rightTarget - previousSpeeds.rightMetersPerSecond) / LOOP_PERIOD);
+                leftVolts = clampVolts(leftFeedforward + leftPID.calculate(drivetrain.getLeftVelocity(), leftTarget));
+                rightVolts = clampVolts(rightFeedforward + rightPID.calculate(drivetrain.getRightVelocity(), rightTarget));
+                previousSpeeds = targetSpeeds;
+            }
+            rmsCrossTrackError = samples > 0 ? Math.sqrt(squaredErrorSum / samples) : 0;
+
+            // Once the path's time is up, the robot brakes to a stop
+            double time = pathSeconds;
+            drivetrain.update(leftVolts, rightVolts, true, LOOP_PERIOD);
+            while ((drivetrain.getLeftVelocity() != 0 || drivetrain.getRightVelocity() != 0) && time < pathSeconds + SETTLE_TIMEOUT) {
+                drivetrain.update(0, 0, true, LOOP_PERIOD);
+                time += LOOP_PERIOD;
+            }
+            completeSeconds = time;
+
+            Pose2d finalPose = drivetrain.getPose();
+            Pose2d goal = trajectory.sample(pathSeconds).poseMeters;
+            finalPositionError = finalPose.getTranslation().getDistance(goal.getTranslation());
+            finalHeadingErrorDegrees = Math.abs(finalPose.relativeTo(goal).getRotation().getDegrees());
+        }
+
+        /**
+         * The motors can't apply more than the battery voltage
+         */
+        private static double clampVolts(double volts) {
+            return Math.max(-Constants.MOTOR_VOLTAGE, Math.min(Constants.MOTOR_VOLTAGE, volts));
+        }
+    }
+}
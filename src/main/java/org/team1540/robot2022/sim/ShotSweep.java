@@ -0,0 +1,126 @@
+package org.team1540.robot2022.sim;
+
+import org.team1540.robot2022.InterpolationTable;
+import org.team1540.robot2022.commands.shooter.ShootWhileMovingCommand;
+import org.team1540.robot2022.commands.shooter.ShotSolver;
+import org.team1540.robot2022.utils.Limelight;
+import org.team1540.robot2022.utils.LinearInterpolator;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ShotSweep checks the {@link ShotSolver} against {@link BallSim}, by shooting from a robot driving at the hub and
+ * away from it, and writes the results as CSV, e.g.
+ * ./gradlew shotSweep --args="distance=60:160:20 velocity=-2:2:0.5 delay=0.1"
+ * <p>
+ * The flywheel tables are assumed to be calibrated for a stopped robot, so a shot for some distance is the ball speed
+ * that lands a stopped shot from that distance in the center of the hub. Each run shoots once for the distance the
+ * robot is at when it decides to shoot, like {@link org.team1540.robot2022.commands.shooter.ShootSequence} does, and
+ * once for the distance to the solver's virtual target, and compares where the two land. Shots that
+ * {@link ShootWhileMovingCommand} wouldn't take, since the virtual target is out of the tables' range, are left out of
+ * the summary. Velocity is positive towards the hub, and delay is the time from deciding to shoot until the ball
+ * leaves, see {@link SweepGrid} for the format.
+ */
+public class ShotSweep {
+    public static void main(String[] args) throws IOException {
+        SweepGrid grid = new SweepGrid("shotSweep.csv");
+        grid.addParameter("distance", 100);
+        grid.addParameter("velocity", 1);
+        grid.addParameter("delay", ShootWhileMovingCommand.RELEASE_DELAY);
+        grid.parse(args);
+
+        List<Run> runs = new ArrayList<>();
+        for (double[] values : grid.getCombinations()) {
+            runs.add(new Run(values[0], values[1], values[2]));
+        }
+
+        long start = System.nanoTime();
+        grid.runAll(runs);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        String out = grid.getOption("out");
+        int shots = 0, stoppedScored = 0, solvedScored = 0;
+        double solvedMissSum = 0, solvedMissMax = 0;
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get(out)))) {
+            writer.println(grid.getHeader() + ",virtualDistance,timeOfFlight,iterations,stoppedMiss,solvedMiss,stoppedScored,solvedScored");
+            for (Run run : runs) {
+                writer.printf("%s,%s,%s,%.1f,%.3f,%d,%.3f,%.3f,%b,%b%n", run.distance, run.velocity, run.delay,
+                        run.virtualDistance, run.timeOfFlight, run.iterations, run.stoppedMiss, run.solvedMiss,
+                        run.stoppedScored, run.solvedScored);
+                if (run.velocity == 0 || run.virtualDistance < ShootWhileMovingCommand.MIN_DISTANCE || run.virtualDistance > ShootWhileMovingCommand.MAX_DISTANCE) {
+                    continue;
+                }
+                shots++;
+                stoppedScored += run.stoppedScored ? 1 : 0;
+                solvedScored += run.solvedScored ? 1 : 0;
+                solvedMissSum += run.solvedMiss;
+                solvedMissMax = Math.max(solvedMissMax, run.solvedMiss);
+            }
+        }
+        System.out.printf("[shot] %d runs on %s threads in %.2fs, wrote %s%n", runs.size(), grid.getOption("threads"), seconds, out);
+        if (shots > 0) {
+            System.out.printf("[shot] Of %d moving shots in range, %d scored shooting for the current distance and %d with the solver, which missed the center by %.3fm on average and %.3fm at most%n",
+                    shots, stoppedScored, solvedScored, solvedMissSum / shots, solvedMissMax);
+        }
+    }
+
+    /**
+     * Two shots from one distance and velocity
+     */
+    private static class Run implements Runnable {
+        private final double distance, velocity, delay;
+
+        private double virtualDistance = Double.NaN;
+        private double timeOfFlight = Double.NaN;
+        private int iterations;
+        private double stoppedMiss = Double.NaN;
+        private double solvedMiss = Double.NaN;
+        private boolean stoppedScored;
+        private boolean solvedScored;
+
+        private Run(double distance, double velocity, double delay) {
+            this.distance = distance;
+            this.velocity = velocity;
+            this.delay = delay;
+        }
+
+        @Override
+        public void run() {
+            BallSim ball = new BallSim();
+            // Each run has its own table, since lookups remember where the last one was
+            LinearInterpolator table = new LinearInterpolator(InterpolationTable.leadTime);
+            ShotSolver solver = new ShotSolver(range -> table.getInterpolatedValue(toDistance(range)));
+
+            // The hub is at the origin and the robot faces it from -x
+            double range = distance / 39.37007874 + Limelight.targetRadius;
+            double releaseX = -range + velocity * delay;
+
+            double stoppedSpeed = ball.getStationarySpeed(range, BallSim.HOOD_UP_ANGLE);
+            if (!Double.isNaN(stoppedSpeed)) {
+                ball.shoot(releaseX, 0, 0, velocity, stoppedSpeed, BallSim.HOOD_UP_ANGLE);
+                stoppedMiss = ball.getMissDistance(0, 0);
+                stoppedScored = ball.isScored(0, 0);
+            }
+
+            solver.solve(-range, 0, velocity, 0, delay, 0, 0);
+            iterations = solver.getIterations();
+            virtualDistance = toDistance(solver.getRange());
+            double solvedSpeed = ball.getStationarySpeed(solver.getRange(), BallSim.HOOD_UP_ANGLE);
+            if (!Double.isNaN(solvedSpeed)) {
+                ball.shoot(releaseX, 0, solver.getAimAngle(), velocity, solvedSpeed, BallSim.HOOD_UP_ANGLE);
+                timeOfFlight = ball.getTimeOfFlight();
+                solvedMiss = ball.getMissDistance(0, 0);
+                solvedScored = ball.isScored(0, 0);
+            }
+        }
+
+        private static double toDistance(double range) {
+            return 39.37007874 * (range - Limelight.targetRadius);
+        }
+    }
+}
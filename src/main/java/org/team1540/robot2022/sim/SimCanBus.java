@@ -0,0 +1,77 @@
+package org.team1540.robot2022.sim;
+
+import org.team1540.robot2022.utils.CanBusBudget;
+
+/**
+ * SimCanBus counts the frames the {@link SimMotor}s send and receive, so the bandwidth their status frame profiles
+ * use can be checked in simulation. Utilization is measured over one second windows, like the roboRIO reports it, with
+ * every frame taking {@link CanBusBudget#FRAME_BITS}.
+ */
+public class SimCanBus {
+    private static final double WINDOW = 1; // seconds
+
+    private long frames;
+    private double time;
+    private long windowFrames;
+    private double windowTime;
+    private double utilization;
+    private double peakUtilization;
+
+    /**
+     * Puts frames on the bus
+     *
+     * @param count how many frames
+     */
+    void send(int count) {
+        frames += count;
+        windowFrames += count;
+    }
+
+    /**
+     * Advances the bus clock, closing the measurement window when it's full
+     *
+     * @param dt time step in seconds
+     */
+    void advance(double dt) {
+        time += dt;
+        windowTime += dt;
+        if (windowTime >= WINDOW - 1e-9) {
+            utilization = getUtilization(windowFrames, windowTime);
+            peakUtilization = Math.max(peakUtilization, utilization);
+            windowFrames = 0;
+            windowTime = 0;
+        }
+    }
+
+    /**
+     * @return the fraction of the bus used over the last full window
+     */
+    public double getUtilization() {
+        return utilization;
+    }
+
+    /**
+     * @return the highest utilization of any full window so far
+     */
+    public double getPeakUtilization() {
+        return peakUtilization;
+    }
+
+    /**
+     * @return the fraction of the bus used since the simulation started
+     */
+    public double getAverageUtilization() {
+        return time > 0 ? getUtilization(frames, time) : 0;
+    }
+
+    /**
+     * @return the number of frames sent since the simulation started
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    private static double getUtilization(long frames, double seconds) {
+        return frames * CanBusBudget.FRAME_BITS / (CanBusBudget.BIT_RATE * seconds);
+    }
+}
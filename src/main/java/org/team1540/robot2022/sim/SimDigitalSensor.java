@@ -0,0 +1,48 @@
+package org.team1540.robot2022.sim;
+
+import org.team1540.robot2022.io.DigitalSensorIO;
+
+/**
+ * A simulated beam break or limit switch. The interrupt handler runs synchronously when the value changes, so the
+ * simulation stays deterministic.
+ */
+public class SimDigitalSensor implements DigitalSensorIO {
+    private boolean value = true;
+    private Runnable handler;
+    private boolean interruptsEnabled;
+
+    /**
+     * Sets the value, running the interrupt handler if it changed
+     *
+     * @param value the raw value (false when a beam break is blocked or a magnet sensor is tripped)
+     */
+    public void set(boolean value) {
+        if (value == this.value) {
+            return;
+        }
+        this.value = value;
+        if (interruptsEnabled && handler != null) {
+            handler.run();
+        }
+    }
+
+    @Override
+    public boolean get() {
+        return value;
+    }
+
+    @Override
+    public void setInterruptHandler(Runnable handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void enableInterrupts() {
+        interruptsEnabled = true;
+    }
+
+    @Override
+    public void disableInterrupts() {
+        interruptsEnabled = false;
+    }
+}
@@ -0,0 +1,75 @@
+package org.team1540.robot2022.sim;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation2d;
+import org.team1540.robot2022.io.GyroIO;
+
+/**
+ * A simulated NavX. {@link SimHardware} turns it with the simulated drivetrain.
+ */
+public class SimGyro implements GyroIO {
+    private double angle;
+    private double yawOffset;
+    private double rate;
+    private float pitch;
+    private float roll;
+
+    /**
+     * Turns the gyro
+     *
+     * @param deltaRadians counter-clockwise change in heading
+     * @param dt           time the change took in seconds
+     */
+    public void rotate(double deltaRadians, double dt) {
+        angle += deltaRadians;
+        rate = deltaRadians / dt;
+    }
+
+    public void setPitch(float pitch) {
+        this.pitch = pitch;
+    }
+
+    public void setRoll(float roll) {
+        this.roll = roll;
+    }
+
+    @Override
+    public double getYawRadians() {
+        return MathUtil.angleModulus(angle - yawOffset);
+    }
+
+    @Override
+    public double getAngleRadians() {
+        return angle;
+    }
+
+    @Override
+    public double getRateRadians() {
+        return rate;
+    }
+
+    @Override
+    public Rotation2d getRotation2d() {
+        return new Rotation2d(getYawRadians());
+    }
+
+    @Override
+    public float getPitch() {
+        return pitch;
+    }
+
+    @Override
+    public float getRoll() {
+        return roll;
+    }
+
+    @Override
+    public void reset() {
+        zeroYaw();
+    }
+
+    @Override
+    public void zeroYaw() {
+        yawOffset = angle;
+    }
+}
@@ -0,0 +1,226 @@
+package org.team1540.robot2022.sim;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import org.team1540.robot2022.Constants.ClimberConstants;
+import org.team1540.robot2022.Constants.DriveConstants;
+import org.team1540.robot2022.Constants.FieldConstants;
+import org.team1540.robot2022.Constants.ShooterConstants;
+import org.team1540.robot2022.io.Hardware;
+import org.team1540.robot2022.io.SolenoidIO;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * SimHardware is a deterministic simulation of the robot's devices and the field around it.
+ * <p>
+ * Each {@link #simulationPeriodic()} advances everything by one 20ms robot loop, independent of the wall clock. The
+ * motors run 1ms steps inside that, the drive motors' voltages move a {@link DrivetrainSim} that turns the gyro,
+ * the shooter motors spin {@link FlywheelSim}s, the climber arms stall against their hard stops and trip their
+ * magnet sensors at the top, and the Limelight and LIDAR see the hub from wherever the robot is. Devices are created
+ * once per ID, in ID order, so every run is the same.
+ */
+public class SimHardware implements Hardware {
+    public static final double LOOP_PERIOD = 0.02;
+    private static final int MOTOR_STEPS_PER_LOOP = 20;
+
+    public static final Translation2d HUB = new Translation2d(FieldConstants.HUB_X, FieldConstants.HUB_Y);
+
+    private static final double CLIMBER_TRAVEL = 200000; // ticks from the bottom hard stop to the top
+    private static final double CLIMBER_SENSOR_RANGE = 5000; // ticks below the top where the magnet sensor trips
+
+    private final Map<Integer, SimMotor> motors = new TreeMap<>();
+    private final Map<Integer, SimDigitalSensor> digitalInputs = new TreeMap<>();
+    private final Map<Integer, SimSolenoid> solenoids = new TreeMap<>();
+    private final SimGyro gyro = new SimGyro();
+    private final SimLidar lidar = new SimLidar();
+    private final SimLimelight limelight = new SimLimelight();
+    private final DrivetrainSim drivetrain = new DrivetrainSim();
+    private final Map<Integer, FlywheelSim> flywheels = new TreeMap<>();
+    private final SimCanBus canBus = new SimCanBus();
+
+    private long loops;
+
+    @Override
+    public SimMotor motor(int deviceNumber) {
+        return motors.computeIfAbsent(deviceNumber, this::createMotor);
+    }
+
+    private SimMotor createMotor(int deviceNumber) {
+        SimMotor motor = new SimMotor(deviceNumber);
+        if (deviceNumber == ClimberConstants.Motors.LEFT || deviceNumber == ClimberConstants.Motors.RIGHT) {
+            // Positive output lowers the arms, and the robot starts with them down
+            motor.setHardStops(-CLIMBER_TRAVEL, 0);
+        } else if (deviceNumber == ShooterConstants.FRONT || deviceNumber == ShooterConstants.REAR) {
+            flywheels.put(deviceNumber, new FlywheelSim(motor));
+        }
+        return motor;
+    }
+
+    @Override
+    public SimDigitalSensor digitalInput(int channel) {
+        return digitalInputs.computeIfAbsent(channel, c -> new SimDigitalSensor());
+    }
+
+    @Override
+    public SolenoidIO solenoid(int channel) {
+        return solenoids.computeIfAbsent(channel, c -> new SimSolenoid());
+    }
+
+    @Override
+    public SolenoidIO doubleSolenoid(int forwardChannel, int reverseChannel) {
+        return solenoids.computeIfAbsent(forwardChannel, c -> new SimSolenoid());
+    }
+
+    @Override
+    public SimGyro gyro() {
+        return gyro;
+    }
+
+    @Override
+    public SimLidar lidar() {
+        return lidar;
+    }
+
+    @Override
+    public SimLimelight limelight(String name) {
+        return limelight;
+    }
+
+    @Override
+    public Collection<SimMotor> getMotors() {
+        return motors.values();
+    }
+
+    /**
+     * @return the bus the motors' frames are counted on
+     */
+    public SimCanBus getCanBus() {
+        return canBus;
+    }
+
+    /**
+     * @return the robot's actual pose on the field, which odometry estimates
+     */
+    public Pose2d getPose() {
+        return drivetrain.getPose();
+    }
+
+    /**
+     * Moves the robot, e.g. to the start of an auto path
+     *
+     * @param pose the robot's new pose
+     */
+    public void setPose(Pose2d pose) {
+        drivetrain.setPose(pose);
+    }
+
+    /**
+     * @param deviceNumber CAN ID of the flywheel's motor
+     * @return the flywheel, or null if its motor hasn't been created
+     */
+    public FlywheelSim getFlywheel(int deviceNumber) {
+        return flywheels.get(deviceNumber);
+    }
+
+    /**
+     * Shoots a ball through the flywheels, slowing them down
+     */
+    public void shootBall() {
+        for (FlywheelSim flywheel : flywheels.values()) {
+            flywheel.shootBall();
+        }
+    }
+
+    /**
+     * @return the number of loops simulated so far
+     */
+    public long getLoops() {
+        return loops;
+    }
+
+    /**
+     * @return the simulated time in seconds
+     */
+    public double getTime() {
+        return loops * LOOP_PERIOD;
+    }
+
+    @Override
+    public void simulationPeriodic() {
+        double dt = LOOP_PERIOD / MOTOR_STEPS_PER_LOOP;
+        double heading = drivetrain.getHeading();
+        for (int step = 0; step < MOTOR_STEPS_PER_LOOP; step++) {
+            for (SimMotor motor : motors.values()) {
+                motor.updateOutput();
+            }
+            updateDrivetrain(dt);
+            for (FlywheelSim flywheel : flywheels.values()) {
+                flywheel.update(dt);
+            }
+            for (SimMotor motor : motors.values()) {
+                motor.updatePlant(dt);
+                motor.updateStatusFrames(dt, canBus);
+            }
+            canBus.advance(dt);
+        }
+        gyro.rotate(drivetrain.getHeading() - heading, LOOP_PERIOD);
+
+        Pose2d pose = drivetrain.getPose();
+        updateClimberSensor(ClimberConstants.Sensors.LEFT, ClimberConstants.Motors.LEFT);
+        updateClimberSensor(ClimberConstants.Sensors.RIGHT, ClimberConstants.Motors.RIGHT);
+        limelight.update(pose, HUB);
+        lidar.update(pose, HUB);
+        loops++;
+    }
+
+    /**
+     * Drives the drivetrain model with the drive motors' voltages and feeds its wheel travel back to their sensors
+     */
+    private void updateDrivetrain(double dt) {
+        SimMotor leftFront = motors.get(DriveConstants.Motors.LEFT_FRONT);
+        SimMotor rightFront = motors.get(DriveConstants.Motors.RIGHT_FRONT);
+        if (leftFront == null || rightFront == null) {
+            return;
+        }
+        double leftVolts = leftFront.getAppliedVoltage();
+        double rightVolts = rightFront.getAppliedVoltage();
+        boolean brakeMode = leftFront.isBrakeMode();
+        drivetrain.update(leftVolts, rightVolts, brakeMode, dt);
+
+        double leftCurrent = driveCurrent(leftVolts, drivetrain.getLeftVelocity(), brakeMode);
+        double rightCurrent = driveCurrent(rightVolts, drivetrain.getRightVelocity(), brakeMode);
+        setDriveSensors(DriveConstants.Motors.LEFT_FRONT, drivetrain.getLeftDistance(), drivetrain.getLeftVelocity(), leftCurrent);
+        setDriveSensors(DriveConstants.Motors.LEFT_REAR, drivetrain.getLeftDistance(), drivetrain.getLeftVelocity(), leftCurrent);
+        setDriveSensors(DriveConstants.Motors.RIGHT_FRONT, drivetrain.getRightDistance(), drivetrain.getRightVelocity(), rightCurrent);
+        setDriveSensors(DriveConstants.Motors.RIGHT_REAR, drivetrain.getRightDistance(), drivetrain.getRightVelocity(), rightCurrent);
+    }
+
+    /**
+     * @return each motor's current, from the voltage left over after back EMF
+     */
+    private static double driveCurrent(double volts, double velocity, boolean brakeMode) {
+        if (volts == 0 && !brakeMode) {
+            return 0;
+        }
+        return (volts - DriveConstants.KV_VOLT_SECONDS_PER_METER * velocity) / SimMotor.RESISTANCE;
+    }
+
+    private void setDriveSensors(int deviceNumber, double meters, double metersPerSecond, double current) {
+        SimMotor motor = motors.get(deviceNumber);
+        if (motor != null) {
+            motor.setSensorState(meters * DriveConstants.ENCODER_TICKS_PER_METER,
+                    metersPerSecond * DriveConstants.ENCODER_TICKS_PER_METER / 10, current);
+        }
+    }
+
+    private void updateClimberSensor(int channel, int motorId) {
+        SimDigitalSensor sensor = digitalInputs.get(channel);
+        SimMotor motor = motors.get(motorId);
+        if (sensor != null && motor != null) {
+            sensor.set(motor.getRotorPosition() > -CLIMBER_TRAVEL + CLIMBER_SENSOR_RANGE);
+        }
+    }
+}
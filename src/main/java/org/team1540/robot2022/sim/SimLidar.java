@@ -0,0 +1,62 @@
+package org.team1540.robot2022.sim;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import org.team1540.robot2022.Constants.FieldConstants;
+import org.team1540.robot2022.io.LidarIO;
+import org.team1540.robot2022.utils.Telemetry;
+
+/**
+ * A simulated LIDAR that measures the distance to the side of the hub when the robot is facing it
+ */
+public class SimLidar implements LidarIO {
+    private static final double BEAM_HALF_WIDTH = Math.toRadians(3);
+    private static final double MAX_RANGE = 1574; // 40m in inches
+
+    private double distance = MAX_RANGE;
+    private double lastDistance = MAX_RANGE;
+
+    private final Telemetry.NumberEntry distanceTelemetry = Telemetry.registerNumber("lidar/distance", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry rawDistanceTelemetry = Telemetry.registerNumber("lidar/rawDistance", Telemetry.Rate.DEBUG);
+
+    /**
+     * Updates the measured distance from the robot's position
+     *
+     * @param pose the robot's actual pose
+     * @param hub  the center of the hub
+     */
+    public void update(Pose2d pose, Translation2d hub) {
+        Translation2d toHub = hub.minus(pose.getTranslation());
+        double bearing = Math.atan2(toHub.getY(), toHub.getX()) - pose.getRotation().getRadians();
+        if (Math.abs(Math.IEEEremainder(bearing, 2 * Math.PI)) < BEAM_HALF_WIDTH) {
+            distance = (toHub.getNorm() - FieldConstants.LOWER_HUB_RADIUS) * 39.37007874;
+        } else {
+            distance = MAX_RANGE;
+        }
+    }
+
+    @Override
+    public void startMeasuring() {
+    }
+
+    @Override
+    public void stopMeasuring() {
+    }
+
+    @Override
+    public double getDistance() {
+        return distance;
+    }
+
+    @Override
+    public double getLastDistance() {
+        return lastDistance;
+    }
+
+    @Override
+    public void updateSmartDashboardValues() {
+        lastDistance = distance;
+        distanceTelemetry.set(distance);
+        rawDistanceTelemetry.set(distance);
+    }
+}
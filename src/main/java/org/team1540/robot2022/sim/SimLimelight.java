@@ -0,0 +1,162 @@
+package org.team1540.robot2022.sim;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import org.team1540.robot2022.io.LimelightFrame;
+import org.team1540.robot2022.io.LimelightFrameBuffer;
+import org.team1540.robot2022.io.LimelightIO;
+import org.team1540.robot2022.utils.Limelight;
+
+/**
+ * A simulated Limelight that sees the upper hub's vision tape from the robot's position. It only sees the target
+ * when its LEDs are on. Like the real one, its values lag behind the robot, each frame is published a loop after it's
+ * captured.
+ * <p>
+ * The corners are those of each strip of tape facing the camera, like a Limelight set to send every contour's
+ * corners.
+ */
+public class SimLimelight implements LimelightIO {
+    private static final double LATENCY = SimHardware.LOOP_PERIOD * 1000;
+    private static final int STRIPS = 16; // Evenly spaced around the upper hub
+    private static final double STRIP_HALF_WIDTH = 0.0635; // 5in wide, meters
+    private static final double STRIP_HALF_HEIGHT = 0.0254; // 2in tall
+    private static final double MAX_VIEW_ANGLE = Math.toRadians(70); // More edge-on than this doesn't reflect enough
+
+    private final LimelightFrameBuffer frames = new LimelightFrameBuffer();
+    private final LimelightFrame captured = new LimelightFrame();
+    private final double[] corners = new double[LimelightFrame.MAX_CORNERS * 2];
+    private double ledMode = Limelight.LEDMode.OFF;
+    private long pipeline;
+
+    public SimLimelight() {
+        captured.setLatency(LATENCY);
+    }
+
+    /**
+     * Publishes the last captured frame, and captures the target from the robot's position
+     *
+     * @param pose the robot's actual pose
+     * @param hub  the center of the hub
+     */
+    public void update(Pose2d pose, Translation2d hub) {
+        frames.publish(captured);
+
+        Translation2d toHub = hub.minus(pose.getTranslation());
+        double bearing = Math.IEEEremainder(Math.atan2(toHub.getY(), toHub.getX()) - pose.getRotation().getRadians(), 2 * Math.PI);
+        double distance = Math.max(toHub.getNorm() - Limelight.targetRadius, 0.1);
+        double x = -bearing; // tx is positive when the target is to the right
+        double y = Math.atan((Limelight.targetHeight - Limelight.limelightHeight) / distance) - Limelight.limelightAngle;
+
+        int cornerCount = ledMode == Limelight.LEDMode.ON ? findCorners(pose, hub) : 0;
+        if (cornerCount == 0) {
+            captured.setTx(0);
+            captured.setTy(0);
+            captured.setTa(0);
+            captured.setCorners(corners, 0);
+            return;
+        }
+        captured.setTx(Math.toDegrees(x));
+        captured.setTy(Math.toDegrees(y));
+
+        // Shoelace area of each strip's corners
+        double area = 0;
+        for (int i = 0; i < cornerCount * 2; i += 8) {
+            double stripArea = 0;
+            for (int corner = 0; corner < 8; corner += 2) {
+                int next = (corner + 2) % 8;
+                stripArea += corners[i + corner] * corners[i + next + 1] - corners[i + next] * corners[i + corner + 1];
+            }
+            area += Math.abs(stripArea) / 2;
+        }
+        captured.setTa(area / (Limelight.RESOLUTION_X * Limelight.RESOLUTION_Y) * 100);
+        captured.setCorners(corners, cornerCount);
+    }
+
+    /**
+     * Finds the pixel corners of each strip of tape that faces the camera and is entirely in view
+     *
+     * @return the number of corners
+     */
+    private int findCorners(Pose2d pose, Translation2d hub) {
+        int cornerCount = 0;
+        for (int strip = 0; strip < STRIPS && cornerCount + 4 <= LimelightFrame.MAX_CORNERS; strip++) {
+            double angle = strip * 2 * Math.PI / STRIPS;
+            double stripX = hub.getX() + Limelight.targetRadius * Math.cos(angle);
+            double stripY = hub.getY() + Limelight.targetRadius * Math.sin(angle);
+            double toCameraX = pose.getX() - stripX;
+            double toCameraY = pose.getY() - stripY;
+            double facing = (toCameraX * Math.cos(angle) + toCameraY * Math.sin(angle)) / Math.hypot(toCameraX, toCameraY);
+            if (facing < Math.cos(MAX_VIEW_ANGLE)) {
+                continue;
+            }
+
+            boolean inView = true;
+            for (int corner = 0; corner < 4 && inView; corner++) {
+                // Top left, top right, bottom right, bottom left
+                double side = corner == 0 || corner == 3 ? 1 : -1;
+                double height = corner < 2 ? STRIP_HALF_HEIGHT : -STRIP_HALF_HEIGHT;
+                double cornerAngle = angle + side * STRIP_HALF_WIDTH / Limelight.targetRadius;
+                inView = projectCorner(pose,
+                        hub.getX() + Limelight.targetRadius * Math.cos(cornerAngle),
+                        hub.getY() + Limelight.targetRadius * Math.sin(cornerAngle),
+                        Limelight.targetHeight + height,
+                        cornerCount + corner);
+            }
+            if (inView) {
+                cornerCount += 4;
+            }
+        }
+        return cornerCount;
+    }
+
+    /**
+     * Projects a point on the field into the camera's image
+     *
+     * @param index the corner to write the pixel to
+     * @return whether the point is in view
+     */
+    private boolean projectCorner(Pose2d pose, double fieldX, double fieldY, double fieldZ, int index) {
+        double heading = pose.getRotation().getRadians();
+        double relativeX = fieldX - pose.getX();
+        double relativeY = fieldY - pose.getY();
+        double forward = relativeX * Math.cos(heading) + relativeY * Math.sin(heading);
+        double left = -relativeX * Math.sin(heading) + relativeY * Math.cos(heading);
+        double up = fieldZ - Limelight.limelightHeight;
+
+        double cameraForward = forward * Math.cos(Limelight.limelightAngle) + up * Math.sin(Limelight.limelightAngle);
+        double cameraUp = -forward * Math.sin(Limelight.limelightAngle) + up * Math.cos(Limelight.limelightAngle);
+        if (cameraForward <= 0) {
+            return false;
+        }
+        double pixelX = Limelight.CENTER_X - left / cameraForward / Limelight.VIEWPORT_SCALE_X;
+        double pixelY = Limelight.CENTER_Y - cameraUp / cameraForward / Limelight.VIEWPORT_SCALE_Y;
+        corners[index * 2] = pixelX;
+        corners[index * 2 + 1] = pixelY;
+        return pixelX >= 0 && pixelX < Limelight.RESOLUTION_X && pixelY >= 0 && pixelY < Limelight.RESOLUTION_Y;
+    }
+
+    @Override
+    public boolean read(LimelightFrame frame) {
+        return frames.read(frame);
+    }
+
+    @Override
+    public double getLedMode() {
+        return ledMode;
+    }
+
+    @Override
+    public void setLedMode(int mode) {
+        ledMode = mode;
+    }
+
+    @Override
+    public long getPipeline() {
+        return pipeline;
+    }
+
+    @Override
+    public void setPipeline(double id) {
+        pipeline = Math.round(id);
+    }
+}
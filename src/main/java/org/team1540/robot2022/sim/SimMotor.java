@@ -0,0 +1,440 @@
+package org.team1540.robot2022.sim;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.NeutralMode;
+import org.team1540.robot2022.Constants;
+import org.team1540.robot2022.Constants.DriveConstants;
+import org.team1540.robot2022.io.MotorIO;
+import org.team1540.robot2022.io.StatusFrameProfile;
+import org.team1540.robot2022.utils.CanBusBudget;
+import org.team1540.robot2022.utils.CurrentLimitConfig;
+
+import java.util.Arrays;
+
+/**
+ * SimMotor is a simulated Falcon 500 that runs without the Phoenix simulation libraries.
+ * <p>
+ * {@link SimHardware} steps it at 1 kHz, the rate the Talon runs its closed loops, so PIDF gains behave like they do
+ * on the robot. Unless something else drives its sensor through {@link #setSensorState}, it spins a DC motor model
+ * with a load inertia and optional hard stops. Everything is in the controller's frame, so inversion is stored but
+ * doesn't change anything.
+ * <p>
+ * Once {@link SimHardware} starts stepping its status frames, sensor reads return what the last status frame carrying
+ * them said, like on the robot, and the frames are counted on a {@link SimCanBus}. The closed loop always runs on the
+ * live values, since the Talon doesn't wait for the bus. Tools that step a SimMotor themselves read the live values.
+ */
+public class SimMotor implements MotorIO {
+    public static final double FREE_SPEED_RADIANS = 6380 * 2 * Math.PI / 60;
+    public static final double STALL_TORQUE = 4.69;
+    public static final double STALL_CURRENT = 257;
+    public static final double FREE_CURRENT = 1.5;
+    public static final double RESISTANCE = Constants.MOTOR_VOLTAGE / STALL_CURRENT;
+    public static final double KV_RADIANS_PER_VOLT = FREE_SPEED_RADIANS / Constants.MOTOR_VOLTAGE;
+    public static final double KT_NM_PER_AMP = STALL_TORQUE / STALL_CURRENT;
+    public static final double TICKS_PER_RADIAN = 2048 / (2 * Math.PI);
+
+    private static final int P = 0, I = 1, D = 2, F = 3;
+    private static final int GENERAL = 0, FEEDBACK = 1, CURRENT = 2, PIDF = 3, UNUSED = 4, CONTROL = 5;
+
+    private final int deviceNumber;
+    private final double[][] gains = new double[2][4];
+    private int slot = 0;
+    private ControlMode mode = ControlMode.PercentOutput;
+    private double demand;
+    private SimMotor leader;
+    private NeutralMode neutralMode = NeutralMode.Coast;
+    private boolean inverted;
+
+    private double integral;
+    private double lastError;
+    private double closedLoopError;
+    private double output;
+
+    private CurrentLimiter statorLimiter;
+    private CurrentLimiter supplyLimiter;
+    private boolean reverseSoftLimitEnabled;
+    private double reverseSoftLimit;
+
+    // Plant state, in ticks so the sensor doesn't accumulate conversion error
+    private double rotorPosition;
+    private double sensorOffset;
+    private double velocity; // ticks per 100ms
+    private double current;
+    private double inertia = 0.0005; // kg m^2 at the motor shaft
+    private double reverseHardStop = Double.NEGATIVE_INFINITY;
+    private double forwardHardStop = Double.POSITIVE_INFINITY;
+    private boolean externallyDriven;
+
+    // What the robot last heard in each status frame
+    private StatusFrameProfile statusFrames = StatusFrameProfile.DEFAULT;
+    private final double[] sinceFrame = new double[6]; // ms since each kind of frame was sent
+    private boolean sendingFrames;
+    private double reportedOutput;
+    private double reportedRotorPosition;
+    private double reportedVelocity;
+    private double reportedCurrent;
+    private double reportedClosedLoopError;
+
+    public SimMotor(int deviceNumber) {
+        this.deviceNumber = deviceNumber;
+    }
+
+    public int getDeviceNumber() {
+        return deviceNumber;
+    }
+
+    /**
+     * Sets the inertia the built in model spins
+     *
+     * @param inertia load inertia reflected to the motor shaft in kg m^2
+     */
+    public void setInertia(double inertia) {
+        this.inertia = inertia;
+    }
+
+    /**
+     * Stops the built in model at mechanical limits, where the motor stalls
+     *
+     * @param reverseTicks the lowest rotor position
+     * @param forwardTicks the highest rotor position
+     */
+    public void setHardStops(double reverseTicks, double forwardTicks) {
+        this.reverseHardStop = reverseTicks;
+        this.forwardHardStop = forwardTicks;
+    }
+
+    /**
+     * Sets the rotor state from an external plant model instead of the built in one
+     *
+     * @param rotorPositionTicks rotor position, ignoring {@link #setSelectedSensorPosition}
+     * @param velocityTicks      velocity in ticks per 100ms
+     * @param statorCurrent      stator current in amps
+     */
+    public void setSensorState(double rotorPositionTicks, double velocityTicks, double statorCurrent) {
+        externallyDriven = true;
+        rotorPosition = rotorPositionTicks;
+        velocity = velocityTicks;
+        current = statorCurrent;
+    }
+
+    /**
+     * @return rotor position in ticks, ignoring {@link #setSelectedSensorPosition}
+     */
+    public double getRotorPosition() {
+        return rotorPosition;
+    }
+
+    /**
+     * @return the voltage the controller is applying, assuming a 12 volt battery
+     */
+    public double getAppliedVoltage() {
+        return output * Constants.MOTOR_VOLTAGE;
+    }
+
+    public boolean isBrakeMode() {
+        return neutralMode == NeutralMode.Brake;
+    }
+
+    /**
+     * Runs one cycle of the controller: follows the leader, or runs the open or closed loop
+     */
+    void updateOutput() {
+        double percent;
+        if (leader != null) {
+            percent = leader.output;
+        } else if (mode == ControlMode.PercentOutput) {
+            percent = demand;
+        } else if (mode == ControlMode.Velocity) {
+            percent = runClosedLoop(velocity);
+        } else if (mode == ControlMode.Position) {
+            percent = runClosedLoop(rotorPosition - sensorOffset);
+        } else {
+            percent = 0;
+        }
+        percent = Math.max(-1, Math.min(1, percent));
+        if (reverseSoftLimitEnabled && percent < 0 && rotorPosition - sensorOffset <= reverseSoftLimit) {
+            percent = 0;
+        }
+        output = percent;
+    }
+
+    private double runClosedLoop(double measured) {
+        double[] slotGains = gains[slot];
+        double error = demand - measured;
+        integral += error;
+        double derivative = error - lastError;
+        lastError = error;
+        closedLoopError = error;
+        return (slotGains[F] * demand + slotGains[P] * error + slotGains[I] * integral + slotGains[D] * derivative) / 1023;
+    }
+
+    /**
+     * Advances the built in DC motor model
+     *
+     * @param dt time step in seconds
+     */
+    void updatePlant(double dt) {
+        if (externallyDriven) {
+            return;
+        }
+        double omega = velocity * 10 / TICKS_PER_RADIAN;
+        boolean coasting = output == 0 && neutralMode == NeutralMode.Coast;
+        double amps = coasting ? 0 : (getAppliedVoltage() - omega / KV_RADIANS_PER_VOLT) / RESISTANCE;
+        amps = limitCurrent(amps, dt);
+
+        // Friction slows the rotor down, but never reverses it
+        double newOmega = omega + KT_NM_PER_AMP * amps / inertia * dt;
+        double frictionStep = KT_NM_PER_AMP * FREE_CURRENT / inertia * dt;
+        if (Math.abs(newOmega) <= frictionStep) {
+            newOmega = 0;
+        } else {
+            newOmega -= Math.copySign(frictionStep, newOmega);
+        }
+
+        rotorPosition += newOmega * dt * TICKS_PER_RADIAN;
+        if (rotorPosition >= forwardHardStop && newOmega > 0) {
+            rotorPosition = forwardHardStop;
+            newOmega = 0;
+        } else if (rotorPosition <= reverseHardStop && newOmega < 0) {
+            rotorPosition = reverseHardStop;
+            newOmega = 0;
+        }
+        velocity = newOmega * TICKS_PER_RADIAN / 10;
+        current = amps;
+    }
+
+    /**
+     * Sends whichever status frames are due, updating what the sensor reads return, and the control frame from the
+     * roboRIO
+     *
+     * @param dt  time step in seconds
+     * @param bus the bus to count the frames on
+     */
+    void updateStatusFrames(double dt, SimCanBus bus) {
+        if (!sendingFrames) {
+            // Everything goes out on the first step
+            sendingFrames = true;
+            Arrays.fill(sinceFrame, Double.POSITIVE_INFINITY);
+        }
+        double ms = dt * 1000;
+        if (isFrameDue(GENERAL, statusFrames.generalMs, ms, bus, 1)) {
+            reportedOutput = output;
+        }
+        if (isFrameDue(FEEDBACK, statusFrames.feedbackMs, ms, bus, 1)) {
+            reportedRotorPosition = rotorPosition;
+            reportedVelocity = velocity;
+        }
+        if (isFrameDue(CURRENT, statusFrames.currentMs, ms, bus, 1)) {
+            reportedCurrent = Math.abs(current);
+        }
+        if (isFrameDue(PIDF, statusFrames.pidfMs, ms, bus, 1)) {
+            reportedClosedLoopError = closedLoopError;
+        }
+        isFrameDue(UNUSED, statusFrames.unusedMs, ms, bus, StatusFrameProfile.UNUSED_FRAMES);
+        isFrameDue(CONTROL, CanBusBudget.CONTROL_PERIOD_MS, ms, bus, 1);
+    }
+
+    private boolean isFrameDue(int frame, int periodMs, double ms, SimCanBus bus, int count) {
+        sinceFrame[frame] += ms;
+        if (sinceFrame[frame] < periodMs - 1e-9) {
+            return false;
+        }
+        sinceFrame[frame] = Double.isInfinite(sinceFrame[frame]) ? 0 : sinceFrame[frame] - periodMs;
+        bus.send(count);
+        return true;
+    }
+
+    /**
+     * Applies stator and supply current limits. The supply only provides the stator current times the duty cycle, so
+     * at low output the stator current can be well over the supply limit.
+     *
+     * @param amps stator current before limiting
+     * @param dt   time step in seconds
+     * @return stator current after limiting
+     */
+    double limitCurrent(double amps, double dt) {
+        if (statorLimiter != null) {
+            amps = statorLimiter.apply(amps, dt);
+        }
+        if (supplyLimiter != null && output != 0) {
+            double duty = Math.abs(output);
+            amps = supplyLimiter.apply(amps * duty, dt) / duty;
+        }
+        return amps;
+    }
+
+    @Override
+    public ErrorCode configFactoryDefault() {
+        for (double[] slotGains : gains) {
+            Arrays.fill(slotGains, 0);
+        }
+        statorLimiter = null;
+        supplyLimiter = null;
+        reverseSoftLimitEnabled = false;
+        neutralMode = NeutralMode.Coast;
+        return ErrorCode.OK;
+    }
+
+    @Override
+    public void configCurrentLimit(CurrentLimitConfig config) {
+        configFactoryDefault();
+        statorLimiter = new CurrentLimiter(config.statorLimit, config.statorThreshCurrent, config.statorThreshTime);
+        supplyLimiter = new CurrentLimiter(config.supplyLimit, config.supplyThreshCurrent, config.supplyThreshTime);
+    }
+
+    @Override
+    public void setNeutralMode(NeutralMode mode) {
+        neutralMode = mode;
+    }
+
+    @Override
+    public void setInverted(boolean inverted) {
+        this.inverted = inverted;
+    }
+
+    public boolean getInverted() {
+        return inverted;
+    }
+
+    @Override
+    public void follow(MotorIO leader) {
+        this.leader = (SimMotor) leader;
+    }
+
+    @Override
+    public ErrorCode config_kP(int slotIdx, double value) {
+        gains[slotIdx][P] = value;
+        return ErrorCode.OK;
+    }
+
+    @Override
+    public ErrorCode config_kI(int slotIdx, double value) {
+        gains[slotIdx][I] = value;
+        return ErrorCode.OK;
+    }
+
+    @Override
+    public ErrorCode config_kD(int slotIdx, double value) {
+        gains[slotIdx][D] = value;
+        return ErrorCode.OK;
+    }
+
+    @Override
+    public ErrorCode config_kF(int slotIdx, double value) {
+        gains[slotIdx][F] = value;
+        return ErrorCode.OK;
+    }
+
+    @Override
+    public ErrorCode configReverseSoftLimitThreshold(double reverseSensorLimit) {
+        reverseSoftLimit = reverseSensorLimit;
+        return ErrorCode.OK;
+    }
+
+    @Override
+    public ErrorCode configReverseSoftLimitEnable(boolean enable) {
+        reverseSoftLimitEnabled = enable;
+        return ErrorCode.OK;
+    }
+
+    @Override
+    public void set(ControlMode mode, double value) {
+        if (mode != this.mode) {
+            integral = 0;
+            lastError = 0;
+            closedLoopError = 0;
+        }
+        this.mode = mode;
+        this.demand = value;
+        leader = null;
+    }
+
+    @Override
+    public void setPercent(double percent) {
+        set(ControlMode.PercentOutput, percent);
+    }
+
+    @Override
+    public void setVoltage(double voltage) {
+        set(ControlMode.PercentOutput, voltage / Constants.MOTOR_VOLTAGE);
+    }
+
+    @Override
+    public void setVelocityRPM(double rpm) {
+        set(ControlMode.Velocity, (rpm * 2048.0) / 600);
+    }
+
+    @Override
+    public void setVelocityMetersPerSecond(double velocityMetersPerSecond) {
+        slot = 0;
+        set(ControlMode.Velocity, velocityMetersPerSecond * DriveConstants.ENCODER_TICKS_PER_METER / 10);
+    }
+
+    @Override
+    public void setPositionMeters(double positionMeters) {
+        slot = 1;
+        set(ControlMode.Position, positionMeters * DriveConstants.ENCODER_TICKS_PER_METER);
+    }
+
+    @Override
+    public double getSelectedSensorPosition() {
+        return (sendingFrames ? reportedRotorPosition : rotorPosition) - sensorOffset;
+    }
+
+    @Override
+    public double readSelectedSensorPositionNow() {
+        return getSelectedSensorPosition();
+    }
+
+    @Override
+    public double getSelectedSensorVelocity() {
+        return sendingFrames ? reportedVelocity : velocity;
+    }
+
+    @Override
+    public ErrorCode setSelectedSensorPosition(double sensorPos) {
+        sensorOffset = rotorPosition - sensorPos;
+        return ErrorCode.OK;
+    }
+
+    @Override
+    public double getClosedLoopError() {
+        return sendingFrames ? reportedClosedLoopError : closedLoopError;
+    }
+
+    @Override
+    public double getStatorCurrent() {
+        return sendingFrames ? reportedCurrent : Math.abs(current);
+    }
+
+    @Override
+    public double getMotorOutputPercent() {
+        return sendingFrames ? reportedOutput : output;
+    }
+
+    @Override
+    public double getDistanceMeters() {
+        return getSelectedSensorPosition() / DriveConstants.ENCODER_TICKS_PER_METER;
+    }
+
+    @Override
+    public double getRateMetersPerSecond() {
+        return getSelectedSensorVelocity() * 10 / DriveConstants.ENCODER_TICKS_PER_METER;
+    }
+
+    @Override
+    public double getVelocityRPM() {
+        return (getSelectedSensorVelocity() / 2048.0) * 600;
+    }
+
+    @Override
+    public void configStatusFrames(StatusFrameProfile profile) {
+        statusFrames = profile;
+    }
+
+    @Override
+    public StatusFrameProfile getStatusFrameProfile() {
+        return statusFrames;
+    }
+}
@@ -0,0 +1,87 @@
+package org.team1540.robot2022.sim;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import org.team1540.robot2022.Robot;
+import org.team1540.robot2022.RobotContainer;
+import org.team1540.robot2022.utils.AutoSequence;
+import org.team1540.robot2022.utils.CanBusBudget;
+
+/**
+ * SimRunner runs an auto on {@link SimHardware} as fast as the laptop can, e.g.
+ * ./gradlew simRunner --args="'5 Ball' 15"
+ * <p>
+ * The robot clock is paused and stepped 20ms per loop, so timers and wait commands see match time while the loop runs
+ * thousands of times a second. The same auto always produces the same result.
+ * <p>
+ * It also checks the motors' status frames fit on the CAN bus, exiting with 1 if the simulated bus goes over
+ * {@link CanBusBudget#MAX_UTILIZATION}.
+ */
+public class SimRunner {
+    private static final double DEFAULT_SECONDS = 15;
+
+    public static void main(String[] args) {
+        String autoName = args.length > 0 ? args[0] : "5 Ball";
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : DEFAULT_SECONDS;
+
+        HAL.initialize(500, 0);
+        SimHooks.pauseTiming();
+
+        SimHardware hardware = new SimHardware();
+        Robot robot = new Robot(hardware);
+        robot.robotInit();
+        RobotContainer robotContainer = robot.getRobotContainer();
+        robotContainer.selectAuto(autoName);
+
+        AutoSequence auto = robotContainer.getAutonomousCommand();
+        if (auto.paths.length > 0) { // Autos that don't drive, like 1 Ball, start wherever the robot is
+            Pose2d initialPose = auto.paths[0].getTrajectory().getInitialPose();
+            hardware.setPose(initialPose);
+            robotContainer.drivetrain.resetOdometry(initialPose);
+        }
+
+        enableAutonomous();
+        robot.autonomousInit();
+
+        long start = System.nanoTime();
+        int loops = 0;
+        while (loops * SimHardware.LOOP_PERIOD < seconds && auto.isScheduled()) {
+            SimHooks.stepTiming(SimHardware.LOOP_PERIOD);
+            robot.autonomousPeriodic();
+            robot.robotPeriodic();
+            robot.simulationPeriodic();
+            loops++;
+        }
+        double wallSeconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("[sim] %s %s after %.2fs%n", autoName, auto.isScheduled() ? "timed out" : "finished", loops * SimHardware.LOOP_PERIOD);
+        System.out.printf("[sim] %d loops in %.0fms (%.0f loops/s)%n", loops, wallSeconds * 1000, loops / wallSeconds);
+        System.out.println("[sim] Pose: " + hardware.getPose());
+        System.out.println("[sim] Odometry: " + robotContainer.drivetrain.getPose());
+
+        SimCanBus canBus = hardware.getCanBus();
+        System.out.printf("[sim] CAN utilization: %.1f%% estimated, %.1f%% simulated, %.1f%% peak%n",
+                CanBusBudget.estimateUtilization(hardware.getMotors()) * 100, canBus.getAverageUtilization() * 100, canBus.getPeakUtilization() * 100);
+        if (canBus.getPeakUtilization() > CanBusBudget.MAX_UTILIZATION) {
+            System.out.printf("[sim] CAN utilization is over the %.0f%% budget%n", CanBusBudget.MAX_UTILIZATION * 100);
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Enables the robot in autonomous and waits for the driver station data to show it
+     */
+    private static void enableAutonomous() {
+        DriverStationSim.setDsAttached(true);
+        DriverStationSim.setAutonomous(true);
+        DriverStationSim.setEnabled(true);
+        DriverStationSim.notifyNewData();
+        while (!DriverStation.isAutonomousEnabled()) {
+            DriverStation.waitForData(0.1);
+        }
+    }
+}
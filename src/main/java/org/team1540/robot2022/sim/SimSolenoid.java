@@ -0,0 +1,20 @@
+package org.team1540.robot2022.sim;
+
+import org.team1540.robot2022.io.SolenoidIO;
+
+/**
+ * A simulated single or double solenoid
+ */
+public class SimSolenoid implements SolenoidIO {
+    private boolean on;
+
+    @Override
+    public void set(boolean on) {
+        this.on = on;
+    }
+
+    @Override
+    public boolean get() {
+        return on;
+    }
+}
@@ -0,0 +1,146 @@
+package org.team1540.robot2022.sim;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * SweepGrid parses the name=values arguments of the tuning sweeps, and runs their simulations across all cores.
+ * <p>
+ * Values are comma separated, or start:end:step. Parameters that aren't given keep their default. Every sweep also
+ * takes threads=n and out=file options.
+ */
+class SweepGrid {
+    private static final int RUNS_PER_TASK = 4;
+
+    private final Map<String, double[]> parameters = new LinkedHashMap<>();
+    private final Map<String, String> options = new LinkedHashMap<>();
+
+    /**
+     * @param defaultOut the file to write results to if there's no out option
+     */
+    SweepGrid(String defaultOut) {
+        options.put("threads", Integer.toString(Runtime.getRuntime().availableProcessors()));
+        options.put("out", defaultOut);
+    }
+
+    void addParameter(String name, double defaultValue) {
+        parameters.put(name, new double[]{defaultValue});
+    }
+
+    void addOption(String name, String defaultValue) {
+        options.put(name, defaultValue);
+    }
+
+    void parse(String[] args) {
+        for (String arg : args) {
+            String[] keyValue = arg.split("=", 2);
+            if (keyValue.length != 2) {
+                throw new IllegalArgumentException("Expected name=values, got " + arg);
+            }
+            if (parameters.containsKey(keyValue[0])) {
+                parameters.put(keyValue[0], parseValues(keyValue[1]));
+            } else if (options.containsKey(keyValue[0])) {
+                options.put(keyValue[0], keyValue[1]);
+            } else {
+                throw new IllegalArgumentException("Unknown parameter " + keyValue[0] + ", options are " + parameters.keySet() + " and " + options.keySet());
+            }
+        }
+    }
+
+    String getOption(String name) {
+        return options.get(name);
+    }
+
+    /**
+     * @return the parameter names as a CSV header
+     */
+    String getHeader() {
+        return String.join(",", parameters.keySet());
+    }
+
+    /**
+     * @return every combination of parameter values, in the order they were added, with the last one changing fastest
+     */
+    List<double[]> getCombinations() {
+        List<double[]> combinations = new ArrayList<>();
+        combinations.add(new double[0]);
+        for (double[] values : parameters.values()) {
+            List<double[]> next = new ArrayList<>(combinations.size() * values.length);
+            for (double[] combination : combinations) {
+                for (double value : values) {
+                    double[] extended = new double[combination.length + 1];
+                    System.arraycopy(combination, 0, extended, 0, combination.length);
+                    extended[combination.length] = value;
+                    next.add(extended);
+                }
+            }
+            combinations = next;
+        }
+        return combinations;
+    }
+
+    /**
+     * Runs simulations on a ForkJoinPool. The runs must not share anything they write to.
+     *
+     * @param runs simulations that each store their own result
+     */
+    void runAll(List<? extends Runnable> runs) {
+        ForkJoinPool pool = new ForkJoinPool(Integer.parseInt(getOption("threads")));
+        pool.invoke(new Split(runs, 0, runs.size()));
+        pool.shutdown();
+    }
+
+    /**
+     * @param values comma separated values or start:end:step ranges
+     * @return the values
+     */
+    private static double[] parseValues(String values) {
+        List<Double> parsed = new ArrayList<>();
+        for (String value : values.split(",")) {
+            String[] range = value.split(":");
+            if (range.length == 3) {
+                double start = Double.parseDouble(range[0]);
+                double end = Double.parseDouble(range[1]);
+                double step = Double.parseDouble(range[2]);
+                // Count steps instead of accumulating, and round off floating point noise so values print cleanly
+                long steps = Math.round(Math.floor((end - start) / step + 1e-9));
+                for (long i = 0; i <= steps; i++) {
+                    parsed.add(Math.round((start + i * step) * 1e9) / 1e9);
+                }
+            } else {
+                parsed.add(Double.parseDouble(value));
+            }
+        }
+        return parsed.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    /**
+     * Splits the runs in half until each task has a few left, then runs them
+     */
+    private static class Split extends RecursiveAction {
+        private final List<? extends Runnable> runs;
+        private final int from, to;
+
+        private Split(List<? extends Runnable> runs, int from, int to) {
+            this.runs = runs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= RUNS_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    runs.get(i).run();
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Split(runs, from, middle), new Split(runs, middle, to));
+            }
+        }
+    }
+}
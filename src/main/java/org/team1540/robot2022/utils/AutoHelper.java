@@ -5,6 +5,7 @@ import edu.wpi.first.math.trajectory.Trajectory;
 import edu.wpi.first.math.trajectory.TrajectoryUtil;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.ParallelDeadlineGroup;
 import edu.wpi.first.wpilibj2.command.RamseteCommand;
 import org.team1540.robot2022.RamseteConfig;
@@ -15,11 +16,14 @@ import org.team1540.robot2022.commands.indexer.Indexer;
 import org.team1540.robot2022.commands.intake.Intake;
 import org.team1540.robot2022.commands.intake.IntakeSequence;
 import org.team1540.robot2022.commands.shooter.Shooter;
+import org.team1540.robot2022.commands.shooter.ShooterPrespinCommand;
+import org.team1540.robot2022.commands.vision.Vision;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class AutoHelper {
 
@@ -31,31 +35,36 @@ public class AutoHelper {
      * @param indexer    The indexer subsystem
      * @return The SequentialCommandGroup
      */
-    public static ParallelDeadlineGroup runPath(Drivetrain drivetrain, Intake intake, Indexer indexer, Shooter shooter, AutoPath path) {
+    public static ParallelDeadlineGroup runPath(Drivetrain drivetrain, Intake intake, Indexer indexer, AutoPath path) {
         return new ParallelDeadlineGroup(
                 getRamseteCommand(drivetrain, path),             // Path follow to collect first bal
-                new IntakeSequence(intake, indexer, shooter)
+                new IntakeSequence(intake, indexer)
         );
     }
 
     /**
-     * Returns a ParallelDeadlineGroup that runs intake and indexer while following the given trajectory, and spins up the flywheels to a given speed
+     * Returns a ParallelDeadlineGroup that runs intake and indexer while following the given trajectory, and spins up the flywheels for the
+     * distance to the hub once it has a ball. Auto sequences hold the shooter the whole time, so the shooter's default
+     * command doesn't run during them.
      *
      * @param drivetrain The drivetrain subsystem
      * @param intake     The intake subsystem
      * @param indexer    The indexer subsystem
-     * @param path       the path to follow and get spinup constants from
+     * @param shooter    The shooter subsystem
+     * @param hood       The hood subsystem
+     * @param vision     The vision subsystem, to predict the shot distance
+     * @param limelight  The limelight, to predict the shot distance
+     * @param path       the path to follow and get the hood state from
      * @return The SequentialCommandGroup
      */
-    public static ParallelDeadlineGroup runPathWithSpinup(Drivetrain drivetrain, Intake intake, Indexer indexer, Shooter shooter, Hood hood, AutoPath path) {
+    public static ParallelDeadlineGroup runPathWithSpinup(Drivetrain drivetrain, Intake intake, Indexer indexer, Shooter shooter, Hood hood, Vision vision, Limelight limelight, AutoPath path) {
         return new ParallelDeadlineGroup(
                 getRamseteCommand(drivetrain, path),             // Path follow to collect first bal
                 new IntakeSequence(intake, indexer),
 
                 // Prepare to shoot
                 hood.commandSet(path.hoodState),                                      // Set hood
-                // shooter.commandSetVelocity(path.frontSetpoint, path.rearSetpoint), // Spin up flywheels
-                shooter.commandSetVelocity(2000, 2000)
+                new ShooterPrespinCommand(shooter, indexer, vision, limelight)        // Spin up flywheels for where the path ends up
         );
     }
 
@@ -72,16 +81,15 @@ public class AutoHelper {
     }
 
     /**
-     * Returns a new {@link RamseteCommand} with constants pre-filled for
-     * convenience
+     * Returns a command that follows an AutoPath with a {@link RamseteCommand}. The trajectory isn't loaded until
+     * the command first runs.
      *
      * @param drivetrain The drivetrain subsystem
      * @param path       the AutoPath to follow
-     * @return A RamseteCommand to follow the trajectory
+     * @return A LazyRamseteCommand to follow the trajectory
      */
-    public static RamseteCommand getRamseteCommand(Drivetrain drivetrain, AutoPath path) {
-        drivetrain.fieldWidget.addPath(path);
-        return getRamseteCommand(drivetrain, path.trajectory);
+    public static Command getRamseteCommand(Drivetrain drivetrain, AutoPath path) {
+        return new LazyRamseteCommand(drivetrain, path);
     }
 
     /**
@@ -119,10 +127,17 @@ public class AutoHelper {
      * @return A RamseteCommand to follow the trajectory
      */
     public static RamseteCommand getRamseteCommand(Drivetrain drivetrain, String trajectoryName) {
-        Trajectory trajectory = getTrajectory(trajectoryName);
+        Trajectory trajectory = TrajectoryCache.get(trajectoryName);
         return getRamseteCommand(drivetrain, trajectory);
     }
 
+    /**
+     * Parses a PathWeaver trajectory. Use {@link TrajectoryCache} instead, which only parses each path once.
+     *
+     * @param trajectoryName The name of the trajectory file relative to the
+     *                       <code>deploy/paths</code> directory.
+     * @return the trajectory
+     */
     public static Trajectory getTrajectory(String trajectoryName) {
         Path trajectoryPath = getTrajectoryPath(trajectoryName);
         Trajectory trajectory;
@@ -165,17 +180,34 @@ public class AutoHelper {
         public static final AutoPath auto5Ball2 = new AutoPath("5ball.posA.path2.wpilib.json", 2600, 2900, true);
         public static final AutoPath auto5Ball3 = new AutoPath("5ball.posA.path3.wpilib.json", 2400, 2800, true);
         public static final AutoPath auto5Ball4 = new AutoPath("5ball.posA.path4.wpilib.json", 2400, 2800, true);
-        public final Trajectory trajectory;
+        public static final List<AutoPath> all = List.of(auto1Ball, auto2Ball1A, auto2Ball1B, auto2Ball2BM, auto3Ball2, auto5Ball2, auto5Ball3, auto5Ball4);
         public final boolean hoodState;
         public final double frontSetpoint, rearSetpoint;
         public final String name;
 
         private AutoPath(String pathName, double frontSetpoint, double rearSetpoint, boolean hoodState) {
-            this.trajectory = AutoHelper.getTrajectory(pathName);
             this.name = pathName;
             this.frontSetpoint = frontSetpoint;
             this.rearSetpoint = rearSetpoint;
             this.hoodState = hoodState;
         }
+
+        /**
+         * Gets the path's trajectory, loading it if it hasn't been already
+         *
+         * @return the trajectory
+         */
+        public Trajectory getTrajectory() {
+            return TrajectoryCache.get(name);
+        }
+
+        /**
+         * Starts loading the path's trajectory in the background
+         *
+         * @return a future that completes when the trajectory is loaded
+         */
+        public CompletableFuture<Trajectory> preload() {
+            return TrajectoryCache.preload(name);
+        }
     }
 }
@@ -5,6 +5,8 @@ import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
 import org.team1540.robot2022.commands.drivetrain.Drivetrain;
 import org.team1540.robot2022.utils.AutoHelper.AutoPath;
 
+import java.util.concurrent.CompletableFuture;
+
 public class AutoSequence extends SequentialCommandGroup {
 
     public AutoPath[] paths = new AutoPath[0];
@@ -19,14 +21,44 @@ public class AutoSequence extends SequentialCommandGroup {
     }
 
     /**
-     * Highlights all of the paths in the sequence in red on Shuffleboard
+     * Loads the trajectories of all the paths in the sequence and warms up the Ramsete math for them on the
+     * trajectory loader thread
+     *
+     * @return a future that completes when everything is loaded and warm
+     */
+    public CompletableFuture<Void> warmUpPaths() {
+        CompletableFuture<?>[] warmups = new CompletableFuture<?>[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            warmups[i] = paths[i].preload().thenAcceptAsync(LazyRamseteCommand::warmUp, TrajectoryCache.loader);
+        }
+        return CompletableFuture.allOf(warmups);
+    }
+
+    /**
+     * Builds the path following commands for every loaded path in the sequence. Must be called from the main
+     * robot thread.
+     */
+    public void preparePaths() {
+        for (AutoPath path : paths) {
+            LazyRamseteCommand.prepareAll(path);
+        }
+    }
+
+    /**
+     * Highlights all of the paths in the sequence in red on Shuffleboard. Paths that haven't been loaded yet are
+     * loaded in the background and drawn when they're ready. The drawing happens on the robot thread, in the
+     * drivetrain's periodic, so this is safe to call from any thread.
      *
      * @param drivetrain The Drivetrain subsystem
      */
     public void highlightPaths(Drivetrain drivetrain) {
-        drivetrain.fieldWidget.resetPathColors();
+        Drivetrain.DashboardField field = drivetrain.fieldWidget;
+        field.execute(field::resetPathColors);
         for (AutoPath path : paths) {
-            drivetrain.fieldWidget.setPathColor(path, "#FF0000FF");
+            path.preload().thenRunAsync(() -> {
+                field.addPath(path);
+                field.setPathColor(path, "#FF0000FF");
+            }, field);
         }
     }
 
@@ -0,0 +1,57 @@
+package org.team1540.robot2022.utils;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * AutoWarmer gets the selected auto ready to run while the robot is disabled, so autonomousInit only has to schedule
+ * it.
+ * <p>
+ * When the selection changes, the auto's trajectories are loaded and the Ramsete math is warmed up on the trajectory
+ * loader thread. Once that's done the path following commands are built on the main thread, since commands aren't
+ * safe to construct or share across threads.
+ */
+public class AutoWarmer {
+    private final SendableChooser<AutoSequence> chooser;
+    private AutoSequence selected;
+    private CompletableFuture<Void> warmup;
+    private boolean prepared = false;
+    private long warmupStart;
+
+    public AutoWarmer(SendableChooser<AutoSequence> chooser) {
+        this.chooser = chooser;
+    }
+
+    /**
+     * Checks for a new selection and finishes preparing the selected auto once it's warm. This should be called in
+     * disabledPeriodic.
+     */
+    public void periodic() {
+        AutoSequence current = chooser.getSelected();
+        if (current != selected) {
+            selected = current;
+            prepared = false;
+            warmupStart = System.nanoTime();
+            warmup = current == null ? null : current.warmUpPaths();
+        }
+
+        if (!prepared && warmup != null && warmup.isDone()) {
+            prepared = true;
+            if (warmup.isCompletedExceptionally()) {
+                DriverStation.reportWarning("[auto] Unable to warm up " + selected.getName() + ", it will load when auto starts", false);
+                return;
+            }
+            selected.preparePaths();
+            System.out.printf("[auto] %s is ready (%.0fms)%n", selected.getName(), (System.nanoTime() - warmupStart) / 1e6);
+        }
+    }
+
+    /**
+     * @return true if the selected auto is loaded, warm and built
+     */
+    public boolean isReady() {
+        return prepared && selected == chooser.getSelected();
+    }
+}
@@ -1,35 +1,99 @@
 package org.team1540.robot2022.utils;
 
-import java.util.LinkedList;
-
 /**
  * Class for filtering number data as a rolling or fixed average.
+ * <p>
+ * Values are kept in a primitive ring buffer, and the mean and variance are updated as values enter and leave the
+ * window, so adding a value and reading the average are O(1) and never allocate. The running sums are recomputed from
+ * the buffer once per trip around it, so rounding error can't build up.
  */
 public class AverageFilter {
-    private final LinkedList<Double> buffer;
-    int size;
+    private final double[] buffer;
+    private int start = 0; // Index of the oldest value
+    private int count = 0;
+    private double mean = 0;
+    private double squaredDeviations = 0; // Sum of squared differences from the mean
 
+    /**
+     * @param size the number of values to average over
+     */
     public AverageFilter(int size) {
-        this.buffer = new LinkedList<>();
-        this.size = size;
+        this.buffer = new double[size];
     }
 
     public void add(double item) {
-        buffer.add(item);
-        if (buffer.size() > size) {
-            buffer.remove(0);
+        if (count < buffer.length) {
+            buffer[(start + count) % buffer.length] = item;
+            count++;
+            double delta = item - mean;
+            mean += delta / count;
+            squaredDeviations += delta * (item - mean);
+        } else {
+            double oldest = buffer[start];
+            buffer[start] = item;
+            start = (start + 1) % buffer.length;
+            if (start == 0) {
+                recalculate();
+            } else {
+                double newMean = mean + (item - oldest) / count;
+                squaredDeviations += (item - oldest) * (item - newMean + oldest - mean);
+                mean = newMean;
+            }
         }
     }
 
+    /**
+     * @return the average of the values in the window, or NaN if there aren't any
+     */
     public double getAverage() {
-        double avg = 0;
-        for (double num : buffer) {
-            avg += num;
-        }
-        return avg / buffer.size();
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * @return the population variance of the values in the window, or NaN if there aren't any
+     */
+    public double getVariance() {
+        return count == 0 ? Double.NaN : Math.max(squaredDeviations, 0) / count;
+    }
+
+    /**
+     * @return the population standard deviation of the values in the window, or NaN if there aren't any
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * @return the number of values in the window, up to the size
+     */
+    public int getCount() {
+        return count;
+    }
+
+    public boolean isFull() {
+        return count == buffer.length;
     }
 
     public void clear() {
-        buffer.clear();
+        start = 0;
+        count = 0;
+        mean = 0;
+        squaredDeviations = 0;
+    }
+
+    /**
+     * Recalculates the mean and squared deviations from scratch
+     */
+    private void recalculate() {
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += buffer[i];
+        }
+        mean = sum / count;
+        squaredDeviations = 0;
+        for (int i = 0; i < count; i++) {
+            double delta = buffer[i] - mean;
+            squaredDeviations += delta * delta;
+        }
     }
 }
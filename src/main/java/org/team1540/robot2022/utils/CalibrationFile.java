@@ -0,0 +1,152 @@
+package org.team1540.robot2022.utils;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * CalibrationFile is a value parsed from a file in the deploy directory that is reloaded whenever the file changes.
+ * <p>
+ * The file is parsed once when the CalibrationFile is created. A single background thread watches the deploy
+ * directory and re-parses changed files, then swaps in the new value, so {@link #get()} is just a volatile read
+ * and never blocks the robot loop. If a file is missing or fails to parse, the previous value (or the fallback) is
+ * kept. Parsed values are shared between threads, so they shouldn't be modified after parsing.
+ *
+ * @param <T> the parsed type
+ */
+public class CalibrationFile<T> {
+    private static final long SETTLE_MILLIS = 200; // Wait for a file being copied over to finish writing
+
+    private static final Map<String, List<CalibrationFile<?>>> watched = new ConcurrentHashMap<>();
+    private static Thread watcherThread;
+
+    private final String name;
+    private final Path path;
+    private final Parser<T> parser;
+    private volatile T value;
+
+    /**
+     * Parses a file from the deploy directory and starts watching it for changes
+     *
+     * @param name     the file name within the deploy directory, e.g. `hoodUp.csv` for src/main/deploy/hoodUp.csv
+     * @param parser   reads the file, throwing if it's invalid
+     * @param fallback the value to use if the file can't be loaded at startup
+     */
+    public CalibrationFile(String name, Parser<T> parser, T fallback) {
+        this.name = name;
+        this.path = Filesystem.getDeployDirectory().toPath().resolve(name);
+        this.parser = parser;
+        this.value = fallback;
+        reload();
+
+        watched.computeIfAbsent(name, key -> new CopyOnWriteArrayList<>()).add(this);
+        startWatcher();
+    }
+
+    /**
+     * Gets the most recently loaded value
+     *
+     * @return the value, or the fallback if the file has never loaded
+     */
+    public T get() {
+        return value;
+    }
+
+    /**
+     * Parses the file and swaps in the result. Keeps the current value if it fails.
+     *
+     * @return true if the file was loaded
+     */
+    public boolean reload() {
+        if (!Files.exists(path)) {
+            System.out.println("[calibration] " + path + " not found, keeping the previous values");
+            return false;
+        }
+        try {
+            value = parser.parse(path);
+            System.out.println("[calibration] Loaded " + path);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            DriverStation.reportError("[calibration] Unable to load " + name + ", keeping the previous values: " + e, false);
+            return false;
+        }
+    }
+
+    private static synchronized void startWatcher() {
+        if (watcherThread != null) {
+            return;
+        }
+        WatchService watchService;
+        Path directory = Filesystem.getDeployDirectory().toPath();
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            DriverStation.reportError("[calibration] Unable to watch " + directory + " for changes: " + e, false);
+            return;
+        }
+
+        watcherThread = new Thread(() -> runWatcher(watchService), "calibration-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.setPriority(Thread.MIN_PRIORITY);
+        watcherThread.start();
+    }
+
+    /**
+     * Watcher thread loop: collects changed file names until the directory settles, then reloads them
+     */
+    private static void runWatcher(WatchService watchService) {
+        Set<String> changed = new HashSet<>();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                do {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.context() instanceof Path) {
+                            changed.add(((Path) event.context()).getFileName().toString());
+                        }
+                    }
+                    key.reset();
+                    Thread.sleep(SETTLE_MILLIS);
+                } while ((key = watchService.poll()) != null);
+
+                for (String name : changed) {
+                    List<CalibrationFile<?>> files = watched.get(name);
+                    if (files != null) {
+                        for (CalibrationFile<?> file : files) {
+                            file.reload();
+                        }
+                    }
+                }
+                changed.clear();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Shutting down
+        }
+    }
+
+    /**
+     * Reads a calibration file
+     *
+     * @param <T> the parsed type
+     */
+    @FunctionalInterface
+    public interface Parser<T> {
+        T parse(Path path) throws IOException;
+    }
+}
@@ -0,0 +1,37 @@
+package org.team1540.robot2022.utils;
+
+import org.team1540.robot2022.io.MotorIO;
+import org.team1540.robot2022.io.StatusFrameProfile;
+
+/**
+ * CanBusBudget estimates how much of the CAN bus the motors use from their status frame profiles, so a profile change
+ * can be checked before it's on the robot. Compare against the roboRIO's measured utilization, which also counts the
+ * pneumatic hub, the power distribution hub and retransmissions.
+ */
+public class CanBusBudget {
+    public static final double BIT_RATE = 1e6; // bits per second
+    public static final int FRAME_BITS = 160; // extended ID and 8 data bytes with worst case bit stuffing
+    public static final int CONTROL_PERIOD_MS = 10; // the roboRIO sends each Talon its setpoint this often
+    public static final double MAX_UTILIZATION = 0.6; // leaves room for the other devices and retransmissions
+
+    /**
+     * @param profile the motor's status frame profile
+     * @return the fraction of the bus one motor uses, counting its status frames and the control frames sent to it
+     */
+    public static double getUtilization(StatusFrameProfile profile) {
+        double framesPerSecond = profile.getFramesPerSecond() + 1000.0 / CONTROL_PERIOD_MS;
+        return framesPerSecond * FRAME_BITS / BIT_RATE;
+    }
+
+    /**
+     * @param motors every motor on the bus
+     * @return the fraction of the bus they use together
+     */
+    public static double estimateUtilization(Iterable<? extends MotorIO> motors) {
+        double utilization = 0;
+        for (MotorIO motor : motors) {
+            utilization += getUtilization(motor.getStatusFrameProfile());
+        }
+        return utilization;
+    }
+}
@@ -2,10 +2,26 @@ package org.team1540.robot2022.utils;
 
 import com.ctre.phoenix.ErrorCode;
 import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.IMotorController;
+import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
 import com.ctre.phoenix.motorcontrol.can.TalonFX;
 import org.team1540.robot2022.Constants.DriveConstants;
+import org.team1540.robot2022.io.MotorIO;
+import org.team1540.robot2022.io.StatusFrameProfile;
+
+/**
+ * A TalonFX with our unit conversions. Sensor reads are cached for the rest of the robot loop the first time they're
+ * read, since every read is a JNI call and subsystems read the same values several times a loop. The Talon only
+ * updates them when a status frame arrives anyway. {@link #startLoop()} starts a new loop.
+ * <p>
+ * The cache and the read counter are only for the robot loop thread. Anything else, like an interrupt handler, has to
+ * use {@link #readSelectedSensorPositionNow()}, which goes straight to the Talon.
+ */
+public class ChickenTalonFX extends TalonFX implements MotorIO {
+    private static int loop;
+    private static int sensorReads;
+    private static int lastLoopSensorReads;
 
-public class ChickenTalonFX extends TalonFX {
     private final double decisecondsPerSecond = 10;
     private double ticksPerMeter = DriveConstants.ENCODER_TICKS_PER_METER;
     private double saturationVoltage = 12;
@@ -13,6 +29,11 @@ public class ChickenTalonFX extends TalonFX {
     private int velocitySlotIdx = 0;
     private int positionSlotIdx = 1;
     private int lastSlot = 0;
+    private StatusFrameProfile statusFrameProfile = StatusFrameProfile.DEFAULT;
+
+    // The sensor values read this loop, and the loop each was read in
+    private double position, velocity, closedLoopError, statorCurrent, outputPercent;
+    private int positionLoop = -1, velocityLoop = -1, closedLoopErrorLoop = -1, statorCurrentLoop = -1, outputPercentLoop = -1;
 
     /**
      * Constructor
@@ -23,6 +44,91 @@ public class ChickenTalonFX extends TalonFX {
         super(deviceNumber);
     }
 
+    /**
+     * Starts a new robot loop, so the next read of each sensor goes to the Talon again. Call this once at the start of
+     * every loop.
+     */
+    public static void startLoop() {
+        loop++;
+        lastLoopSensorReads = sensorReads;
+        sensorReads = 0;
+    }
+
+    /**
+     * @return how many sensor reads went through JNI in the last full loop, across every Talon
+     */
+    public static int getSensorReads() {
+        return lastLoopSensorReads;
+    }
+
+    @Override
+    public double getSelectedSensorPosition() {
+        if (positionLoop != loop) {
+            position = super.getSelectedSensorPosition();
+            positionLoop = loop;
+            sensorReads++;
+        }
+        return position;
+    }
+
+    @Override
+    public double getSelectedSensorVelocity() {
+        if (velocityLoop != loop) {
+            velocity = super.getSelectedSensorVelocity();
+            velocityLoop = loop;
+            sensorReads++;
+        }
+        return velocity;
+    }
+
+    @Override
+    public double getClosedLoopError() {
+        if (closedLoopErrorLoop != loop) {
+            closedLoopError = super.getClosedLoopError();
+            closedLoopErrorLoop = loop;
+            sensorReads++;
+        }
+        return closedLoopError;
+    }
+
+    @Override
+    public double getStatorCurrent() {
+        if (statorCurrentLoop != loop) {
+            statorCurrent = super.getStatorCurrent();
+            statorCurrentLoop = loop;
+            sensorReads++;
+        }
+        return statorCurrent;
+    }
+
+    @Override
+    public double getMotorOutputPercent() {
+        if (outputPercentLoop != loop) {
+            outputPercent = super.getMotorOutputPercent();
+            outputPercentLoop = loop;
+            sensorReads++;
+        }
+        return outputPercent;
+    }
+
+    @Override
+    public double readSelectedSensorPositionNow() {
+        return super.getSelectedSensorPosition();
+    }
+
+    /**
+     * Sets the sensor position, which reads return for the rest of the loop
+     *
+     * @param sensorPos position in native units
+     * @return the error code
+     */
+    @Override
+    public ErrorCode setSelectedSensorPosition(double sensorPos) {
+        position = sensorPos;
+        positionLoop = loop;
+        return super.setSelectedSensorPosition(sensorPos);
+    }
+
     public double getDistanceMeters() {
         return this.getSelectedSensorPosition() / ticksPerMeter;
     }
@@ -31,6 +137,41 @@ public class ChickenTalonFX extends TalonFX {
         return this.getSelectedSensorVelocity() * decisecondsPerSecond / ticksPerMeter;
     }
 
+    @Override
+    public void configCurrentLimit(CurrentLimitConfig config) {
+        config.configure(this);
+    }
+
+    /**
+     * Follows another Talon
+     *
+     * @param leader a ChickenTalonFX
+     */
+    @Override
+    public void follow(MotorIO leader) {
+        follow((IMotorController) leader);
+    }
+
+    @Override
+    public void configStatusFrames(StatusFrameProfile profile) {
+        statusFrameProfile = profile;
+        setStatusFramePeriod(StatusFrameEnhanced.Status_1_General, profile.generalMs);
+        setStatusFramePeriod(StatusFrameEnhanced.Status_2_Feedback0, profile.feedbackMs);
+        setStatusFramePeriod(StatusFrameEnhanced.Status_Brushless_Current, profile.currentMs);
+        setStatusFramePeriod(StatusFrameEnhanced.Status_13_Base_PIDF0, profile.pidfMs);
+        setStatusFramePeriod(StatusFrameEnhanced.Status_3_Quadrature, profile.unusedMs);
+        setStatusFramePeriod(StatusFrameEnhanced.Status_4_AinTempVbat, profile.unusedMs);
+        setStatusFramePeriod(StatusFrameEnhanced.Status_8_PulseWidth, profile.unusedMs);
+        setStatusFramePeriod(StatusFrameEnhanced.Status_10_Targets, profile.unusedMs);
+        setStatusFramePeriod(StatusFrameEnhanced.Status_12_Feedback1, profile.unusedMs);
+        setStatusFramePeriod(StatusFrameEnhanced.Status_14_Turn_PIDF1, profile.unusedMs);
+    }
+
+    @Override
+    public StatusFrameProfile getStatusFrameProfile() {
+        return statusFrameProfile;
+    }
+
     public void setPercent(double percent) {
         this.set(ControlMode.PercentOutput, percent);
     }
@@ -1,5 +1,9 @@
 package org.team1540.robot2022.utils;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 /**
  * ClampedExponentialInterpolator returns an exponential value given an input, leading coefficient, base, and upper and lower inclusive bounds.
  */
@@ -13,12 +17,41 @@ public class ClampedExponentialInterpolator implements Interpolator {
         this.upper = upper;
     }
 
+    /**
+     * Reads the curve from the first line of a CSV file that starts with a number, as a,b,lower,upper. Other lines,
+     * like a header or # comments, are skipped.
+     *
+     * @param path the CSV file
+     * @return the interpolator
+     * @throws IOException if the file can't be read or has no curve
+     */
+    public static ClampedExponentialInterpolator fromCsv(Path path) throws IOException {
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(path)) {
+            lineNumber++;
+            String[] str = line.split(",");
+            if (line.isBlank() || !str[0].trim().matches("[-+]?[0-9.].*")) {
+                continue;
+            }
+            if (str.length < 4) {
+                throw new IOException(path + ":" + lineNumber + " needs a, b, lower and upper");
+            }
+            try {
+                return new ClampedExponentialInterpolator(Double.parseDouble(str[0].trim()), Double.parseDouble(str[1].trim()),
+                        Double.parseDouble(str[2].trim()), Double.parseDouble(str[3].trim()));
+            } catch (NumberFormatException ex) {
+                throw new IOException(path + ":" + lineNumber + " is not a number: " + ex.getMessage());
+            }
+        }
+        throw new IOException(path + " has no data");
+    }
+
     @Override
     public double getInterpolatedValue(double x) {
         double output = a * Math.pow(b, x);
         if (output <= lower) {
             return lower;
-        } else if (output >= upper) {
+        } else if (!(output < upper)) { // Written so NaN is clamped to the upper bound
             return upper;
         } else {
             return output;
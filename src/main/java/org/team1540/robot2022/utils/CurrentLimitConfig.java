@@ -5,6 +5,7 @@ import com.ctre.phoenix.motorcontrol.StatorCurrentLimitConfiguration;
 import com.ctre.phoenix.motorcontrol.SupplyCurrentLimitConfiguration;
 import com.ctre.phoenix.motorcontrol.can.TalonFX;
 import com.ctre.phoenix.motorcontrol.can.TalonFXConfiguration;
+import org.team1540.robot2022.io.MotorIO;
 
 public class CurrentLimitConfig {
     public final double statorLimit, statorThreshCurrent, statorThreshTime;
@@ -50,15 +51,24 @@ public class CurrentLimitConfig {
 
 
     /**
-     * Apply this current limit to one or more TalonFX controllers
+     * Apply this current limit to one or more motors
      *
-     * @param motors TalonFX controllers to apply the current limit to
+     * @param motors motors to apply the current limit to
      */
-    public void applyTo(TalonFX... motors) {
-        for (TalonFX motor : motors) {
-            reset(motor);
-            motor.configStatorCurrentLimit(new StatorCurrentLimitConfiguration(true, this.statorLimit, this.statorThreshCurrent, this.statorThreshTime));
-            motor.configSupplyCurrentLimit(new SupplyCurrentLimitConfiguration(true, this.supplyLimit, this.supplyThreshCurrent, this.supplyThreshTime));
+    public void applyTo(MotorIO... motors) {
+        for (MotorIO motor : motors) {
+            motor.configCurrentLimit(this);
         }
     }
+
+    /**
+     * Reset a TalonFX controller and apply this current limit to it
+     *
+     * @param motor TalonFX controller to apply the current limit to
+     */
+    public void configure(TalonFX motor) {
+        reset(motor);
+        motor.configStatorCurrentLimit(new StatorCurrentLimitConfiguration(true, this.statorLimit, this.statorThreshCurrent, this.statorThreshTime));
+        motor.configSupplyCurrentLimit(new SupplyCurrentLimitConfiguration(true, this.supplyLimit, this.supplyThreshCurrent, this.supplyThreshTime));
+    }
 }
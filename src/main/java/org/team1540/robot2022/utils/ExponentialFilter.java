@@ -0,0 +1,66 @@
+package org.team1540.robot2022.utils;
+
+/**
+ * Class for filtering number data as an exponential moving average. Each new value moves the average a fixed fraction
+ * of the way towards it, so it only keeps one number and never allocates.
+ */
+public class ExponentialFilter {
+    private final double alpha;
+    private double value = Double.NaN;
+
+    /**
+     * @param alpha how far each value moves the average towards it, from 0 (never moves) to 1 (no filtering)
+     */
+    public ExponentialFilter(double alpha) {
+        if (alpha <= 0 || alpha > 1) {
+            throw new IllegalArgumentException("Exponential filter alpha must be in (0, 1], got " + alpha);
+        }
+        this.alpha = alpha;
+    }
+
+    /**
+     * Creates a filter that responds to a step over a time constant, like a first order low pass filter
+     *
+     * @param timeConstant seconds for the average to get 63% of the way to a new value
+     * @param period       seconds between values, e.g. 0.02 for once per loop
+     * @return the filter
+     */
+    public static ExponentialFilter fromTimeConstant(double timeConstant, double period) {
+        return new ExponentialFilter(1 - Math.exp(-period / timeConstant));
+    }
+
+    /**
+     * Adds a value. The first value after construction or {@link #clear()} becomes the average.
+     *
+     * @param item the value to add
+     */
+    public void add(double item) {
+        if (Double.isNaN(value)) {
+            value = item;
+        } else {
+            value += alpha * (item - value);
+        }
+    }
+
+    /**
+     * Adds a value and returns the new average
+     *
+     * @param item the value to add
+     * @return the average
+     */
+    public double calculate(double item) {
+        add(item);
+        return value;
+    }
+
+    /**
+     * @return the average, or NaN if no values have been added
+     */
+    public double getAverage() {
+        return value;
+    }
+
+    public void clear() {
+        value = Double.NaN;
+    }
+}
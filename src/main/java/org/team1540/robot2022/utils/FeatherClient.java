@@ -1,21 +1,76 @@
 package org.team1540.robot2022.utils;
 
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.Timer;
 import org.team1540.robot2022.commands.util.UpdateMatchInfo;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * FeatherClient records match data for the feather backend.
+ * <p>
+ * Records are copied into a preallocated single-producer ring buffer from the robot loop and written to disk by a
+ * background thread that keeps the log files open, so logging never blocks the control loop. If the ring is full
+ * the record is dropped and counted instead of waiting.
+ * <p>
+ * Per-loop channels are recorded in the binary {@link MatchLog} returned by {@link #getMatchLog()}, which the same
+ * writer thread appends to matchlog.bin in the match directory. The writer thread also periodically syncs the
+ * {@link FlightRecorder} returned by {@link #getFlightRecorder()}.
+ * <p>
+ * Flywheel recoveries after each shot go through a second ring buffer into recoveries.jsonl.
+ */
 public class FeatherClient {
     private static final Timer timer = new Timer();
     //    private static final Mat mat = new Mat();
     private static String matchDirectoryPrefix;
 
+    private static final int SHOT_RING_SIZE = 64; // Must be a power of two
+    private static final long WRITE_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long FSYNC_PERIOD_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long FLUSH_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    private static final ShotRecord[] shotRing = new ShotRecord[SHOT_RING_SIZE];
+    private static final AtomicLong shotHead = new AtomicLong(); // Next slot the robot loop will fill
+    private static final AtomicLong shotTail = new AtomicLong(); // Next slot the writer thread will drain
+    private static final AtomicLong droppedShots = new AtomicLong();
+
+    private static final RecoveryRecord[] recoveryRing = new RecoveryRecord[SHOT_RING_SIZE];
+    private static final AtomicLong recoveryHead = new AtomicLong();
+    private static final AtomicLong recoveryTail = new AtomicLong();
+
+    private static final AtomicLong flushRequests = new AtomicLong();
+    private static final AtomicLong flushesCompleted = new AtomicLong();
+    private static final ConcurrentLinkedQueue<FileChannel> retiredChannels = new ConcurrentLinkedQueue<>(); // Closed by the writer thread
+
+    private static final MatchLog matchLog = new MatchLog();
+    private static final FlightRecorder flightRecorder = new FlightRecorder();
+
+    private static volatile FileChannel shotChannel;
+    private static volatile FileChannel recoveryChannel;
+    private static volatile FileChannel matchLogChannel;
+    private static Thread writerThread;
+
+    static {
+        for (int i = 0; i < SHOT_RING_SIZE; i++) {
+            shotRing[i] = new ShotRecord();
+            recoveryRing[i] = new RecoveryRecord();
+        }
+    }
+
     /**
      * Attempt to update matchId when the robot receives the FMS matchInfo packet
      *
@@ -41,17 +96,31 @@ public class FeatherClient {
         return false;
     }
 
+    /**
+     * Gets the root feather directory. This is on the roboRIO's user partition on a real robot, and in the working
+     * directory in simulation.
+     *
+     * @return the feather directory path
+     */
+    public static String getFeatherDirectory() {
+        if (RobotBase.isReal()) {
+            return "/home/lvuser/feather";
+        }
+        return Filesystem.getOperatingDirectory().toPath().resolve("feather").toString();
+    }
+
     /**
      * Initialize a feather match. This should be called in autonomousInit.
      * - Resets the match timer
      * - Creates the directory structure
+     * - Opens the shot log and starts the writer thread
      * - Schedules the match info update command
      */
-    public static void initialize() {
+    public static synchronized void initialize() {
         timer.reset();
         timer.start();
 
-        matchDirectoryPrefix = "/home/lvuser/feather/matches/" + UUID.randomUUID();
+        matchDirectoryPrefix = getFeatherDirectory() + "/matches/" + UUID.randomUUID();
 
         // Create match directory
         File directory = new File(matchDirectoryPrefix);
@@ -59,16 +128,70 @@ public class FeatherClient {
 
         System.out.println("[feather] Initialized match directory at " + matchDirectoryPrefix);
 
-        // Create shot log file
+        // Create shot and recovery log files, after draining anything still queued for the previous match. The writer
+        // thread closes the previous files, since it can still be writing to them if the flush timed out.
+        FileChannel previousShotChannel = shotChannel;
+        FileChannel previousRecoveryChannel = recoveryChannel;
+        if (previousShotChannel != null || previousRecoveryChannel != null) {
+            flush();
+        }
         try {
-            Files.writeString(Paths.get(matchDirectoryPrefix + "/shots.jsonl"), "", StandardOpenOption.CREATE);
+            shotChannel = FileChannel.open(Paths.get(matchDirectoryPrefix + "/shots.jsonl"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            if (previousShotChannel != null) {
+                retiredChannels.add(previousShotChannel);
+            }
         } catch (IOException e) {
             DriverStation.reportError("[feather] Unable to create shot log file: " + e, true);
         }
+        try {
+            recoveryChannel = FileChannel.open(Paths.get(matchDirectoryPrefix + "/recoveries.jsonl"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            if (previousRecoveryChannel != null) {
+                retiredChannels.add(previousRecoveryChannel);
+            }
+        } catch (IOException e) {
+            DriverStation.reportError("[feather] Unable to create recovery log file: " + e, true);
+        }
+
+        // The match log is one continuous recording, so it's only opened for the first match
+        if (matchLogChannel == null) {
+            try {
+                matchLogChannel = FileChannel.open(Paths.get(matchDirectoryPrefix + "/matchlog.bin"),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            } catch (IOException e) {
+                DriverStation.reportError("[feather] Unable to create match log file: " + e, true);
+            }
+        }
+
+        if (writerThread == null) {
+            writerThread = new Thread(FeatherClient::runWriter, "feather-writer");
+            writerThread.setDaemon(true);
+            writerThread.setPriority(Thread.MIN_PRIORITY);
+            writerThread.start();
+        }
 
 //        new UpdateMatchInfo().schedule();
     }
 
+    /**
+     * Gets the per-loop match log. Columns must be added before the first row is recorded.
+     *
+     * @return the match log
+     */
+    public static MatchLog getMatchLog() {
+        return matchLog;
+    }
+
+    /**
+     * Gets the crash-safe flight recorder. Channels must be added before it's opened.
+     *
+     * @return the flight recorder
+     */
+    public static FlightRecorder getFlightRecorder() {
+        return flightRecorder;
+    }
+
     /**
      * Get elapsed timer seconds
      *
@@ -79,7 +202,17 @@ public class FeatherClient {
     }
 
     /**
-     * Return an instant command that records a shot for the feather backend
+     * Gets the number of records dropped because the writer thread fell behind or feather was not initialized
+     *
+     * @return the number of dropped shot records
+     */
+    public static long getDroppedShots() {
+        return droppedShots.get();
+    }
+
+    /**
+     * Records a shot for the feather backend. This only copies the values into the ring buffer, the writer
+     * thread formats and writes them. Must only be called from the robot loop thread.
      *
      * @param limelightDistance distance from limelight
      * @param lidarDistance     distance from LIDAR
@@ -91,20 +224,256 @@ public class FeatherClient {
     public static void recordShot(double limelightDistance, double lidarDistance,
                                   double frontRPM, double rearRPM, boolean hoodUp,
                                   String profile) {
-        String jsonString = String.format("{\"id\": \"%s\", \"timer\": %f, " +
-                        "\"limelightDistance\": %f, \"lidarDistance\": %f, " +
-                        "\"frontRPM\": %f, \"rearRPM\": %f, \"hoodUp\": %b, \"profile\": \"%s\"}",
-                UUID.randomUUID() + "", getTimer(),
-                limelightDistance, lidarDistance,
-                frontRPM, rearRPM, hoodUp, profile
-        );
-
-        // Write shot log to file
-//        lastShot = null;
-        try {
-            Files.writeString(Paths.get(matchDirectoryPrefix + "/shots.jsonl"), jsonString + System.lineSeparator(), StandardOpenOption.APPEND);
-        } catch (IOException e) {
-            DriverStation.reportError("[feather] Unable to append to shot log file: " + e, true);
+        long head = shotHead.get();
+        if (shotChannel == null || head - shotTail.get() >= SHOT_RING_SIZE) {
+            droppedShots.incrementAndGet();
+            return;
         }
+
+        ShotRecord record = shotRing[(int) (head & (SHOT_RING_SIZE - 1))];
+        record.timer = getTimer();
+        record.limelightDistance = limelightDistance;
+        record.lidarDistance = lidarDistance;
+        record.frontRPM = frontRPM;
+        record.rearRPM = rearRPM;
+        record.hoodUp = hoodUp;
+        record.profile = profile;
+
+        // Publish the record to the writer thread
+        shotHead.lazySet(head + 1);
+    }
+
+    /**
+     * Records how long the flywheels took to come back up after a ball went through them, in its own log next to
+     * the shots. This only copies the values into a ring buffer like {@link #recordShot}, and records dropped when
+     * it's full count towards {@link #getDroppedShots()}. Must only be called from the robot loop thread.
+     *
+     * @param frontRPM        front RPM setpoint
+     * @param rearRPM         rear RPM setpoint
+     * @param dipRPM          how far the slower flywheel dropped below its setpoint
+     * @param recoverySeconds seconds from the dip until both flywheels were back within the target error
+     */
+    public static void recordRecovery(double frontRPM, double rearRPM, double dipRPM, double recoverySeconds) {
+        long head = recoveryHead.get();
+        if (recoveryChannel == null || head - recoveryTail.get() >= SHOT_RING_SIZE) {
+            droppedShots.incrementAndGet();
+            return;
+        }
+
+        RecoveryRecord record = recoveryRing[(int) (head & (SHOT_RING_SIZE - 1))];
+        record.timer = getTimer();
+        record.frontRPM = frontRPM;
+        record.rearRPM = rearRPM;
+        record.dipRPM = dipRPM;
+        record.recoverySeconds = recoverySeconds;
+
+        recoveryHead.lazySet(head + 1);
+    }
+
+    /**
+     * Waits for the writer thread to write and fsync everything recorded so far. This should be called in
+     * disabledInit so nothing is lost at the end of a match. Gives up after a short timeout so it can't hang the
+     * robot loop. Must only be called from the robot loop thread.
+     */
+    public static void flush() {
+        Thread writer = writerThread;
+        if (writer == null) {
+            return;
+        }
+        matchLog.seal();
+        long request = flushRequests.incrementAndGet();
+        LockSupport.unpark(writer);
+
+        long deadline = System.nanoTime() + FLUSH_TIMEOUT_NANOS;
+        while (flushesCompleted.get() < request) {
+            if (System.nanoTime() > deadline) {
+                DriverStation.reportWarning("[feather] Timed out waiting for log flush", false);
+                return;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    /**
+     * Writer thread loop: drains the ring buffers into the open log files, and fsyncs on a cadence or when a
+     * flush is requested.
+     */
+    private static void runWriter() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        StringBuilder line = new StringBuilder(256);
+        long lastSync = System.nanoTime();
+        boolean unsynced = false;
+        boolean recoveriesUnsynced = false;
+        boolean matchLogUnsynced = false;
+
+        while (!Thread.currentThread().isInterrupted()) {
+            // Only files from before this pass are retired, so none of them are still in use
+            closeRetiredChannels();
+
+            long request = flushRequests.get();
+            FileChannel channel = shotChannel;
+            FileChannel recoveries = recoveryChannel;
+            FileChannel logChannel = matchLogChannel;
+            long now = System.nanoTime();
+            boolean syncDue = request > flushesCompleted.get() || now - lastSync >= FSYNC_PERIOD_NANOS;
+
+            try {
+                unsynced |= drainShots(channel, buffer, line);
+                if (unsynced && syncDue) {
+                    channel.force(false);
+                    unsynced = false;
+                }
+            } catch (IOException e) {
+                DriverStation.reportError("[feather] Unable to append to shot log file: " + e, false);
+            }
+
+            try {
+                recoveriesUnsynced |= drainRecoveries(recoveries, buffer, line);
+                if (recoveriesUnsynced && syncDue) {
+                    recoveries.force(false);
+                    recoveriesUnsynced = false;
+                }
+            } catch (IOException e) {
+                DriverStation.reportError("[feather] Unable to append to recovery log file: " + e, false);
+            }
+
+            try {
+                if (logChannel != null) {
+                    matchLogUnsynced |= matchLog.drainTo(logChannel);
+                    if (matchLogUnsynced && syncDue) {
+                        logChannel.force(false);
+                        matchLogUnsynced = false;
+                    }
+                }
+            } catch (IOException e) {
+                DriverStation.reportError("[feather] Unable to append to match log file: " + e, false);
+            }
+
+            if (syncDue) {
+                flightRecorder.force();
+                lastSync = now;
+            }
+
+            flushesCompleted.set(request);
+            if (flushRequests.get() == request) {
+                LockSupport.parkNanos(WRITE_PERIOD_NANOS);
+            }
+        }
+    }
+
+    private static void closeRetiredChannels() {
+        FileChannel retired;
+        while ((retired = retiredChannels.poll()) != null) {
+            try {
+                retired.close();
+            } catch (IOException e) {
+                DriverStation.reportError("[feather] Unable to close previous log file: " + e, false);
+            }
+        }
+    }
+
+    /**
+     * Formats and writes all pending shot records. Slots are only handed back once they're written, so a failed write
+     * is retried on the next pass. That can repeat records, but never loses them.
+     *
+     * @return true if anything was written
+     */
+    private static boolean drainShots(FileChannel channel, ByteBuffer buffer, StringBuilder line) throws IOException {
+        long tail = shotTail.get();
+        long head = shotHead.get();
+        if (tail == head || channel == null) {
+            return false;
+        }
+
+        buffer.clear();
+        for (; tail < head; tail++) {
+            ShotRecord record = shotRing[(int) (tail & (SHOT_RING_SIZE - 1))];
+            line.setLength(0);
+            line.append("{\"id\": \"").append(UUID.randomUUID())
+                    .append("\", \"timer\": ").append(record.timer)
+                    .append(", \"limelightDistance\": ").append(record.limelightDistance)
+                    .append(", \"lidarDistance\": ").append(record.lidarDistance)
+                    .append(", \"frontRPM\": ").append(record.frontRPM)
+                    .append(", \"rearRPM\": ").append(record.rearRPM)
+                    .append(", \"hoodUp\": ").append(record.hoodUp)
+                    .append(", \"profile\": \"").append(record.profile).append("\"}")
+                    .append(System.lineSeparator());
+            byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+
+            if (buffer.remaining() < bytes.length) {
+                writeFully(channel, buffer);
+                // Hand the written slots back to the robot loop
+                shotTail.lazySet(tail);
+            }
+            buffer.put(bytes);
+        }
+        writeFully(channel, buffer);
+        shotTail.lazySet(head);
+        return true;
+    }
+
+    /**
+     * Formats and writes all pending recovery records, handing slots back like {@link #drainShots}
+     *
+     * @return true if anything was written
+     */
+    private static boolean drainRecoveries(FileChannel channel, ByteBuffer buffer, StringBuilder line) throws IOException {
+        long tail = recoveryTail.get();
+        long head = recoveryHead.get();
+        if (tail == head || channel == null) {
+            return false;
+        }
+
+        buffer.clear();
+        for (; tail < head; tail++) {
+            RecoveryRecord record = recoveryRing[(int) (tail & (SHOT_RING_SIZE - 1))];
+            line.setLength(0);
+            line.append("{\"id\": \"").append(UUID.randomUUID())
+                    .append("\", \"timer\": ").append(record.timer)
+                    .append(", \"frontRPM\": ").append(record.frontRPM)
+                    .append(", \"rearRPM\": ").append(record.rearRPM)
+                    .append(", \"dipRPM\": ").append(record.dipRPM)
+                    .append(", \"recoverySeconds\": ").append(record.recoverySeconds).append("}")
+                    .append(System.lineSeparator());
+            byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+
+            if (buffer.remaining() < bytes.length) {
+                writeFully(channel, buffer);
+                recoveryTail.lazySet(tail);
+            }
+            buffer.put(bytes);
+        }
+        writeFully(channel, buffer);
+        recoveryTail.lazySet(head);
+        return true;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Preallocated slot in the shot ring buffer
+     */
+    private static class ShotRecord {
+        double timer;
+        double limelightDistance, lidarDistance;
+        double frontRPM, rearRPM;
+        boolean hoodUp;
+        String profile;
+    }
+
+    /**
+     * Preallocated slot in the recovery ring buffer
+     */
+    private static class RecoveryRecord {
+        double timer;
+        double frontRPM, rearRPM;
+        double dipRPM;
+        double recoverySeconds;
     }
 }
@@ -0,0 +1,169 @@
+package org.team1540.robot2022.utils;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FlightRecorder keeps the last few seconds of per-loop state in a fixed-size memory-mapped ring file.
+ * <p>
+ * Every record is written straight into the mapped file, so it's in the OS page cache as soon as
+ * {@link #endRecord()} returns and survives the JVM being killed or crashing. {@link #force()} should be called
+ * periodically off the robot loop to also get it onto flash in case of a brownout. On startup the previous
+ * recording is moved to a .prev file so a crash can be looked at after the robot is restarted.
+ * <p>
+ * File format (big-endian):
+ * <pre>
+ * header:
+ *   int    MAGIC
+ *   short  VERSION
+ *   short  channel count, not including the timestamp
+ *   int    slot count
+ *   int    slot size in bytes
+ *   long   head, the sequence number of the last complete record (0 if empty)
+ *   per channel: short name length, UTF-8 name
+ *   padding up to the data offset, a multiple of 64
+ * slots:
+ *   long     sequence number, starting at 1
+ *   double   timestamp in seconds
+ *   double[] channel values
+ *   long     sequence number again
+ * </pre>
+ * A record is in slot (sequence - 1) % slot count. A slot is only valid if both of its sequence numbers match, so a
+ * record torn by the process dying halfway through writing it is skipped. See {@link FlightRecorderReader}.
+ */
+public class FlightRecorder {
+    public static final int MAGIC = 0x4654464C; // "FTFL"
+    public static final short VERSION = 1;
+    static final int HEAD_OFFSET = 16;
+
+    private final List<String> names = new ArrayList<>();
+
+    private volatile MappedByteBuffer buffer;
+    private double[] values;
+    private int slotCount;
+    private int slotSize;
+    private int dataOffset;
+    private long sequence = 0;
+    private double timestamp;
+
+    /**
+     * Adds a channel to the recorder. Channels must all be added before it's opened.
+     *
+     * @param name the channel name
+     * @return the channel index to pass to {@link #set}
+     */
+    public int addChannel(String name) {
+        if (buffer != null) {
+            throw new IllegalStateException("Cannot add channel " + name + " after the flight recorder is open");
+        }
+        names.add(name);
+        return names.size() - 1;
+    }
+
+    /**
+     * Maps the ring file, moving any previous recording at the same path to path.prev
+     *
+     * @param path      the ring file
+     * @param slotCount the number of records to keep
+     * @throws IOException if the file can't be created or mapped
+     */
+    public void open(Path path, int slotCount) throws IOException {
+        if (Files.exists(path)) {
+            Files.move(path, path.resolveSibling(path.getFileName() + ".prev"), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.createDirectories(path.toAbsolutePath().getParent());
+
+        int channelCount = names.size();
+        int headerSize = HEAD_OFFSET + 8;
+        for (String name : names) {
+            headerSize += 2 + name.getBytes(StandardCharsets.UTF_8).length;
+        }
+        this.dataOffset = (headerSize + 63) / 64 * 64;
+        this.slotCount = slotCount;
+        this.slotSize = 8 + 8 + channelCount * 8 + 8;
+        this.values = new double[channelCount];
+
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, dataOffset + (long) slotCount * slotSize);
+        }
+
+        mapped.putInt(0, MAGIC);
+        mapped.putShort(4, VERSION);
+        mapped.putShort(6, (short) channelCount);
+        mapped.putInt(8, slotCount);
+        mapped.putInt(12, slotSize);
+        mapped.putLong(HEAD_OFFSET, 0);
+        mapped.position(HEAD_OFFSET + 8);
+        for (String name : names) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            mapped.putShort((short) bytes.length);
+            mapped.put(bytes);
+        }
+        buffer = mapped;
+    }
+
+    public boolean isOpen() {
+        return buffer != null;
+    }
+
+    /**
+     * Starts a new record. Values that aren't set keep their value from the previous record.
+     *
+     * @param timestampSeconds the record's timestamp
+     */
+    public void beginRecord(double timestampSeconds) {
+        timestamp = timestampSeconds;
+    }
+
+    /**
+     * Sets a value in the current record
+     *
+     * @param channel the channel index returned by {@link #addChannel}
+     * @param value   the value
+     */
+    public void set(int channel, double value) {
+        values[channel] = value;
+    }
+
+    /**
+     * Writes the current record into the ring, overwriting the oldest one. Does nothing if the recorder isn't open.
+     * Must only be called from the robot loop thread.
+     */
+    public void endRecord() {
+        MappedByteBuffer mapped = buffer;
+        if (mapped == null) {
+            return;
+        }
+        long seq = ++sequence;
+        int offset = dataOffset + (int) ((seq - 1) % slotCount) * slotSize;
+
+        mapped.putLong(offset, seq);
+        mapped.putDouble(offset + 8, timestamp);
+        for (int i = 0; i < values.length; i++) {
+            mapped.putDouble(offset + 16 + i * 8, values[i]);
+        }
+        mapped.putLong(offset + 16 + values.length * 8, seq);
+        mapped.putLong(HEAD_OFFSET, seq);
+    }
+
+    /**
+     * Flushes the mapped file to storage. This blocks on I/O, so it should be called from a background thread.
+     */
+    public void force() {
+        MappedByteBuffer mapped = buffer;
+        if (mapped != null) {
+            mapped.force();
+        }
+    }
+}
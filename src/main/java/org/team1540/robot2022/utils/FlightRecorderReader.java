@@ -0,0 +1,226 @@
+package org.team1540.robot2022.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * FlightRecorderReader reconstructs the timeline from a {@link FlightRecorder} ring file. It only depends on the JDK
+ * so it can run on a laptop.
+ * <p>
+ * Usage:
+ * <pre>
+ * FlightRecorderReader &lt;flightrecorder.bin&gt;                 print the timeline as CSV on stdout
+ * FlightRecorderReader --check &lt;flightrecorder.bin&gt;         check the timeline is contiguous and in order
+ * FlightRecorderReader --generate &lt;flightrecorder.bin&gt; &lt;slots&gt; write synthetic 50 Hz records until killed
+ * </pre>
+ * Killing a --generate process with kill -9 and running --check on its file tests recovery after a crash.
+ */
+public class FlightRecorderReader {
+    private final ByteBuffer buffer;
+    private final String[] names;
+    private final int slotCount;
+    private final int slotSize;
+    private final int dataOffset;
+    private final long first;
+    private final long last;
+    private long sequence;
+    private int offset;
+
+    /**
+     * Reads a ring file and finds the range of complete records
+     *
+     * @param path the ring file
+     * @throws IOException if the file can't be read or isn't a flight recording
+     */
+    public FlightRecorderReader(String path) throws IOException {
+        buffer = ByteBuffer.wrap(Files.readAllBytes(Paths.get(path)));
+        if (buffer.remaining() < FlightRecorder.HEAD_OFFSET + 8 || buffer.getInt(0) != FlightRecorder.MAGIC) {
+            throw new IOException(path + " is not a flight recording");
+        }
+        short version = buffer.getShort(4);
+        if (version != FlightRecorder.VERSION) {
+            throw new IOException("Unsupported flight recorder version " + version);
+        }
+        int channelCount = buffer.getShort(6);
+        slotCount = buffer.getInt(8);
+        slotSize = buffer.getInt(12);
+        long head = buffer.getLong(FlightRecorder.HEAD_OFFSET);
+
+        names = new String[channelCount];
+        buffer.position(FlightRecorder.HEAD_OFFSET + 8);
+        for (int i = 0; i < channelCount; i++) {
+            byte[] name = new byte[buffer.getShort()];
+            buffer.get(name);
+            names[i] = new String(name, StandardCharsets.UTF_8);
+        }
+        dataOffset = (buffer.position() + 63) / 64 * 64;
+        if (buffer.capacity() < dataOffset + (long) slotCount * slotSize) {
+            throw new IOException(path + " is truncated");
+        }
+
+        // The head is written after each record, so the process may have died after finishing a record but
+        // before moving the head
+        while (isValid(head + 1)) {
+            head++;
+        }
+        for (int i = 0; head > 0 && !isValid(head) && i < slotCount; i++) {
+            head--;
+        }
+        if (head > 0 && !isValid(head)) {
+            head = 0;
+        }
+
+        // Walk back from the head to the oldest record that is still intact. The slot after the head may have been
+        // torn by the process dying while overwriting it.
+        long oldest = head;
+        while (oldest > 1 && head - (oldest - 1) < slotCount && isValid(oldest - 1)) {
+            oldest--;
+        }
+        first = head > 0 ? oldest : 1;
+        last = head;
+        sequence = first - 1;
+    }
+
+    private int slotOffset(long seq) {
+        return dataOffset + (int) ((seq - 1) % slotCount) * slotSize;
+    }
+
+    private boolean isValid(long seq) {
+        int slot = slotOffset(seq);
+        return buffer.getLong(slot) == seq && buffer.getLong(slot + slotSize - 8) == seq;
+    }
+
+    public String[] getChannelNames() {
+        return names;
+    }
+
+    /**
+     * Advances to the next record in the timeline
+     *
+     * @return false when there are no more records
+     */
+    public boolean next() {
+        if (sequence >= last) {
+            return false;
+        }
+        sequence++;
+        offset = slotOffset(sequence);
+        return true;
+    }
+
+    /**
+     * @return the current record's sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the current record's timestamp in seconds
+     */
+    public double getTimestamp() {
+        return buffer.getDouble(offset + 8);
+    }
+
+    /**
+     * @param channel the channel index
+     * @return the current record's value for a channel
+     */
+    public double get(int channel) {
+        return buffer.getDouble(offset + 16 + channel * 8);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length >= 3 && args[0].equals("--generate")) {
+            generate(args[1], Integer.parseInt(args[2]));
+            return;
+        }
+        if (args.length >= 2 && args[0].equals("--check")) {
+            System.exit(check(args[1]) ? 0 : 1);
+        }
+        if (args.length < 1) {
+            System.err.println("Usage: FlightRecorderReader <flightrecorder.bin>");
+            System.err.println("       FlightRecorderReader --check <flightrecorder.bin>");
+            System.err.println("       FlightRecorderReader --generate <flightrecorder.bin> <slots>");
+            System.exit(1);
+        }
+
+        FlightRecorderReader reader = new FlightRecorderReader(args[0]);
+        String[] names = reader.getChannelNames();
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+            out.write("sequence,timestamp");
+            for (String name : names) {
+                out.write(',');
+                out.write(name);
+            }
+            out.write('\n');
+
+            StringBuilder line = new StringBuilder();
+            while (reader.next()) {
+                line.setLength(0);
+                line.append(reader.getSequence()).append(',').append(reader.getTimestamp());
+                for (int i = 0; i < names.length; i++) {
+                    line.append(',').append(reader.get(i));
+                }
+                out.write(line.append('\n').toString());
+            }
+        }
+    }
+
+    /**
+     * Checks that a recording decodes to a contiguous timeline with increasing timestamps
+     */
+    private static boolean check(String path) throws IOException {
+        FlightRecorderReader reader = new FlightRecorderReader(path);
+        long count = 0;
+        long previousSequence = -1;
+        double previousTimestamp = Double.NEGATIVE_INFINITY;
+        while (reader.next()) {
+            if (previousSequence >= 0 && reader.getSequence() != previousSequence + 1) {
+                System.out.println("Gap after record " + previousSequence);
+                return false;
+            }
+            if (reader.getTimestamp() <= previousTimestamp) {
+                System.out.println("Timestamp went backwards at record " + reader.getSequence());
+                return false;
+            }
+            previousSequence = reader.getSequence();
+            previousTimestamp = reader.getTimestamp();
+            count++;
+        }
+        System.out.println("Recovered " + count + " records, " + reader.first + " to " + reader.last);
+        return count > 0;
+    }
+
+    /**
+     * Writes synthetic records at 50 Hz until the process is killed
+     */
+    private static void generate(String path, int slots) throws IOException, InterruptedException {
+        FlightRecorder recorder = new FlightRecorder();
+        int channels = 9;
+        for (int i = 0; i < channels; i++) {
+            recorder.addChannel("synthetic/" + i);
+        }
+        recorder.open(Paths.get(path), slots);
+
+        long start = System.nanoTime();
+        for (long loop = 0; ; loop++) {
+            double time = (System.nanoTime() - start) / 1e9;
+            recorder.beginRecord(time);
+            for (int i = 0; i < channels; i++) {
+                recorder.set(i, Math.sin(time * (i + 1)));
+            }
+            recorder.endRecord();
+            if (loop % 50 == 0) {
+                System.out.println("Wrote " + (loop + 1) + " records");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
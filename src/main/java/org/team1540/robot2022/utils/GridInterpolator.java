@@ -0,0 +1,225 @@
+package org.team1540.robot2022.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * GridInterpolator does multilinear interpolation over a regular N-dimensional grid and returns several outputs
+ * from one lookup.
+ * <p>
+ * Every grid point's outputs are stored in one packed array, so a lookup is a binary search on each axis and a
+ * weighted sum over the 2^N surrounding points, without allocating. Queries outside the grid are clamped to its
+ * edges, and NaN is clamped to the upper edge like {@link LinearInterpolator} does, so a missing measurement never
+ * turns into a NaN output. An axis with a single value (e.g. only hood up has been calibrated) is ignored.
+ * <p>
+ * Lookups share scratch arrays, so one GridInterpolator must only be used from one thread at a time.
+ * <p>
+ * Tables are loaded from CSV with one row per grid point: the N axis values followed by the outputs. Lines that
+ * don't start with a number, like a header or # comments, are skipped. Every combination of axis values must be
+ * present.
+ * <pre>
+ * distance,radialVelocity,hood,front,rear
+ * 60,0,1,2000,1900
+ * ...
+ * </pre>
+ */
+public class GridInterpolator {
+    private final double[][] axes;
+    private final int outputs;
+    private final double[] values;
+    private final int[] strides;
+
+    // Scratch space for lookups
+    private final int[] lower;
+    private final double[] fractions;
+
+    /**
+     * Creates a GridInterpolator
+     *
+     * @param axes    the grid values along each axis, strictly increasing
+     * @param outputs the number of outputs at each grid point
+     * @param values  the outputs, packed with the last axis changing fastest and the outputs of each point together
+     */
+    public GridInterpolator(double[][] axes, int outputs, double[] values) {
+        int points = 1;
+        for (double[] axis : axes) {
+            if (axis.length < 1) {
+                throw new IllegalArgumentException("Grid axes need at least one value");
+            }
+            for (int i = 1; i < axis.length; i++) {
+                if (!(axis[i] > axis[i - 1])) {
+                    throw new IllegalArgumentException("Grid axis values must be strictly increasing: " + Arrays.toString(axis));
+                }
+            }
+            points *= axis.length;
+        }
+        if (values.length != points * outputs) {
+            throw new IllegalArgumentException("Expected " + points * outputs + " grid values but got " + values.length);
+        }
+
+        this.axes = axes;
+        this.outputs = outputs;
+        this.values = values;
+        this.strides = new int[axes.length];
+        int stride = outputs;
+        for (int d = axes.length - 1; d >= 0; d--) {
+            strides[d] = stride;
+            stride *= axes[d].length;
+        }
+        this.lower = new int[axes.length];
+        this.fractions = new double[axes.length];
+    }
+
+    public int getDimensions() {
+        return axes.length;
+    }
+
+    public int getOutputs() {
+        return outputs;
+    }
+
+    /**
+     * Interpolates all outputs at a point. Not thread safe, since it reuses internal scratch arrays.
+     *
+     * @param query  the point, one value per axis
+     * @param output filled with the interpolated outputs, at least {@link #getOutputs()} long
+     */
+    public void getInterpolatedValues(double[] query, double[] output) {
+        for (int d = 0; d < axes.length; d++) {
+            locate(d, query[d]);
+        }
+
+        for (int k = 0; k < outputs; k++) {
+            output[k] = 0;
+        }
+        for (int corner = 0; corner < (1 << axes.length); corner++) {
+            double weight = 1;
+            int offset = 0;
+            for (int d = 0; d < axes.length; d++) {
+                boolean upper = (corner & (1 << d)) != 0;
+                weight *= upper ? fractions[d] : 1 - fractions[d];
+                offset += (lower[d] + (upper ? 1 : 0)) * strides[d];
+            }
+            // Also skips the out of range upper corner of single valued axes
+            if (weight == 0) {
+                continue;
+            }
+            for (int k = 0; k < outputs; k++) {
+                output[k] += weight * values[offset + k];
+            }
+        }
+    }
+
+    /**
+     * Finds the grid cell containing x along an axis, clamping to the edges of the grid. NaN goes to the upper edge.
+     */
+    private void locate(int dimension, double x) {
+        double[] axis = axes[dimension];
+        int n = axis.length;
+        if (n == 1 || x <= axis[0]) {
+            lower[dimension] = 0;
+            fractions[dimension] = 0;
+            return;
+        }
+        if (!(x < axis[n - 1])) { // Written so NaN goes to the upper edge
+            lower[dimension] = n - 2;
+            fractions[dimension] = 1;
+            return;
+        }
+
+        // Find the last value <= x
+        int low = 0;
+        int high = n - 1;
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if (axis[mid] <= x) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        lower[dimension] = low;
+        fractions[dimension] = (x - axis[low]) / (axis[low + 1] - axis[low]);
+    }
+
+    /**
+     * Loads a grid from a CSV file
+     *
+     * @param path       the CSV file
+     * @param dimensions the number of axis columns before the outputs
+     * @return the grid
+     * @throws IOException if the file can't be read or isn't a complete grid
+     */
+    public static GridInterpolator fromCsv(Path path, int dimensions) throws IOException {
+        List<double[]> rows = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(path)) {
+            lineNumber++;
+            String[] cells = line.split(",");
+            if (line.isBlank() || !isNumber(cells[0])) {
+                continue;
+            }
+            if (cells.length <= dimensions || (!rows.isEmpty() && cells.length != rows.get(0).length)) {
+                throw new IOException(path + ":" + lineNumber + " has the wrong number of columns");
+            }
+            double[] row = new double[cells.length];
+            try {
+                for (int i = 0; i < cells.length; i++) {
+                    row[i] = Double.parseDouble(cells[i].trim());
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException(path + ":" + lineNumber + " is not a number: " + e.getMessage());
+            }
+            rows.add(row);
+        }
+        if (rows.isEmpty()) {
+            throw new IOException(path + " has no grid points");
+        }
+
+        double[][] axes = new double[dimensions][];
+        for (int d = 0; d < dimensions; d++) {
+            TreeSet<Double> axisValues = new TreeSet<>();
+            for (double[] row : rows) {
+                axisValues.add(row[d]);
+            }
+            axes[d] = axisValues.stream().mapToDouble(Double::doubleValue).toArray();
+        }
+
+        int outputs = rows.get(0).length - dimensions;
+        int points = 1;
+        for (double[] axis : axes) {
+            points *= axis.length;
+        }
+        double[] values = new double[points * outputs];
+        boolean[] filled = new boolean[points];
+        for (double[] row : rows) {
+            int point = 0;
+            for (int d = 0; d < dimensions; d++) {
+                point = point * axes[d].length + Arrays.binarySearch(axes[d], row[d]);
+            }
+            if (filled[point]) {
+                throw new IOException(path + " has more than one row for " + Arrays.toString(Arrays.copyOf(row, dimensions)));
+            }
+            filled[point] = true;
+            System.arraycopy(row, dimensions, values, point * outputs, outputs);
+        }
+        if (rows.size() != points) {
+            throw new IOException(path + " is missing " + (points - rows.size()) + " of " + points + " grid points");
+        }
+        return new GridInterpolator(axes, outputs, values);
+    }
+
+    private static boolean isNumber(String cell) {
+        try {
+            Double.parseDouble(cell.trim());
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -1,18 +1,22 @@
 package org.team1540.robot2022.utils;
 
 import edu.wpi.first.hal.I2CJNI;
-import edu.wpi.first.math.filter.MedianFilter;
 import edu.wpi.first.wpilibj.I2C.Port;
+import org.team1540.robot2022.io.LidarIO;
 
 import java.nio.ByteBuffer;
 
-public class LIDAR {
+public class LIDAR implements LidarIO {
     private static final byte k_deviceAddress = 0x62; // Default device id
 
     private final byte m_port; // Default port is I2C.Port.kOnboard
 
     private final ByteBuffer m_buffer = ByteBuffer.allocateDirect(2);
-    private final MedianFilter filter = new MedianFilter(5);
+    private final MovingMedianFilter filter = new MovingMedianFilter(5);
+    private double lastDistance = 0;
+
+    private final Telemetry.NumberEntry distanceTelemetry = Telemetry.registerNumber("lidar/distance", Telemetry.Rate.DEBUG);
+    private final Telemetry.NumberEntry rawDistanceTelemetry = Telemetry.registerNumber("lidar/rawDistance", Telemetry.Rate.DEBUG);
 
     public LIDAR(Port port) {
         m_port = (byte) port.value;
@@ -48,8 +52,18 @@ public class LIDAR {
         return I2CJNI.i2CWrite(m_port, k_deviceAddress, m_buffer, (byte) 2);
     }
 
+    /**
+     * Gets the filtered distance read by the last {@link #updateSmartDashboardValues()}, without another I2C read
+     *
+     * @return the last distance in inches
+     */
+    public double getLastDistance() {
+        return lastDistance;
+    }
+
     public void updateSmartDashboardValues() {
-        ChickenSmartDashboard.putDebugNumber("lidar/distance", getDistance());
-        ChickenSmartDashboard.putDebugNumber("lidar/rawDistance", getRawDistance());
+        lastDistance = getDistance();
+        distanceTelemetry.set(lastDistance);
+        rawDistanceTelemetry.set(getRawDistance());
     }
 }
@@ -0,0 +1,110 @@
+package org.team1540.robot2022.utils;
+
+import edu.wpi.first.math.controller.RamseteController;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.DifferentialDriveWheelSpeeds;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import edu.wpi.first.wpilibj2.command.RamseteCommand;
+import org.team1540.robot2022.RamseteConfig;
+import org.team1540.robot2022.commands.drivetrain.Drivetrain;
+import org.team1540.robot2022.utils.AutoHelper.AutoPath;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * LazyRamseteCommand follows an {@link AutoPath}, but only builds its {@link RamseteCommand} when it's prepared or
+ * first initialized, so auto sequences can be constructed without loading every trajectory.
+ */
+public class LazyRamseteCommand extends CommandBase {
+    // Enough passes over a typical path for the JIT to compile the controller math
+    private static final int WARMUP_PASSES = 40;
+
+    private static final Map<String, List<LazyRamseteCommand>> commandsByPath = new ConcurrentHashMap<>();
+
+    private final Drivetrain drivetrain;
+    private final AutoPath path;
+    private RamseteCommand command;
+
+    public LazyRamseteCommand(Drivetrain drivetrain, AutoPath path) {
+        this.drivetrain = drivetrain;
+        this.path = path;
+        addRequirements(drivetrain);
+        commandsByPath.computeIfAbsent(path.name, name -> new CopyOnWriteArrayList<>()).add(this);
+    }
+
+    /**
+     * Builds the RamseteCommand ahead of time if the trajectory has already loaded. Must be called from the main
+     * robot thread, like the command itself.
+     *
+     * @return true if the command is ready to run without loading or building anything
+     */
+    public boolean prepare() {
+        if (command == null && TrajectoryCache.isLoaded(path.name)) {
+            command = AutoHelper.getRamseteCommand(drivetrain, path.getTrajectory());
+        }
+        return command != null;
+    }
+
+    /**
+     * Prepares every LazyRamseteCommand that follows a path
+     *
+     * @param path the path
+     */
+    public static void prepareAll(AutoPath path) {
+        for (LazyRamseteCommand command : commandsByPath.getOrDefault(path.name, List.of())) {
+            command.prepare();
+        }
+    }
+
+    /**
+     * Runs the Ramsete math over a trajectory with a separate controller, so it's compiled by the JIT before the
+     * command first runs. Safe to call from a background thread since it doesn't touch any shared controllers.
+     *
+     * @param trajectory the trajectory to sample
+     * @return a value derived from the results, so the work isn't optimized away
+     */
+    public static double warmUp(Trajectory trajectory) {
+        RamseteController controller = new RamseteController(RamseteConfig.kRamseteB, RamseteConfig.kRamseteZeta);
+        double total = trajectory.getTotalTimeSeconds();
+        double sum = 0;
+        for (int pass = 0; pass < WARMUP_PASSES; pass++) {
+            for (double time = 0; time <= total; time += 0.02) {
+                Trajectory.State state = trajectory.sample(time);
+                ChassisSpeeds speeds = controller.calculate(state.poseMeters, state);
+                DifferentialDriveWheelSpeeds wheelSpeeds = RamseteConfig.kDriveKinematics.toWheelSpeeds(speeds);
+                sum += RamseteConfig.feedForward.calculate(wheelSpeeds.leftMetersPerSecond, 0)
+                        + RamseteConfig.feedForward.calculate(wheelSpeeds.rightMetersPerSecond, 0);
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public void initialize() {
+        if (command == null) {
+            command = AutoHelper.getRamseteCommand(drivetrain, path.getTrajectory());
+        }
+        command.initialize();
+    }
+
+    @Override
+    public void execute() {
+        command.execute();
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        if (command != null) {
+            command.end(interrupted);
+        }
+    }
+
+    @Override
+    public boolean isFinished() {
+        return command.isFinished();
+    }
+}
@@ -1,38 +1,46 @@
 package org.team1540.robot2022.utils;
 
-import edu.wpi.first.networktables.NetworkTable;
-import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.wpilibj.drive.Vector2d;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import org.team1540.robot2022.io.LimelightFrame;
+import org.team1540.robot2022.io.LimelightIO;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public class Limelight {
-    private static final double HORIZONTAL_FOV = Math.toRadians(59.6);
-    private static final double VERTICAL_FOV = Math.toRadians(49.7);
-    private static final Vector2d CAM_RESOLUTION = new Vector2d(320, 240);
-    private final NetworkTable limelightTable;
-    public final double limelightHeight = 0.71; // 28in to m
-    public final double limelightAngle = Math.toRadians(40);
-    public final double targetHeight = 2.64; // 8'8" to m
+    public static final double HORIZONTAL_FOV = Math.toRadians(59.6);
+    public static final double VERTICAL_FOV = Math.toRadians(49.7);
+    public static final double RESOLUTION_X = 320; // pixels
+    public static final double RESOLUTION_Y = 240;
+    private static final Vector2d CAM_RESOLUTION = new Vector2d(RESOLUTION_X, RESOLUTION_Y);
+    // Pixels to viewport coordinates, from the Limelight docs: tan(fov / 2) * 2 / resolution * (pixel - center)
+    public static final double VIEWPORT_SCALE_X = Math.tan(HORIZONTAL_FOV / 2) * 2 / RESOLUTION_X;
+    public static final double VIEWPORT_SCALE_Y = Math.tan(VERTICAL_FOV / 2) * 2 / RESOLUTION_Y;
+    public static final double CENTER_X = RESOLUTION_X / 2 - 0.5;
+    public static final double CENTER_Y = RESOLUTION_Y / 2 - 0.5;
+    private final LimelightIO io;
+    private final LimelightFrame frame = new LimelightFrame();
+    private boolean newFrame = false;
+    public static final double limelightHeight = 0.71; // 28in to m
+    public static final double limelightAngle = Math.toRadians(40);
+    public static final double targetHeight = 2.64; // 8'8" to m
+    public static final double targetRadius = 0.68; // Upper hub vision tape ring, m
+
+    private final Telemetry.BooleanEntry targetFoundTelemetry = Telemetry.registerBoolean("limelight/custom/targetFound", Telemetry.Rate.DEBUG);
 
     /**
-     * Constructs a new limelight interface with the default hostname.
+     * Constructs a new limelight interface.
      *
-     * @param name hostname of the limelight
+     * @param io the limelight's raw values, from {@link org.team1540.robot2022.io.Hardware#limelight(String)}
      */
-    public Limelight(String name) {
-        limelightTable = NetworkTableInstance.getDefault().getTable(name);
+    public Limelight(LimelightIO io) {
+        this.io = io;
         ChickenSmartDashboard.putDebugNumber("limelight/custom/calculatedDistance", 0);
         ChickenSmartDashboard.putDebugNumber("limelight/custom/targetAlignedRange", 5);
         setLeds(true);
     }
 
-    public NetworkTable getNetworkTable() {
-        return limelightTable;
-    }
-
     public double getHorizontalFov() {
         return HORIZONTAL_FOV;
     }
@@ -45,19 +53,76 @@ public class Limelight {
         return CAM_RESOLUTION;
     }
 
+    /**
+     * Takes the newest frame from the limelight, if one has arrived. This is called once at the start of each loop, so
+     * everything reading the limelight in a loop sees the same frame.
+     *
+     * @return whether there's a new frame
+     */
+    public boolean update() {
+        newFrame = io.read(frame);
+        return newFrame;
+    }
+
+    /**
+     * Tells whether the last {@link #update()} got a new frame, so values calculated from the limelight only need to
+     * be recalculated when this is true.
+     *
+     * @return whether the current frame is new this loop
+     */
+    public boolean isNewFrame() {
+        return newFrame;
+    }
+
+    /**
+     * @return the number of frames received, which goes up by one for each new frame
+     */
+    public long getFrameSequence() {
+        return frame.getSequence();
+    }
+
+    /**
+     * @return horizontal offset to the target in degrees, or 0 if there is no target
+     */
+    public double getTx() {
+        return frame.getTx();
+    }
+
+    /**
+     * @return vertical offset to the target in degrees, or 0 if there is no target
+     */
+    public double getTy() {
+        return frame.getTy();
+    }
+
+    /**
+     * @return target area as a percent of the image
+     */
+    public double getTa() {
+        return frame.getTa();
+    }
+
+    /**
+     * Gets how old the current target values are.
+     *
+     * @return the time from the image being captured to its values being published in seconds
+     */
+    public double getLatencySeconds() {
+        return frame.getLatency() / 1000;
+    }
+
     public void updateSmartDashboardValues() {
-        ChickenSmartDashboard.putDebugBoolean("limelight/custom/targetFound", isTargetFound());
+        targetFoundTelemetry.set(isTargetFound());
     }
 
     /**
-     * Gets the output of the limelight targeting from the network table.
+     * Gets the output of the limelight targeting. This allocates, use {@link #getTx()} and {@link #getTy()} in code that
+     * runs every loop.
      *
      * @return a {@link Vector2d} containing the output angles of the limelight targeting in degrees
      */
     public Vector2d getTargetAngles() {
-        double x = limelightTable.getEntry("tx").getDouble(0);
-        double y = limelightTable.getEntry("ty").getDouble(0);
-        return new Vector2d(x, y);
+        return new Vector2d(frame.getTx(), frame.getTy());
     }
 
     /**
@@ -66,7 +131,7 @@ public class Limelight {
      * @return the state of the target
      */
     public boolean isTargetFound() {
-        double angle = Math.abs(getTargetAngles().x);
+        double angle = Math.abs(frame.getTx());
         return angle > 0.001;
     }
 
@@ -76,12 +141,12 @@ public class Limelight {
      * @return the state of target alignment
      */
     public boolean isTargetAligned() {
-        double distance = Math.abs(getTargetAngles().x);
+        double distance = Math.abs(frame.getTx());
         return distance > 0 && distance < SmartDashboard.getNumber("limelight/custom/targetAlignedRange", 5);
     }
 
     public double getLeds() {
-        return limelightTable.getEntry("ledMode").getDouble(1);
+        return io.getLedMode();
     }
 
     /**
@@ -100,32 +165,66 @@ public class Limelight {
      */
     public void setLeds(int mode) {
         if (getLeds() != mode) {
-            limelightTable.getEntry("ledMode").setNumber(mode);
-            NetworkTableInstance.getDefault().flush();
+            io.setLedMode(mode);
         }
     }
 
     public boolean getLedsOn() {
-        return limelightTable.getEntry("ledMode").getDouble(1) == LEDMode.ON;
+        return io.getLedMode() == LEDMode.ON;
     }
 
     public long getPipeline() {
-        return Math.round((double) limelightTable.getEntry("getpipe").getNumber(-1));
+        return io.getPipeline();
     }
 
     public void setPipeline(double id) {
         if (getPipeline() != id) {
-            limelightTable.getEntry("pipeline").setNumber(id);
-            NetworkTableInstance.getDefault().flush();
+            io.setPipeline(id);
+        }
+    }
+
+    /**
+     * Gets the target's corners. This allocates, use {@link #getCornerX(int)} and {@link #getCornerY(int)} in code
+     * that runs every loop.
+     *
+     * @return the corners in pixels, as x and y pairs
+     */
+    public double[] getCornerCoordinates() {
+        double[] corners = new double[frame.getCornerCount() * 2];
+        for (int i = 0; i < frame.getCornerCount(); i++) {
+            corners[i * 2] = frame.getCornerX(i);
+            corners[i * 2 + 1] = frame.getCornerY(i);
         }
+        return corners;
+    }
+
+    /**
+     * @return the number of corners in the current frame
+     */
+    public int getCornerCount() {
+        return frame.getCornerCount();
+    }
+
+    /**
+     * @param index the corner, from 0 to {@link #getCornerCount()}
+     * @return the corner's x in pixels
+     */
+    public double getCornerX(int index) {
+        return frame.getCornerX(index);
+    }
+
+    /**
+     * @param index the corner, from 0 to {@link #getCornerCount()}
+     * @return the corner's y in pixels, increasing downwards
+     */
+    public double getCornerY(int index) {
+        return frame.getCornerY(index);
     }
 
     public List<Vector2d> getCorners() {
-        Double[] xCorners = limelightTable.getEntry("tcornx").getDoubleArray(new Double[]{});
-        Double[] yCorners = limelightTable.getEntry("tcorny").getDoubleArray(new Double[]{});
         List<Vector2d> cornerList = new ArrayList<>();
-        for (int i = 0; i < xCorners.length; i++) {
-            cornerList.add(new Vector2d(xCorners[i], yCorners[i]));
+        for (int i = 0; i < frame.getCornerCount(); i++) {
+            cornerList.add(new Vector2d(frame.getCornerX(i), frame.getCornerY(i)));
         }
         return cornerList;
     }
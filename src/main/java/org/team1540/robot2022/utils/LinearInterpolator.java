@@ -12,12 +12,12 @@ package org.team1540.robot2022.utils;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.Filesystem;
 
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Scanner;
 
 /**
  * LinearInterpolator - given a table of x and y values, will interpolate values
@@ -30,11 +30,22 @@ import java.util.Scanner;
  * private linearInterpolator lt = new linearInterpolator(data);
  * double y = lt.getInterpolatedValue(1.5); // returns 15.25
  *</code>
+ * <p>
+ * The table is stored as flat sorted arrays with the slope of each segment precomputed. Lookups are a binary search,
+ * starting with the segment used by the previous call since consecutive queries are usually close together, and
+ * never allocate.
+ * <p>
+ * Remembering that segment means every lookup writes to the table, so a LinearInterpolator isn't thread safe, even
+ * one swapped in whole by {@link CalibrationFile}. A table used off the robot loop thread needs its own copy, like
+ * ShotSweep makes for each run.
  */
 
 public class LinearInterpolator implements Interpolator {
 
-    private double[][] table;
+    private double[] xs;
+    private double[] ys;
+    private double[] slopes; // slopes[i] is the slope from point i to point i + 1
+    private int hint = 0; // Upper index of the segment used by the last lookup
     private boolean initialized = false;
 
     /**
@@ -52,24 +63,60 @@ public class LinearInterpolator implements Interpolator {
      * @param path Input location of the file within the deploy directory. `A file at src/main/deploy/file.json` should be entered as `file.json`
      */
     public LinearInterpolator(String path) {
-        File inputFile = Filesystem.getDeployDirectory().toPath().resolve(path).toFile();
-        Scanner scanner;
+        Path inputFile = Filesystem.getDeployDirectory().toPath().resolve(path);
         try {
-            scanner = new Scanner(inputFile);
-        } catch (FileNotFoundException ex){
-            DriverStation.reportError("Could not find file", ex.getStackTrace());
-            return;
+            build_table(readCsv(inputFile, 1));
+        } catch (IOException ex) {
+            DriverStation.reportError("Could not read interpolation table " + inputFile + ": " + ex.getMessage(), ex.getStackTrace());
         }
+    }
+
+    /**
+     * create LinearInterpolator class from one output column of a CSV file
+     *
+     * @param path   the CSV file
+     * @param column the column to use for y values, the first column is always x
+     * @return the interpolator
+     * @throws IOException if the file can't be read or has no data
+     */
+    public static LinearInterpolator fromCsv(Path path, int column) throws IOException {
+        return new LinearInterpolator(readCsv(path, column));
+    }
+
+    /**
+     * Reads {x, y} pairs from the first column and another column of a CSV file. Lines that don't start with a number,
+     * like a header or # comments, are skipped.
+     *
+     * @param path   the CSV file
+     * @param column the column to use for y values
+     * @return the pairs
+     * @throws IOException if the file can't be read or has no data
+     */
+    public static double[][] readCsv(Path path, int column) throws IOException {
         List<double[]> data = new ArrayList<>();
-        while(scanner.hasNextLine()){
-            String[] str = scanner.nextLine().split(",");
-            double [] lineData = {
-                Double.parseDouble(str[0]),
-                Double.parseDouble(str[1])
-            };
-            data.add(lineData);
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(path)) {
+            lineNumber++;
+            String[] str = line.split(",");
+            if (line.isBlank() || !str[0].trim().matches("[-+]?[0-9.].*")) {
+                continue;
+            }
+            if (str.length <= column) {
+                throw new IOException(path + ":" + lineNumber + " has no column " + column);
+            }
+            try {
+                data.add(new double[]{
+                        Double.parseDouble(str[0].trim()),
+                        Double.parseDouble(str[column].trim())
+                });
+            } catch (NumberFormatException ex) {
+                throw new IOException(path + ":" + lineNumber + " is not a number: " + ex.getMessage());
+            }
         }
-        build_table( (double[][]) data.toArray());
+        if (data.isEmpty()) {
+            throw new IOException(path + " has no data");
+        }
+        return data.toArray(new double[0][]);
     }
 
 
@@ -94,13 +141,26 @@ public class LinearInterpolator implements Interpolator {
             return;
         }
 
-        table = new double[rows][cols];
+        double[][] table = new double[rows][cols];
         for (int x = 0; x < data.length; x++) {
             for (int y = 0; y < data[x].length; y++) {
                 table[x][y] = data[x][y];
             }
         }
         Arrays.sort(table, (a, b) -> Double.compare(a[0], b[0]));
+
+        xs = new double[rows];
+        ys = new double[rows];
+        slopes = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            xs[i] = table[i][0];
+            ys[i] = table[i][1];
+        }
+        for (int i = 0; i < rows - 1; i++) {
+            double dx = xs[i + 1] - xs[i];
+            // Duplicate x values are never interpolated between, see getInterpolatedValue
+            slopes[i] = dx == 0 ? 0 : (ys[i + 1] - ys[i]) / dx;
+        }
         initialized = true;
     }
 
@@ -128,27 +188,45 @@ public class LinearInterpolator implements Interpolator {
             return 0.0;
         }
 
-        // NOTE: this uses linear search, for larger tables (>5), binary search would be
-        // faster
-        int index = 0;
-        for (index = 0; index < table.length; index++) {
-            if (table[index][0] >= x) {
-                break;
-            }
-        }
+        int index = findIndex(x);
+        hint = index;
 
-        if (index >= table.length) {
-            return table[table.length - 1][1];
+        if (index >= xs.length) {
+            return ys[xs.length - 1];
+        }
+        if ((xs[index] == x) || (index == 0)) {
+            return ys[index];
         }
+        // xs[index - 1] < x < xs[index], so this segment is never between duplicate x values
+        return ys[index - 1] + (x - xs[index - 1]) * slopes[index - 1];
+    }
 
-        double high_y = table[index][1];
-        double high_x = table[index][0];
-        if ((high_x == x) || (index == 0)) {
-            return high_y;
+    /**
+     * Finds the index of the first x value that is greater than or equal to x, or the table length if there isn't one.
+     * Checks the segment from the last lookup and its neighbours before falling back to a binary search.
+     *
+     * @param x the value to search for
+     * @return the index
+     */
+    private int findIndex(double x) {
+        int n = xs.length;
+        int h = hint;
+        for (int i = Math.max(0, h - 1); i <= Math.min(n, h + 1); i++) {
+            if ((i == 0 || !(xs[i - 1] >= x)) && (i == n || xs[i] >= x)) {
+                return i;
+            }
         }
-        double low_y = table[index - 1][1];
-        double low_x = table[index - 1][0];
 
-        return (low_y + (x - low_x) * (high_y - low_y) / (high_x - low_x));
+        int low = 0;
+        int high = n;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (!(xs[mid] >= x)) { // Written so NaN sorts past the end, like the old linear scan
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
     }
 }
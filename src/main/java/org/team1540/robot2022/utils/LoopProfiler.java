@@ -0,0 +1,152 @@
+package org.team1540.robot2022.utils;
+
+import java.util.Arrays;
+
+/**
+ * LoopProfiler times sections of the robot loop and publishes a rolling p50/p99/max summary once per second.
+ * <p>
+ * Samples are kept in preallocated primitive arrays, so recording a span never allocates. It only depends on
+ * {@link System#nanoTime()}, so loop budgets can be checked the same way in desktop simulation.
+ */
+public final class LoopProfiler {
+    private static final long LOOP_BUDGET_NANOS = 20_000_000L;
+    private static final long PUBLISH_PERIOD_NANOS = 1_000_000_000L;
+
+    // 5 seconds of 20ms loops. Kept under 286 so Arrays.sort uses an in-place quicksort.
+    private static final int WINDOW = 250;
+
+    private static final Section[] sections = Section.values();
+    private static final long[][] samples = new long[sections.length][WINDOW];
+    private static final int[] sampleCounts = new int[sections.length];
+    private static final int[] nextSample = new int[sections.length];
+    private static final long[] sortBuffer = new long[WINDOW];
+
+    private static long lastPublishNanos = System.nanoTime();
+    private static int overruns = 0;
+
+    private LoopProfiler() {
+    }
+
+    /**
+     * Starts a span
+     *
+     * @return the start timestamp to pass to {@link #stop}
+     */
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Ends a span and records its duration
+     *
+     * @param section    the section that was timed
+     * @param startNanos the timestamp returned by {@link #start}
+     */
+    public static void stop(Section section, long startNanos) {
+        long duration = System.nanoTime() - startNanos;
+        int i = section.ordinal();
+        samples[i][nextSample[i]] = duration;
+        nextSample[i] = (nextSample[i] + 1) % WINDOW;
+        if (sampleCounts[i] < WINDOW) {
+            sampleCounts[i]++;
+        }
+        if (section == Section.ROBOT_PERIODIC && duration > LOOP_BUDGET_NANOS) {
+            overruns++;
+        }
+    }
+
+    /**
+     * Gets a percentile of the recorded durations for a section over the rolling window
+     *
+     * @param section    the section to query
+     * @param percentile the percentile, [0, 1]
+     * @return the duration in milliseconds, or 0 if nothing has been recorded
+     */
+    public static double getPercentileMillis(Section section, double percentile) {
+        int i = section.ordinal();
+        int count = sampleCounts[i];
+        if (count == 0) {
+            return 0;
+        }
+        System.arraycopy(samples[i], 0, sortBuffer, 0, count);
+        Arrays.sort(sortBuffer, 0, count);
+        int index = (int) Math.ceil(percentile * count) - 1;
+        return sortBuffer[Math.max(0, Math.min(count - 1, index))] / 1e6;
+    }
+
+    /**
+     * Gets the longest recorded duration for a section over the rolling window
+     *
+     * @param section the section to query
+     * @return the duration in milliseconds
+     */
+    public static double getMaxMillis(Section section) {
+        int i = section.ordinal();
+        long max = 0;
+        for (int j = 0; j < sampleCounts[i]; j++) {
+            max = Math.max(max, samples[i][j]);
+        }
+        return max / 1e6;
+    }
+
+    /**
+     * Gets the number of robot loops that went over the 20ms budget since startup
+     *
+     * @return the overrun count
+     */
+    public static int getOverruns() {
+        return overruns;
+    }
+
+    /**
+     * Clears all recorded samples
+     */
+    public static void reset() {
+        Arrays.fill(sampleCounts, 0);
+        Arrays.fill(nextSample, 0);
+        overruns = 0;
+    }
+
+    /**
+     * Publishes the summary to SmartDashboard if a second has passed since the last publish. This should be called
+     * once at the end of every robot loop.
+     */
+    public static void publishPeriodically() {
+        long now = System.nanoTime();
+        if (now - lastPublishNanos < PUBLISH_PERIOD_NANOS) {
+            return;
+        }
+        lastPublishNanos = now;
+
+        for (Section section : sections) {
+            ChickenSmartDashboard.putDebugNumber(section.p50Key, getPercentileMillis(section, 0.5));
+            ChickenSmartDashboard.putDebugNumber(section.p99Key, getPercentileMillis(section, 0.99));
+            ChickenSmartDashboard.putDebugNumber(section.maxKey, getMaxMillis(section));
+        }
+        ChickenSmartDashboard.putDebugNumber("profiler/overruns", overruns);
+    }
+
+    /**
+     * Timed sections of the robot loop
+     */
+    public enum Section {
+        ROBOT_PERIODIC("robotPeriodic"),
+        SCHEDULER("scheduler"),
+        DRIVETRAIN("drivetrain"),
+        SHOOTER("shooter"),
+        INDEXER("indexer"),
+        CLIMBER("climber"),
+        VISION("vision"),
+        LIMELIGHT("limelight"),
+        LIMELIGHT_FRAME("limelightFrame"),
+        LIDAR("lidar");
+
+        private final String p50Key, p99Key, maxKey;
+
+        Section(String name) {
+            this.p50Key = "profiler/" + name + "/p50Ms";
+            this.p99Key = "profiler/" + name + "/p99Ms";
+            this.maxKey = "profiler/" + name + "/maxMs";
+        }
+    }
+}
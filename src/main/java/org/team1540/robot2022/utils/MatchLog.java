@@ -0,0 +1,269 @@
+package org.team1540.robot2022.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MatchLog records a fixed set of numeric channels every loop in a compact, append-only binary format.
+ * <p>
+ * Rows are buffered into preallocated blocks by the robot loop and encoded by a background thread through
+ * {@link #drainTo}, so recording a row never allocates or touches the disk. If the writer falls behind, whole rows
+ * are dropped and counted.
+ * <p>
+ * File format (big-endian):
+ * <pre>
+ * header:
+ *   int    MAGIC
+ *   short  VERSION
+ *   short  column count, not including the timestamp
+ *   int    maximum rows per block
+ *   per column: short name length, UTF-8 name, double resolution
+ * blocks, repeated until EOF:
+ *   int    row count
+ *   int    length in bytes of the cells that follow
+ *   varint timestamp deltas in microseconds, one per row
+ *   varint value deltas for each column in order, one per row
+ * </pre>
+ * Values are quantized to their column's resolution, and each value is stored as the difference from the
+ * previous row of the same column (the first row is relative to 0). Deltas are zig-zag encoded varints, so a
+ * column that barely changes takes 1 byte a row instead of 4. A block normally holds the maximum number of rows,
+ * but {@link #seal} writes whatever rows the current block has, so the last block before each disable is usually
+ * shorter. Every block starts with its length, so a truncated file can be read up to its last complete block. See
+ * {@link MatchLogReader}.
+ */
+public class MatchLog {
+    public static final int MAGIC = 0x46544C47; // "FTLG"
+    public static final short VERSION = 2;
+    public static final int BLOCK_ROWS = 50; // 1 second of loops
+    private static final int RING_SIZE = 8;
+    static final int MAX_VARINT_BYTES = 5;
+
+    private final List<String> names = new ArrayList<>();
+    private final List<Double> resolutions = new ArrayList<>();
+
+    // Set up by start()
+    private volatile boolean started = false;
+    private int columnCount;
+    private double[] inverseResolutions;
+    private double[] values;
+    private long[] previous; // Last quantized value written per column, index 0 is the timestamp
+    private int[][] blocks;
+    private int[] blockRows;
+    private ByteBuffer encodeBuffer;
+    private boolean headerWritten = false;
+
+    private final AtomicLong sealedBlocks = new AtomicLong();
+    private final AtomicLong drainedBlocks = new AtomicLong();
+    private final AtomicLong droppedRows = new AtomicLong();
+    private long rowTimestampMicros;
+
+    /**
+     * Adds a column to the log. Columns must all be added before the first row is recorded.
+     *
+     * @param name       the column name
+     * @param resolution the smallest change in value that will be recorded
+     * @return the column index to pass to {@link #set}
+     */
+    public int addColumn(String name, double resolution) {
+        if (started) {
+            throw new IllegalStateException("Cannot add column " + name + " after the match log has started");
+        }
+        names.add(name);
+        resolutions.add(resolution);
+        return names.size() - 1;
+    }
+
+    /**
+     * Preallocates all buffers. Called automatically by the first {@link #beginRow}.
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        columnCount = names.size();
+        inverseResolutions = new double[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            inverseResolutions[i] = 1.0 / resolutions.get(i);
+        }
+        values = new double[columnCount];
+        previous = new long[columnCount + 1];
+        blocks = new int[RING_SIZE][(columnCount + 1) * BLOCK_ROWS];
+        blockRows = new int[RING_SIZE];
+
+        int headerSize = 12;
+        for (String name : names) {
+            headerSize += 2 + name.getBytes(StandardCharsets.UTF_8).length + 8;
+        }
+        encodeBuffer = ByteBuffer.allocateDirect(Math.max(headerSize, 8 + (columnCount + 1) * BLOCK_ROWS * MAX_VARINT_BYTES));
+        started = true;
+    }
+
+    public int getColumnCount() {
+        return names.size();
+    }
+
+    /**
+     * Gets the number of rows dropped because the writer fell behind
+     *
+     * @return the dropped row count
+     */
+    public long getDroppedRows() {
+        return droppedRows.get();
+    }
+
+    /**
+     * Starts a new row. Values that aren't set keep their value from the previous row.
+     *
+     * @param timestampSeconds the row's timestamp
+     */
+    public void beginRow(double timestampSeconds) {
+        if (!started) {
+            start();
+        }
+        rowTimestampMicros = Math.round(timestampSeconds * 1e6);
+    }
+
+    /**
+     * Sets a value in the current row
+     *
+     * @param column the column index returned by {@link #addColumn}
+     * @param value  the value
+     */
+    public void set(int column, double value) {
+        values[column] = value;
+    }
+
+    /**
+     * Finishes the current row and copies it into the active block. Must only be called from the robot loop
+     * thread.
+     */
+    public void endRow() {
+        long sealed = sealedBlocks.get();
+        if (sealed - drainedBlocks.get() >= RING_SIZE) {
+            droppedRows.incrementAndGet();
+            return;
+        }
+
+        int slot = (int) (sealed % RING_SIZE);
+        int[] block = blocks[slot];
+        int row = blockRows[slot];
+
+        block[row] = delta(0, rowTimestampMicros);
+        for (int i = 0; i < columnCount; i++) {
+            block[(i + 1) * BLOCK_ROWS + row] = delta(i + 1, Math.round(values[i] * inverseResolutions[i]));
+        }
+
+        blockRows[slot] = row + 1;
+        if (row + 1 == BLOCK_ROWS) {
+            sealedBlocks.lazySet(sealed + 1);
+        }
+    }
+
+    /**
+     * Hands the current partial block to the writer so it's written on the next drain. Must only be called from
+     * the robot loop thread.
+     */
+    public void seal() {
+        if (!started) {
+            return;
+        }
+        long sealed = sealedBlocks.get();
+        if (sealed - drainedBlocks.get() < RING_SIZE && blockRows[(int) (sealed % RING_SIZE)] > 0) {
+            sealedBlocks.lazySet(sealed + 1);
+        }
+    }
+
+    /**
+     * Calculates the delta from the previous value in a column, saturating so it fits in a cell
+     */
+    private int delta(int column, long quantized) {
+        long delta = quantized - previous[column];
+        if (delta > Integer.MAX_VALUE) {
+            delta = Integer.MAX_VALUE;
+        } else if (delta < Integer.MIN_VALUE) {
+            delta = Integer.MIN_VALUE;
+        }
+        previous[column] += delta;
+        return (int) delta;
+    }
+
+    /**
+     * Encodes and writes the header and every sealed block. Must only be called from a single writer thread.
+     *
+     * @param channel the channel to write to
+     * @return true if anything was written
+     * @throws IOException if the channel can't be written to
+     */
+    public boolean drainTo(WritableByteChannel channel) throws IOException {
+        if (!started) {
+            return false;
+        }
+        boolean wrote = false;
+        if (!headerWritten) {
+            encodeBuffer.clear();
+            encodeBuffer.putInt(MAGIC);
+            encodeBuffer.putShort(VERSION);
+            encodeBuffer.putShort((short) columnCount);
+            encodeBuffer.putInt(BLOCK_ROWS);
+            for (int i = 0; i < columnCount; i++) {
+                byte[] name = names.get(i).getBytes(StandardCharsets.UTF_8);
+                encodeBuffer.putShort((short) name.length);
+                encodeBuffer.put(name);
+                encodeBuffer.putDouble(resolutions.get(i));
+            }
+            writeFully(channel);
+            headerWritten = true;
+            wrote = true;
+        }
+
+        long drained = drainedBlocks.get();
+        long sealed = sealedBlocks.get();
+        for (; drained < sealed; drained++) {
+            int slot = (int) (drained % RING_SIZE);
+            int[] block = blocks[slot];
+            int rows = blockRows[slot];
+
+            encodeBuffer.clear();
+            encodeBuffer.putInt(rows);
+            encodeBuffer.putInt(0); // Filled in once the cells are encoded
+            for (int column = 0; column <= columnCount; column++) {
+                int offset = column * BLOCK_ROWS;
+                for (int row = 0; row < rows; row++) {
+                    putVarint(block[offset + row]);
+                }
+            }
+            encodeBuffer.putInt(4, encodeBuffer.position() - 8);
+            writeFully(channel);
+
+            // Hand the block back to the robot loop
+            blockRows[slot] = 0;
+            drainedBlocks.lazySet(drained + 1);
+            wrote = true;
+        }
+        return wrote;
+    }
+
+    /**
+     * Writes a delta as a zig-zag varint: small deltas of either sign take the fewest bytes
+     */
+    private void putVarint(int delta) {
+        int zigZag = (delta << 1) ^ (delta >> 31);
+        while ((zigZag & ~0x7F) != 0) {
+            encodeBuffer.put((byte) ((zigZag & 0x7F) | 0x80));
+            zigZag >>>= 7;
+        }
+        encodeBuffer.put((byte) zigZag);
+    }
+
+    private void writeFully(WritableByteChannel channel) throws IOException {
+        encodeBuffer.flip();
+        while (encodeBuffer.hasRemaining()) {
+            channel.write(encodeBuffer);
+        }
+    }
+}
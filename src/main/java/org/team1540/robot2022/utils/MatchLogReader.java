@@ -0,0 +1,219 @@
+package org.team1540.robot2022.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * MatchLogReader decodes files written by {@link MatchLog}. It only depends on the JDK so it can run on a laptop.
+ * <p>
+ * Usage:
+ * <pre>
+ * MatchLogReader &lt;matchlog.bin&gt; [csv|jsonl]         convert a log to CSV (default) or JSONL on stdout
+ * MatchLogReader --generate &lt;matchlog.bin&gt; &lt;seconds&gt; write a synthetic 40 channel, 50 Hz log
+ * </pre>
+ */
+public class MatchLogReader implements Closeable {
+    private final DataInputStream input;
+    private final String[] names;
+    private final double[] resolutions;
+    private final long[] previous;
+    private final int[] block;
+    private final byte[] cells;
+    private final double[] row;
+    private int blockRows = 0;
+    private int blockIndex = 0;
+    private double timestamp;
+
+    /**
+     * Opens a match log and reads its header
+     *
+     * @param path the log file
+     * @throws IOException if the file can't be read or isn't a match log
+     */
+    public MatchLogReader(String path) throws IOException {
+        input = new DataInputStream(new BufferedInputStream(new FileInputStream(path), 64 * 1024));
+        if (input.readInt() != MatchLog.MAGIC) {
+            input.close();
+            throw new IOException(path + " is not a match log");
+        }
+        short version = input.readShort();
+        if (version != MatchLog.VERSION) {
+            input.close();
+            throw new IOException("Unsupported match log version " + version);
+        }
+        int columnCount = input.readShort();
+        int maxBlockRows = input.readInt();
+
+        names = new String[columnCount];
+        resolutions = new double[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            byte[] name = new byte[input.readShort()];
+            input.readFully(name);
+            names[i] = new String(name, StandardCharsets.UTF_8);
+            resolutions[i] = input.readDouble();
+        }
+        previous = new long[columnCount + 1];
+        block = new int[(columnCount + 1) * maxBlockRows];
+        cells = new byte[block.length * MatchLog.MAX_VARINT_BYTES];
+        row = new double[columnCount];
+    }
+
+    public String[] getColumnNames() {
+        return names;
+    }
+
+    /**
+     * Advances to the next row. A block that was cut off by the robot losing power is ignored.
+     *
+     * @return false when there are no more complete rows
+     * @throws IOException if the file can't be read
+     */
+    public boolean next() throws IOException {
+        if (blockIndex >= blockRows && !readBlock()) {
+            return false;
+        }
+        previous[0] += block[blockIndex];
+        timestamp = previous[0] / 1e6;
+        for (int i = 0; i < names.length; i++) {
+            previous[i + 1] += block[(i + 1) * blockRows + blockIndex];
+            row[i] = previous[i + 1] * resolutions[i];
+        }
+        blockIndex++;
+        return true;
+    }
+
+    private boolean readBlock() throws IOException {
+        try {
+            int rows = input.readInt();
+            int length = input.readInt();
+            if (rows <= 0 || rows * (names.length + 1) > block.length || length < 0 || length > cells.length) {
+                throw new IOException("Corrupt match log block with " + rows + " rows and " + length + " bytes");
+            }
+            input.readFully(cells, 0, length);
+            int position = 0;
+            for (int i = 0; i < rows * (names.length + 1); i++) {
+                // Zig-zag varint, see MatchLog
+                int zigZag = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    if (position >= length) {
+                        throw new IOException("Corrupt match log block, cells run past " + length + " bytes");
+                    }
+                    b = cells[position++];
+                    zigZag |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                block[i] = (zigZag >>> 1) ^ -(zigZag & 1);
+            }
+            blockRows = rows;
+            blockIndex = 0;
+            return true;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the current row's timestamp in seconds
+     */
+    public double getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @param column the column index
+     * @return the current row's value for a column
+     */
+    public double get(int column) {
+        return row[column];
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 3 && args[0].equals("--generate")) {
+            generate(args[1], Double.parseDouble(args[2]));
+            return;
+        }
+        if (args.length < 1) {
+            System.err.println("Usage: MatchLogReader <matchlog.bin> [csv|jsonl]");
+            System.err.println("       MatchLogReader --generate <matchlog.bin> <seconds>");
+            System.exit(1);
+        }
+        boolean jsonl = args.length > 1 && args[1].equals("jsonl");
+
+        try (MatchLogReader reader = new MatchLogReader(args[0]);
+             Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+            String[] names = reader.getColumnNames();
+            if (!jsonl) {
+                out.write("timestamp");
+                for (String name : names) {
+                    out.write(',');
+                    out.write(name);
+                }
+                out.write('\n');
+            }
+
+            StringBuilder line = new StringBuilder();
+            while (reader.next()) {
+                line.setLength(0);
+                if (jsonl) {
+                    line.append("{\"timestamp\": ").append(reader.getTimestamp());
+                    for (int i = 0; i < names.length; i++) {
+                        line.append(", \"").append(names[i]).append("\": ").append(reader.get(i));
+                    }
+                    line.append('}');
+                } else {
+                    line.append(reader.getTimestamp());
+                    for (int i = 0; i < names.length; i++) {
+                        line.append(',').append(reader.get(i));
+                    }
+                }
+                out.write(line.append('\n').toString());
+            }
+        }
+    }
+
+    /**
+     * Writes a synthetic log at 50 Hz with 40 channels, for testing the format off the robot
+     */
+    private static void generate(String path, double seconds) throws IOException {
+        MatchLog log = new MatchLog();
+        int columns = 40;
+        for (int i = 0; i < columns; i++) {
+            log.addColumn("synthetic/" + i, 0.001);
+        }
+
+        try (FileChannel channel = FileChannel.open(Paths.get(path),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            int rows = (int) (seconds * 50);
+            for (int row = 0; row < rows; row++) {
+                double time = row * 0.02;
+                log.beginRow(time);
+                for (int i = 0; i < columns; i++) {
+                    log.set(i, 1000 * Math.sin(time * (i + 1) / 10.0) + i);
+                }
+                log.endRow();
+                log.drainTo(channel);
+            }
+            log.seal();
+            log.drainTo(channel);
+            System.out.println("Wrote " + rows + " rows (" + channel.size() + " bytes, " + log.getDroppedRows() + " dropped) to " + path);
+        }
+    }
+}
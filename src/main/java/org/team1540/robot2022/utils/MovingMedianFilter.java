@@ -0,0 +1,207 @@
+package org.team1540.robot2022.utils;
+
+/**
+ * Class for filtering number data as a rolling median, a drop-in for WPILib's MedianFilter that's O(log n) per value
+ * instead of O(n), and never allocates after construction.
+ * <p>
+ * Values are kept in a primitive ring buffer. The lower half of them is in a max heap and the upper half in a min
+ * heap, so the median is at the top of one or both. The heaps hold ring buffer slots and each slot knows where it is
+ * in its heap, so when the window is full the oldest value is overwritten in place and sifted to where it belongs.
+ */
+public class MovingMedianFilter {
+    private final double[] values;
+    private final int[] positions; // Each slot's index in its heap
+    private final boolean[] inLower;
+    private final Heap lower; // Max heap of the smaller half, with the extra value when the count is odd
+    private final Heap upper; // Min heap of the larger half
+    private int start = 0; // Slot of the oldest value
+    private int count = 0;
+
+    /**
+     * @param size the number of values to take the median of
+     */
+    public MovingMedianFilter(int size) {
+        values = new double[size];
+        positions = new int[size];
+        inLower = new boolean[size];
+        lower = new Heap(size, -1);
+        upper = new Heap(size, 1);
+    }
+
+    public void add(double item) {
+        if (count < values.length) {
+            int slot = (start + count) % values.length;
+            count++;
+            values[slot] = item;
+            if (lower.size == 0 || item <= values[lower.top()]) {
+                lower.push(slot);
+                inLower[slot] = true;
+            } else {
+                upper.push(slot);
+                inLower[slot] = false;
+            }
+            // Keep the lower half the same size as the upper half, or one bigger
+            if (lower.size > upper.size + 1) {
+                int moved = lower.pop();
+                upper.push(moved);
+                inLower[moved] = false;
+            } else if (upper.size > lower.size) {
+                int moved = upper.pop();
+                lower.push(moved);
+                inLower[moved] = true;
+            }
+        } else {
+            int slot = start;
+            start = (start + 1) % values.length;
+            values[slot] = item;
+            if (inLower[slot]) {
+                lower.update(positions[slot]);
+            } else {
+                upper.update(positions[slot]);
+            }
+            // Only the new value can be on the wrong side, and swapping the tops puts it on the right one
+            if (upper.size > 0 && values[lower.top()] > values[upper.top()]) {
+                int fromLower = lower.top();
+                int fromUpper = upper.top();
+                lower.set(0, fromUpper);
+                upper.set(0, fromLower);
+                inLower[fromUpper] = true;
+                inLower[fromLower] = false;
+                lower.siftDown(0);
+                upper.siftDown(0);
+            }
+        }
+    }
+
+    /**
+     * Adds a value and returns the new median, like WPILib's MedianFilter
+     *
+     * @param item the value to add
+     * @return the median
+     */
+    public double calculate(double item) {
+        add(item);
+        return getMedian();
+    }
+
+    /**
+     * @return the median of the values in the window, the mean of the middle two if there's an even number of them,
+     * or NaN if there aren't any
+     */
+    public double getMedian() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (lower.size > upper.size) {
+            return values[lower.top()];
+        }
+        return (values[lower.top()] + values[upper.top()]) / 2;
+    }
+
+    /**
+     * @return the number of values in the window, up to the size
+     */
+    public int getCount() {
+        return count;
+    }
+
+    public boolean isFull() {
+        return count == values.length;
+    }
+
+    public void clear() {
+        start = 0;
+        count = 0;
+        lower.size = 0;
+        upper.size = 0;
+    }
+
+    /**
+     * A binary heap of ring buffer slots, ordered by their values
+     */
+    private class Heap {
+        private final int[] slots;
+        private final int sign; // 1 for a min heap, -1 for a max heap
+        private int size = 0;
+
+        private Heap(int capacity, int sign) {
+            this.slots = new int[capacity];
+            this.sign = sign;
+        }
+
+        private int top() {
+            return slots[0];
+        }
+
+        private void push(int slot) {
+            set(size, slot);
+            size++;
+            siftUp(size - 1);
+        }
+
+        private int pop() {
+            int top = slots[0];
+            size--;
+            if (size > 0) {
+                set(0, slots[size]);
+                siftDown(0);
+            }
+            return top;
+        }
+
+        /**
+         * Moves the slot at an index to where its new value belongs
+         */
+        private void update(int index) {
+            int slot = slots[index];
+            siftUp(index);
+            siftDown(positions[slot]);
+        }
+
+        private void set(int index, int slot) {
+            slots[index] = slot;
+            positions[slot] = index;
+        }
+
+        /**
+         * @return whether the slot at index a belongs above the slot at index b
+         */
+        private boolean before(int a, int b) {
+            return sign * values[slots[a]] < sign * values[slots[b]];
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (!before(index, parent)) {
+                    return;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    return;
+                }
+                if (child + 1 < size && before(child + 1, child)) {
+                    child++;
+                }
+                if (!before(child, index)) {
+                    return;
+                }
+                swap(index, child);
+                index = child;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int slot = slots[a];
+            set(a, slots[b]);
+            set(b, slot);
+        }
+    }
+}
@@ -4,8 +4,9 @@ import com.kauailabs.navx.frc.AHRS;
 
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.wpilibj.SPI.Port;
+import org.team1540.robot2022.io.GyroIO;
 
-public class NavX extends AHRS {
+public class NavX extends AHRS implements GyroIO {
 
     public NavX(Port port) {
         super(port);
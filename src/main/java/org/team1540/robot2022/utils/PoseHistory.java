@@ -0,0 +1,182 @@
+package org.team1540.robot2022.utils;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * PoseHistory keeps the last few odometry poses with their timestamps, so a measurement taken in the past (like a
+ * Limelight frame) can be matched up with where the robot was at the time.
+ * <p>
+ * Samples are stored in fixed primitive ring arrays, so adding one never allocates. Lookups are a binary search over
+ * the ring and interpolate linearly between the two samples around the timestamp. The heading is unwrapped as samples
+ * are added, so it keeps counting past pi and -pi and interpolates the short way around.
+ */
+public class PoseHistory {
+    private final double[] timestamps;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] headings;
+    private int start = 0; // Index of the oldest sample
+    private int size = 0;
+    private double lastHeading = 0;
+
+    /**
+     * @param capacity the number of samples to keep, e.g. 50 is a second of 20ms loops
+     */
+    public PoseHistory(int capacity) {
+        timestamps = new double[capacity];
+        xs = new double[capacity];
+        ys = new double[capacity];
+        headings = new double[capacity];
+    }
+
+    /**
+     * Adds a sample, dropping the oldest one if the history is full. Timestamps must be increasing.
+     *
+     * @param timestamp time of the pose in seconds
+     * @param pose      the pose
+     */
+    public void add(double timestamp, Pose2d pose) {
+        double heading = pose.getRotation().getRadians();
+        if (size > 0) {
+            heading = lastHeading + Math.IEEEremainder(heading - lastHeading, 2 * Math.PI);
+        }
+        lastHeading = heading;
+
+        int index;
+        if (size < timestamps.length) {
+            index = (start + size) % timestamps.length;
+            size++;
+        } else {
+            index = start;
+            start = (start + 1) % timestamps.length;
+        }
+        timestamps[index] = timestamp;
+        xs[index] = pose.getX();
+        ys[index] = pose.getY();
+        headings[index] = heading;
+    }
+
+    /**
+     * Drops every sample, for when the odometry is reset and old poses no longer line up
+     */
+    public void clear() {
+        start = 0;
+        size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the interpolated pose at a time. Times outside of the history get the closest sample.
+     *
+     * @param timestamp time in seconds
+     * @return the pose, or null if the history is empty
+     */
+    public Pose2d getPose(double timestamp) {
+        if (size == 0) {
+            return null;
+        }
+        int upper = search(timestamp);
+        double fraction = fraction(upper, timestamp);
+        int u = index(upper);
+        int l = index(Math.max(upper - 1, 0));
+        return new Pose2d(
+                xs[l] + (xs[u] - xs[l]) * fraction,
+                ys[l] + (ys[u] - ys[l]) * fraction,
+                new Rotation2d(headings[l] + (headings[u] - headings[l]) * fraction));
+    }
+
+    /**
+     * Gets the interpolated x at a time, without allocating a pose. Times outside of the history get the closest sample.
+     *
+     * @param timestamp time in seconds
+     * @return x in meters, or NaN if the history is empty
+     */
+    public double getX(double timestamp) {
+        return interpolate(xs, timestamp);
+    }
+
+    /**
+     * Gets the interpolated y at a time, without allocating a pose. Times outside of the history get the closest sample.
+     *
+     * @param timestamp time in seconds
+     * @return y in meters, or NaN if the history is empty
+     */
+    public double getY(double timestamp) {
+        return interpolate(ys, timestamp);
+    }
+
+    /**
+     * Gets the interpolated heading at a time. Times outside of the history get the closest sample.
+     *
+     * @param timestamp time in seconds
+     * @return the unwrapped heading counter-clockwise in radians, or NaN if the history is empty
+     */
+    public double getHeading(double timestamp) {
+        return interpolate(headings, timestamp);
+    }
+
+    /**
+     * @return the unwrapped heading of the newest sample in radians, or NaN if the history is empty
+     */
+    public double getLatestHeading() {
+        return size == 0 ? Double.NaN : lastHeading;
+    }
+
+    private double interpolate(double[] values, double timestamp) {
+        if (size == 0) {
+            return Double.NaN;
+        }
+        int upper = search(timestamp);
+        double fraction = fraction(upper, timestamp);
+        double lower = values[index(Math.max(upper - 1, 0))];
+        return lower + (values[index(upper)] - lower) * fraction;
+    }
+
+    /**
+     * @param timestamp time in seconds
+     * @return the age of the first sample at or after the timestamp, clamped to the history
+     */
+    private int search(double timestamp) {
+        int low = 0;
+        int high = size - 1;
+        if (timestamp >= timestamps[index(high)]) {
+            return high;
+        }
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[index(middle)] < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return how far the timestamp is from the sample before upper to upper, from 0 to 1
+     */
+    private double fraction(int upper, double timestamp) {
+        if (upper == 0) {
+            return 1;
+        }
+        double lowerTime = timestamps[index(upper - 1)];
+        double upperTime = timestamps[index(upper)];
+        if (upperTime <= lowerTime) {
+            return 1;
+        }
+        return Math.max(0, Math.min(1, (timestamp - lowerTime) / (upperTime - lowerTime)));
+    }
+
+    /**
+     * @param age 0 for the oldest sample
+     * @return the sample's index in the arrays
+     */
+    private int index(int age) {
+        return (start + age) % timestamps.length;
+    }
+}
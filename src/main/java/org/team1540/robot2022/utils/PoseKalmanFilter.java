@@ -0,0 +1,334 @@
+package org.team1540.robot2022.utils;
+
+/**
+ * An extended Kalman filter for a differential drive's pose on the field, with the covariance of its x, y and heading.
+ * <p>
+ * It's predicted forward with how far the wheels drove and how far the gyro turned each loop, and corrected with the
+ * range and bearing to a known point on the field, like the hub. Corrections whose innovation is too unlikely for the
+ * covariance (past the 99% chi-square gate) are rejected, so a bad measurement doesn't move the pose.
+ * <p>
+ * The state and covariance are plain fields and a preallocated array, so predicting and correcting never allocate.
+ * Headings are counter-clockwise in radians and aren't wrapped, bearings are counter-clockwise from the heading.
+ */
+public class PoseKalmanFilter {
+    private static final double GATE_1D = 6.63; // 99% chi-square, 1 degree of freedom
+    private static final double GATE_2D = 9.21; // 99% chi-square, 2 degrees of freedom
+
+    private double x;
+    private double y;
+    private double heading;
+    private final double[] covariance = new double[9]; // Row major over x, y, heading
+    private final double[] product = new double[9];
+
+    /**
+     * Sets the pose, with independent errors
+     *
+     * @param x              x in meters
+     * @param y              y in meters
+     * @param heading        heading in radians
+     * @param positionStdDev standard deviation of x and y in meters
+     * @param headingStdDev  standard deviation of the heading in radians
+     */
+    public void reset(double x, double y, double heading, double positionStdDev, double headingStdDev) {
+        this.x = x;
+        this.y = y;
+        this.heading = heading;
+        for (int i = 0; i < 9; i++) {
+            covariance[i] = 0;
+        }
+        covariance[0] = positionStdDev * positionStdDev;
+        covariance[4] = positionStdDev * positionStdDev;
+        covariance[8] = headingStdDev * headingStdDev;
+    }
+
+    /**
+     * Sets the position from a range and bearing to a known point, keeping the heading. Since the bearing is from the
+     * heading, the position's error is correlated with the heading's.
+     *
+     * @param targetX       x of the point in meters
+     * @param targetY       y of the point in meters
+     * @param range         distance to the point in meters
+     * @param bearing       angle to the point from the heading in radians
+     * @param rangeStdDev   standard deviation of the range in meters
+     * @param bearingStdDev standard deviation of the bearing in radians
+     */
+    public void resetPosition(double targetX, double targetY, double range, double bearing, double rangeStdDev, double bearingStdDev) {
+        double angle = heading + bearing;
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        x = targetX - range * cos;
+        y = targetY - range * sin;
+
+        // The position moves along the tangent with the heading and bearing, and along the ray with the range
+        double headingVariance = covariance[8];
+        double angleVariance = headingVariance + bearingStdDev * bearingStdDev;
+        double rangeVariance = rangeStdDev * rangeStdDev;
+        double tangentX = range * sin;
+        double tangentY = -range * cos;
+        covariance[0] = tangentX * tangentX * angleVariance + cos * cos * rangeVariance;
+        covariance[1] = tangentX * tangentY * angleVariance + cos * sin * rangeVariance;
+        covariance[2] = tangentX * headingVariance;
+        covariance[3] = covariance[1];
+        covariance[4] = tangentY * tangentY * angleVariance + sin * sin * rangeVariance;
+        covariance[5] = tangentY * headingVariance;
+        covariance[6] = covariance[2];
+        covariance[7] = covariance[5];
+    }
+
+    /**
+     * Moves the pose by one loop of driving
+     *
+     * @param distance       distance driven in meters, the average of the two sides
+     * @param turn           change in heading in radians
+     * @param distanceStdDev standard deviation of the distance in meters
+     * @param lateralStdDev  standard deviation of sideways slip in meters
+     * @param turnStdDev     standard deviation of the turn in radians
+     */
+    public void predict(double distance, double turn, double distanceStdDev, double lateralStdDev, double turnStdDev) {
+        // Drive along the average of the old and new headings
+        double middle = heading + turn / 2;
+        double cos = Math.cos(middle);
+        double sin = Math.sin(middle);
+        x += distance * cos;
+        y += distance * sin;
+        heading += turn;
+
+        // P = F P F^T, where F is the identity except for how x and y move with the heading
+        double f02 = -distance * sin;
+        double f12 = distance * cos;
+        for (int column = 0; column < 3; column++) {
+            product[column] = covariance[column] + f02 * covariance[6 + column];
+            product[3 + column] = covariance[3 + column] + f12 * covariance[6 + column];
+            product[6 + column] = covariance[6 + column];
+        }
+        for (int row = 0; row < 3; row++) {
+            covariance[row * 3] = product[row * 3] + product[row * 3 + 2] * f02;
+            covariance[row * 3 + 1] = product[row * 3 + 1] + product[row * 3 + 2] * f12;
+            covariance[row * 3 + 2] = product[row * 3 + 2];
+        }
+
+        // Plus the noise of the distance along the path, the slip across it, and the turn
+        double distanceVariance = distanceStdDev * distanceStdDev;
+        double lateralVariance = lateralStdDev * lateralStdDev;
+        double turnVariance = turnStdDev * turnStdDev;
+        double turnX = -distance * sin / 2;
+        double turnY = distance * cos / 2;
+        covariance[0] += distanceVariance * cos * cos + lateralVariance * sin * sin + turnVariance * turnX * turnX;
+        covariance[1] += (distanceVariance - lateralVariance) * cos * sin + turnVariance * turnX * turnY;
+        covariance[2] += turnVariance * turnX;
+        covariance[4] += distanceVariance * sin * sin + lateralVariance * cos * cos + turnVariance * turnY * turnY;
+        covariance[5] += turnVariance * turnY;
+        covariance[8] += turnVariance;
+        covariance[3] = covariance[1];
+        covariance[6] = covariance[2];
+        covariance[7] = covariance[5];
+    }
+
+    /**
+     * Corrects the pose with a range and bearing to a known point
+     *
+     * @param targetX       x of the point in meters
+     * @param targetY       y of the point in meters
+     * @param range         measured distance to the point in meters
+     * @param bearing       measured angle to the point from the heading in radians
+     * @param rangeStdDev   standard deviation of the range in meters
+     * @param bearingStdDev standard deviation of the bearing in radians
+     * @return whether the measurement was used, false if it was gated out
+     */
+    public boolean correctRangeBearing(double targetX, double targetY, double range, double bearing, double rangeStdDev, double bearingStdDev) {
+        double dx = targetX - x;
+        double dy = targetY - y;
+        double squared = dx * dx + dy * dy;
+        double predictedRange = Math.sqrt(squared);
+        if (predictedRange < 1e-6) {
+            return false;
+        }
+        // Jacobians of the range and bearing over x, y and heading
+        double r0 = -dx / predictedRange;
+        double r1 = -dy / predictedRange;
+        double b0 = dy / squared;
+        double b1 = -dx / squared;
+        double rangeInnovation = range - predictedRange;
+        double bearingInnovation = Math.IEEEremainder(bearing - (Math.atan2(dy, dx) - heading), 2 * Math.PI);
+
+        // P H^T, one column per measurement
+        double pr0 = covariance[0] * r0 + covariance[1] * r1;
+        double pr1 = covariance[3] * r0 + covariance[4] * r1;
+        double pr2 = covariance[6] * r0 + covariance[7] * r1;
+        double pb0 = covariance[0] * b0 + covariance[1] * b1 - covariance[2];
+        double pb1 = covariance[3] * b0 + covariance[4] * b1 - covariance[5];
+        double pb2 = covariance[6] * b0 + covariance[7] * b1 - covariance[8];
+
+        // Innovation covariance S = H P H^T + R, and its inverse
+        double s00 = r0 * pr0 + r1 * pr1 + rangeStdDev * rangeStdDev;
+        double s01 = r0 * pb0 + r1 * pb1;
+        double s11 = b0 * pb0 + b1 * pb1 - pb2 + bearingStdDev * bearingStdDev;
+        double determinant = s00 * s11 - s01 * s01;
+        if (determinant <= 0) {
+            return false;
+        }
+        double i00 = s11 / determinant;
+        double i01 = -s01 / determinant;
+        double i11 = s00 / determinant;
+
+        double mahalanobis = rangeInnovation * (i00 * rangeInnovation + i01 * bearingInnovation)
+                + bearingInnovation * (i01 * rangeInnovation + i11 * bearingInnovation);
+        if (mahalanobis > GATE_2D) {
+            return false;
+        }
+
+        // K = P H^T S^-1
+        double kr0 = pr0 * i00 + pb0 * i01;
+        double kr1 = pr1 * i00 + pb1 * i01;
+        double kr2 = pr2 * i00 + pb2 * i01;
+        double kb0 = pr0 * i01 + pb0 * i11;
+        double kb1 = pr1 * i01 + pb1 * i11;
+        double kb2 = pr2 * i01 + pb2 * i11;
+        x += kr0 * rangeInnovation + kb0 * bearingInnovation;
+        y += kr1 * rangeInnovation + kb1 * bearingInnovation;
+        heading += kr2 * rangeInnovation + kb2 * bearingInnovation;
+
+        // P -= K H P, where H P is the transpose of P H^T
+        subtract(kr0, kr1, kr2, pr0, pr1, pr2);
+        subtract(kb0, kb1, kb2, pb0, pb1, pb2);
+        return true;
+    }
+
+    /**
+     * Corrects the pose with a range to the edge of a known circle, like a rangefinder pointed at the hub
+     *
+     * @param targetX     x of the circle's center in meters
+     * @param targetY     y of the circle's center in meters
+     * @param radius      radius of the circle in meters
+     * @param range       measured distance to the edge of the circle in meters
+     * @param rangeStdDev standard deviation of the range in meters
+     * @return whether the measurement was used, false if it was gated out
+     */
+    public boolean correctRange(double targetX, double targetY, double radius, double range, double rangeStdDev) {
+        double dx = targetX - x;
+        double dy = targetY - y;
+        double predictedRange = Math.sqrt(dx * dx + dy * dy);
+        if (predictedRange < 1e-6) {
+            return false;
+        }
+        double r0 = -dx / predictedRange;
+        double r1 = -dy / predictedRange;
+        double innovation = range - (predictedRange - radius);
+
+        double p0 = covariance[0] * r0 + covariance[1] * r1;
+        double p1 = covariance[3] * r0 + covariance[4] * r1;
+        double p2 = covariance[6] * r0 + covariance[7] * r1;
+        double s = r0 * p0 + r1 * p1 + rangeStdDev * rangeStdDev;
+        if (innovation * innovation / s > GATE_1D) {
+            return false;
+        }
+
+        x += p0 / s * innovation;
+        y += p1 / s * innovation;
+        heading += p2 / s * innovation;
+        subtract(p0 / s, p1 / s, p2 / s, p0, p1, p2);
+        return true;
+    }
+
+    /**
+     * Subtracts the outer product of a gain and a row of H P from the covariance, keeping it symmetric
+     */
+    private void subtract(double k0, double k1, double k2, double p0, double p1, double p2) {
+        covariance[0] -= k0 * p0;
+        covariance[1] -= k0 * p1;
+        covariance[2] -= k0 * p2;
+        covariance[4] -= k1 * p1;
+        covariance[5] -= k1 * p2;
+        covariance[8] -= k2 * p2;
+        covariance[3] = covariance[1];
+        covariance[6] = covariance[2];
+        covariance[7] = covariance[5];
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * @return the heading counter-clockwise in radians, not wrapped
+     */
+    public double getHeading() {
+        return heading;
+    }
+
+    /**
+     * @return the standard deviation of the distance from the estimated position to the real one, in meters
+     */
+    public double getPositionStdDev() {
+        return Math.sqrt(covariance[0] + covariance[4]);
+    }
+
+    /**
+     * @return the standard deviation of the heading in radians
+     */
+    public double getHeadingStdDev() {
+        return Math.sqrt(covariance[8]);
+    }
+
+    /**
+     * @param row    0 for x, 1 for y, 2 for heading
+     * @param column 0 for x, 1 for y, 2 for heading
+     * @return the covariance of the two
+     */
+    public double getCovariance(int row, int column) {
+        return covariance[row * 3 + column];
+    }
+
+    /**
+     * @return the estimated distance to a point in meters
+     */
+    public double getRange(double targetX, double targetY) {
+        double dx = targetX - x;
+        double dy = targetY - y;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * @return the estimated angle to a point from the heading, counter-clockwise in radians from -pi to pi
+     */
+    public double getBearing(double targetX, double targetY) {
+        return Math.IEEEremainder(Math.atan2(targetY - y, targetX - x) - heading, 2 * Math.PI);
+    }
+
+    /**
+     * @return the standard deviation of {@link #getRange(double, double)} in meters
+     */
+    public double getRangeStdDev(double targetX, double targetY) {
+        double dx = targetX - x;
+        double dy = targetY - y;
+        double range = Math.sqrt(dx * dx + dy * dy);
+        if (range < 1e-6) {
+            return getPositionStdDev();
+        }
+        double r0 = -dx / range;
+        double r1 = -dy / range;
+        return Math.sqrt(r0 * (covariance[0] * r0 + covariance[1] * r1) + r1 * (covariance[3] * r0 + covariance[4] * r1));
+    }
+
+    /**
+     * @return the standard deviation of {@link #getBearing(double, double)} in radians, which includes the heading's
+     */
+    public double getBearingStdDev(double targetX, double targetY) {
+        double dx = targetX - x;
+        double dy = targetY - y;
+        double squared = dx * dx + dy * dy;
+        if (squared < 1e-12) {
+            return Math.PI;
+        }
+        double b0 = dy / squared;
+        double b1 = -dx / squared;
+        double p0 = covariance[0] * b0 + covariance[1] * b1 - covariance[2];
+        double p1 = covariance[3] * b0 + covariance[4] * b1 - covariance[5];
+        double p2 = covariance[6] * b0 + covariance[7] * b1 - covariance[8];
+        return Math.sqrt(b0 * p0 + b1 * p1 - p2);
+    }
+}
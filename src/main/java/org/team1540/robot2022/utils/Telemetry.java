@@ -0,0 +1,188 @@
+package org.team1540.robot2022.utils;
+
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Telemetry is a batched replacement for the per-call {@link ChickenSmartDashboard} debug methods.
+ * <p>
+ * Each key is registered once and returns a handle that caches its {@link NetworkTableEntry}. Setting a value only
+ * writes into a primitive buffer; {@link #flush()} is called once per loop and publishes the values that changed,
+ * at the rate of their {@link Rate}.
+ */
+public final class Telemetry {
+    private static final int CAPACITY = 256;
+
+    private static final Map<String, NumberEntry> numberHandles = new HashMap<>();
+    private static final NetworkTableEntry[] numberEntries = new NetworkTableEntry[CAPACITY];
+    private static final Rate[] numberRates = new Rate[CAPACITY];
+    private static final double[] numberValues = new double[CAPACITY];
+    private static final double[] publishedNumbers = new double[CAPACITY];
+    private static final boolean[] numberPublished = new boolean[CAPACITY];
+    private static int numberCount = 0;
+
+    private static final Map<String, BooleanEntry> booleanHandles = new HashMap<>();
+    private static final NetworkTableEntry[] booleanEntries = new NetworkTableEntry[CAPACITY];
+    private static final Rate[] booleanRates = new Rate[CAPACITY];
+    private static final boolean[] booleanValues = new boolean[CAPACITY];
+    private static final boolean[] publishedBooleans = new boolean[CAPACITY];
+    private static final boolean[] booleanPublished = new boolean[CAPACITY];
+    private static int booleanCount = 0;
+
+    private static long flushCount = 0;
+
+    private Telemetry() {
+    }
+
+    /**
+     * Registers a number key. Registering the same key twice returns the same handle.
+     *
+     * @param key  the SmartDashboard key
+     * @param rate how often the value is published
+     * @return the handle to write values to
+     */
+    public static synchronized NumberEntry registerNumber(String key, Rate rate) {
+        NumberEntry handle = numberHandles.get(key);
+        if (handle != null) {
+            return handle;
+        }
+        if (numberCount >= CAPACITY) {
+            throw new IllegalStateException("Too many telemetry numbers registered, could not register " + key);
+        }
+        numberEntries[numberCount] = SmartDashboard.getEntry(key);
+        numberRates[numberCount] = rate;
+        handle = new NumberEntry(numberCount++);
+        numberHandles.put(key, handle);
+        return handle;
+    }
+
+    /**
+     * Registers a boolean key. Registering the same key twice returns the same handle.
+     *
+     * @param key  the SmartDashboard key
+     * @param rate how often the value is published
+     * @return the handle to write values to
+     */
+    public static synchronized BooleanEntry registerBoolean(String key, Rate rate) {
+        BooleanEntry handle = booleanHandles.get(key);
+        if (handle != null) {
+            return handle;
+        }
+        if (booleanCount >= CAPACITY) {
+            throw new IllegalStateException("Too many telemetry booleans registered, could not register " + key);
+        }
+        booleanEntries[booleanCount] = SmartDashboard.getEntry(key);
+        booleanRates[booleanCount] = rate;
+        handle = new BooleanEntry(booleanCount++);
+        booleanHandles.put(key, handle);
+        return handle;
+    }
+
+    /**
+     * Publishes changed values whose rate is due this loop. Debug values are skipped while connected to an FMS.
+     * This should be called once at the end of every robot loop.
+     */
+    public static void flush() {
+        boolean publishDebug = !DriverStation.isFMSAttached();
+        long loop = flushCount++;
+
+        for (int i = 0; i < numberCount; i++) {
+            Rate rate = numberRates[i];
+            if (loop % rate.periodLoops != 0 || (rate == Rate.DEBUG && !publishDebug)) {
+                continue;
+            }
+            double value = numberValues[i];
+            if (!numberPublished[i] || Double.compare(value, publishedNumbers[i]) != 0) {
+                numberEntries[i].setDouble(value);
+                publishedNumbers[i] = value;
+                numberPublished[i] = true;
+            }
+        }
+
+        for (int i = 0; i < booleanCount; i++) {
+            Rate rate = booleanRates[i];
+            if (loop % rate.periodLoops != 0 || (rate == Rate.DEBUG && !publishDebug)) {
+                continue;
+            }
+            boolean value = booleanValues[i];
+            if (!booleanPublished[i] || value != publishedBooleans[i]) {
+                booleanEntries[i].setBoolean(value);
+                publishedBooleans[i] = value;
+                booleanPublished[i] = true;
+            }
+        }
+    }
+
+    /**
+     * How often a registered value is published, assuming {@link #flush()} runs every 20ms loop
+     */
+    public enum Rate {
+        /**
+         * 50 Hz, published even when connected to an FMS
+         */
+        CRITICAL(50),
+
+        /**
+         * 10 Hz, not published when connected to an FMS
+         */
+        DEBUG(10);
+
+        private final int periodLoops;
+
+        Rate(int hz) {
+            this.periodLoops = Math.max(1, 50 / hz);
+        }
+    }
+
+    /**
+     * Handle to a registered number
+     */
+    public static final class NumberEntry {
+        private final int index;
+
+        private NumberEntry(int index) {
+            this.index = index;
+        }
+
+        /**
+         * Sets the value to be published on the next due flush
+         *
+         * @param value the new value
+         */
+        public void set(double value) {
+            numberValues[index] = value;
+        }
+
+        public double get() {
+            return numberValues[index];
+        }
+    }
+
+    /**
+     * Handle to a registered boolean
+     */
+    public static final class BooleanEntry {
+        private final int index;
+
+        private BooleanEntry(int index) {
+            this.index = index;
+        }
+
+        /**
+         * Sets the value to be published on the next due flush
+         *
+         * @param value the new value
+         */
+        public void set(boolean value) {
+            booleanValues[index] = value;
+        }
+
+        public boolean get() {
+            return booleanValues[index];
+        }
+    }
+}
@@ -4,6 +4,7 @@ import org.team1540.robot2022.commands.drivetrain.Drivetrain;
 import org.team1540.robot2022.commands.indexer.Indexer;
 import org.team1540.robot2022.commands.intake.Intake;
 import org.team1540.robot2022.commands.shooter.Shooter;
+import org.team1540.robot2022.io.MotorIO;
 
 import edu.wpi.first.wpilibj.XboxController;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
@@ -12,7 +13,7 @@ import edu.wpi.first.wpilibj2.command.CommandBase;
 
 public class TestAllMotorsCommand extends CommandBase {
     private XboxController controller;
-    private final SendableChooser<ChickenTalonFX> motorChooser = new SendableChooser<>();
+    private final SendableChooser<MotorIO> motorChooser = new SendableChooser<>();
 
     public TestAllMotorsCommand(Drivetrain drivetrain, Intake intake, Indexer indexer, Shooter shooter, XboxController controller) {
         this.controller = controller;
@@ -0,0 +1,174 @@
+package org.team1540.robot2022.utils;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.wpilibj.DriverStation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * TrajectoryCache loads PathWeaver trajectories once per path name, lazily or in the background.
+ * <p>
+ * The first time a path is loaded its JSON is parsed and a compact binary copy is written to the feather directory,
+ * keyed on the JSON file's size and modification time. Later boots read the binary copy instead of parsing JSON, until
+ * the path is deployed again.
+ */
+public class TrajectoryCache {
+    private static final int MAGIC = 0x46545452; // "FTTR"
+    private static final short VERSION = 1;
+
+    private static final Map<String, CompletableFuture<Trajectory>> trajectories = new ConcurrentHashMap<>();
+    static final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "trajectory-loader");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    /**
+     * Starts loading a trajectory on the loader thread, if it isn't already loaded or loading
+     *
+     * @param trajectoryName the name of the trajectory file relative to the deploy/paths directory
+     * @return a future that completes when the trajectory is loaded
+     */
+    public static CompletableFuture<Trajectory> preload(String trajectoryName) {
+        return trajectories.computeIfAbsent(trajectoryName,
+                name -> CompletableFuture.supplyAsync(() -> load(name), loader));
+    }
+
+    /**
+     * Gets a trajectory, waiting for it to load if it hasn't already
+     *
+     * @param trajectoryName the name of the trajectory file relative to the deploy/paths directory
+     * @return the trajectory
+     */
+    public static Trajectory get(String trajectoryName) {
+        try {
+            return preload(trajectoryName).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @param trajectoryName the name of the trajectory file relative to the deploy/paths directory
+     * @return true if the trajectory has finished loading successfully
+     */
+    public static boolean isLoaded(String trajectoryName) {
+        CompletableFuture<Trajectory> trajectory = trajectories.get(trajectoryName);
+        return trajectory != null && trajectory.isDone() && !trajectory.isCompletedExceptionally();
+    }
+
+    private static Trajectory load(String trajectoryName) {
+        long start = System.nanoTime();
+        Path source = AutoHelper.getTrajectoryPath(trajectoryName);
+        Path cache = Paths.get(FeatherClient.getFeatherDirectory(), "trajectories", trajectoryName + ".bin");
+
+        long sourceSize = -1;
+        long sourceModified = -1;
+        try {
+            sourceSize = Files.size(source);
+            sourceModified = Files.getLastModifiedTime(source).toMillis();
+        } catch (IOException e) {
+            // Not deployed, AutoHelper falls back to the PathWeaver output directory or an empty trajectory
+        }
+
+        if (sourceSize >= 0) {
+            try {
+                Trajectory trajectory = readBinary(cache, sourceSize, sourceModified);
+                if (trajectory != null) {
+                    System.out.printf("[trajectories] Loaded %s from cache in %.1fms%n", trajectoryName, (System.nanoTime() - start) / 1e6);
+                    return trajectory;
+                }
+            } catch (NoSuchFileException e) {
+                // Not cached yet
+            } catch (IOException e) {
+                DriverStation.reportWarning("[trajectories] Unable to read cached " + trajectoryName + ": " + e, false);
+            }
+        }
+
+        Trajectory trajectory = AutoHelper.getTrajectory(trajectoryName);
+        System.out.printf("[trajectories] Parsed %s in %.1fms%n", trajectoryName, (System.nanoTime() - start) / 1e6);
+
+        if (sourceSize >= 0) {
+            try {
+                writeBinary(cache, trajectory, sourceSize, sourceModified);
+            } catch (IOException e) {
+                DriverStation.reportWarning("[trajectories] Unable to cache " + trajectoryName + ": " + e, false);
+            }
+        }
+        return trajectory;
+    }
+
+    /**
+     * Reads a cached trajectory
+     *
+     * @return the trajectory, or null if the cache is for a different version of the source file
+     */
+    private static Trajectory readBinary(Path path, long sourceSize, long sourceModified) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (input.readInt() != MAGIC || input.readShort() != VERSION
+                    || input.readLong() != sourceSize || input.readLong() != sourceModified) {
+                return null;
+            }
+            int count = input.readInt();
+            List<Trajectory.State> states = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                double time = input.readDouble();
+                double velocity = input.readDouble();
+                double acceleration = input.readDouble();
+                double x = input.readDouble();
+                double y = input.readDouble();
+                double heading = input.readDouble();
+                double curvature = input.readDouble();
+                states.add(new Trajectory.State(time, velocity, acceleration, new Pose2d(x, y, new Rotation2d(heading)), curvature));
+            }
+            return new Trajectory(states);
+        }
+    }
+
+    private static void writeBinary(Path path, Trajectory trajectory, long sourceSize, long sourceModified) throws IOException {
+        Files.createDirectories(path.getParent());
+        // Write to a temporary file first so a half written cache is never read
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        List<Trajectory.State> states = trajectory.getStates();
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            output.writeInt(MAGIC);
+            output.writeShort(VERSION);
+            output.writeLong(sourceSize);
+            output.writeLong(sourceModified);
+            output.writeInt(states.size());
+            for (Trajectory.State state : states) {
+                output.writeDouble(state.timeSeconds);
+                output.writeDouble(state.velocityMetersPerSecond);
+                output.writeDouble(state.accelerationMetersPerSecondSq);
+                output.writeDouble(state.poseMeters.getX());
+                output.writeDouble(state.poseMeters.getY());
+                output.writeDouble(state.poseMeters.getRotation().getRadians());
+                output.writeDouble(state.curvatureRadPerMeter);
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
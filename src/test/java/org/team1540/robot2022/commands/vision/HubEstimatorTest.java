@@ -0,0 +1,190 @@
+package org.team1540.robot2022.commands.vision;
+
+import org.junit.Test;
+import org.team1540.robot2022.io.LimelightFrame;
+import org.team1540.robot2022.io.LimelightFrameBuffer;
+import org.team1540.robot2022.io.LimelightIO;
+import org.team1540.robot2022.utils.Limelight;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Fits {@link HubEstimator} to the corner sets in src/test/resources/hub, which were projected from a hub at a known
+ * distance and yaw the same way SimLimelight does
+ */
+public class HubEstimatorTest {
+    private static final double DISTANCE_TOLERANCE = 0.05; // meters
+    private static final double YAW_TOLERANCE = 1; // degrees
+    private static final String[] FIXTURES = {"centered3m", "angled5m", "noisy4m", "partialRing", "outliers", "oneStrip"};
+    private static final int WARMUP_FRAMES = 2000;
+    private static final int TIMED_FRAMES = 200;
+    private static final double FRAME_BUDGET_MS = 2;
+
+    private final FixtureLimelightIO io = new FixtureLimelightIO();
+    private final Limelight limelight = new Limelight(io);
+    private final HubEstimator estimator = new HubEstimator();
+
+    @Test
+    public void fitsWholeRing() throws IOException {
+        assertFit("centered3m", 3, 0, 0.9);
+    }
+
+    @Test
+    public void fitsRingToTheSide() throws IOException {
+        assertFit("angled5m", 5, 12, 0.9);
+    }
+
+    @Test
+    public void fitsNoisyCorners() throws IOException {
+        assertFit("noisy4m", 4, -6, 0.8);
+    }
+
+    @Test
+    public void fitsPartialRing() throws IOException {
+        assertFit("partialRing", 3, 30, 0.9);
+    }
+
+    @Test
+    public void ignoresOutliers() throws IOException {
+        // Only the 20 corners on the tape agree, so confidence can't be more than 20 / 32
+        assertFit("outliers", 3.5, 4, 0.5);
+        assertTrue(estimator.getFrameConfidence() <= 20.0 / 32);
+    }
+
+    @Test
+    public void rejectsOneStrip() throws IOException {
+        assertFalse(update("oneStrip"));
+        assertEquals(0, estimator.getFrameConfidence(), 0);
+        assertFalse(estimator.hasEstimate());
+    }
+
+    @Test
+    public void medianIgnoresBadFrame() throws IOException {
+        for (int i = 0; i < 4; i++) {
+            update("centered3m");
+        }
+        update("oneStrip");
+        update("outliers");
+        assertTrue(estimator.hasEstimate());
+        assertEquals(3, estimator.getDistance(), DISTANCE_TOLERANCE);
+        assertEquals(0, estimator.getYawDegrees(), YAW_TOLERANCE);
+    }
+
+    @Test
+    public void fitsWithinFrameBudget() throws IOException {
+        double[][] fixtures = new double[FIXTURES.length][];
+        for (int i = 0; i < FIXTURES.length; i++) {
+            fixtures[i] = readCorners(FIXTURES[i]);
+        }
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            update(fixtures[i % fixtures.length]);
+        }
+
+        // A fit takes the same work every time for the same corners, so the fastest of many runs is its cost without
+        // the OS or the JIT taking the CPU partway through, and the slowest fixture is the worst case
+        for (int i = 0; i < fixtures.length; i++) {
+            long fastest = Long.MAX_VALUE;
+            for (int frame = 0; frame < TIMED_FRAMES; frame++) {
+                io.publish(fixtures[i]);
+                limelight.update();
+                long start = System.nanoTime();
+                estimator.update(limelight);
+                fastest = Math.min(fastest, System.nanoTime() - start);
+            }
+            double ms = fastest / 1e6;
+            assertTrue(String.format("%s took %.3fms, over the %.0fms budget", FIXTURES[i], ms, FRAME_BUDGET_MS),
+                    ms < FRAME_BUDGET_MS);
+        }
+    }
+
+    private void assertFit(String fixture, double distance, double yawDegrees, double minConfidence) throws IOException {
+        assertTrue(fixture + " wasn't used", update(fixture));
+        assertEquals(distance, estimator.getFrameDistance(), DISTANCE_TOLERANCE);
+        assertEquals(yawDegrees, estimator.getFrameYawDegrees(), YAW_TOLERANCE);
+        assertTrue(String.format("%s confidence %.2f is under %.2f", fixture, estimator.getFrameConfidence(), minConfidence),
+                estimator.getFrameConfidence() >= minConfidence);
+        assertTrue(estimator.hasEstimate());
+    }
+
+    private boolean update(String fixture) throws IOException {
+        return update(readCorners(fixture));
+    }
+
+    private boolean update(double[] corners) {
+        io.publish(corners);
+        limelight.update();
+        return estimator.update(limelight);
+    }
+
+    /**
+     * @return the fixture's corners in pixels, as x and y pairs
+     */
+    private static double[] readCorners(String fixture) throws IOException {
+        InputStream stream = HubEstimatorTest.class.getResourceAsStream("/hub/" + fixture + ".csv");
+        assertNotNull("Missing fixture " + fixture, stream);
+        double[] corners = new double[LimelightFrame.MAX_CORNERS * 2];
+        int count = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("#") || line.startsWith("x,")) {
+                    continue;
+                }
+                String[] values = line.split(",");
+                corners[count++] = Double.parseDouble(values[0]);
+                corners[count++] = Double.parseDouble(values[1]);
+            }
+        }
+        return Arrays.copyOf(corners, count);
+    }
+
+    /**
+     * Publishes the fixture's corners as the limelight's frames
+     */
+    private static class FixtureLimelightIO implements LimelightIO {
+        private final LimelightFrameBuffer frames = new LimelightFrameBuffer();
+        private final LimelightFrame frame = new LimelightFrame();
+        private double ledMode;
+        private long pipeline;
+
+        void publish(double[] corners) {
+            frame.setCorners(corners);
+            frames.publish(frame);
+        }
+
+        @Override
+        public boolean read(LimelightFrame frame) {
+            return frames.read(frame);
+        }
+
+        @Override
+        public double getLedMode() {
+            return ledMode;
+        }
+
+        @Override
+        public void setLedMode(int mode) {
+            ledMode = mode;
+        }
+
+        @Override
+        public long getPipeline() {
+            return pipeline;
+        }
+
+        @Override
+        public void setPipeline(double id) {
+            pipeline = Math.round(id);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.team1540.robot2022.sim;
+
+import com.ctre.phoenix.motorcontrol.NeutralMode;
+import edu.wpi.first.hal.HAL;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.team1540.robot2022.commands.climber.Climber;
+import org.team1540.robot2022.commands.drivetrain.Drivetrain;
+import org.team1540.robot2022.commands.indexer.Indexer;
+import org.team1540.robot2022.commands.intake.Intake;
+import org.team1540.robot2022.commands.shooter.Shooter;
+import org.team1540.robot2022.utils.CanBusBudget;
+import org.team1540.robot2022.utils.RevBlinkin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SimCanBusTest {
+    private static final int MOTORS = 11;
+    private static final double SECONDS = 5;
+
+    @BeforeClass
+    public static void initializeHAL() {
+        assertTrue(HAL.initialize(500, 0));
+    }
+
+    /**
+     * Builds every subsystem the way RobotContainer does, so the motors get their real status frame profiles, and
+     * checks the frames they send fit in the CAN bus budget
+     */
+    @Test
+    public void statusFramesFitInBudget() {
+        SimHardware hardware = new SimHardware();
+        new Drivetrain(hardware, NeutralMode.Brake, hardware.gyro(), new RevBlinkin(9, true));
+        new Intake(hardware);
+        new Indexer(hardware, NeutralMode.Brake);
+        new Shooter(hardware);
+        new Climber(hardware);
+        assertEquals(MOTORS, hardware.getMotors().size());
+
+        for (int loop = 0; loop * SimHardware.LOOP_PERIOD < SECONDS; loop++) {
+            hardware.simulationPeriodic();
+        }
+
+        SimCanBus canBus = hardware.getCanBus();
+        assertTrue("No frames were sent", canBus.getFrames() > 0);
+        assertEquals("Simulated bus doesn't match the estimate",
+                CanBusBudget.estimateUtilization(hardware.getMotors()), canBus.getAverageUtilization(), 0.01);
+        assertTrue(String.format("Peak CAN utilization %.1f%% is over the %.0f%% budget",
+                        canBus.getPeakUtilization() * 100, CanBusBudget.MAX_UTILIZATION * 100),
+                canBus.getPeakUtilization() < CanBusBudget.MAX_UTILIZATION);
+    }
+}
@@ -0,0 +1,66 @@
+package org.team1540.robot2022.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FlightRecorderReaderTest {
+    private static final int SLOTS = 64;
+    private static final int RECORDS_BEFORE_KILL = 101; // Enough to wrap around the ring
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Kills a writer in the middle of recording, like the robot losing power, and checks the timeline still reads back
+     */
+    @Test
+    public void recoversTimelineAfterWriterIsKilled() throws Exception {
+        File file = new File(folder.getRoot(), "flightrecorder.bin");
+        Process writer = new ProcessBuilder(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                FlightRecorderReader.class.getName(), "--generate", file.getPath(), Integer.toString(SLOTS))
+                .redirectErrorStream(true)
+                .start();
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(writer.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = output.readLine()) != null && !line.equals("Wrote " + RECORDS_BEFORE_KILL + " records")) {
+                // Wait for the writer to get far enough
+            }
+            assertTrue("Writer exited before recording enough", line != null);
+        } finally {
+            writer.destroyForcibly();
+            writer.waitFor(10, TimeUnit.SECONDS);
+        }
+
+        FlightRecorderReader reader = new FlightRecorderReader(file.getPath());
+        assertEquals(9, reader.getChannelNames().length);
+        long count = 0;
+        long previousSequence = -1;
+        double previousTimestamp = Double.NEGATIVE_INFINITY;
+        while (reader.next()) {
+            if (previousSequence >= 0) {
+                assertEquals("Gap in the timeline", previousSequence + 1, reader.getSequence());
+            }
+            assertTrue("Timestamp went backwards at record " + reader.getSequence(), reader.getTimestamp() > previousTimestamp);
+            assertEquals(Math.sin(reader.getTimestamp()), reader.get(0), 1e-9);
+            previousSequence = reader.getSequence();
+            previousTimestamp = reader.getTimestamp();
+            count++;
+        }
+        // At most one slot can be lost, torn by the kill while it was being overwritten
+        assertTrue("Recovered " + count + " records", count >= SLOTS - 1 && count <= SLOTS);
+        assertTrue("Lost the newest records, ended at " + previousSequence, previousSequence >= RECORDS_BEFORE_KILL);
+    }
+}